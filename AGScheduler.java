@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.FileReader;
 import java.util.*;
+import java.util.function.IntUnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 public class AGScheduler {
@@ -16,17 +17,17 @@ public class AGScheduler {
     // process class representing each process in the system
     public static class Process {
         String name; // process identifier
-        int arrival; // arrival time when process enters the system
+        long arrival; // arrival time when process enters the system
         int burst; // total CPU time needed (burst time)
         int remaining; // remaining execution time (decrements as process runs)
         int priority; // priority level (smaller number = higher priority)
         int quantum; // current quantum time allocated to this process
         int usedInQuantum; // how much quantum has been used in current quantum cycle
-        int turnaround; // turnaround time (finish time - arrival time)
+        long turnaround; // turnaround time (finish time - arrival time)
         List<Integer> quantumHistory; // history of quantum values as they change over time
 
         // Constructor to initialize a process
-        Process(String name, int arrival, int burst, int priority, int quantum) {
+        Process(String name, long arrival, int burst, int priority, int quantum) {
             this.name = name;
             this.arrival = arrival;
             this.burst = burst;
@@ -41,25 +42,123 @@ public class AGScheduler {
 
         // determines which scheduling phase the process is currently in based on quantum usage
         int getPhase() {
-            // Calculate 25% and 50% thresholds of quantum
-            int first25 = (int) Math.ceil(quantum * 0.25); // first 25%
-            int first50 = first25 * 2; // second 25%
+            return getPhase(Policy.DEFAULT);
+        }
 
+        // same, with the phase split of the given policy
+        int getPhase(Policy policy) {
             // phase choosed based on how much quantum has been used
-            if (usedInQuantum < first25) return FCFS; // first 25%: FCFS phase
-            if (usedInQuantum < first50) return PRIORITY; // second 25%: Priority phase
-            return SJF; // last 50%: SJF phase
+            if (usedInQuantum < policy.fcfsEnd(quantum)) return FCFS; // first 25% by default
+            if (usedInQuantum < policy.priorityEnd(quantum)) return PRIORITY; // second 25%
+            return SJF; // the rest
+        }
+    }
+
+    // Phase split and quantum penalties. With q the process's quantum and left the
+    // unused part of it:
+    //  - FCFS while used < ceil(q * fcfsPercent / 100), then PRIORITY for another
+    //    ceil(q * priorityPercent / 100), then SJF for the rest
+    //  - quantum used up:          q += exhaustedIncrement
+    //  - preempted in PRIORITY:    q += ceil(left * priorityPenaltyPercent / 100)
+    //  - preempted in SJF:         q += ceil(left * sjfPenaltyPercent / 100)
+    // DEFAULT is the original scheme: 25% / 25% / 50%, +2, ceil(left / 2), left.
+    // The five integer constructor covers these percentage schemes; the other one
+    // takes any functions:
+    //  - fcfsLength(q), priorityLength(q): how long each phase lasts
+    //  - exhausted(q):                     the new quantum once q is used up
+    //  - priorityPenalty(left), sjfPenalty(left): what a preemption adds
+    // The constructor tabulates every function for values below TABLE, so for
+    // the usual quanta the engines only do array loads through the same final
+    // methods and the inner loop makes no call through an IntUnaryOperator that
+    // could go megamorphic. Only values of TABLE and above call the function.
+    // RunState also works the phase boundaries out once per quantum instead of
+    // on every tick.
+    static final class Policy {
+        static final Policy DEFAULT = new Policy(25, 25, 2, 50, 100);
+
+        private static final int TABLE = 256;
+
+        private final IntUnaryOperator fcfsLength, priorityLength, exhausted, priorityPenaltyOf, sjfPenaltyOf;
+        private final String description;
+        private final int[] fcfsEnd = new int[TABLE], priorityEnd = new int[TABLE], afterExhausted = new int[TABLE];
+        private final int[] priorityPenalty = new int[TABLE], sjfPenalty = new int[TABLE];
+
+        Policy(int fcfsPercent, int priorityPercent, int exhaustedIncrement,
+               int priorityPenaltyPercent, int sjfPenaltyPercent) {
+            this(q -> percentUp(q, fcfsPercent), q -> percentUp(q, priorityPercent), q -> q + exhaustedIncrement,
+                    left -> percentUp(left, priorityPenaltyPercent), left -> percentUp(left, sjfPenaltyPercent),
+                    "FCFS " + fcfsPercent + "%, PRIORITY " + priorityPercent + "%, exhausted +" + exhaustedIncrement
+                            + ", priority preemption +" + priorityPenaltyPercent + "% of the rest, SJF preemption +"
+                            + sjfPenaltyPercent + "% of the rest");
+            if (fcfsPercent < 0 || priorityPercent < 0 || fcfsPercent + priorityPercent > 100)
+                throw new IllegalArgumentException("phase shares must be between 0 and 100% in total");
+            if (exhaustedIncrement < 0 || priorityPenaltyPercent < 0 || sjfPenaltyPercent < 0)
+                throw new IllegalArgumentException("penalties cannot shrink the quantum");
+        }
+
+        Policy(IntUnaryOperator fcfsLength, IntUnaryOperator priorityLength, IntUnaryOperator exhausted,
+               IntUnaryOperator priorityPenalty, IntUnaryOperator sjfPenalty, String description) {
+            this.fcfsLength = fcfsLength;
+            this.priorityLength = priorityLength;
+            this.exhausted = exhausted;
+            this.priorityPenaltyOf = priorityPenalty;
+            this.sjfPenaltyOf = sjfPenalty;
+            this.description = description;
+            for (int v = 0; v < TABLE; v++) {
+                fcfsEnd[v] = fcfsLength.applyAsInt(v);
+                priorityEnd[v] = fcfsEnd[v] + priorityLength.applyAsInt(v);
+                afterExhausted[v] = exhausted.applyAsInt(v);
+                this.priorityPenalty[v] = priorityPenalty.applyAsInt(v);
+                this.sjfPenalty[v] = sjfPenalty.applyAsInt(v);
+                if (fcfsEnd[v] < 0 || priorityEnd[v] < fcfsEnd[v])
+                    throw new IllegalArgumentException("phases cannot be negative: " + description);
+                if (afterExhausted[v] < v || this.priorityPenalty[v] < 0 || this.sjfPenalty[v] < 0)
+                    throw new IllegalArgumentException("penalties cannot shrink the quantum: " + description);
+            }
+        }
+
+        // quantum usage at which FCFS ends and PRIORITY begins
+        int fcfsEnd(int quantum) {
+            return quantum < TABLE ? fcfsEnd[quantum] : fcfsLength.applyAsInt(quantum);
+        }
+
+        // quantum usage at which PRIORITY ends and SJF begins
+        int priorityEnd(int quantum) {
+            return quantum < TABLE ? priorityEnd[quantum]
+                    : fcfsLength.applyAsInt(quantum) + priorityLength.applyAsInt(quantum);
+        }
+
+        int afterExhausted(int quantum) {
+            return quantum < TABLE ? afterExhausted[quantum] : exhausted.applyAsInt(quantum);
+        }
+
+        int priorityPenalty(int left) {
+            return left < TABLE ? priorityPenalty[left] : priorityPenaltyOf.applyAsInt(left);
+        }
+
+        int sjfPenalty(int left) {
+            return left < TABLE ? sjfPenalty[left] : sjfPenaltyOf.applyAsInt(left);
+        }
+
+        // ceil(value * percent / 100)
+        private static int percentUp(int value, int percent) {
+            return (int) (((long) value * percent + 99) / 100);
+        }
+
+        @Override
+        public String toString() {
+            return description;
         }
     }
 
     // stores final results for a single process
     public static class ProcessResult {
         String name; // process name
-        int waitingTime; // total waiting time (turnaround - burst)
-        int turnaroundTime; //total turnaround time
+        long waitingTime; // total waiting time (turnaround - burst)
+        long turnaroundTime; //total turnaround time
         List<Integer> quantumHistory; // history of quantum values
 
-        ProcessResult(String n, int w, int t, List<Integer> q) {
+        ProcessResult(String n, long w, long t, List<Integer> q) {
             name = n;
             waitingTime = w;
             turnaroundTime = t;
@@ -73,6 +172,8 @@ public class AGScheduler {
         List<ProcessResult> processResults; // detailed results for each process
         double avgW; // average waiting time across all processes
         double avgT; // average turnaround time across all processes
+        SchedulerMetrics.Snapshot metrics; // instrumentation counters (null unless -Dscheduler.metrics=true)
+        boolean cancelled; // true if the run was stopped early through its SimulationMonitor
 
         Result(List<String> o, List<ProcessResult> p, double w, double t) {
             order = o;
@@ -84,7 +185,34 @@ public class AGScheduler {
 
     //run function
     public static Result run(List<Process> processes) {
-        int time = 0; // current simulation time (CPU clock)
+        return run(processes, null);
+    }
+
+    // same as run, but publishes progress to the given monitor (may be null) and stops
+    // early if it gets cancelled; only the finished processes are reported then
+    public static Result run(List<Process> processes, SimulationMonitor monitor) {
+        return run(processes, monitor, null);
+    }
+
+    // same, and publishes scheduling events when events is not null (AG has no
+    // context switch cost, so no CONTEXT_SWITCH events are sent)
+    public static Result run(List<Process> processes, SimulationMonitor monitor, SchedulingEvents events) {
+        return run(processes, monitor, events, Policy.DEFAULT);
+    }
+
+    // same, with another phase split and penalties
+    public static Result run(List<Process> processes, SimulationMonitor monitor, SchedulingEvents events,
+                             Policy policy) {
+        if (monitor == null && SimulationMonitor.publishing()) {
+            // no monitor given and -Dscheduler.jmx asks for one: publish it for the length of this run
+            SimulationMonitor published = SimulationMonitor.register("AG", processes.size());
+            try {
+                return run(processes, published, events, policy);
+            } finally {
+                published.unregister();
+            }
+        }
+        long time = 0; // current simulation time (CPU clock)
         int completed = 0; // number of processes that have finished execution
         int n = processes.size(); //total number of processes
         Process current = null; //currently running process (null if CPU idle)
@@ -97,6 +225,11 @@ public class AGScheduler {
         // add flag to track if we already checked for preemption in PRIORITY phase
         boolean priorityPreemptionChecked = false; // prevents multiple priority checks in same phase
 
+        SchedulerMetrics metrics = SchedulerMetrics.start("AG"); // null when instrumentation is off
+        long loops = 0; // loop iterations, used to sample progress for the monitor
+        boolean cancelled = false;
+        boolean idle = false; // an IDLE event was sent for the current gap
+
         // initialize ready queue with processes that arrive at time 0
         for (int i = 0; i < n; i++) {
             if (processes.get(i).arrival == time) {
@@ -106,11 +239,23 @@ public class AGScheduler {
 
         // main scheduling loop - runs until all processes complete
         while (completed < n) {
+            if (SchedulerMetrics.ENABLED) metrics.events++;
+
+            // publish progress every SAMPLE iterations, and stop if someone cancelled the run
+            if (monitor != null && (++loops & SimulationMonitor.SAMPLE_MASK) == 0) {
+                monitor.update(time, completed, ready.size());
+                if (monitor.isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+            }
 
             // If CPU is idle, try to schedule a new process
             if (current == null) {
                 // If ready queue is empty
                 if (ready.size() == 0) {
+                    if (events != null && !idle) events.idle(time);
+                    idle = true;
                     time++; // add time by 1 unit
 
                     // add any processes that arrive at this new time
@@ -122,14 +267,18 @@ public class AGScheduler {
                     continue; // go back to while loop start
                 }
 
+                if (SchedulerMetrics.ENABLED) metrics.sampleQueue(ready.size());
                 // pick first one (FCFS)
                 current = ready.remove(0); // FCFS selection from ready queue
+                idle = false;
+                if (events != null) events.dispatch(time, current.name);
                 // update execution order (only if different from last process)
                 if (executionOrder.size() == 0) { // first process to run
                     executionOrder.add(current.name);
                 } else { // Check if different from previous process
                     String last = executionOrder.get(executionOrder.size() - 1);
                     if (!last.equals(current.name)) {
+                        if (SchedulerMetrics.ENABLED) metrics.contextSwitch(last, current.name, time);
                         executionOrder.add(current.name);
                     }
                 }
@@ -149,6 +298,7 @@ public class AGScheduler {
                 current.turnaround = time - current.arrival; // calculate turnaround time
                 current.quantumHistory.add(0); // add 0 to quantum history (process finished)
                 completed++; // increment completed count
+                if (events != null) events.complete(time, current.name);
                 current = null; // cPU now idle
                 priorityPreemptionChecked = false; // reset preemption flag
 
@@ -164,9 +314,11 @@ public class AGScheduler {
 
             // check if process used all its quantum but still has work left
             if (current.usedInQuantum == current.quantum) {
-                current.quantum += 2; // increase quantum by 2 (Adaptive Garaging)
+                current.quantum = policy.afterExhausted(current.quantum); // +2 by default (Adaptive Garaging)
                 current.quantumHistory.add(current.quantum); // record new quantum
                 current.usedInQuantum = 0; // reset quantum usage
+                if (SchedulerMetrics.ENABLED) metrics.quantumExpired(current.name, current.quantum, time);
+                if (events != null && !ready.isEmpty()) events.preempt(time, current.name, ready.get(0).name);
                 ready.add(current); // put process back in ready queue
                 current = null; // CPU now idle
                 priorityPreemptionChecked = false; // reset preemption flag
@@ -182,7 +334,7 @@ public class AGScheduler {
             }
 
             // get current phase and detect phase change
-            int currentPhase = current.getPhase();
+            int currentPhase = current.getPhase(policy);
             boolean phaseChanged = (previousPhase != currentPhase);
             previousPhase = currentPhase; // update previous phase
 
@@ -205,13 +357,21 @@ public class AGScheduler {
                 if (best != current) {
                     // calculate remaining quantum for current process
                     int remainingQ = current.quantum - current.usedInQuantum;
-                    // add half of remaining quantum to current process's quantum (penalty)
-                    int addedQ = (int) Math.ceil(remainingQ / 2.0);
+                    // add half of remaining quantum to current process's quantum (penalty, by default)
+                    int addedQ = policy.priorityPenalty(remainingQ);
                     current.quantum += addedQ; // increase quantum
                     current.quantumHistory.add(current.quantum); // record quantum change
                     current.usedInQuantum = 0; // reset quantum usage
                     ready.add(current); // put preempted process back in ready queue
                     ready.remove(best); // remove new process from ready queue
+                    if (SchedulerMetrics.ENABLED) {
+                        metrics.preemption("AG_PRIORITY", current.name, best.name, time);
+                        metrics.contextSwitch(current.name, best.name, time);
+                    }
+                    if (events != null) {
+                        events.preempt(time, current.name, best.name);
+                        events.dispatch(time, best.name);
+                    }
                     current = best; // switch to higher priority process
                     priorityPreemptionChecked = false; // reset for new process
 
@@ -233,44 +393,424 @@ public class AGScheduler {
 
                 // If a shorter process exists in ready queue
                 if (shortest != current) {
-                    // give all remaining quantum as penalty to current process
+                    // give all remaining quantum as penalty to current process (by default)
                     int remainingQ = current.quantum - current.usedInQuantum;
-                    current.quantum += remainingQ; // add remaining quantum
+                    current.quantum += policy.sjfPenalty(remainingQ); // add remaining quantum
                     current.quantumHistory.add(current.quantum); // record quantum change
                     current.usedInQuantum = 0; // reset quantum usage
                     ready.add(current); // put preempted process back in ready queue
                     ready.remove(shortest); // remove new process from ready queue
+                    if (SchedulerMetrics.ENABLED) {
+                        metrics.preemption("AG_SJF", current.name, shortest.name, time);
+                        metrics.contextSwitch(current.name, shortest.name, time);
+                    }
+                    if (events != null) {
+                        events.preempt(time, current.name, shortest.name);
+                        events.dispatch(time, shortest.name);
+                    }
                     current = shortest; // switch to shorter process
                     executionOrder.add(current.name); // update execution order
                 }
             }
         }
 
+        if (SchedulerMetrics.ENABLED) metrics.finish(time);
+        if (monitor != null) monitor.finish(time, completed);
+        if (events != null) events.flush();
+
         // calculate final results for all processes
         List<ProcessResult> results = new ArrayList<>();
-        double totalW = 0; // total waiting time
-        double totalT = 0; // total turnaround time
+        TimeSum totalW = new TimeSum(); // total waiting time
+        TimeSum totalT = new TimeSum(); // total turnaround time
 
         for (int i = 0; i < n; i++) {
             Process p = processes.get(i);
-            int waiting = p.turnaround - p.burst; // Waiting time = turnaround - burst
+            if (p.remaining > 0) continue; // unfinished (run was cancelled)
+            long waiting = p.turnaround - p.burst; // Waiting time = turnaround - burst
             results.add(new ProcessResult(
                     p.name,
                     waiting,
                     p.turnaround,
                     p.quantumHistory
             ));
-            totalW += waiting;
-            totalT += p.turnaround;
+            totalW.add(waiting);
+            totalT.add(p.turnaround);
         }
 
         // return final results
-        return new Result(
+        Result result = new Result(
                 executionOrder,
                 results,
-                totalW / n, // Average waiting time
-                totalT / n  // Average turnaround time
+                totalW.average(), // Average waiting time
+                totalT.average()  // Average turnaround time
         );
+        result.cancelled = cancelled;
+        if (SchedulerMetrics.ENABLED) result.metrics = metrics.snapshot();
+        return result;
+    }
+
+    // Reusable run over an immutable Workload. Unlike run(List), nothing is written into
+    // the caller's objects: quantum, usage and history live in arrays owned by this state.
+    // Everything is allocated once (history arrays only grow), and run() starts with
+    // reset(), so the same workload can be replayed without allocating. One per thread.
+    static final class RunState {
+        Workload workload; // replaced by rerun
+        private final Policy policy;
+        private int n;
+        private int[] byArrival; // arrival order, ties in input order
+        private int[] remaining, quantum, usedInQuantum;
+        private int[] fcfsEnd, priorityEnd; // phase boundaries of each current quantum
+        private long[] turnaround;
+        private int[][] history; // quantum history per process
+        private int[] historyLength;
+
+        // ready queue as a doubly linked list over process indices, kept in the same order
+        // as the ArrayList in run(List) (append at the tail, remove anywhere)
+        private int[] prev, next;
+        private boolean[] inReady;
+        private int head = -1, tail = -1, readySize;
+
+        private int[] order = new int[16];
+        private int orderLength;
+        private long time;
+
+        // incremental mode: scalars time, arrival pointer, completed, current, previous
+        // phase, preemption checked, order length; one record (index, remaining, quantum,
+        // used, history length) for the running process and then each queued one in order
+        private final Checkpoints checkpoints = new Checkpoints(7);
+        private long checkpointInterval, nextCheckpoint = Long.MAX_VALUE;
+        private long resumedFrom;
+
+        private TimeSeries series; // optional, filled by run() (by rerun() from resumedFrom on)
+        private ResultWriter sink; // optional, written by run() and rerun()
+
+        RunState(Workload w) {
+            this(w, Policy.DEFAULT);
+        }
+
+        RunState(Workload w, Policy policy) {
+            workload = w;
+            this.policy = policy;
+            n = w.size();
+            byArrival = w.indicesByArrival();
+            remaining = new int[n];
+            quantum = new int[n];
+            usedInQuantum = new int[n];
+            fcfsEnd = new int[n];
+            priorityEnd = new int[n];
+            turnaround = new long[n];
+            history = new int[n][4];
+            historyLength = new int[n];
+            prev = new int[n];
+            next = new int[n];
+            inReady = new boolean[n];
+        }
+
+        void reset() {
+            for (int i = 0; i < n; i++) init(i);
+            head = tail = -1;
+            readySize = orderLength = 0;
+            time = 0;
+            checkpoints.clear();
+            nextCheckpoint = checkpointInterval > 0 ? checkpointInterval : Long.MAX_VALUE;
+            resumedFrom = 0;
+            if (series != null) series.clear();
+        }
+
+        // records busy / idle time, queue length and running priority; AG has no switch cost
+        void setTimeSeries(TimeSeries series) {
+            this.series = series;
+        }
+
+        // streams every dispatch and completion (with its quantum history) to the writer as
+        // it happens (a rerun first replays what it keeps from the checkpoint); null stops it
+        void setSink(ResultWriter sink) {
+            this.sink = sink;
+        }
+
+        private void init(int i) {
+            remaining[i] = workload.burst(i);
+            quantum[i] = workload.quantum(i);
+            fcfsEnd[i] = policy.fcfsEnd(quantum[i]);
+            priorityEnd[i] = policy.priorityEnd(quantum[i]);
+            usedInQuantum[i] = 0;
+            turnaround[i] = 0;
+            history[i][0] = quantum[i];
+            historyLength[i] = 1;
+            inReady[i] = false;
+        }
+
+        // Incremental mode: from now on run() records a checkpoint at least interval
+        // time units apart, so that rerun(...) can skip the unchanged prefix. Each one
+        // copies the running and queued processes; 0 switches it off.
+        void checkpointEvery(long interval) {
+            if (interval < 0) throw new IllegalArgumentException("negative checkpoint interval");
+            checkpointInterval = interval;
+        }
+
+        // Same schedule as run(List). Every time value is visited once there, and the
+        // processes arriving at it are either queued or (after a quantum expiry) never
+        // looked at again; a pointer into the arrival order reproduces that. run(List)
+        // spins forever once such a process is lost; here run() returns false instead.
+        boolean run() {
+            reset();
+            boolean done = simulate(0, -1, -1, false, admit(0, -1));
+            if (series != null) series.end(time);
+            return done;
+        }
+
+        // Runs edited, this state's workload with processes changed (Workload.withProcess)
+        // or appended, and ends exactly where new RunState(edited).run() would. Nothing
+        // before the first arrival of a changed process can differ, so the run resumes
+        // from the last checkpoint before it and keeps the order, turnarounds and quantum
+        // histories up to there. Other edits (parameters, removed processes) run from the start.
+        boolean rerun(Workload edited) {
+            long horizon = Checkpoints.horizon(workload, edited, true);
+            byArrival = horizon < 0 ? edited.indicesByArrival() : Checkpoints.arrivalOrder(byArrival, workload, edited);
+            if (edited.size() != n) resize(edited.size());
+            workload = edited;
+            int k = horizon < 0 ? -1 : checkpoints.lastBefore(horizon);
+            if (k < 0) return run();
+
+            time = resumedFrom = checkpoints.time(k);
+            int nextArrival = (int) checkpoints.scalar(k, 1);
+            int current = (int) checkpoints.scalar(k, 3);
+            orderLength = (int) checkpoints.scalar(k, 6);
+            for (int j = nextArrival; j < n; j++) init(byArrival[j]); // not arrived at the checkpoint
+            head = tail = -1;
+            readySize = 0;
+            for (int pos = checkpoints.recordStart(k); pos < checkpoints.recordEnd(k); pos += 5) {
+                int p = (int) checkpoints.record(pos);
+                remaining[p] = (int) checkpoints.record(pos + 1);
+                quantum[p] = (int) checkpoints.record(pos + 2);
+                fcfsEnd[p] = policy.fcfsEnd(quantum[p]);
+                priorityEnd[p] = policy.priorityEnd(quantum[p]);
+                usedInQuantum[p] = (int) checkpoints.record(pos + 3);
+                historyLength[p] = (int) checkpoints.record(pos + 4); // later entries are dropped
+                turnaround[p] = 0;
+                if (p != current) append(p);
+            }
+            checkpoints.truncate(k + 1);
+            nextCheckpoint = checkpointInterval > 0 ? time + checkpointInterval : Long.MAX_VALUE;
+            if (series != null) series.clear();
+            if (sink != null) {
+                for (int j = 0; j < orderLength; j++) sink.dispatched(workload.name(order[j]));
+                for (int i = 0; i < n; i++) // finished before the checkpoint
+                    if (turnaround[i] != 0)
+                        sink.completed(workload.name(i), waiting(i), turnaround[i], history[i], historyLength[i]);
+            }
+            boolean done = simulate((int) checkpoints.scalar(k, 2), current, (int) checkpoints.scalar(k, 4),
+                    checkpoints.scalar(k, 5) != 0, nextArrival);
+            if (series != null) series.end(time);
+            return done;
+        }
+
+        // time of the checkpoint the last rerun started from, 0 for a run from the start
+        long resumedFrom() { return resumedFrom; }
+
+        private void resize(int size) {
+            int old = history.length;
+            remaining = Arrays.copyOf(remaining, size);
+            quantum = Arrays.copyOf(quantum, size);
+            usedInQuantum = Arrays.copyOf(usedInQuantum, size);
+            fcfsEnd = Arrays.copyOf(fcfsEnd, size);
+            priorityEnd = Arrays.copyOf(priorityEnd, size);
+            turnaround = Arrays.copyOf(turnaround, size);
+            history = Arrays.copyOf(history, size);
+            for (int i = old; i < size; i++) history[i] = new int[4];
+            historyLength = Arrays.copyOf(historyLength, size);
+            prev = Arrays.copyOf(prev, size);
+            next = Arrays.copyOf(next, size);
+            inReady = Arrays.copyOf(inReady, size);
+            n = size;
+        }
+
+        private boolean simulate(int completed, int current, int previousPhase,
+                                 boolean priorityPreemptionChecked, int nextArrival) {
+            while (completed < n) {
+                // everything that arrived by now is queued, running, finished or lost
+                if (time >= nextCheckpoint)
+                    checkpoint(nextArrival, completed, current, previousPhase, priorityPreemptionChecked);
+                if (current == -1) {
+                    if (readySize == 0) {
+                        // idle: skip straight to the next arrival
+                        if (nextArrival == n) return false;
+                        if (series != null) series.set(time, TimeSeries.IDLE, 0, 0);
+                        time = Math.max(time + 1, workload.arrival(byArrival[nextArrival]));
+                        nextArrival = admit(nextArrival, -1);
+                        continue;
+                    }
+                    current = head;
+                    unlink(current);
+                    if (orderLength == 0 || order[orderLength - 1] != current) addOrder(current);
+                    priorityPreemptionChecked = false;
+                    previousPhase = -1;
+                }
+
+                if (series != null) series.set(time, TimeSeries.BUSY, readySize, workload.priority(current));
+                remaining[current]--;
+                usedInQuantum[current]++;
+                time++;
+
+                if (remaining[current] == 0) {
+                    turnaround[current] = time - workload.arrival(current);
+                    addHistory(current, 0);
+                    completed++;
+                    if (sink != null)
+                        sink.completed(workload.name(current), waiting(current), turnaround[current],
+                                history[current], historyLength[current]);
+                    current = -1;
+                    priorityPreemptionChecked = false;
+                    nextArrival = admit(nextArrival, -1);
+                    continue;
+                }
+
+                if (usedInQuantum[current] == quantum[current]) {
+                    setQuantum(current, policy.afterExhausted(quantum[current]));
+                    usedInQuantum[current] = 0;
+                    append(current);
+                    current = -1;
+                    priorityPreemptionChecked = false;
+                    // processes arriving right now are never queued by run(List)
+                    while (nextArrival < n && workload.arrival(byArrival[nextArrival]) <= time) nextArrival++;
+                    continue;
+                }
+
+                nextArrival = admit(nextArrival, current);
+
+                int currentPhase = usedInQuantum[current] < fcfsEnd[current] ? FCFS
+                        : usedInQuantum[current] < priorityEnd[current] ? PRIORITY : SJF;
+                boolean phaseChanged = previousPhase != currentPhase;
+                previousPhase = currentPhase;
+
+                if (currentPhase == PRIORITY && (phaseChanged || !priorityPreemptionChecked)) {
+                    priorityPreemptionChecked = true;
+                    int best = current;
+                    for (int p = head; p != -1; p = next[p])
+                        if (workload.priority(p) < workload.priority(best)) best = p;
+                    if (best != current) {
+                        int remainingQ = quantum[current] - usedInQuantum[current];
+                        setQuantum(current, quantum[current] + policy.priorityPenalty(remainingQ));
+                        usedInQuantum[current] = 0;
+                        append(current);
+                        unlink(best);
+                        current = best;
+                        priorityPreemptionChecked = false;
+                        addOrder(current);
+                    }
+                }
+
+                if (currentPhase == SJF) {
+                    int shortest = current;
+                    for (int p = head; p != -1; p = next[p])
+                        if (remaining[p] < remaining[shortest]) shortest = p;
+                    if (shortest != current) {
+                        int remainingQ = quantum[current] - usedInQuantum[current];
+                        setQuantum(current, quantum[current] + policy.sjfPenalty(remainingQ));
+                        usedInQuantum[current] = 0;
+                        append(current);
+                        unlink(shortest);
+                        current = shortest;
+                        addOrder(current);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void checkpoint(int nextArrival, int completed, int current, int previousPhase,
+                                boolean priorityPreemptionChecked) {
+            checkpoints.open(time);
+            checkpoints.set(1, nextArrival);
+            checkpoints.set(2, completed);
+            checkpoints.set(3, current);
+            checkpoints.set(4, previousPhase);
+            checkpoints.set(5, priorityPreemptionChecked ? 1 : 0);
+            checkpoints.set(6, orderLength);
+            if (current != -1) record(current);
+            for (int p = head; p != -1; p = next[p]) record(p);
+            nextCheckpoint = time + checkpointInterval;
+        }
+
+        private void record(int p) {
+            checkpoints.put(p);
+            checkpoints.put(remaining[p]);
+            checkpoints.put(quantum[p]);
+            checkpoints.put(usedInQuantum[p]);
+            checkpoints.put(historyLength[p]);
+        }
+
+        // queues every process arriving exactly now (in input order); earlier ones were lost
+        private int admit(int nextArrival, int current) {
+            while (nextArrival < n && workload.arrival(byArrival[nextArrival]) < time) nextArrival++;
+            while (nextArrival < n && workload.arrival(byArrival[nextArrival]) == time) {
+                int p = byArrival[nextArrival++];
+                if (p != current && !inReady[p] && remaining[p] > 0) append(p);
+            }
+            return nextArrival;
+        }
+
+        private void append(int p) {
+            prev[p] = tail;
+            next[p] = -1;
+            if (tail == -1) head = p;
+            else next[tail] = p;
+            tail = p;
+            inReady[p] = true;
+            readySize++;
+        }
+
+        private void unlink(int p) {
+            if (prev[p] == -1) head = next[p];
+            else next[prev[p]] = next[p];
+            if (next[p] == -1) tail = prev[p];
+            else prev[next[p]] = prev[p];
+            inReady[p] = false;
+            readySize--;
+        }
+
+        // new quantum for p: records it and works out its phase boundaries once
+        private void setQuantum(int p, int q) {
+            quantum[p] = q;
+            fcfsEnd[p] = policy.fcfsEnd(q);
+            priorityEnd[p] = policy.priorityEnd(q);
+            addHistory(p, q);
+        }
+
+        private void addHistory(int p, int q) {
+            if (historyLength[p] == history[p].length)
+                history[p] = Arrays.copyOf(history[p], history[p].length * 2);
+            history[p][historyLength[p]++] = q;
+        }
+
+        private void addOrder(int p) {
+            if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+            order[orderLength++] = p;
+            if (sink != null) sink.dispatched(workload.name(p));
+        }
+
+        long turnaround(int i) { return turnaround[i]; }
+        long waiting(int i) { return turnaround[i] - workload.burst(i); }
+        int orderLength() { return orderLength; }
+        int orderAt(int k) { return order[k]; }
+        int historyLength(int i) { return historyLength[i]; }
+        int historyAt(int i, int k) { return history[i][k]; }
+
+        // the same Result run(List) returns (allocates, meant for reporting and tests)
+        Result toResult() {
+            List<String> names = new ArrayList<>(orderLength);
+            for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+            List<ProcessResult> results = new ArrayList<>();
+            TimeSum totalW = new TimeSum(), totalT = new TimeSum();
+            for (int i = 0; i < n; i++) {
+                List<Integer> qh = new ArrayList<>(historyLength[i]);
+                for (int k = 0; k < historyLength[i]; k++) qh.add(history[i][k]);
+                results.add(new ProcessResult(workload.name(i), waiting(i), turnaround[i], qh));
+                totalW.add(waiting(i));
+                totalT.add(turnaround[i]);
+            }
+            return new Result(names, results, totalW.average(), totalT.average());
+        }
     }
 
     public static void main(String[] args) {
@@ -401,6 +941,8 @@ public class AGScheduler {
         }
         System.out.println("Average Waiting Time: " + result6.avgW);
         System.out.println("Average Turnaround Time: " + result6.avgT);
+
+        if (SchedulerMetrics.ENABLED) System.out.println("\n" + SchedulerMetrics.snapshotAll());
     }
     //Running tests in unit testing
     private void runTest(String path) throws Exception {
@@ -417,7 +959,7 @@ public class AGScheduler {
             JsonObject p = e.getAsJsonObject();
             processes.add(new AGScheduler.Process(
                     p.get("name").getAsString(),
-                    p.get("arrival").getAsInt(),
+                    p.get("arrival").getAsLong(),
                     p.get("burst").getAsInt(),
                     p.get("priority").getAsInt(),
                     p.get("quantum").getAsInt()
@@ -533,5 +1075,68 @@ public class AGScheduler {
     void testAG_6() throws Exception {
         runTest("test_cases_v3/AG_test6.json");
     }
+
+    @Test
+    void defaultPolicyIsTheOriginalScheme() {
+        Policy p = Policy.DEFAULT;
+        for (int q = 1; q < 200; q++) {
+            assertEquals((int) Math.ceil(q * 0.25), p.fcfsEnd(q));
+            assertEquals(2 * (int) Math.ceil(q * 0.25), p.priorityEnd(q));
+            assertEquals(q + 2, p.afterExhausted(q));
+            assertEquals((int) Math.ceil(q / 2.0), p.priorityPenalty(q));
+            assertEquals(q, p.sjfPenalty(q));
+        }
+    }
+
+    @Test
+    void functionPolicyIsOnlyCalledAboveTheTable() {
+        int[] calls = new int[1];
+        IntUnaryOperator quarter = q -> { calls[0]++; return (q + 3) / 4; };
+        Policy p = new Policy(quarter, quarter, q -> q + 2, left -> (left + 1) / 2, left -> left, "counted");
+        int atConstruction = calls[0];
+        for (int q = 1; q < 256; q++) {
+            assertEquals(Policy.DEFAULT.fcfsEnd(q), p.fcfsEnd(q));
+            assertEquals(Policy.DEFAULT.priorityEnd(q), p.priorityEnd(q));
+            assertEquals(Policy.DEFAULT.afterExhausted(q), p.afterExhausted(q));
+            assertEquals(Policy.DEFAULT.priorityPenalty(q), p.priorityPenalty(q));
+            assertEquals(Policy.DEFAULT.sjfPenalty(q), p.sjfPenalty(q));
+        }
+        assertEquals(atConstruction, calls[0]); // served from the tables
+        assertEquals(Policy.DEFAULT.priorityEnd(1000), p.priorityEnd(1000));
+        assertEquals(atConstruction + 2, calls[0]);
+        assertThrows(IllegalArgumentException.class,
+                () -> new Policy(q -> q / 4, q -> q / 4, q -> q - 1, left -> 0, left -> 0, "shrinking"));
+    }
+
+    @Test
+    void customPolicyRunStateMatchesReference() {
+        Policy[] policies = {
+                new Policy(50, 0, 1, 100, 50), // FCFS then straight to SJF, mild penalties
+                new Policy(10, 60, 3, 25, 0),
+                new Policy(0, 100, 0, 100, 100), // PRIORITY for the whole quantum
+                new Policy(q -> Math.min(q, 2), q -> q / 3, q -> q + q / 4 + 1,
+                        left -> 1, left -> left / 2, "FCFS 2, PRIORITY q/3, grow by a quarter")
+        };
+        java.util.SplittableRandom rnd = new java.util.SplittableRandom(11);
+        int compared = 0;
+        for (int c = 0; c < 600; c++) {
+            Policy policy = policies[c % policies.length];
+            Workload w = Workload.random(rnd, 8);
+            RunState s = new RunState(w, policy);
+            if (!s.run()) continue; // the reference would spin on this one
+            List<Process> list = new ArrayList<>();
+            for (int i = 0; i < w.size(); i++)
+                list.add(new Process(w.name(i), w.arrival(i), w.burst(i), w.priority(i), w.quantum(i)));
+            Result ref = run(list, null, null, policy);
+            Result got = s.toResult();
+            assertEquals(ref.order, got.order, policy + " on " + w);
+            for (int i = 0; i < w.size(); i++) {
+                assertEquals(ref.processResults.get(i).turnaroundTime, got.processResults.get(i).turnaroundTime);
+                assertEquals(ref.processResults.get(i).quantumHistory, got.processResults.get(i).quantumHistory);
+            }
+            compared++;
+        }
+        assertTrue(compared > 300);
+    }
     
 }
@@ -0,0 +1,364 @@
+import com.google.gson.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/* =========================================================
+   Batch Runner (many workload files)
+   ========================================================= */
+// Runs every applicable scheduler on every file of a directory or glob and
+// writes a summary table. Each file is read and decoded on its own virtual
+// thread (cheap to block on I/O). The simulations themselves go to a fixed
+// pool with one worker per core, so the CPU is kept busy but never
+// oversubscribed. A file holds one of maxLoaded permits from before it is
+// opened until its last simulation is done, so however many files there are,
+// at most maxLoaded decoded workloads are on the heap at once; the other
+// virtual threads wait holding nothing but their path.
+public class BatchRunner {
+
+    static final int MAX_LOADED_FILES = 256;
+
+    // array-based engines by expectedOutput key
+    static final Map<String, DifferentialHarness.Engine> ENGINES = new LinkedHashMap<>();
+
+    static {
+        ENGINES.put("AG", DifferentialHarness.AG_STATE);
+        ENGINES.put("RR", DifferentialHarness.RR_STATE);
+        ENGINES.put("SJF", DifferentialHarness.SJF_STATE);
+        ENGINES.put("Priority", DifferentialHarness.PRIORITY_STATE);
+        ENGINES.put("CFS", (w, monitor) -> {
+            CFSScheduler s = new CFSScheduler(w);
+            s.run();
+            long[] wt = new long[w.size()], tat = new long[w.size()];
+            for (int i = 0; i < w.size(); i++) {
+                wt[i] = s.waiting(i);
+                tat[i] = s.turnaround(i);
+            }
+            return new DifferentialHarness.Outcome(s.executionOrder(), wt, tat, null, true);
+        });
+    }
+
+    // one line of the summary table
+    static final class Row {
+        final Path file;
+        final String algorithm; // "-" if the file could not be read
+        String status; // PASS / FAIL (checked against expected output), RAN (nothing to check), STALL, ERROR
+        String detail = "";
+        int processes;
+        double avgWaiting, avgTurnaround;
+        long micros;
+
+        Row(Path file, String algorithm) {
+            this.file = file;
+            this.algorithm = algorithm;
+        }
+    }
+
+    private final int workers;
+    int maxLoaded = MAX_LOADED_FILES; // files read but not finished, at most
+
+    private final AtomicInteger loaded = new AtomicInteger(), peakLoaded = new AtomicInteger();
+
+    BatchRunner(int workers) {
+        this.workers = workers;
+    }
+
+    // the most files that were in memory at the same time during the last run
+    int peakLoaded() { return peakLoaded.get(); }
+
+    /* ---------------- input files ---------------- */
+
+    // a directory (all .json files below it) or a glob such as test_cases_v5/**/test_*.json
+    static List<Path> collect(String arg) throws IOException {
+        Path dir = Paths.get(arg);
+        PathMatcher matcher;
+        if (Files.isDirectory(dir)) {
+            matcher = p -> p.toString().endsWith(".json");
+        } else {
+            // walk from the part before the first wildcard
+            int wildcard = arg.length();
+            for (char c : new char[]{'*', '?', '[', '{'}) {
+                int i = arg.indexOf(c);
+                if (i >= 0) wildcard = Math.min(wildcard, i);
+            }
+            int slash = arg.lastIndexOf('/', wildcard);
+            dir = Paths.get(slash < 0 ? "." : arg.substring(0, slash + 1));
+            PathMatcher glob = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+            Path base = dir;
+            matcher = p -> glob.matches(slash < 0 ? base.relativize(p) : p);
+        }
+        try (Stream<Path> s = Files.walk(dir)) {
+            return s.filter(Files::isRegularFile).filter(matcher::matches).sorted().toList();
+        }
+    }
+
+    /* ---------------- running ---------------- */
+
+    // one row per (file, applicable algorithm), in file order
+    List<Row> run(List<Path> files) throws InterruptedException {
+        ExecutorService cpu = Executors.newFixedThreadPool(workers);
+        Semaphore permits = new Semaphore(maxLoaded);
+        peakLoaded.set(0);
+        List<Future<List<Row>>> perFile = new ArrayList<>(files.size());
+        try (ExecutorService io = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) perFile.add(io.submit(() -> runFile(file, permits, cpu)));
+        } finally {
+            cpu.shutdown();
+        }
+
+        List<Row> rows = new ArrayList<>();
+        for (Future<List<Row>> f : perFile) {
+            try {
+                rows.addAll(f.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause()); // runFile reports its own errors as rows
+            }
+        }
+        return rows;
+    }
+
+    // runs on a virtual thread: read the file, then hand each simulation to the CPU pool;
+    // the permit is held until those simulations are done
+    private List<Row> runFile(Path file, Semaphore permits, ExecutorService cpu) throws InterruptedException {
+        permits.acquire();
+        try {
+            peakLoaded.accumulateAndGet(loaded.incrementAndGet(), Math::max);
+            WorkloadCodec.TestFile t;
+            try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                t = WorkloadCodec.readTestFile(r);
+            } catch (IOException | RuntimeException e) {
+                Row row = new Row(file, "-");
+                row.status = "ERROR";
+                row.detail = String.valueOf(e.getMessage());
+                return List.of(row);
+            }
+
+            List<Future<Row>> runs = new ArrayList<>();
+            for (String algorithm : applicable(t)) {
+                WorkloadCodec.Expected expected = t.expected.get(algorithm);
+                runs.add(cpu.submit(() -> simulate(file, algorithm, t.workload, expected)));
+            }
+            List<Row> rows = new ArrayList<>(runs.size());
+            for (Future<Row> f : runs) {
+                try {
+                    rows.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return rows;
+        } finally {
+            loaded.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    // the algorithms with an expected block, or, for a bare workload, every
+    // algorithm whose parameters are set
+    static List<String> applicable(WorkloadCodec.TestFile t) {
+        List<String> out = new ArrayList<>();
+        for (String algorithm : ENGINES.keySet()) {
+            if (!t.expected.isEmpty()) {
+                if (t.expected.containsKey(algorithm)) out.add(algorithm);
+                continue;
+            }
+            Workload w = t.workload;
+            boolean ok = switch (algorithm) {
+                case "RR" -> w.rrQuantum > 0;
+                case "Priority" -> w.agingInterval > 0;
+                case "AG" -> {
+                    boolean quanta = true;
+                    for (int i = 0; i < w.size(); i++) quanta &= w.quantum(i) > 0;
+                    yield quanta;
+                }
+                default -> true;
+            };
+            if (ok) out.add(algorithm);
+        }
+        return out;
+    }
+
+    // runs on a CPU worker
+    static Row simulate(Path file, String algorithm, Workload w, WorkloadCodec.Expected expected) {
+        Row row = new Row(file, algorithm);
+        row.processes = w.size();
+        long start = System.nanoTime();
+        DifferentialHarness.Outcome out;
+        try {
+            out = ENGINES.get(algorithm).run(w, null);
+        } catch (RuntimeException e) {
+            row.status = "ERROR";
+            row.detail = e.toString();
+            return row;
+        }
+        row.micros = (System.nanoTime() - start) / 1000;
+        if (!out.completed) {
+            row.status = "STALL";
+            return row;
+        }
+
+        TimeSum totalW = new TimeSum(), totalT = new TimeSum();
+        for (int i = 0; i < w.size(); i++) {
+            totalW.add(out.waiting[i]);
+            totalT.add(out.turnaround[i]);
+        }
+        row.avgWaiting = totalW.average();
+        row.avgTurnaround = totalT.average();
+
+        if (expected == null) {
+            row.status = "RAN";
+        } else {
+            row.detail = mismatch(w, out, expected);
+            row.status = row.detail.isEmpty() ? "PASS" : "FAIL";
+        }
+        return row;
+    }
+
+    // first difference from the expected block, or "" if there is none
+    static String mismatch(Workload w, DifferentialHarness.Outcome out, WorkloadCodec.Expected e) {
+        if (!e.order.isEmpty() && out.order != null && !e.order.equals(out.order))
+            return "execution order differs";
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < w.size(); i++) index.put(w.name(i), i);
+        for (int k = 0; k < e.size(); k++) {
+            Integer i = index.get(e.names.get(k));
+            if (i == null) return "unknown process " + e.names.get(k);
+            if (out.waiting[i] != e.waiting[k]) return "waiting time of " + e.names.get(k);
+            if (out.turnaround[i] != e.turnaround[k]) return "turnaround time of " + e.names.get(k);
+            if (k < e.quantumHistory.size() && out.quantumHistory != null) {
+                List<Integer> h = out.quantumHistory.get(i);
+                int[] expected = e.quantumHistory.get(k);
+                boolean same = h.size() == expected.length;
+                for (int j = 0; same && j < expected.length; j++) same = h.get(j) == expected[j];
+                if (!same) return "quantum history of " + e.names.get(k);
+            }
+        }
+        return "";
+    }
+
+    /* ---------------- summary ---------------- */
+
+    static void writeSummary(List<Row> rows, Appendable out) throws IOException {
+        Formatter f = new Formatter(out);
+        f.format("%-48s %-9s %9s %12s %12s %10s  %s%n", "file", "algorithm", "processes",
+                "avg waiting", "avg turnar.", "time (ms)", "status");
+        Map<String, int[]> totals = new TreeMap<>(); // status -> count
+        for (Row r : rows) {
+            String name = r.file.toString();
+            if (name.length() > 48) name = "..." + name.substring(name.length() - 45);
+            f.format("%-48s %-9s %9d %12.2f %12.2f %10.2f  %s%s%n", name, r.algorithm, r.processes,
+                    r.avgWaiting, r.avgTurnaround, r.micros / 1000.0, r.status,
+                    r.detail.isEmpty() ? "" : " (" + r.detail + ")");
+            totals.computeIfAbsent(r.status, k -> new int[1])[0]++;
+        }
+        f.format("%d runs:", rows.size());
+        totals.forEach((status, n) -> f.format(" %s=%d", status, n[0]));
+        f.format("%n");
+        f.flush();
+    }
+
+    // usage: BatchRunner <directory | glob> [cpu workers] [summary file]
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: BatchRunner <directory | glob> [cpu workers] [summary file]");
+            return;
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Path> files = collect(args[0]);
+
+        long start = System.nanoTime();
+        List<Row> rows = new BatchRunner(workers).run(files);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (args.length > 2) {
+            try (Writer w = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+                writeSummary(rows, w);
+            }
+        } else {
+            writeSummary(rows, System.out);
+        }
+        System.out.printf("%d files, %d runs in %.2f s on %d workers%n", files.size(), rows.size(), seconds, workers);
+        if (rows.stream().anyMatch(r -> r.status.equals("FAIL") || r.status.equals("ERROR"))) System.exit(1);
+    }
+}
+
+// JUnit checks for the batch runner
+class BatchRunnerJUnitTest {
+
+    // a test-case file for w whose expected blocks come from the reference SJF and Priority engines
+    static String testFile(Workload w) {
+        JsonObject expected = new JsonObject();
+        expected.add("SJF", SimulationService.block(w, DifferentialHarness.SJF.run(w, null)));
+        expected.add("Priority", SimulationService.block(w, DifferentialHarness.PRIORITY.run(w, null)));
+        JsonObject file = new JsonObject();
+        file.add("input", w.toJson());
+        file.add("expectedOutput", expected);
+        return file.toString();
+    }
+
+    @Test
+    void checkedFilesPassAndBareWorkloadsJustRun() throws Exception {
+        Path dir = Files.createTempDirectory("batch");
+        SplittableRandom rnd = new SplittableRandom(35);
+        for (int k = 0; k < 12; k++)
+            Files.writeString(dir.resolve("case_" + k + ".json"), testFile(Workload.random(rnd, 10)));
+        // one expected waiting time off by one: must be reported, not passed
+        JsonObject wrong = JsonParser.parseString(testFile(Workload.random(rnd, 10))).getAsJsonObject();
+        JsonObject first = wrong.getAsJsonObject("expectedOutput").getAsJsonObject("SJF")
+                .getAsJsonArray("processResults").get(0).getAsJsonObject();
+        first.addProperty("waitingTime", first.get("waitingTime").getAsLong() + 1);
+        Files.writeString(dir.resolve("wrong.json"), wrong.toString());
+        WorkloadGenerator gen = new WorkloadGenerator(1, 200);
+        gen.writeJson(dir.resolve("generated.json"), 1, 4, 5);
+        Files.writeString(dir.resolve("broken.json"), "{\"input\": ");
+
+        List<BatchRunner.Row> rows = new BatchRunner(2).run(BatchRunner.collect(dir.toString()));
+
+        int ran = 0, errors = 0, passed = 0;
+        for (BatchRunner.Row r : rows) {
+            String name = r.file.getFileName().toString();
+            if (name.equals("wrong.json")) {
+                assertEquals(r.algorithm.equals("SJF") ? "FAIL" : "PASS", r.status, r.algorithm);
+            } else if (name.equals("broken.json")) {
+                assertEquals("ERROR", r.status);
+                errors++;
+            } else if (name.equals("generated.json")) {
+                assertTrue(r.status.equals("RAN") || r.status.equals("STALL"), r.algorithm + " " + r.status);
+                ran++;
+            } else {
+                assertEquals("PASS", r.status, name + " " + r.algorithm + " " + r.detail);
+                passed++;
+            }
+        }
+        assertEquals(24, passed); // SJF and Priority for each case
+        assertEquals(5, ran); // AG, RR, SJF, Priority and CFS all apply to a generated workload
+        assertEquals(1, errors);
+
+        StringBuilder table = new StringBuilder();
+        BatchRunner.writeSummary(rows, table);
+        assertTrue(table.toString().contains("ERROR=1"));
+        assertTrue(table.toString().contains("FAIL=1"));
+    }
+
+    @Test
+    void onlyMaxLoadedFilesAreInMemoryAtOnce() throws Exception {
+        Path dir = Files.createTempDirectory("batch");
+        SplittableRandom rnd = new SplittableRandom(36);
+        for (int k = 0; k < 200; k++)
+            Files.writeString(dir.resolve("case_" + k + ".json"), testFile(Workload.random(rnd, 10)));
+        BatchRunner runner = new BatchRunner(1);
+        runner.maxLoaded = 3;
+        List<BatchRunner.Row> rows = runner.run(BatchRunner.collect(dir.toString()));
+        assertEquals(400, rows.size());
+        assertTrue(rows.stream().allMatch(r -> r.status.equals("PASS")));
+        assertTrue(runner.peakLoaded() <= 3, "peak " + runner.peakLoaded());
+        assertTrue(runner.peakLoaded() >= 1);
+    }
+}
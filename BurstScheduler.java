@@ -0,0 +1,470 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   CPU / I/O Burst Scheduler
+   ========================================================= */
+// Runs workloads whose processes alternate CPU and I/O bursts (the optional
+// "bursts" field, see Workload.phase). When a CPU burst ends the process
+// issues its I/O and is blocked; when the I/O completes it becomes ready for
+// its next CPU burst. Policies:
+//  - RR: FIFO ready queue, slices of rrQuantum; processes that arrive or wake
+//    up during a slice queue ahead of the preempted one, as in RoundRobin
+//  - SJF: shortest remaining time of the current CPU burst first, preemptive
+//  - PRIORITY: smallest priority first (ties by arrival), preemptive, no aging
+// Switching to a different process costs contextSwitch time units, as in SJF.
+//
+// I/O goes to ioChannels identical devices (0 = unlimited). A request that
+// finds every channel busy waits in FIFO order. Blocked processes sit in a heap
+// ordered by I/O completion time; together with the arrival pointer that heap
+// is the event queue: the CPU runs in one step up to the next event, so the
+// cost is O(log n) per burst and idle gaps are skipped in one jump.
+final class BurstScheduler {
+
+    enum Policy { RR, SJF, PRIORITY }
+
+    final Workload workload;
+    private final Policy policy;
+    private final int n, quantum, context, ioChannels;
+    private final int[] byArrival;
+    private final int[] rank; // position in byArrival, breaks ties
+    private final int[] phase; // index of the current burst of each process
+    private final int[] left; // time left in the current CPU burst
+    private final long[] completion;
+    private final long[] wake; // I/O completion time while blocked
+    private final long[] ioRequested; // time the current I/O was issued
+    private final long[] ioWait; // total time from I/O request to I/O completion
+
+    // ready processes: RR uses a ring, SJF / PRIORITY a binary heap
+    private final int[] ready;
+    private int readyHead, readySize;
+
+    // blocked processes: in-service I/O as a heap on wake time, plus the device FIFO
+    private final int[] blocked;
+    private int blockedSize;
+    private final int[] deviceQueue;
+    private int deviceHead, deviceSize, busyChannels;
+
+    private int[] order = new int[16]; // process that got the CPU at every switch
+    private int orderLength;
+    private long time, busy;
+    private long contextSwitches, preemptions;
+
+    BurstScheduler(Workload w, Policy policy) {
+        this(w, policy, 0);
+    }
+
+    BurstScheduler(Workload w, Policy policy, int ioChannels) {
+        if (policy == Policy.RR && w.rrQuantum < 1) throw new IllegalArgumentException("rrQuantum must be positive");
+        workload = w;
+        this.policy = policy;
+        this.ioChannels = ioChannels;
+        n = w.size();
+        quantum = w.rrQuantum;
+        context = w.contextSwitch;
+        byArrival = w.indicesByArrival();
+        rank = new int[n];
+        for (int k = 0; k < n; k++) rank[byArrival[k]] = k;
+        phase = new int[n];
+        left = new int[n];
+        completion = new long[n];
+        wake = new long[n];
+        ioRequested = new long[n];
+        ioWait = new long[n];
+        ready = new int[Math.max(1, n)];
+        blocked = new int[Math.max(1, n)];
+        deviceQueue = new int[Math.max(1, n)];
+    }
+
+    void reset() {
+        for (int i = 0; i < n; i++) {
+            phase[i] = 0;
+            left[i] = workload.phase(i, 0);
+            completion[i] = 0;
+            ioWait[i] = 0;
+        }
+        readyHead = readySize = blockedSize = 0;
+        deviceHead = deviceSize = busyChannels = 0;
+        orderLength = 0;
+        time = busy = contextSwitches = preemptions = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, completed = 0, current = -1, last = -1, sliceLeft = 0;
+
+        while (completed < n) {
+            next = admit(next);
+
+            // SJF / PRIORITY: a better process that just became ready takes the CPU
+            if (current != -1 && policy != Policy.RR && readySize > 0 && less(ready[0], current)) {
+                readyPush(current);
+                preemptions++;
+                last = current;
+                current = -1;
+            }
+
+            if (current == -1) {
+                if (readySize == 0) {
+                    time = nextEvent(next); // idle until something arrives or wakes up
+                    continue;
+                }
+                current = readyPop();
+                if (last != -1 && last != current) {
+                    time += context;
+                    contextSwitches++;
+                }
+                if (last != current) addOrder(current);
+                sliceLeft = policy == Policy.RR ? quantum : Integer.MAX_VALUE;
+            }
+
+            // RR runs its whole slice; the others stop at the next event to re-check
+            int k = Math.min(left[current], sliceLeft);
+            long event = nextEvent(next);
+            if (policy != Policy.RR && event != Long.MAX_VALUE) k = (int) Math.min(k, Math.max(1, event - time));
+            left[current] -= k;
+            sliceLeft -= k;
+            time += k;
+            busy += k;
+
+            if (left[current] == 0) {
+                int p = current;
+                if (phase[p] + 1 < workload.phaseCount(p)) {
+                    phase[p]++;
+                    requestIo(p);
+                } else {
+                    completion[p] = time;
+                    completed++;
+                }
+                last = p;
+                current = -1;
+            } else if (sliceLeft == 0) {
+                next = admit(next); // arrivals and wake-ups during the slice go first
+                readyPush(current);
+                last = current;
+                current = -1;
+            }
+        }
+    }
+
+    // moves every arrival and I/O completion up to now into the ready set, in time order
+    private int admit(int next) {
+        while (true) {
+            long a = next < n ? workload.arrival(byArrival[next]) : Long.MAX_VALUE;
+            long wk = blockedSize > 0 ? wake[blocked[0]] : Long.MAX_VALUE;
+            if (Math.min(a, wk) > time) return next;
+            if (a <= wk) {
+                readyPush(byArrival[next++]);
+            } else {
+                int p = blockedPop();
+                ioWait[p] += wk - ioRequested[p];
+                phase[p]++;
+                left[p] = workload.phase(p, phase[p]);
+                readyPush(p);
+                busyChannels--;
+                if (deviceSize > 0) { // the freed channel takes the next waiting request
+                    int q = deviceQueue[deviceHead];
+                    deviceHead = (deviceHead + 1) % deviceQueue.length;
+                    deviceSize--;
+                    startIo(q, wk);
+                }
+            }
+        }
+    }
+
+    private void requestIo(int p) {
+        ioRequested[p] = time;
+        if (ioChannels == 0 || busyChannels < ioChannels) {
+            startIo(p, time);
+        } else {
+            deviceQueue[(deviceHead + deviceSize) % deviceQueue.length] = p;
+            deviceSize++;
+        }
+    }
+
+    private void startIo(int p, long start) {
+        busyChannels++;
+        wake[p] = start + workload.phase(p, phase[p]);
+        blockedPush(p);
+    }
+
+    private long nextEvent(int next) {
+        long a = next < n ? workload.arrival(byArrival[next]) : Long.MAX_VALUE;
+        long wk = blockedSize > 0 ? wake[blocked[0]] : Long.MAX_VALUE;
+        return Math.min(a, wk);
+    }
+
+    /* ---------------- ready set ---------------- */
+
+    private boolean less(int a, int b) {
+        if (policy == Policy.SJF && left[a] != left[b]) return left[a] < left[b];
+        if (policy == Policy.PRIORITY && workload.priority(a) != workload.priority(b))
+            return workload.priority(a) < workload.priority(b);
+        return rank[a] < rank[b];
+    }
+
+    private void readyPush(int p) {
+        if (policy == Policy.RR) {
+            ready[(readyHead + readySize) % ready.length] = p;
+            readySize++;
+            return;
+        }
+        int i = readySize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(p, ready[parent])) break;
+            ready[i] = ready[parent];
+            i = parent;
+        }
+        ready[i] = p;
+    }
+
+    private int readyPop() {
+        if (policy == Policy.RR) {
+            int p = ready[readyHead];
+            readyHead = (readyHead + 1) % ready.length;
+            readySize--;
+            return p;
+        }
+        int top = ready[0];
+        int p = ready[--readySize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= readySize) break;
+            if (c + 1 < readySize && less(ready[c + 1], ready[c])) c++;
+            if (!less(ready[c], p)) break;
+            ready[i] = ready[c];
+            i = c;
+        }
+        if (readySize > 0) ready[i] = p;
+        return top;
+    }
+
+    /* ---------------- blocked heap (by wake time) ---------------- */
+
+    private boolean wakesFirst(int a, int b) {
+        return wake[a] < wake[b] || (wake[a] == wake[b] && rank[a] < rank[b]);
+    }
+
+    private void blockedPush(int p) {
+        int i = blockedSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!wakesFirst(p, blocked[parent])) break;
+            blocked[i] = blocked[parent];
+            i = parent;
+        }
+        blocked[i] = p;
+    }
+
+    private int blockedPop() {
+        int top = blocked[0];
+        int p = blocked[--blockedSize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= blockedSize) break;
+            if (c + 1 < blockedSize && wakesFirst(blocked[c + 1], blocked[c])) c++;
+            if (!wakesFirst(blocked[c], p)) break;
+            blocked[i] = blocked[c];
+            i = c;
+        }
+        if (blockedSize > 0) blocked[i] = p;
+        return top;
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    /* ---------------- results ---------------- */
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long ioWait(int i) { return ioWait[i]; } // blocked time, including queueing for a device
+    long readyWait(int i) { return turnaround(i) - workload.burst(i) - ioWait[i]; } // runnable but not running
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+    long contextSwitches() { return contextSwitches; }
+    long preemptions() { return preemptions; }
+
+    // CPU busy time over the span from the first arrival to the last completion
+    double utilization() {
+        if (n == 0) return 0;
+        long end = 0;
+        for (int i = 0; i < n; i++) end = Math.max(end, completion[i]);
+        long span = end - workload.arrival(byArrival[0]);
+        return span == 0 ? 0 : (double) busy / span;
+    }
+
+    // execution order as names (allocates, meant for reporting and tests)
+    List<String> executionOrder() {
+        List<String> names = new ArrayList<>(orderLength);
+        for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+        return names;
+    }
+
+    // usage: BurstScheduler <workload json> [RR|SJF|PRIORITY] [io channels]
+    //        BurstScheduler            (benchmark: 200k processes with 10 CPU bursts each)
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            int count = 200_000, perProcess = 19; // 10 CPU + 9 I/O bursts
+            String[] names = new String[count];
+            long[] a = new long[count];
+            int[] zero = new int[count];
+            int[] start = new int[count + 1], phases = new int[count * perProcess];
+            SplittableRandom rnd = new SplittableRandom(1);
+            for (int i = 0; i < count; i++) {
+                names[i] = "P" + (i + 1);
+                a[i] = i / 4;
+                for (int k = 0; k < perProcess; k++)
+                    phases[i * perProcess + k] = k % 2 == 0 ? 1 + rnd.nextInt(4) : 5 + rnd.nextInt(40);
+                start[i + 1] = (i + 1) * perProcess;
+            }
+            Workload w = new Workload(names, a, zero, zero, zero, 1, 4, 0).withBursts(start, phases);
+            for (Policy policy : Policy.values()) {
+                BurstScheduler s = new BurstScheduler(w, policy, 64);
+                long t0 = System.nanoTime();
+                s.run();
+                System.out.printf("%s: %d bursts in %.2f s, utilization %.1f%%%n", policy,
+                        (long) count * perProcess, (System.nanoTime() - t0) / 1e9, 100 * s.utilization());
+            }
+            return;
+        }
+
+        Workload w = WorkloadCodec.readWorkload(Paths.get(args[0]));
+        Policy policy = args.length > 1 ? Policy.valueOf(args[1].toUpperCase()) : Policy.RR;
+        BurstScheduler s = new BurstScheduler(w, policy, args.length > 2 ? Integer.parseInt(args[2]) : 0);
+        s.run();
+        System.out.println("Execution order: " + s.executionOrder());
+        System.out.println("Process | CPU | I/O wait | Ready wait | Turnaround");
+        for (int i = 0; i < w.size(); i++)
+            System.out.println(w.name(i) + " | " + w.burst(i) + " | " + s.ioWait(i) + " | "
+                    + s.readyWait(i) + " | " + s.turnaround(i));
+        System.out.printf("CPU utilization %.1f%%, context switches %d%n", 100 * s.utilization(), s.contextSwitches());
+    }
+}
+
+// JUnit checks for the CPU / I/O burst engine
+class BurstSchedulerJUnitTest {
+
+    // bursts[i] is process i's CPU / I/O sequence; all arrive at 0 unless given
+    static Workload workload(long[] arrival, int[][] bursts, int quantum, int cs) {
+        int n = bursts.length;
+        String[] names = new String[n];
+        int[] start = new int[n + 1];
+        List<Integer> phases = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            names[i] = "P" + (i + 1);
+            for (int b : bursts[i]) phases.add(b);
+            start[i + 1] = phases.size();
+        }
+        int[] zero = new int[n];
+        return new Workload(names, arrival, zero, zero, zero, cs, quantum, 0)
+                .withBursts(start, phases.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    void ioOverlapsWithOtherProcessesCpu() {
+        Workload w = workload(new long[]{0, 0}, new int[][]{{2, 5, 2}, {4}}, 10, 0);
+        BurstScheduler s = new BurstScheduler(w, BurstScheduler.Policy.RR);
+        s.run();
+        // P1 0-2, blocked 2-7 while P2 runs 2-6, idle 6-7, P1 7-9
+        assertEquals(List.of("P1", "P2", "P1"), s.executionOrder());
+        assertEquals(9, s.completion(0));
+        assertEquals(6, s.completion(1));
+        assertEquals(5, s.ioWait(0));
+        assertEquals(0, s.readyWait(0));
+        assertEquals(8.0 / 9, s.utilization(), 1e-9);
+    }
+
+    @Test
+    void busyDeviceQueuesRequests() {
+        Workload w = workload(new long[]{0, 0}, new int[][]{{1, 4, 1}, {1, 4, 1}}, 4, 0);
+        BurstScheduler s = new BurstScheduler(w, BurstScheduler.Policy.SJF, 1);
+        s.run();
+        // P1 0-1, I/O 1-5; P2 1-2, I/O waits for the device until 5, 5-9; P1 5-6; P2 9-10
+        assertEquals(6, s.completion(0));
+        assertEquals(10, s.completion(1));
+        assertEquals(4, s.ioWait(0));
+        assertEquals(7, s.ioWait(1));
+    }
+
+    @Test
+    void withoutIoSjfMatchesSjfRunState() {
+        SplittableRandom rnd = new SplittableRandom(5);
+        for (int c = 0; c < 500; c++) {
+            Workload w = Workload.random(rnd, 10);
+            BurstScheduler s = new BurstScheduler(w, BurstScheduler.Policy.SJF);
+            SJFScheduler.RunState ref = new SJFScheduler.RunState(w);
+            s.run();
+            ref.run();
+            assertEquals(ref.executionOrder(), s.executionOrder(), w.toString());
+            for (int i = 0; i < w.size(); i++) assertEquals(ref.completion(i), s.completion(i), w.toString());
+        }
+    }
+
+    @Test
+    void burstSequencesRoundTripThroughJson() throws Exception {
+        Workload w = workload(new long[]{0, 3}, new int[][]{{2, 5, 2}, {4}}, 2, 1);
+        com.google.gson.JsonObject json = new com.google.gson.JsonObject();
+        json.add("input", w.toJson());
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("bursts", ".json");
+        java.nio.file.Files.writeString(file, json.toString());
+        Workload streamed = WorkloadCodec.readWorkload(file);
+        Workload tree = Workload.fromJson(json);
+        for (Workload r : List.of(streamed, tree)) {
+            assertEquals(3, r.phaseCount(0));
+            assertEquals(5, r.phase(0, 1));
+            assertEquals(4, r.burst(0)); // CPU total
+            assertEquals(1, r.phaseCount(1));
+            assertEquals(4, r.burst(1));
+        }
+    }
+
+    static List<Integer> bursts(Workload w, int i) {
+        List<Integer> seq = new ArrayList<>();
+        for (int k = 0; k < w.phaseCount(i); k++) seq.add(w.phase(i, k));
+        return seq;
+    }
+
+    @Test
+    void shrinkingCopiesKeepBurstSequences() {
+        Workload w = workload(new long[]{0, 1, 2}, new int[][]{{2, 5, 2}, {4}, {3, 1, 1, 2, 6}}, 2, 1);
+
+        Workload dropped = w.without(1);
+        assertEquals(2, dropped.size());
+        assertEquals(List.of(2, 5, 2), bursts(dropped, 0));
+        assertEquals(List.of(3, 1, 1, 2, 6), bursts(dropped, 1));
+        assertEquals(10, dropped.burst(1));
+
+        // other fields change, the sequence does not
+        Workload moved = w.withProcess(2, 7, 10, 3, 4);
+        assertEquals(7, moved.arrival(2));
+        assertEquals(List.of(3, 1, 1, 2, 6), bursts(moved, 2));
+        assertEquals(List.of(2, 5, 2), bursts(moved, 0));
+
+        // a larger CPU total goes to the last CPU burst
+        assertEquals(List.of(3, 1, 1, 2, 9), bursts(w.withProcess(2, 2, 13, 0, 0), 2));
+        // a smaller one comes off the end; a CPU burst that reaches 0 leaves with its I/O
+        assertEquals(List.of(3, 1, 1, 2, 2), bursts(w.withProcess(2, 2, 6, 0, 0), 2));
+        Workload shorter = w.withProcess(2, 2, 3, 0, 0);
+        assertEquals(List.of(3), bursts(shorter, 2));
+        assertEquals(List.of(2, 5, 1), bursts(shorter.withProcess(0, 0, 3, 0, 0), 0));
+        assertEquals(List.of(3, 1, 1), bursts(w.withProcess(2, 2, 4, 0, 0), 2));
+        assertEquals(List.of(4), bursts(w.withProcess(1, 1, 4, 0, 0), 1));
+
+        // the shrinker's loop: every copy still runs
+        Workload x = w;
+        for (int b = 9; b >= 1; b--) {
+            x = x.withProcess(2, x.arrival(2), b, x.priority(2), x.quantum(2));
+            assertEquals(b, x.burst(2));
+            new BurstScheduler(x, BurstScheduler.Policy.RR).run();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Completely Fair Scheduler (weighted virtual runtime)
+   ========================================================= */
+// Runnable processes sit in a red-black tree (TreeSet) ordered by virtual
+// runtime; the leftmost one runs next. A process's vruntime grows by its run
+// time scaled by NICE_0_WEIGHT / weight, so heavier processes age slower and
+// get proportionally more CPU. Weights come from the Linux nice-to-weight
+// table, with nice = priority - 1 (priority 1 is the default weight 1024,
+// every level below it gets about 25% less).
+//
+// Each pick gets a slice of the scheduling period proportional to its weight,
+// where period = max(targetLatency, runnable * minGranularity), and never less
+// than minGranularity. A new arrival starts at the tree's min vruntime and
+// preempts the running process if it is behind it by more than minGranularity
+// (scaled to the newcomer's weight). Switching to a different process costs
+// contextSwitch time units, as in SJF.
+//
+// The loop is event driven: a process runs in one step until its slice ends,
+// it finishes or the next arrival, so the cost is O(log n) per event and
+// idle gaps are skipped in one jump. Same replay rules as the RunStates: one
+// instance per thread, run() starts with reset().
+final class CFSScheduler {
+
+    static final int NICE_0_WEIGHT = 1024;
+
+    // sched_prio_to_weight from the Linux kernel, nice -20 .. 19
+    static final int[] NICE_TO_WEIGHT = {
+            88761, 71755, 56483, 46273, 36291,
+            29154, 23254, 18705, 14949, 11916,
+            9548, 7620, 6100, 4904, 3906,
+            3121, 2501, 1991, 1586, 1277,
+            1024, 820, 655, 526, 423,
+            335, 272, 215, 172, 137,
+            110, 87, 70, 56, 45,
+            36, 29, 23, 18, 15
+    };
+
+    // vruntime is kept in 1/VR_SCALE time units so light weights do not round to 0
+    private static final long VR_SCALE = 1024;
+
+    static int weight(int priority) {
+        int nice = Math.max(-20, Math.min(19, priority - 1));
+        return NICE_TO_WEIGHT[nice + 20];
+    }
+
+    final Workload workload;
+    private final int n, context, targetLatency, minGranularity;
+    private final int[] byArrival;
+    private final int[] weight, remaining;
+    private final long[] completion;
+    private final long[] vruntime;
+
+    // runnable processes that are not on the CPU, leftmost = smallest (vruntime, index)
+    private final TreeSet<Integer> tree;
+    private long minVruntime;
+    private long totalWeight; // of every runnable process, including the running one
+    private int runnable;
+
+    private int[] order = new int[16]; // process that got the CPU at every switch
+    private int orderLength;
+    private long time;
+    private long contextSwitches, preemptions;
+
+    CFSScheduler(Workload w) {
+        this(w, 6, 1);
+    }
+
+    CFSScheduler(Workload w, int targetLatency, int minGranularity) {
+        if (targetLatency < 1 || minGranularity < 1)
+            throw new IllegalArgumentException("target latency and minimum granularity must be positive");
+        workload = w;
+        n = w.size();
+        context = w.contextSwitch;
+        this.targetLatency = targetLatency;
+        this.minGranularity = minGranularity;
+        byArrival = w.indicesByArrival();
+        weight = new int[n];
+        for (int i = 0; i < n; i++) weight[i] = weight(w.priority(i));
+        remaining = new int[n];
+        completion = new long[n];
+        vruntime = new long[n];
+        tree = new TreeSet<>((a, b) -> vruntime[a] != vruntime[b]
+                ? Long.compare(vruntime[a], vruntime[b]) : Integer.compare(a, b));
+    }
+
+    void reset() {
+        for (int i = 0; i < n; i++) {
+            remaining[i] = workload.burst(i);
+            completion[i] = 0;
+            vruntime[i] = 0;
+        }
+        tree.clear();
+        minVruntime = totalWeight = 0;
+        runnable = orderLength = 0;
+        time = 0;
+        contextSwitches = preemptions = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, completed = 0, current = -1, last = -1, sliceLeft = 0;
+
+        while (completed < n) {
+            if (current == -1) {
+                next = admit(next);
+                if (tree.isEmpty()) {
+                    time = workload.arrival(byArrival[next]); // idle until the next arrival
+                    continue;
+                }
+                current = tree.pollFirst();
+                if (last != -1 && last != current) {
+                    time += context;
+                    contextSwitches++;
+                }
+                if (last != current) addOrder(current);
+                sliceLeft = slice(current);
+            }
+
+            // run until the slice ends, the process finishes or something arrives
+            int k = Math.min(sliceLeft, remaining[current]);
+            if (next < n) k = (int) Math.min(k, Math.max(1, workload.arrival(byArrival[next]) - time));
+            remaining[current] -= k;
+            sliceLeft -= k;
+            time += k;
+            vruntime[current] += (long) k * NICE_0_WEIGHT * VR_SCALE / weight[current];
+            updateMinVruntime(current);
+
+            if (remaining[current] == 0) {
+                completion[current] = time;
+                completed++;
+                runnable--;
+                totalWeight -= weight[current];
+                last = current;
+                current = -1;
+                continue;
+            }
+
+            int before = next;
+            next = admit(next);
+            boolean wakeup = next != before && vruntime[current] - vruntime[tree.first()] > wakeupGranularity(tree.first());
+            if (sliceLeft == 0 || wakeup) {
+                if (wakeup && sliceLeft > 0) preemptions++;
+                tree.add(current);
+                last = current;
+                current = -1;
+            }
+        }
+    }
+
+    // puts every process that has arrived by now into the tree at the current min vruntime
+    private int admit(int next) {
+        while (next < n && workload.arrival(byArrival[next]) <= time) {
+            int p = byArrival[next++];
+            vruntime[p] = minVruntime;
+            tree.add(p);
+            runnable++;
+            totalWeight += weight[p];
+        }
+        return next;
+    }
+
+    // p's share of the scheduling period, in whole time units
+    private int slice(int p) {
+        long period = Math.max(targetLatency, (long) runnable * minGranularity);
+        return (int) Math.max(minGranularity, period * weight[p] / totalWeight);
+    }
+
+    private long wakeupGranularity(int p) {
+        return (long) minGranularity * NICE_0_WEIGHT * VR_SCALE / weight[p];
+    }
+
+    // min vruntime only moves forward; it follows the smaller of the running and leftmost process
+    private void updateMinVruntime(int current) {
+        long v = vruntime[current];
+        if (!tree.isEmpty()) v = Math.min(v, vruntime[tree.first()]);
+        minVruntime = Math.max(minVruntime, v);
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long waiting(int i) { return turnaround(i) - workload.burst(i); }
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+    long contextSwitches() { return contextSwitches; }
+    long preemptions() { return preemptions; } // wakeup preemptions before the slice ended
+
+    // execution order as names (allocates, meant for reporting and tests)
+    List<String> executionOrder() {
+        List<String> names = new ArrayList<>(orderLength);
+        for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+        return names;
+    }
+
+    // usage: CFSScheduler <workload json> [target latency] [min granularity]
+    //        CFSScheduler            (benchmark: 1M runnable tasks)
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            int count = 1_000_000;
+            String[] names = new String[count];
+            long[] a = new long[count];
+            int[] b = new int[count], p = new int[count], q = new int[count];
+            SplittableRandom rnd = new SplittableRandom(1);
+            for (int i = 0; i < count; i++) {
+                names[i] = "P" + (i + 1);
+                b[i] = 1 + rnd.nextInt(8);
+                p[i] = 1 + rnd.nextInt(10);
+            }
+            CFSScheduler s = new CFSScheduler(new Workload(names, a, b, p, q, 1, 0, 0), 6, 1);
+            long start = System.nanoTime();
+            s.run();
+            System.out.printf("%d tasks: %d dispatches in %.2f s, simulated time %d%n",
+                    count, s.orderLength(), (System.nanoTime() - start) / 1e9, s.time);
+            return;
+        }
+
+        Workload w = WorkloadCodec.readWorkload(Paths.get(args[0]));
+        CFSScheduler s = new CFSScheduler(w,
+                args.length > 1 ? Integer.parseInt(args[1]) : 6,
+                args.length > 2 ? Integer.parseInt(args[2]) : 1);
+        s.run();
+        System.out.println("Execution order: " + s.executionOrder());
+        System.out.println("Process | Weight | Waiting | Turnaround");
+        long totalW = 0, totalT = 0;
+        for (int i = 0; i < w.size(); i++) {
+            System.out.println(w.name(i) + " | " + weight(w.priority(i)) + " | " + s.waiting(i) + " | " + s.turnaround(i));
+            totalW += s.waiting(i);
+            totalT += s.turnaround(i);
+        }
+        System.out.printf("Average waiting %.2f, average turnaround %.2f, context switches %d%n",
+                (double) totalW / w.size(), (double) totalT / w.size(), s.contextSwitches());
+    }
+}
+
+// JUnit checks for the CFS engine
+class CFSSchedulerJUnitTest {
+
+    static Workload workload(long[] arrival, int[] burst, int[] priority, int cs) {
+        int n = arrival.length;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, arrival, burst, priority, new int[n], cs, 0, 0);
+    }
+
+    @Test
+    void equalWeightsShareTheCpuInSlices() {
+        // two equal processes, period 4: slices of 2, alternating
+        CFSScheduler s = new CFSScheduler(workload(new long[]{0, 0}, new int[]{6, 6}, new int[]{1, 1}, 0), 4, 1);
+        s.run();
+        assertEquals(List.of("P1", "P2", "P1", "P2", "P1", "P2"), s.executionOrder());
+        assertEquals(10, s.completion(0));
+        assertEquals(12, s.completion(1));
+    }
+
+    @Test
+    void cpuShareFollowsWeights() {
+        // priority 1 (weight 1024) against priority 6 (nice 5, weight 335)
+        CFSScheduler s = new CFSScheduler(workload(new long[]{0, 0}, new int[]{3000, 3000}, new int[]{1, 6}, 0), 20, 1);
+        s.run();
+        long heavyDone = s.completion(0);
+        double lightShare = (heavyDone - 3000) / (double) heavyDone;
+        assertEquals(335.0 / (1024 + 335), lightShare, 0.01);
+        assertEquals(6000, s.completion(1));
+    }
+
+    @Test
+    void contextSwitchCostAndArrivalsAreAccounted() {
+        CFSScheduler s = new CFSScheduler(workload(new long[]{0, 3, 20}, new int[]{5, 5, 2}, new int[]{1, 1, 1}, 1), 6, 1);
+        s.run();
+        // P1 runs alone until P2 arrives at 3 and keeps its slice; P2 runs after one unit of switching
+        assertEquals(5, s.completion(0));
+        assertEquals(11, s.completion(1));
+        // P3 comes after an idle gap; switching from P2 still costs one unit, as in SJF
+        assertEquals(23, s.completion(2));
+        assertEquals(2, s.contextSwitches());
+    }
+
+    @Test
+    void manyRunnableTasksComplete() {
+        int count = 200_000;
+        long[] a = new long[count];
+        int[] b = new int[count], p = new int[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = i / 1000;
+            b[i] = 1 + i % 5;
+            p[i] = 1 + i % 10;
+        }
+        CFSScheduler s = new CFSScheduler(workload(a, b, p, 0), 6, 1);
+        s.run();
+        long busy = 0;
+        for (int i = 0; i < count; i++) {
+            assertTrue(s.turnaround(i) >= b[i]);
+            busy += b[i];
+        }
+        long last = 0;
+        for (int i = 0; i < count; i++) last = Math.max(last, s.completion(i));
+        assertEquals(busy, last); // work conserving: arrivals keep the CPU busy, no context switch cost
+    }
+}
@@ -0,0 +1,287 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/* =========================================================
+   Checkpoints for Incremental Re-Simulation
+   ========================================================= */
+// What-if edits on a large workload (a new arrival, another burst or
+// priority) only change the schedule from the first moment the edited
+// process could be seen. The RunStates that support rerun(Workload) record a
+// checkpoint every few time units while they run: a handful of scalars (time,
+// arrival pointer, running process, order length, ...) plus one record per
+// live process, i.e. arrived and not finished. Finished processes are final
+// and processes that have not arrived yet are still in their initial state,
+// so neither is copied. A rerun restores the last checkpoint taken before the
+// edit could matter, keeps the order and results up to it and simulates only
+// the rest.
+//
+// Storage is flat long arrays (scalarWidth longs per checkpoint, records
+// appended one long at a time), so a run with thousands of checkpoints does
+// not create thousands of objects.
+final class Checkpoints {
+
+    private final int scalarWidth;
+    private long[] scalars = new long[64]; // scalarWidth per checkpoint, slot 0 is the time
+    private int[] recordStart = new int[9]; // records of checkpoint k: [recordStart[k], recordStart[k + 1])
+    private long[] records = new long[256];
+    private int count, recordCount;
+
+    Checkpoints(int scalarWidth) {
+        if (scalarWidth < 1) throw new IllegalArgumentException("a checkpoint needs at least its time");
+        this.scalarWidth = scalarWidth;
+    }
+
+    int count() { return count; }
+
+    void clear() { truncate(0); }
+
+    // keeps checkpoints [0, k)
+    void truncate(int k) {
+        count = k;
+        recordCount = recordStart[k];
+    }
+
+    // starts checkpoint number count() at time; fill it with set(...) and put(...)
+    void open(long time) {
+        if (count > 0 && time <= time(count - 1)) throw new IllegalStateException("checkpoints must move forward in time");
+        if ((count + 1) * scalarWidth > scalars.length) scalars = Arrays.copyOf(scalars, scalars.length * 2);
+        if (count + 2 > recordStart.length) recordStart = Arrays.copyOf(recordStart, recordStart.length * 2);
+        count++;
+        recordStart[count] = recordCount;
+        scalars[(count - 1) * scalarWidth] = time;
+    }
+
+    // scalar slot 1.. of the open checkpoint (slot 0 is its time)
+    void set(int slot, long value) {
+        scalars[(count - 1) * scalarWidth + slot] = value;
+    }
+
+    // appends one value to the records of the open checkpoint
+    void put(long value) {
+        if (recordCount == records.length) records = Arrays.copyOf(records, records.length * 2);
+        records[recordCount++] = value;
+        recordStart[count] = recordCount;
+    }
+
+    long time(int k) { return scalars[k * scalarWidth]; }
+    long scalar(int k, int slot) { return scalars[k * scalarWidth + slot]; }
+    int recordStart(int k) { return recordStart[k]; }
+    int recordEnd(int k) { return recordStart[k + 1]; }
+    long record(int pos) { return records[pos]; }
+
+    // the last checkpoint taken strictly before time, -1 if there is none
+    int lastBefore(long time) {
+        int lo = 0, hi = count - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) < time) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // longs held by the checkpoints, for sizing the interval
+    long footprint() { return (long) count * scalarWidth + recordCount; }
+
+    /* ---------------- what an edit touches ---------------- */
+
+    // Earliest time at which edited can behave differently from old, or -1 when
+    // the edit is not one a checkpoint can absorb (other run parameters, fewer
+    // processes). Edited may append processes; a process whose arrival, burst,
+    // priority or (withQuantum) quantum changed is affected from the earlier of
+    // its old and new arrival, an appended one from its arrival. Long.MAX_VALUE
+    // means nothing changed.
+    static long horizon(Workload old, Workload edited, boolean withQuantum) {
+        if (edited.size() < old.size() || edited.contextSwitch != old.contextSwitch
+                || edited.rrQuantum != old.rrQuantum || edited.agingInterval != old.agingInterval)
+            return -1;
+        long horizon = Long.MAX_VALUE;
+        for (int i = 0; i < old.size(); i++) {
+            if (old.arrival(i) != edited.arrival(i) || old.burst(i) != edited.burst(i)
+                    || old.priority(i) != edited.priority(i)
+                    || (withQuantum && old.quantum(i) != edited.quantum(i)))
+                horizon = Math.min(horizon, Math.min(old.arrival(i), edited.arrival(i)));
+        }
+        for (int i = old.size(); i < edited.size(); i++) horizon = Math.min(horizon, edited.arrival(i));
+        return horizon;
+    }
+
+    // Workload.indicesByArrival() of edited, from the arrival order of old: the
+    // processes whose arrival changed (and the appended ones) are taken out and
+    // merged back at their new place. Linear, where sorting a million boxed
+    // indices again takes a good part of a second.
+    static int[] arrivalOrder(int[] byArrival, Workload old, Workload edited) {
+        int n = edited.size();
+        List<Integer> moved = new ArrayList<>();
+        for (int i = 0; i < old.size(); i++)
+            if (old.arrival(i) != edited.arrival(i)) moved.add(i);
+        for (int i = old.size(); i < n; i++) moved.add(i);
+        if (moved.isEmpty()) return byArrival;
+        // ties keep input order, so the order is by (arrival, index)
+        moved.sort(Comparator.<Integer>comparingLong(edited::arrival).thenComparingInt(i -> i));
+
+        int[] out = new int[n];
+        int m = 0, k = 0;
+        for (int p : byArrival) {
+            if (old.arrival(p) != edited.arrival(p)) continue;
+            while (m < moved.size() && before(edited, moved.get(m), p)) out[k++] = moved.get(m++);
+            out[k++] = p;
+        }
+        while (m < moved.size()) out[k++] = moved.get(m++);
+        return out;
+    }
+
+    private static boolean before(Workload w, int a, int b) {
+        return w.arrival(a) < w.arrival(b) || (w.arrival(a) == w.arrival(b) && a < b);
+    }
+
+    // usage: Checkpoints [processes] [edits]
+    // what-if latency: a full run against reruns after single-process edits at
+    // random points of the workload, for the Priority and AG run states
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        SplittableRandom rnd = new SplittableRandom(1);
+        String[] names = new String[count];
+        long[] a = new long[count];
+        int[] b = new int[count], p = new int[count], q = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "P" + (i + 1);
+            a[i] = 7 * i;
+            b[i] = 1 + rnd.nextInt(8);
+            p[i] = 1 + rnd.nextInt(10);
+            q[i] = 2 + rnd.nextInt(6);
+        }
+        Workload w = new Workload(names, a, b, p, q, 1, 3, 5);
+
+        PriorityPreemptiveScheduler.RunState priority = new PriorityPreemptiveScheduler.RunState(w);
+        AGScheduler.RunState ag = new AGScheduler.RunState(w);
+        priority.checkpointEvery(4096);
+        ag.checkpointEvery(4096);
+        long t = System.nanoTime();
+        priority.run();
+        long priorityFull = System.nanoTime() - t;
+        t = System.nanoTime();
+        ag.run();
+        long agFull = System.nanoTime() - t;
+        System.out.printf("full run: Priority %.1f ms, AG %.1f ms (%d processes)%n",
+                priorityFull / 1e6, agFull / 1e6, count);
+
+        long priorityWorst = 0, agWorst = 0, prioritySum = 0, agSum = 0;
+        for (int e = 0; e < edits; e++) {
+            int i = rnd.nextInt(count);
+            Workload edited = w.withProcess(i, w.arrival(i), w.burst(i) + 1 + rnd.nextInt(5), w.priority(i), w.quantum(i));
+            t = System.nanoTime();
+            priority.rerun(edited);
+            long pt = System.nanoTime() - t;
+            t = System.nanoTime();
+            ag.rerun(edited);
+            long at = System.nanoTime() - t;
+            prioritySum += pt;
+            agSum += at;
+            priorityWorst = Math.max(priorityWorst, pt);
+            agWorst = Math.max(agWorst, at);
+            w = edited;
+        }
+        System.out.printf("rerun after one edit: Priority mean %.1f ms, worst %.1f ms; AG mean %.1f ms, worst %.1f ms%n",
+                prioritySum / 1e6 / edits, priorityWorst / 1e6, agSum / 1e6 / edits, agWorst / 1e6);
+    }
+}
+
+// JUnit checks for checkpointed reruns: every rerun must end exactly where a
+// fresh run of the edited workload ends
+class CheckpointsJUnitTest {
+
+    static Workload edit(SplittableRandom rnd, Workload w) {
+        int n = w.size();
+        if (rnd.nextInt(4) == 0) { // a new arrival at the end
+            String[] names = new String[n + 1];
+            long[] a = new long[n + 1];
+            int[] b = new int[n + 1], p = new int[n + 1], q = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                names[i] = w.name(i);
+                a[i] = w.arrival(i);
+                b[i] = w.burst(i);
+                p[i] = w.priority(i);
+                q[i] = w.quantum(i);
+            }
+            names[n] = "P" + (n + 1);
+            a[n] = rnd.nextInt(4 * n + 1);
+            b[n] = 1 + rnd.nextInt(12);
+            p[n] = 1 + rnd.nextInt(6);
+            q[n] = 1 + rnd.nextInt(8);
+            return new Workload(names, a, b, p, q, w.contextSwitch, w.rrQuantum, w.agingInterval);
+        }
+        int i = rnd.nextInt(n);
+        return switch (rnd.nextInt(4)) {
+            case 0 -> w.withProcess(i, rnd.nextInt(4 * n + 1), w.burst(i), w.priority(i), w.quantum(i));
+            case 1 -> w.withProcess(i, w.arrival(i), 1 + rnd.nextInt(12), w.priority(i), w.quantum(i));
+            case 2 -> w.withProcess(i, w.arrival(i), w.burst(i), 1 + rnd.nextInt(6), w.quantum(i));
+            default -> w.withProcess(i, w.arrival(i), w.burst(i), w.priority(i), 1 + rnd.nextInt(8));
+        };
+    }
+
+    @Test
+    void arrivalOrderMatchesASort() {
+        SplittableRandom rnd = new SplittableRandom(4);
+        for (int c = 0; c < 500; c++) {
+            Workload w = Workload.random(rnd, 15), e = edit(rnd, w);
+            assertArrayEquals(e.indicesByArrival(), Checkpoints.arrivalOrder(w.indicesByArrival(), w, e), e.toString());
+        }
+    }
+
+    @Test
+    void priorityRerunsMatchFreshRuns() {
+        SplittableRandom rnd = new SplittableRandom(5);
+        int resumed = 0;
+        for (int c = 0; c < 300; c++) {
+            Workload w = Workload.random(rnd, 15);
+            PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+            s.checkpointEvery(1 + rnd.nextInt(4));
+            s.run();
+            for (int k = 0; k < 5; k++) { // edits pile up on the same state
+                w = edit(rnd, w);
+                s.rerun(w);
+                if (s.resumedFrom() > 0) resumed++;
+                PriorityPreemptiveScheduler.RunState fresh = new PriorityPreemptiveScheduler.RunState(w);
+                fresh.run();
+                assertEquals(fresh.executionOrder(), s.executionOrder(), w.toString());
+                for (int i = 0; i < w.size(); i++) assertEquals(fresh.completion(i), s.completion(i), w.toString());
+            }
+        }
+        assertTrue(resumed > 300, "only " + resumed + " reruns started from a checkpoint");
+    }
+
+    @Test
+    void agRerunsMatchFreshRuns() {
+        SplittableRandom rnd = new SplittableRandom(6);
+        int resumed = 0;
+        for (int c = 0; c < 300; c++) {
+            Workload w = Workload.random(rnd, 15);
+            AGScheduler.RunState s = new AGScheduler.RunState(w);
+            s.checkpointEvery(1 + rnd.nextInt(4));
+            s.run();
+            for (int k = 0; k < 5; k++) {
+                w = edit(rnd, w);
+                boolean finished = s.rerun(w);
+                if (s.resumedFrom() > 0) resumed++;
+                AGScheduler.RunState fresh = new AGScheduler.RunState(w);
+                assertEquals(fresh.run(), finished, w.toString());
+                if (!finished) continue; // a lost arrival: only the outcome is defined
+                assertEquals(fresh.toResult().order, s.toResult().order, w.toString());
+                for (int i = 0; i < w.size(); i++) {
+                    assertEquals(fresh.turnaround(i), s.turnaround(i), w.toString());
+                    assertEquals(fresh.toResult().processResults.get(i).quantumHistory,
+                            s.toResult().processResults.get(i).quantumHistory, w.toString());
+                }
+            }
+        }
+        assertTrue(resumed > 300, "only " + resumed + " reruns started from a checkpoint");
+    }
+}
@@ -0,0 +1,532 @@
+import com.google.gson.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/* =========================================================
+   Differential Verification Harness
+   ========================================================= */
+// Runs randomized workloads through a reference engine (the original
+// schedulers) and a candidate engine and compares execution order, per-process
+// waiting/turnaround times and AG quantum histories. A mismatch is shrunk to a
+// small workload that still fails and can be written out as a JSON fixture in
+// the same format as test_cases_v3 / test_cases_v5.
+public class DifferentialHarness {
+
+    // what one engine produced for one workload, indexed like the workload
+    static final class Outcome {
+        final List<String> order; // execution order, null if the engine does not record one
+        final long[] waiting;
+        final long[] turnaround;
+        final List<List<Integer>> quantumHistory; // AG only, null otherwise
+        final boolean completed; // false if the run was cancelled (time limit) or threw
+        String error; // exception thrown by the engine, if any
+
+        Outcome(List<String> order, long[] waiting, long[] turnaround,
+                List<List<Integer>> quantumHistory, boolean completed) {
+            this.order = order;
+            this.waiting = waiting;
+            this.turnaround = turnaround;
+            this.quantumHistory = quantumHistory;
+            this.completed = completed;
+        }
+    }
+
+    // anything that can schedule a Workload; the monitor is used to stop runaway runs
+    interface Engine {
+        Outcome run(Workload w, SimulationMonitor monitor);
+    }
+
+    // a reference engine and the candidate that must behave exactly like it
+    static final class Pair {
+        final String name;
+        final String algorithm; // key of the expectedOutput block ("AG", "RR", "SJF", "Priority")
+        final Engine reference;
+        final Engine candidate;
+
+        Pair(String name, String algorithm, Engine reference, Engine candidate) {
+            this.name = name;
+            this.algorithm = algorithm;
+            this.reference = reference;
+            this.candidate = candidate;
+        }
+    }
+
+    // a shrunk failing case
+    static final class Failure {
+        final Pair pair;
+        final Workload workload;
+        final Outcome expected;
+        final String message;
+
+        Failure(Pair pair, Workload workload, Outcome expected, String message) {
+            this.pair = pair;
+            this.workload = workload;
+            this.expected = expected;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return pair.name + ": " + message + "\n  workload: " + workload;
+        }
+    }
+
+    // what check() saw: how many workloads it generated, how many of them it skipped
+    // because the reference could not finish them, and the first failure (or null)
+    static final class Report {
+        final Pair pair;
+        final int cases;
+        final int skipped;
+        final Failure failure;
+
+        Report(Pair pair, int cases, int skipped, Failure failure) {
+            this.pair = pair;
+            this.cases = cases;
+            this.skipped = skipped;
+            this.failure = failure;
+        }
+
+        double skipRate() {
+            return cases == 0 ? 0 : (double) skipped / cases;
+        }
+
+        // a skipped workload compared nothing, so too many of them make a pass meaningless
+        boolean tooManySkipped() {
+            return skipRate() > maxSkipRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d workloads, %d compared, %d skipped (%.1f%%)%s",
+                    pair.name, cases, cases - skipped, skipped, 100 * skipRate(),
+                    failure == null ? "" : "\n" + failure);
+        }
+    }
+
+    /* ---------------- reference engines ---------------- */
+
+    static final Engine AG = (w, monitor) -> {
+        List<AGScheduler.Process> list = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++)
+            list.add(new AGScheduler.Process(w.name(i), w.arrival(i), w.burst(i), w.priority(i), w.quantum(i)));
+        AGScheduler.Result r = AGScheduler.run(list, monitor);
+        if (r.cancelled) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        List<List<Integer>> qh = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++) {
+            AGScheduler.ProcessResult pr = r.processResults.get(i);
+            wt[i] = pr.waitingTime;
+            tat[i] = pr.turnaroundTime;
+            qh.add(pr.quantumHistory);
+        }
+        return new Outcome(r.order, wt, tat, qh, true);
+    };
+
+    static final Engine RR = (w, monitor) -> {
+        List<RoundRobin.Process> list = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++)
+            list.add(new RoundRobin.Process(w.name(i), w.arrival(i), w.burst(i), w.priority(i)));
+        RoundRobin rr = new RoundRobin(new ArrayList<>(list), w.rrQuantum, w.contextSwitch);
+        rr.setMonitor(monitor);
+        rr.run();
+        if (rr.isCancelled()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = list.get(i).waitingTime;
+            tat[i] = list.get(i).turnaroundTime;
+        }
+        return new Outcome(rr.getExecutionOrder(), wt, tat, null, true);
+    };
+
+    static final Engine SJF = (w, monitor) -> {
+        ArrayList<SJFScheduler.Process> list = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++) {
+            SJFScheduler.Process p = new SJFScheduler.Process(w.name(i), w.arrival(i), w.burst(i));
+            p.priority = w.priority(i);
+            list.add(p);
+        }
+        List<String> order = new ArrayList<>();
+        SJFScheduler.run(new ArrayList<>(list), w.contextSwitch, monitor, order);
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            if (list.get(i).remaining > 0) return cancelled();
+            wt[i] = list.get(i).waiting;
+            tat[i] = list.get(i).turnaround;
+        }
+        return new Outcome(order, wt, tat, null, true);
+    };
+
+    static final Engine PRIORITY = (w, monitor) -> {
+        List<PriorityPreemptiveScheduler.Process> list = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++)
+            list.add(new PriorityPreemptiveScheduler.Process(w.name(i), w.arrival(i), w.burst(i), w.priority(i)));
+        PriorityPreemptiveScheduler s = new PriorityPreemptiveScheduler(
+                new ArrayList<>(list), w.contextSwitch, w.agingInterval, monitor);
+        if (s.isCancelled()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = list.get(i).waitingTime;
+            tat[i] = list.get(i).turnaroundTime;
+        }
+        return new Outcome(s.getExecutionOrder(), wt, tat, null, true);
+    };
+
+    private static Outcome cancelled() {
+        return new Outcome(null, null, null, null, false);
+    }
+
+    /* ---------------- array-based RunState engines ---------------- */
+
+    static final Engine AG_STATE = (w, monitor) -> {
+        AGScheduler.RunState s = new AGScheduler.RunState(w);
+        if (!s.run()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        List<List<Integer>> qh = new ArrayList<>();
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = s.waiting(i);
+            tat[i] = s.turnaround(i);
+            List<Integer> h = new ArrayList<>();
+            for (int k = 0; k < s.historyLength(i); k++) h.add(s.historyAt(i, k));
+            qh.add(h);
+        }
+        List<String> order = new ArrayList<>();
+        for (int k = 0; k < s.orderLength(); k++) order.add(w.name(s.orderAt(k)));
+        return new Outcome(order, wt, tat, qh, true);
+    };
+
+    static final Engine RR_STATE = (w, monitor) -> {
+        RoundRobin.RunState s = new RoundRobin.RunState(w);
+        if (!s.run()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = s.waiting(i);
+            tat[i] = s.turnaround(i);
+        }
+        return new Outcome(s.executionOrder(), wt, tat, null, true);
+    };
+
+    static final Engine SJF_STATE = (w, monitor) -> {
+        SJFScheduler.RunState s = new SJFScheduler.RunState(w);
+        if (!s.run()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = s.waiting(i);
+            tat[i] = s.turnaround(i);
+        }
+        return new Outcome(s.executionOrder(), wt, tat, null, true);
+    };
+
+    static final Engine PRIORITY_STATE = (w, monitor) -> {
+        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+        if (!s.run()) return cancelled();
+        long[] wt = new long[w.size()], tat = new long[w.size()];
+        for (int i = 0; i < w.size(); i++) {
+            wt[i] = s.waiting(i);
+            tat[i] = s.turnaround(i);
+        }
+        return new Outcome(s.executionOrder(), wt, tat, null, true);
+    };
+
+    // every reference engine paired with the implementation that has to match it
+    static List<Pair> pairs() {
+        List<Pair> pairs = new ArrayList<>();
+        pairs.add(new Pair("AG", "AG", AG, AG_STATE));
+        pairs.add(new Pair("RR", "RR", RR, RR_STATE));
+        pairs.add(new Pair("SJF", "SJF", SJF, SJF_STATE));
+        pairs.add(new Pair("Priority", "Priority", PRIORITY, PRIORITY_STATE));
+        return pairs;
+    }
+
+    /* ---------------- running and comparing ---------------- */
+
+    static long timeLimitMillis = 2000; // a run taking longer than this is cancelled and skipped
+
+    // Share of skipped workloads above which a check counts as failed. The reference AG
+    // loses a process that arrives exactly at a quantum expiry and RR stops at an idle
+    // gap, so about a quarter of the AG and a tenth of the RR workloads are skipped;
+    // once most of them are, the pass says little about the candidate.
+    static double maxSkipRate = 0.50;
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "differential-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // runs an engine with a time limit so a workload that never terminates cannot hang the
+    // harness; an exception is turned into an unfinished outcome
+    static Outcome runBounded(Engine engine, Workload w) {
+        SimulationMonitor monitor = new SimulationMonitor("differential", w.size());
+        monitor.setTimeLimit(simulatedTimeBound(w));
+        ScheduledFuture<?> stop = timer.schedule(monitor::cancel, timeLimitMillis, TimeUnit.MILLISECONDS);
+        try {
+            return engine.run(w, monitor);
+        } catch (RuntimeException e) {
+            Outcome o = cancelled();
+            o.error = e.toString();
+            return o;
+        } finally {
+            stop.cancel(false);
+        }
+    }
+
+    // no correct schedule of w can last longer than this: every unit of burst may be
+    // followed by a context switch and nothing can start before the last arrival
+    static long simulatedTimeBound(Workload w) {
+        long lastArrival = 0, work = 0;
+        for (int i = 0; i < w.size(); i++) {
+            lastArrival = Math.max(lastArrival, w.arrival(i));
+            work += (long) w.burst(i) * (1 + w.contextSwitch);
+        }
+        return 2 * (lastArrival + work + w.contextSwitch + 1) + SimulationMonitor.SAMPLE;
+    }
+
+    // first difference between two outcomes, or null if they are identical
+    static String compare(Workload w, Outcome expected, Outcome actual) {
+        if (!actual.completed)
+            return actual.error != null ? "candidate threw " + actual.error : "candidate did not finish";
+        if (expected.order != null && actual.order != null && !expected.order.equals(actual.order))
+            return "execution order " + actual.order + " expected " + expected.order;
+        for (int i = 0; i < w.size(); i++) {
+            if (expected.waiting[i] != actual.waiting[i])
+                return "waiting time of " + w.name(i) + " is " + actual.waiting[i] + " expected " + expected.waiting[i];
+            if (expected.turnaround[i] != actual.turnaround[i])
+                return "turnaround of " + w.name(i) + " is " + actual.turnaround[i] + " expected " + expected.turnaround[i];
+            if (expected.quantumHistory != null && actual.quantumHistory != null
+                    && !expected.quantumHistory.get(i).equals(actual.quantumHistory.get(i)))
+                return "quantum history of " + w.name(i) + " is " + actual.quantumHistory.get(i)
+                        + " expected " + expected.quantumHistory.get(i);
+        }
+        return null;
+    }
+
+    // null when the pair agrees on this workload; workloads the reference itself cannot
+    // finish (time limit or exception) are skipped
+    static String mismatch(Pair pair, Workload w) {
+        Outcome expected = runBounded(pair.reference, w);
+        if (!expected.completed) return null;
+        return compare(w, expected, runBounded(pair.candidate, w));
+    }
+
+    // runs `cases` random workloads and stops at the first failure, which is shrunk;
+    // workloads the reference cannot finish are counted as skipped
+    static Report check(Pair pair, long seed, int cases, int maxProcesses) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        int skipped = 0;
+        for (int c = 0; c < cases; c++) {
+            Workload w = Workload.random(rnd, maxProcesses);
+            Outcome expected = runBounded(pair.reference, w);
+            if (!expected.completed) {
+                skipped++;
+                continue;
+            }
+            if (compare(w, expected, runBounded(pair.candidate, w)) != null) {
+                Workload small = shrink(w, x -> mismatch(pair, x) != null);
+                Failure f = new Failure(pair, small, runBounded(pair.reference, small), mismatch(pair, small));
+                return new Report(pair, c + 1, skipped, f);
+            }
+        }
+        return new Report(pair, cases, skipped, null);
+    }
+
+    // greedy shrinking: drop processes, then lower every number while the case still fails
+    static Workload shrink(Workload w, Predicate<Workload> failing) {
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+
+            for (int i = w.size() - 1; i >= 0 && w.size() > 1; i--) {
+                Workload smaller = w.without(i);
+                if (failing.test(smaller)) {
+                    w = smaller;
+                    progress = true;
+                }
+            }
+
+            for (int i = 0; i < w.size(); i++) {
+                for (long v : candidates(w.arrival(i), 0)) {
+                    Workload x = w.withProcess(i, v, w.burst(i), w.priority(i), w.quantum(i));
+                    if (failing.test(x)) { w = x; progress = true; break; }
+                }
+                // the int fields only get smaller, so their candidates fit in an int
+                for (long v : candidates(w.burst(i), 1)) {
+                    Workload x = w.withProcess(i, w.arrival(i), (int) v, w.priority(i), w.quantum(i));
+                    if (failing.test(x)) { w = x; progress = true; break; }
+                }
+                for (long v : candidates(w.priority(i), 1)) {
+                    Workload x = w.withProcess(i, w.arrival(i), w.burst(i), (int) v, w.quantum(i));
+                    if (failing.test(x)) { w = x; progress = true; break; }
+                }
+                for (long v : candidates(w.quantum(i), 1)) {
+                    Workload x = w.withProcess(i, w.arrival(i), w.burst(i), w.priority(i), (int) v);
+                    if (failing.test(x)) { w = x; progress = true; break; }
+                }
+            }
+
+            for (long v : candidates(w.contextSwitch, 0)) {
+                Workload x = w.withParameters((int) v, w.rrQuantum, w.agingInterval);
+                if (failing.test(x)) { w = x; progress = true; break; }
+            }
+            for (long v : candidates(w.rrQuantum, 1)) {
+                Workload x = w.withParameters(w.contextSwitch, (int) v, w.agingInterval);
+                if (failing.test(x)) { w = x; progress = true; break; }
+            }
+            for (long v : candidates(w.agingInterval, 1)) {
+                Workload x = w.withParameters(w.contextSwitch, w.rrQuantum, (int) v);
+                if (failing.test(x)) { w = x; progress = true; break; }
+            }
+        }
+        return w;
+    }
+
+    // smaller values to try for one number: the minimum, half way, one less
+    private static long[] candidates(long value, long min) {
+        long[] list = new long[3];
+        int count = 0;
+        if (value > min) list[count++] = min;
+        long half = min + (value - min) / 2;
+        if (half > min && half < value) list[count++] = half;
+        if (value - 1 > half) list[count++] = value - 1;
+        return Arrays.copyOf(list, count);
+    }
+
+    /* ---------------- fixtures ---------------- */
+
+    // writes a failing case as a test-case file, with the reference outcome as the expected output
+    static void writeFixture(Path path, Failure f) throws IOException {
+        JsonObject expected = new JsonObject();
+        JsonArray order = new JsonArray();
+        if (f.expected.order != null) f.expected.order.forEach(order::add);
+        expected.add("executionOrder", order);
+
+        JsonArray results = new JsonArray();
+        TimeSum totalW = new TimeSum(), totalT = new TimeSum();
+        for (int i = 0; i < f.workload.size(); i++) {
+            JsonObject r = new JsonObject();
+            r.addProperty("name", f.workload.name(i));
+            r.addProperty("waitingTime", f.expected.waiting[i]);
+            r.addProperty("turnaroundTime", f.expected.turnaround[i]);
+            if (f.expected.quantumHistory != null) {
+                JsonArray qh = new JsonArray();
+                f.expected.quantumHistory.get(i).forEach(qh::add);
+                r.add("quantumHistory", qh);
+            }
+            results.add(r);
+            totalW.add(f.expected.waiting[i]);
+            totalT.add(f.expected.turnaround[i]);
+        }
+        expected.add("processResults", results);
+        expected.addProperty("averageWaitingTime", totalW.average());
+        expected.addProperty("averageTurnaroundTime", totalT.average());
+
+        JsonObject json = new JsonObject();
+        json.add("input", f.workload.toJson());
+        if (f.pair.algorithm.equals("AG")) {
+            json.add("expectedOutput", expected); // test_cases_v3 layout
+        } else {
+            JsonObject byAlgorithm = new JsonObject(); // test_cases_v5 layout
+            byAlgorithm.add(f.pair.algorithm, expected);
+            json.add("expectedOutput", byAlgorithm);
+        }
+        try (Writer out = Files.newBufferedWriter(path)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(json, out);
+        }
+    }
+
+    // usage: DifferentialHarness [cases] [seed] [fixture dir]
+    public static void main(String[] args) throws Exception {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Path dir = Paths.get(args.length > 2 ? args[2] : "differential_failures");
+
+        boolean failed = false;
+        System.out.println("seed " + seed);
+        for (Pair pair : pairs()) {
+            Report r = check(pair, seed, cases, 10);
+            System.out.println(r);
+            if (r.tooManySkipped()) {
+                failed = true;
+                System.out.printf("  more than %.0f%% skipped: the reference could not finish these workloads%n",
+                        100 * maxSkipRate);
+            }
+            if (r.failure == null) continue;
+            failed = true;
+            Files.createDirectories(dir);
+            Path fixture = dir.resolve(pair.name + "_seed" + seed + ".json");
+            writeFixture(fixture, r.failure);
+            System.out.println("  fixture: " + fixture);
+        }
+        if (failed) System.exit(1);
+    }
+}
+
+// JUnit checks for the harness itself
+class DifferentialHarnessJUnitTest {
+
+    @Test
+    void runStatesMatchReferenceEngines() {
+        for (DifferentialHarness.Pair pair : DifferentialHarness.pairs()) {
+            DifferentialHarness.Report r = DifferentialHarness.check(pair, 42, 500, 8);
+            assertNull(r.failure, r.toString());
+            assertEquals(500, r.cases);
+            assertFalse(r.tooManySkipped(), r.toString());
+        }
+    }
+
+    @Test
+    void runStateReplaysGiveTheSameResult() {
+        Workload w = Workload.random(new SplittableRandom(3), 30);
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        AGScheduler.RunState ag = new AGScheduler.RunState(w);
+        assertTrue(rr.run());
+        List<String> rrOrder = rr.executionOrder();
+        boolean agDone = ag.run();
+        int agOrderLength = ag.orderLength();
+        for (int r = 0; r < 3; r++) {
+            assertTrue(rr.run());
+            assertEquals(rrOrder, rr.executionOrder());
+            assertEquals(agDone, ag.run());
+            assertEquals(agOrderLength, ag.orderLength());
+        }
+    }
+
+    @Test
+    void brokenCandidateIsShrunkToOneProcess() {
+        // wrong turnaround for any process with a burst above 5
+        DifferentialHarness.Engine broken = (w, monitor) -> {
+            DifferentialHarness.Outcome o = DifferentialHarness.RR.run(w, monitor);
+            for (int i = 0; i < w.size(); i++)
+                if (w.burst(i) > 5) o.turnaround[i]++;
+            return o;
+        };
+        DifferentialHarness.Pair pair = new DifferentialHarness.Pair("RR-broken", "RR", DifferentialHarness.RR, broken);
+        DifferentialHarness.Failure f = DifferentialHarness.check(pair, 7, 200, 8).failure;
+
+        assertNotNull(f);
+        assertEquals(1, f.workload.size());
+        assertEquals(6, f.workload.burst(0));
+        assertEquals(0, f.workload.arrival(0));
+    }
+
+    @Test
+    void workloadsTheReferenceCannotFinishAreCountedNotPassed() {
+        // a reference that finishes only single-process workloads
+        DifferentialHarness.Engine picky = (w, monitor) -> w.size() == 1
+                ? DifferentialHarness.RR.run(w, monitor)
+                : new DifferentialHarness.Outcome(null, null, null, null, false);
+        DifferentialHarness.Pair pair = new DifferentialHarness.Pair("RR-picky", "RR", picky, DifferentialHarness.RR);
+        DifferentialHarness.Report r = DifferentialHarness.check(pair, 11, 300, 8);
+
+        assertNull(r.failure);
+        assertEquals(300, r.cases);
+        assertTrue(r.skipped > 0 && r.skipped < 300, r.toString());
+        assertTrue(r.tooManySkipped(), r.toString());
+    }
+}
@@ -0,0 +1,326 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Earliest Deadline First (preemptive)
+   ========================================================= */
+// Uses the optional "deadline" field of each process, relative to its arrival.
+// The arrived process with the earliest absolute deadline (arrival + deadline)
+// runs; an arrival with an earlier deadline preempts it. Processes without a
+// deadline only run when no deadline process is ready, in arrival order.
+// Switching to a different process costs contextSwitch time units, as in SJF.
+//
+// Ready processes are a binary min-heap on (absolute deadline, arrival rank).
+// The running process keeps its key, so it stays on top until it finishes or
+// something with an earlier deadline arrives: it runs up to the next arrival
+// in one step. After run() the engine reports deadline misses, the lateness
+// distribution (completion - absolute deadline) and CPU utilization.
+final class EDFScheduler {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    final Workload workload;
+    private final int n, context;
+    private final int[] byArrival;
+    private final int[] rank; // position in byArrival, breaks deadline ties
+    private final long[] due; // absolute deadline, NO_DEADLINE if none
+    private final int[] remaining;
+    private final long[] completion;
+
+    private final int[] heap;
+    private int heapSize;
+
+    private int[] order = new int[16]; // process that got the CPU at every switch
+    private int orderLength;
+    private long time;
+    private long busy; // time spent running processes (not switching, not idle)
+    private long contextSwitches, preemptions;
+
+    EDFScheduler(Workload w) {
+        workload = w;
+        n = w.size();
+        context = w.contextSwitch;
+        byArrival = w.indicesByArrival();
+        rank = new int[n];
+        for (int k = 0; k < n; k++) rank[byArrival[k]] = k;
+        due = new long[n];
+        for (int i = 0; i < n; i++) due[i] = w.deadline(i) > 0 ? w.arrival(i) + w.deadline(i) : NO_DEADLINE;
+        remaining = new int[n];
+        completion = new long[n];
+        heap = new int[Math.max(1, n)];
+    }
+
+    /* ---------------- schedulability pre-check ---------------- */
+
+    // Necessary conditions, checked in O(n log n) without simulating:
+    //  - every process fits before its own deadline (burst <= deadline)
+    //  - processor demand: for every deadline D, the bursts of all processes due
+    //    by D fit between the first arrival and D
+    // A set that fails cannot meet every deadline under any scheduler, so it is
+    // rejected. Passing is not a guarantee unless everything arrives together and
+    // contextSwitch is 0 (then EDF is Jackson's rule and the check is exact).
+    // Returns null if the set passes, otherwise the reason.
+    static String precheck(Workload w) {
+        List<Integer> withDeadline = new ArrayList<>();
+        long firstArrival = Long.MAX_VALUE;
+        for (int i = 0; i < w.size(); i++) {
+            if (w.deadline(i) <= 0) continue;
+            if (w.burst(i) > w.deadline(i))
+                return w.name(i) + " needs " + w.burst(i) + " but its deadline is " + w.deadline(i);
+            withDeadline.add(i);
+            firstArrival = Math.min(firstArrival, w.arrival(i));
+        }
+        withDeadline.sort(Comparator.comparingLong(i -> w.arrival(i) + w.deadline(i)));
+        long demand = 0;
+        for (int i : withDeadline) {
+            long d = w.arrival(i) + w.deadline(i);
+            demand += w.burst(i);
+            if (demand > d - firstArrival)
+                return "demand " + demand + " by time " + d + " exceeds the " + (d - firstArrival) + " units available";
+        }
+        return null;
+    }
+
+    /* ---------------- simulation ---------------- */
+
+    void reset() {
+        for (int i = 0; i < n; i++) {
+            remaining[i] = workload.burst(i);
+            completion[i] = 0;
+        }
+        heapSize = orderLength = 0;
+        time = 0;
+        busy = contextSwitches = preemptions = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, completed = 0, last = -1;
+
+        while (completed < n) {
+            while (next < n && workload.arrival(byArrival[next]) <= time) heapPush(byArrival[next++]);
+            if (heapSize == 0) {
+                time = workload.arrival(byArrival[next]); // idle until the next arrival
+                continue;
+            }
+
+            int s = heap[0];
+            if (last != -1 && last != s) {
+                if (remaining[last] > 0) preemptions++;
+                time += context;
+                contextSwitches++;
+            }
+            if (last != s) addOrder(s);
+            last = s;
+
+            // run to completion or to the next arrival, whichever is first
+            int k = remaining[s];
+            if (next < n) k = (int) Math.min(k, Math.max(1, workload.arrival(byArrival[next]) - time));
+            remaining[s] -= k;
+            time += k;
+            busy += k;
+
+            if (remaining[s] == 0) {
+                completion[s] = time;
+                completed++;
+                heapPop();
+            }
+        }
+    }
+
+    private boolean less(int a, int b) {
+        return due[a] < due[b] || (due[a] == due[b] && rank[a] < rank[b]);
+    }
+
+    private void heapPush(int p) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(p, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = p;
+    }
+
+    private void heapPop() {
+        int p = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && less(heap[c + 1], heap[c])) c++;
+            if (!less(heap[c], p)) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        if (heapSize > 0) heap[i] = p;
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    /* ---------------- results ---------------- */
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long waiting(int i) { return turnaround(i) - workload.burst(i); }
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+    long contextSwitches() { return contextSwitches; }
+    long preemptions() { return preemptions; }
+
+    // completion - absolute deadline (negative = early); only for processes with a deadline
+    long lateness(int i) { return completion[i] - due[i]; }
+
+    long misses() {
+        long m = 0;
+        for (int i = 0; i < n; i++)
+            if (due[i] != NO_DEADLINE && completion[i] > due[i]) m++;
+        return m;
+    }
+
+    // lateness of every process with a deadline, sorted
+    long[] latenessDistribution() {
+        long[] l = new long[n];
+        int k = 0;
+        for (int i = 0; i < n; i++)
+            if (due[i] != NO_DEADLINE) l[k++] = lateness(i);
+        l = Arrays.copyOf(l, k);
+        Arrays.sort(l);
+        return l;
+    }
+
+    // busy time over the span from the first arrival to the last completion
+    double utilization() {
+        if (n == 0) return 0;
+        long end = 0;
+        for (int i = 0; i < n; i++) end = Math.max(end, completion[i]);
+        long span = end - workload.arrival(byArrival[0]);
+        return span == 0 ? 0 : (double) busy / span;
+    }
+
+    String report() {
+        long[] l = latenessDistribution();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("deadline processes %d, misses %d, CPU utilization %.1f%%%n",
+                l.length, misses(), 100 * utilization()));
+        if (l.length > 0) {
+            sb.append(String.format("lateness min %d, p50 %d, p90 %d, p99 %d, max %d, mean %.2f",
+                    l[0], percentile(l, 50), percentile(l, 90), percentile(l, 99), l[l.length - 1],
+                    Arrays.stream(l).average().orElse(0)));
+        }
+        return sb.toString();
+    }
+
+    // nearest-rank percentile of a sorted array
+    static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    // usage: EDFScheduler <workload json> [--force]
+    // an infeasible set is rejected by the pre-check unless --force is given
+    public static void main(String[] args) throws Exception {
+        Workload w = WorkloadCodec.readWorkload(Paths.get(args[0]));
+        String reason = precheck(w);
+        if (reason != null) {
+            System.out.println("not schedulable: " + reason);
+            if (args.length < 2 || !args[1].equals("--force")) System.exit(2);
+        }
+        EDFScheduler s = new EDFScheduler(w);
+        s.run();
+        if (w.size() <= 100) {
+            List<String> names = new ArrayList<>(s.orderLength());
+            for (int k = 0; k < s.orderLength(); k++) names.add(w.name(s.orderAt(k)));
+            System.out.println("Execution order: " + names);
+            System.out.println("Process | Deadline | Waiting | Turnaround | Lateness");
+            for (int i = 0; i < w.size(); i++)
+                System.out.println(w.name(i) + " | " + (w.deadline(i) > 0 ? w.deadline(i) : "-") + " | "
+                        + s.waiting(i) + " | " + s.turnaround(i) + " | " + (w.deadline(i) > 0 ? s.lateness(i) : "-"));
+        }
+        System.out.println(s.report());
+    }
+}
+
+// JUnit checks for the EDF engine
+class EDFSchedulerJUnitTest {
+
+    static Workload workload(long[] arrival, int[] burst, int[] deadline, int cs) {
+        int n = arrival.length;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, arrival, burst, new int[n], new int[n], deadline, cs, 0, 0);
+    }
+
+    @Test
+    void earlierDeadlinePreempts() {
+        EDFScheduler s = new EDFScheduler(workload(new long[]{0, 1}, new int[]{3, 2}, new int[]{10, 3}, 0));
+        s.run();
+        assertEquals(3, s.completion(1));
+        assertEquals(5, s.completion(0));
+        assertEquals(3, s.orderLength()); // P1, P2, P1
+        assertEquals(1, s.preemptions());
+        assertEquals(0, s.misses());
+        assertEquals(1.0, s.utilization(), 1e-9);
+    }
+
+    @Test
+    void overloadIsRejectedAndMissesAreMeasured() {
+        Workload w = workload(new long[]{0, 0, 0}, new int[]{4, 4, 2}, new int[]{4, 5, 0}, 0);
+        assertNotNull(EDFScheduler.precheck(w));
+        EDFScheduler s = new EDFScheduler(w);
+        s.run();
+        assertEquals(4, s.completion(0));
+        assertEquals(8, s.completion(1));
+        assertEquals(10, s.completion(2)); // no deadline: runs last
+        assertEquals(1, s.misses());
+        assertArrayEquals(new long[]{0, 3}, s.latenessDistribution());
+    }
+
+    @Test
+    void precheckIsExactForSimultaneousArrivals() {
+        SplittableRandom rnd = new SplittableRandom(9);
+        int rejected = 0;
+        for (int c = 0; c < 500; c++) {
+            int n = 1 + rnd.nextInt(8);
+            long[] a = new long[n];
+            int[] b = new int[n], d = new int[n];
+            for (int i = 0; i < n; i++) {
+                b[i] = 1 + rnd.nextInt(6);
+                d[i] = b[i] + rnd.nextInt(4 * n + 1);
+            }
+            Workload w = workload(a, b, d, 0);
+            EDFScheduler s = new EDFScheduler(w);
+            s.run();
+            boolean feasible = EDFScheduler.precheck(w) == null;
+            assertEquals(feasible, s.misses() == 0, w.toString());
+            if (!feasible) rejected++;
+        }
+        assertTrue(rejected > 0 && rejected < 500);
+    }
+
+    @Test
+    void precheckNeverRejectsWhatEdfMeets() {
+        SplittableRandom rnd = new SplittableRandom(4);
+        for (int c = 0; c < 500; c++) {
+            int n = 1 + rnd.nextInt(8);
+            long[] a = new long[n];
+            int[] b = new int[n], d = new int[n];
+            for (int i = 0; i < n; i++) {
+                a[i] = rnd.nextInt(10);
+                b[i] = 1 + rnd.nextInt(6);
+                d[i] = b[i] + rnd.nextInt(12);
+            }
+            Workload w = workload(a, b, d, 0);
+            EDFScheduler s = new EDFScheduler(w);
+            s.run();
+            if (s.misses() == 0) assertNull(EDFScheduler.precheck(w), w.toString());
+        }
+    }
+}
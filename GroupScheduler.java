@@ -0,0 +1,549 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/* =========================================================
+   Hierarchical Group Scheduler (weighted, cgroup style)
+   ========================================================= */
+// Processes belong to leaf groups of a tree of weighted groups, like cgroup
+// cpu.weight: at every level the CPU is split between the runnable children
+// in proportion to their weights, whatever the number of processes below them.
+//
+// Every group has a virtual runtime that grows by run time * NICE_0_WEIGHT /
+// weight whenever something below it runs (as in CFSScheduler, one level per
+// group). Each group keeps its runnable children in an indexed binary heap on
+// (vruntime, index), so a pick walks from the root down the smallest child of
+// every level and charging a slice re-sifts one entry per level: O(depth *
+// log fan-out). A group that becomes runnable again starts no earlier than the
+// smallest vruntime among its siblings, so sleeping earns no credit.
+//
+// Inside a leaf the runnable processes are ordered by a pluggable LeafPolicy
+// key, in a heap as well (ties in queue order):
+//  - ROUND_ROBIN: queue order, as in RoundRobin
+//  - priorityAging(a): priority * a + the time the process became ready, i.e.
+//    every a units of waiting count as one priority level, the aging of
+//    PriorityPreemptiveScheduler without its floor and its clamp at 1
+//
+// A pick runs for min(quantum, remaining) and switching to a different
+// process costs contextSwitch time units. Arrivals during a slice are queued
+// before the process that ran, as in RoundRobin. The loop is event driven:
+// one step per slice, idle gaps skipped in one jump. Processes may only sit in
+// groups without child groups (the cgroup v2 rule).
+final class GroupScheduler {
+
+    // orders the runnable processes of a leaf: the smallest key runs next
+    interface LeafPolicy {
+        long key(Workload w, int p, long readySince, long sequence);
+    }
+
+    static final LeafPolicy ROUND_ROBIN = (w, p, readySince, sequence) -> sequence;
+
+    static LeafPolicy priorityAging(int agingInterval) {
+        if (agingInterval < 1) throw new IllegalArgumentException("aging interval must be positive");
+        return (w, p, readySince, sequence) -> (long) w.priority(p) * agingInterval + readySince;
+    }
+
+    // the group tree; group 0 is the root, a parent is always added before its children
+    static final class Groups {
+        private String[] name = new String[16];
+        private int[] parent = new int[16], weight = new int[16];
+        private LeafPolicy[] policy = new LeafPolicy[16];
+        private int size;
+
+        Groups() {
+            add("", -1, CFSScheduler.NICE_0_WEIGHT, ROUND_ROBIN);
+        }
+
+        int add(String name, int parent, int weight) {
+            return add(name, parent, weight, ROUND_ROBIN);
+        }
+
+        int add(String name, int parent, int weight, LeafPolicy policy) {
+            if (size > 0 && (parent < 0 || parent >= size)) throw new IllegalArgumentException("unknown parent group " + parent);
+            if (weight < 1) throw new IllegalArgumentException("group weight must be positive");
+            if (size == this.name.length) {
+                this.name = Arrays.copyOf(this.name, size * 2);
+                this.parent = Arrays.copyOf(this.parent, size * 2);
+                this.weight = Arrays.copyOf(this.weight, size * 2);
+                this.policy = Arrays.copyOf(this.policy, size * 2);
+            }
+            this.name[size] = size == 0 ? "/" : (parent == 0 ? "/" : this.name[parent] + "/") + name;
+            this.parent[size] = parent;
+            this.weight[size] = weight;
+            this.policy[size] = policy;
+            return size++;
+        }
+
+        int size() { return size; }
+        String name(int g) { return name[g]; }
+        int parent(int g) { return parent[g]; }
+        int weight(int g) { return weight[g]; }
+    }
+
+    // vruntime is kept in 1/VR_SCALE time units so heavy weights do not round to 0
+    private static final long VR_SCALE = 1024;
+
+    final Workload workload;
+    final Groups groups;
+    private final int n, g, quantum, context;
+    private final int[] byArrival, groupOf;
+    private final int[] remaining;
+    private final long[] completion;
+
+    // groups: runnable children as indexed heaps on (vruntime, index)
+    private final int[][] kids;
+    private final int[] kidCount, pos;
+    private final long[] vruntime, minVruntime;
+    private final boolean[] active;
+
+    // leaves: runnable processes as heaps on (key, sequence)
+    private final int[][] leaf;
+    private final int[] leafSize;
+    private final long[] key, sequence;
+    private long enqueued;
+
+    // per group, own processes only (subtree totals come from report())
+    private final long[] completed, service, waitingSum, turnaroundSum;
+
+    private int[] order = new int[16]; // process that got the CPU at every switch
+    private int orderLength;
+    private long time, contextSwitches;
+
+    GroupScheduler(Workload w, Groups groups, int[] groupOf) {
+        this(w, groups, groupOf, w.rrQuantum);
+    }
+
+    GroupScheduler(Workload w, Groups groups, int[] groupOf, int quantum) {
+        if (quantum < 1) throw new IllegalArgumentException("quantum must be positive");
+        if (groupOf.length != w.size()) throw new IllegalArgumentException("one group per process expected");
+        workload = w;
+        this.groups = groups;
+        n = w.size();
+        g = groups.size();
+        this.quantum = quantum;
+        context = w.contextSwitch;
+        this.groupOf = groupOf.clone();
+        byArrival = w.indicesByArrival();
+        remaining = new int[n];
+        completion = new long[n];
+
+        int[] childCount = new int[g], processCount = new int[g];
+        for (int c = 1; c < g; c++) childCount[groups.parent(c)]++;
+        for (int p = 0; p < n; p++) {
+            int leafGroup = groupOf[p];
+            if (leafGroup < 0 || leafGroup >= g) throw new IllegalArgumentException("process " + w.name(p) + " has no group");
+            if (childCount[leafGroup] > 0)
+                throw new IllegalArgumentException("process " + w.name(p) + " is in " + groups.name(leafGroup) + ", which has child groups");
+            processCount[leafGroup]++;
+        }
+        kids = new int[g][];
+        leaf = new int[g][];
+        for (int x = 0; x < g; x++) {
+            kids[x] = new int[childCount[x]];
+            leaf[x] = new int[processCount[x]];
+        }
+        kidCount = new int[g];
+        pos = new int[g];
+        vruntime = new long[g];
+        minVruntime = new long[g];
+        active = new boolean[g];
+        leafSize = new int[g];
+        key = new long[n];
+        sequence = new long[n];
+        completed = new long[g];
+        service = new long[g];
+        waitingSum = new long[g];
+        turnaroundSum = new long[g];
+    }
+
+    void reset() {
+        for (int p = 0; p < n; p++) {
+            remaining[p] = workload.burst(p);
+            completion[p] = 0;
+        }
+        Arrays.fill(kidCount, 0);
+        Arrays.fill(vruntime, 0);
+        Arrays.fill(minVruntime, 0);
+        Arrays.fill(active, false);
+        Arrays.fill(leafSize, 0);
+        Arrays.fill(completed, 0);
+        Arrays.fill(service, 0);
+        Arrays.fill(waitingSum, 0);
+        Arrays.fill(turnaroundSum, 0);
+        enqueued = 0;
+        orderLength = 0;
+        time = contextSwitches = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, done = 0, last = -1;
+        while (done < n) {
+            next = admit(next);
+            if (!active[0]) {
+                time = workload.arrival(byArrival[next]); // idle until the next arrival
+                continue;
+            }
+
+            int x = 0;
+            while (kidCount[x] > 0) x = kids[x][0]; // smallest vruntime at every level
+            int p = leafPoll(x);
+            if (last != -1 && last != p) {
+                time += context;
+                contextSwitches++;
+            }
+            if (last != p) addOrder(p);
+            last = p;
+
+            int run = Math.min(quantum, remaining[p]);
+            remaining[p] -= run;
+            time += run;
+            service[x] += run;
+            charge(x, run);
+
+            if (remaining[p] == 0) {
+                completion[p] = time;
+                done++;
+                long turnaround = time - workload.arrival(p);
+                completed[x]++;
+                turnaroundSum[x] += turnaround;
+                waitingSum[x] += turnaround - workload.burst(p);
+                if (leafSize[x] == 0) deactivate(x);
+            } else {
+                next = admit(next); // arrivals during the slice queue first
+                leafPush(x, p);
+            }
+        }
+    }
+
+    private int admit(int next) {
+        while (next < n && workload.arrival(byArrival[next]) <= time) {
+            int p = byArrival[next++];
+            leafPush(groupOf[p], p);
+            activate(groupOf[p]);
+        }
+        return next;
+    }
+
+    /* ---------------- group heaps ---------------- */
+
+    private void activate(int x) {
+        while (!active[x]) {
+            active[x] = true;
+            int up = groups.parent(x);
+            if (up < 0) return;
+            vruntime[x] = Math.max(vruntime[x], kidCount[up] > 0 ? Math.max(minVruntime[up], vruntime[kids[up][0]]) : minVruntime[up]);
+            siftUp(kids[up], kidCount[up]++, x);
+            x = up;
+        }
+    }
+
+    private void deactivate(int x) {
+        while (active[x]) {
+            active[x] = false;
+            int up = groups.parent(x);
+            if (up < 0) return;
+            int[] h = kids[up];
+            int i = pos[x], moved = h[--kidCount[up]];
+            if (moved != x) {
+                siftDown(h, kidCount[up], i, moved);
+                if (h[i] == moved) siftUp(h, i, moved);
+            }
+            if (kidCount[up] > 0) return;
+            x = up;
+        }
+    }
+
+    // adds run time to every group from x up to (not including) the root
+    private void charge(int x, int run) {
+        for (int up = groups.parent(x); up >= 0; x = up, up = groups.parent(x)) {
+            vruntime[x] += (long) run * CFSScheduler.NICE_0_WEIGHT * VR_SCALE / groups.weight(x); // long: slices can pass 2^21
+            siftDown(kids[up], kidCount[up], pos[x], x); // its key only grew
+            minVruntime[up] = Math.max(minVruntime[up], vruntime[kids[up][0]]);
+        }
+    }
+
+    private boolean before(int a, int b) {
+        return vruntime[a] < vruntime[b] || (vruntime[a] == vruntime[b] && a < b);
+    }
+
+    private void siftUp(int[] h, int i, int x) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(x, h[parent])) break;
+            h[i] = h[parent];
+            pos[h[i]] = i;
+            i = parent;
+        }
+        h[i] = x;
+        pos[x] = i;
+    }
+
+    private void siftDown(int[] h, int size, int i, int x) {
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= size) break;
+            if (c + 1 < size && before(h[c + 1], h[c])) c++;
+            if (!before(h[c], x)) break;
+            h[i] = h[c];
+            pos[h[i]] = i;
+            i = c;
+        }
+        h[i] = x;
+        pos[x] = i;
+    }
+
+    /* ---------------- leaf heaps ---------------- */
+
+    private boolean runsFirst(int p, int q) {
+        return key[p] < key[q] || (key[p] == key[q] && sequence[p] < sequence[q]);
+    }
+
+    private void leafPush(int x, int p) {
+        sequence[p] = enqueued++;
+        key[p] = groups.policy[x].key(workload, p, time, sequence[p]);
+        int[] h = leaf[x];
+        int i = leafSize[x]++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!runsFirst(p, h[parent])) break;
+            h[i] = h[parent];
+            i = parent;
+        }
+        h[i] = p;
+    }
+
+    private int leafPoll(int x) {
+        int[] h = leaf[x];
+        int top = h[0], p = h[--leafSize[x]], size = leafSize[x], i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= size) break;
+            if (c + 1 < size && runsFirst(h[c + 1], h[c])) c++;
+            if (!runsFirst(h[c], p)) break;
+            h[i] = h[c];
+            i = c;
+        }
+        if (size > 0) h[i] = p;
+        return top;
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    /* ---------------- results ---------------- */
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long waiting(int i) { return turnaround(i) - workload.burst(i); }
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+    long contextSwitches() { return contextSwitches; }
+    long finishTime() { return time; }
+
+    // per group, including every group below it
+    static final class Report {
+        final long[] completed, service, waitingSum, turnaroundSum;
+
+        Report(int groups) {
+            completed = new long[groups];
+            service = new long[groups];
+            waitingSum = new long[groups];
+            turnaroundSum = new long[groups];
+        }
+
+        double averageWaiting(int x) { return completed[x] == 0 ? 0 : (double) waitingSum[x] / completed[x]; }
+        double averageTurnaround(int x) { return completed[x] == 0 ? 0 : (double) turnaroundSum[x] / completed[x]; }
+    }
+
+    // children come after their parents, so one backwards pass sums every subtree
+    Report report() {
+        Report r = new Report(g);
+        for (int x = g - 1; x >= 0; x--) {
+            r.completed[x] += completed[x];
+            r.service[x] += service[x];
+            r.waitingSum[x] += waitingSum[x];
+            r.turnaroundSum[x] += turnaroundSum[x];
+            int up = groups.parent(x);
+            if (up >= 0) {
+                r.completed[up] += r.completed[x];
+                r.service[up] += r.service[x];
+                r.waitingSum[up] += r.waitingSum[x];
+                r.turnaroundSum[up] += r.turnaroundSum[x];
+            }
+        }
+        return r;
+    }
+
+    // throughput (processes per 1000 time units), CPU share and latency per group, down to maxDepth
+    void writeReport(Appendable out, int maxDepth) throws IOException {
+        Report r = report();
+        int[] depth = new int[g];
+        Formatter f = new Formatter(out);
+        f.format("%-32s %7s %10s %10s %9s %12s %12s%n", "group", "weight", "completed", "per 1000", "cpu share",
+                "avg waiting", "avg turnar.");
+        for (int x = 0; x < g; x++) {
+            if (x > 0) depth[x] = depth[groups.parent(x)] + 1;
+            if (depth[x] > maxDepth) continue;
+            f.format("%-32s %7d %10d %10.2f %8.1f%% %12.2f %12.2f%n", groups.name(x), groups.weight(x), r.completed[x],
+                    time == 0 ? 0 : r.completed[x] * 1000.0 / time, time == 0 ? 0 : 100.0 * r.service[x] / time,
+                    r.averageWaiting(x), r.averageTurnaround(x));
+        }
+        f.flush();
+    }
+
+    // usage: GroupScheduler [tenants] [leaves per tenant] [processes]
+    // benchmark on a two-level tree (10k leaf groups and 1M processes by default);
+    // odd tenants use priority with aging in their leaves, even ones round robin
+    public static void main(String[] args) throws Exception {
+        int tenants = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int perTenant = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+        SplittableRandom rnd = new SplittableRandom(1);
+        Groups groups = new Groups();
+        int[] leaves = new int[tenants * perTenant];
+        for (int t = 0; t < tenants; t++) {
+            int tenant = groups.add("tenant" + t, 0, 1 + rnd.nextInt(1000));
+            LeafPolicy policy = t % 2 == 0 ? ROUND_ROBIN : priorityAging(5);
+            for (int l = 0; l < perTenant; l++)
+                leaves[t * perTenant + l] = groups.add("job" + l, tenant, 1 + rnd.nextInt(1000), policy);
+        }
+        String[] names = new String[count];
+        long[] a = new long[count];
+        int[] b = new int[count], p = new int[count], q = new int[count], of = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "P" + (i + 1);
+            a[i] = i / 2; // about twice as much work arriving as the CPU can do
+            b[i] = 1 + rnd.nextInt(8);
+            p[i] = 1 + rnd.nextInt(10);
+            of[i] = leaves[rnd.nextInt(leaves.length)];
+        }
+        GroupScheduler s = new GroupScheduler(new Workload(names, a, b, p, q, 1, 4, 5), groups, of);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            s.run();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d groups, %d processes: %d slices in %.2f s (%.0f ns/slice), simulated time %d%n",
+                    groups.size(), count, s.orderLength(), seconds, seconds * 1e9 / s.orderLength(), s.finishTime());
+        }
+        StringBuilder table = new StringBuilder();
+        s.writeReport(table, 1);
+        table.toString().lines().limit(12).forEach(System.out::println);
+    }
+}
+
+// JUnit checks for the group scheduler
+class GroupSchedulerJUnitTest {
+
+    static Workload workload(long[] arrival, int[] burst, int[] priority, int cs) {
+        int n = arrival.length;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, arrival, burst, priority, new int[n], cs, 1, 0);
+    }
+
+    @Test
+    void cpuIsSplitByWeightAtEveryLevel() {
+        // root -> t1 (100) -> {a (100), b (100)}, t2 (100): t2 gets half, a and b a quarter each
+        GroupScheduler.Groups groups = new GroupScheduler.Groups();
+        int t1 = groups.add("t1", 0, 100), a = groups.add("a", t1, 100), b = groups.add("b", t1, 100);
+        int t2 = groups.add("t2", 0, 100);
+        // t2 has three processes, a and b one each: shares follow groups, not process counts
+        Workload w = workload(new long[5], new int[]{3000, 3000, 1000, 1000, 1000}, new int[5], 0);
+        GroupScheduler s = new GroupScheduler(w, groups, new int[]{a, b, t2, t2, t2});
+        s.run();
+        assertEquals(9000, s.finishTime()); // work conserving
+        long t2Done = Math.max(s.completion(2), Math.max(s.completion(3), s.completion(4)));
+        assertEquals(6000, t2Done, 3);
+        assertEquals(9000, s.completion(0), 3);
+        assertEquals(9000, s.completion(1), 3);
+
+        GroupScheduler.Report r = s.report();
+        assertEquals(5, r.completed[0]);
+        assertEquals(2, r.completed[t1]);
+        assertEquals(6000, r.service[t1]);
+        assertEquals(3000, r.service[t2]);
+    }
+
+    @Test
+    void heavierSiblingFinishesFirst() {
+        GroupScheduler.Groups groups = new GroupScheduler.Groups();
+        int heavy = groups.add("heavy", 0, 200), light = groups.add("light", 0, 100);
+        GroupScheduler s = new GroupScheduler(workload(new long[2], new int[]{3000, 3000}, new int[2], 0),
+                groups, new int[]{heavy, light});
+        s.run();
+        assertEquals(4500, s.completion(0), 3); // 2/3 of the CPU until done
+        assertEquals(6000, s.completion(1));
+        // a group that slept starts at its siblings' vruntime: no burst of catch-up time
+        Workload late = workload(new long[]{0, 2000}, new int[]{4000, 1000}, new int[2], 0);
+        groups = new GroupScheduler.Groups();
+        int x = groups.add("x", 0, 100), y = groups.add("y", 0, 100);
+        s = new GroupScheduler(late, groups, new int[]{x, y});
+        s.run();
+        assertEquals(4000, s.completion(1), 3); // shares half the CPU from 2000 on
+    }
+
+    @Test
+    void leafPoliciesMatchRoundRobinAndPriority() {
+        // one leaf with round robin is RoundRobin (no switch cost, no idle gaps)
+        SplittableRandom rnd = new SplittableRandom(4);
+        for (int c = 0; c < 200; c++) {
+            int n = 1 + rnd.nextInt(12);
+            long[] a = new long[n];
+            int[] b = new int[n];
+            for (int i = 1; i < n; i++) a[i] = a[i - 1] + rnd.nextInt(3);
+            for (int i = 0; i < n; i++) b[i] = 3 + rnd.nextInt(8);
+            Workload w = new Workload(names(n), a, b, new int[n], new int[n], 0, 1 + rnd.nextInt(4), 0);
+            RoundRobin.RunState rr = new RoundRobin.RunState(w);
+            if (!rr.run()) continue; // the reference cannot go idle
+            GroupScheduler s = new GroupScheduler(w, new GroupScheduler.Groups(), new int[n]);
+            s.run();
+            for (int i = 0; i < n; i++) assertEquals(rr.completion(i), s.completion(i), w.toString());
+        }
+
+        // priority leaf: smallest priority first; with fast aging the long waiter catches up
+        GroupScheduler.Groups groups = new GroupScheduler.Groups();
+        int strict = groups.add("strict", 0, 100, GroupScheduler.priorityAging(1_000_000));
+        Workload w = workload(new long[3], new int[]{4, 4, 4}, new int[]{3, 1, 2}, 0);
+        GroupScheduler s = new GroupScheduler(w, groups, new int[]{strict, strict, strict}, 2);
+        s.run();
+        assertEquals(List.of(1, 2, 0), List.of(s.orderAt(0), s.orderAt(1), s.orderAt(2)));
+        groups = new GroupScheduler.Groups();
+        int aging = groups.add("aging", 0, 100, GroupScheduler.priorityAging(1));
+        s = new GroupScheduler(workload(new long[]{0, 0, 3}, new int[]{2, 6, 2}, new int[]{5, 1, 1}, 0), groups,
+                new int[]{aging, aging, aging}, 2);
+        s.run();
+        assertTrue(s.completion(0) < s.completion(1), "P1 has aged past P2 before P2 finishes");
+    }
+
+    @Test
+    void largeQuantaStillAlternate() {
+        // run * NICE_0_WEIGHT passes 2^31 at 3 million: the charge must not wrap around
+        GroupScheduler.Groups groups = new GroupScheduler.Groups();
+        int x = groups.add("x", 0, 100), y = groups.add("y", 0, 100);
+        GroupScheduler s = new GroupScheduler(workload(new long[2], new int[]{9_000_000, 9_000_000}, new int[2], 0),
+                groups, new int[]{x, y}, 3_000_000);
+        s.run();
+        assertEquals(15_000_000, s.completion(0)); // x, y, x, y, x, y
+        assertEquals(18_000_000, s.completion(1));
+    }
+
+    @Test
+    void processesOnlyInLeafGroups() {
+        GroupScheduler.Groups groups = new GroupScheduler.Groups();
+        int t = groups.add("t", 0, 100);
+        groups.add("leaf", t, 100);
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupScheduler(workload(new long[1], new int[]{1}, new int[1], 0), groups, new int[]{t}));
+    }
+
+    static String[] names(int n) {
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return names;
+    }
+}
@@ -0,0 +1,325 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Multi-Level Feedback Queue
+   ========================================================= */
+// Level 0 is the highest. Every new process enters level 0. A process that
+// uses up its level's quantum (its allotment, kept across preemptions) moves
+// one level down; the lowest level is plain round robin as in RoundRobin.
+// Every boostInterval time units all processes go back to level 0 with a
+// fresh allotment, which plays the part of aging in
+// PriorityPreemptiveScheduler: nothing starves for longer than one interval.
+// An arrival preempts a process running below level 0. Switching to a
+// different process costs contextSwitch time units, as in SJF.
+//
+// Each level is a FIFO ring of process indices and a bit mask marks the
+// non-empty levels, so picking, queueing and demoting are O(1). The loop is
+// event driven: a process runs in one step until its allotment ends, it
+// finishes, or the next arrival / boost.
+final class MLFQScheduler {
+
+    final Workload workload;
+    private final int n, context, levels, boostInterval;
+    private final int[] quanta;
+    private final int[] byArrival;
+    private final int[] remaining, level, used;
+    private final long[] completion;
+
+    // per-level FIFO rings of process indices (each can hold every process)
+    private final int[][] queue;
+    private final int[] head, size;
+    private long nonEmpty; // bit l set when level l has queued processes
+
+    private int[] order = new int[16]; // process that got the CPU at every switch
+    private int orderLength;
+    private long time;
+
+    // residency statistics
+    private final long[] levelTime; // CPU time spent at each level
+    private final long[] levelDispatches; // times a process was picked from each level
+    private final int[] maxQueued; // longest each level's queue got
+    private long demotions, boosts, preemptions, contextSwitches;
+
+    // quanta {q, 2q, 4q} with q = the workload's rrQuantum (2 if unset), boost every 10 * 4q
+    MLFQScheduler(Workload w) {
+        this(w, defaultQuanta(w), 40 * (w.rrQuantum > 0 ? w.rrQuantum : 2));
+    }
+
+    // boostInterval <= 0 turns boosting off
+    MLFQScheduler(Workload w, int[] quanta, int boostInterval) {
+        if (quanta.length == 0 || quanta.length > 64)
+            throw new IllegalArgumentException("between 1 and 64 levels");
+        for (int q : quanta)
+            if (q < 1) throw new IllegalArgumentException("quanta must be positive");
+        workload = w;
+        n = w.size();
+        context = w.contextSwitch;
+        levels = quanta.length;
+        this.quanta = quanta.clone();
+        this.boostInterval = boostInterval;
+        byArrival = w.indicesByArrival();
+        remaining = new int[n];
+        completion = new long[n];
+        level = new int[n];
+        used = new int[n];
+        queue = new int[levels][Math.max(1, n)];
+        head = new int[levels];
+        size = new int[levels];
+        levelTime = new long[levels];
+        levelDispatches = new long[levels];
+        maxQueued = new int[levels];
+    }
+
+    private static int[] defaultQuanta(Workload w) {
+        int q = w.rrQuantum > 0 ? w.rrQuantum : 2;
+        return new int[]{q, 2 * q, 4 * q};
+    }
+
+    void reset() {
+        for (int i = 0; i < n; i++) {
+            remaining[i] = workload.burst(i);
+            level[i] = used[i] = 0;
+            completion[i] = 0;
+        }
+        Arrays.fill(head, 0);
+        Arrays.fill(size, 0);
+        Arrays.fill(levelTime, 0);
+        Arrays.fill(levelDispatches, 0);
+        Arrays.fill(maxQueued, 0);
+        nonEmpty = 0;
+        orderLength = 0;
+        time = 0;
+        demotions = boosts = preemptions = contextSwitches = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, completed = 0, current = -1, last = -1;
+        long nextBoost = boostInterval > 0 ? boostInterval : Long.MAX_VALUE;
+
+        while (completed < n) {
+            // arrivals enter level 0
+            while (next < n && workload.arrival(byArrival[next]) <= time) {
+                int p = byArrival[next++];
+                level[p] = used[p] = 0;
+                push(0, p);
+            }
+
+            if (time >= nextBoost) {
+                boost(current);
+                while (nextBoost <= time) nextBoost += boostInterval;
+            }
+
+            // something queued above the running process takes the CPU
+            if (current != -1 && nonEmpty != 0 && Long.numberOfTrailingZeros(nonEmpty) < level[current]) {
+                push(level[current], current); // keeps what is left of its allotment
+                preemptions++;
+                last = current;
+                current = -1;
+            }
+
+            if (current == -1) {
+                if (nonEmpty == 0) {
+                    time = workload.arrival(byArrival[next]); // idle until the next arrival
+                    continue;
+                }
+                int l = Long.numberOfTrailingZeros(nonEmpty);
+                current = poll(l);
+                levelDispatches[l]++;
+                if (last != -1 && last != current) {
+                    time += context;
+                    contextSwitches++;
+                }
+                if (last != current) addOrder(current);
+            }
+
+            // run until the allotment ends, the process finishes, or the next arrival (only
+            // matters below level 0) or boost
+            int l = level[current];
+            int k = Math.min(quanta[l] - used[current], remaining[current]);
+            if (l > 0 && next < n) k = (int) Math.min(k, Math.max(1, workload.arrival(byArrival[next]) - time));
+            if (nextBoost != Long.MAX_VALUE) k = (int) Math.min(k, Math.max(1, nextBoost - time));
+            remaining[current] -= k;
+            used[current] += k;
+            time += k;
+            levelTime[l] += k;
+
+            if (remaining[current] == 0) {
+                completion[current] = time;
+                completed++;
+                last = current;
+                current = -1;
+            } else if (used[current] == quanta[l]) {
+                if (l < levels - 1) {
+                    level[current] = l + 1;
+                    demotions++;
+                }
+                used[current] = 0;
+                push(level[current], current);
+                last = current;
+                current = -1;
+            }
+        }
+    }
+
+    // everything, including the running process, back to level 0 with a fresh allotment
+    private void boost(int current) {
+        boosts++;
+        for (int l = 1; l < levels; l++) {
+            while (size[l] > 0) {
+                int p = poll(l);
+                level[p] = used[p] = 0;
+                push(0, p);
+            }
+        }
+        for (int i = 0; i < size[0]; i++) used[queue[0][(head[0] + i) % queue[0].length]] = 0;
+        if (current != -1) level[current] = used[current] = 0;
+    }
+
+    private void push(int l, int p) {
+        int[] q = queue[l];
+        q[(head[l] + size[l]) % q.length] = p;
+        if (++size[l] > maxQueued[l]) maxQueued[l] = size[l];
+        nonEmpty |= 1L << l;
+    }
+
+    private int poll(int l) {
+        int p = queue[l][head[l]];
+        head[l] = (head[l] + 1) % queue[l].length;
+        if (--size[l] == 0) nonEmpty &= ~(1L << l);
+        return p;
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long waiting(int i) { return turnaround(i) - workload.burst(i); }
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+    int levels() { return levels; }
+    long levelTime(int l) { return levelTime[l]; }
+    long levelDispatches(int l) { return levelDispatches[l]; }
+    int maxQueued(int l) { return maxQueued[l]; }
+    long demotions() { return demotions; }
+    long boosts() { return boosts; }
+    long preemptions() { return preemptions; }
+    long contextSwitches() { return contextSwitches; }
+
+    // execution order as names (allocates, meant for reporting and tests)
+    List<String> executionOrder() {
+        List<String> names = new ArrayList<>(orderLength);
+        for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+        return names;
+    }
+
+    // per-level residency table
+    String residency() {
+        long total = Math.max(1, Arrays.stream(levelTime).sum());
+        StringBuilder sb = new StringBuilder("Level | Quantum | CPU time | Share | Dispatches | Max queued\n");
+        for (int l = 0; l < levels; l++)
+            sb.append(String.format("%5d | %7d | %8d | %4.1f%% | %10d | %10d%n", l, quanta[l], levelTime[l],
+                    100.0 * levelTime[l] / total, levelDispatches[l], maxQueued[l]));
+        sb.append(String.format("demotions %d, boosts %d, preemptions %d, context switches %d",
+                demotions, boosts, preemptions, contextSwitches));
+        return sb.toString();
+    }
+
+    // usage: MLFQScheduler <workload json> [boost interval] [quantum per level ...]
+    public static void main(String[] args) throws Exception {
+        Workload w = WorkloadCodec.readWorkload(Paths.get(args[0]));
+        MLFQScheduler s;
+        if (args.length > 2) {
+            int[] quanta = new int[args.length - 2];
+            for (int i = 0; i < quanta.length; i++) quanta[i] = Integer.parseInt(args[i + 2]);
+            s = new MLFQScheduler(w, quanta, Integer.parseInt(args[1]));
+        } else if (args.length > 1) {
+            s = new MLFQScheduler(w, defaultQuanta(w), Integer.parseInt(args[1]));
+        } else {
+            s = new MLFQScheduler(w);
+        }
+        s.run();
+        if (w.size() <= 100) {
+            System.out.println("Execution order: " + s.executionOrder());
+            System.out.println("Process | Waiting | Turnaround");
+            for (int i = 0; i < w.size(); i++)
+                System.out.println(w.name(i) + " | " + s.waiting(i) + " | " + s.turnaround(i));
+        }
+        System.out.println(s.residency());
+    }
+}
+
+// JUnit checks for the MLFQ engine
+class MLFQSchedulerJUnitTest {
+
+    static Workload workload(long[] arrival, int[] burst, int cs) {
+        int n = arrival.length;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, arrival, burst, new int[n], new int[n], cs, 0, 0);
+    }
+
+    @Test
+    void cpuBoundJobSinksThroughTheLevels() {
+        MLFQScheduler s = new MLFQScheduler(workload(new long[]{0}, new int[]{30}, 0), new int[]{2, 4, 8}, 0);
+        s.run();
+        assertEquals(30, s.completion(0));
+        assertEquals(2, s.levelTime(0));
+        assertEquals(4, s.levelTime(1));
+        assertEquals(24, s.levelTime(2));
+        assertEquals(2, s.demotions());
+    }
+
+    @Test
+    void boostLiftsEverythingBackToTheTop() {
+        MLFQScheduler s = new MLFQScheduler(workload(new long[]{0}, new int[]{30}, 0), new int[]{2, 4, 8}, 10);
+        s.run();
+        // 0-2 L0, 2-6 L1, 6-10 L2 | boost | 10-12 L0, 12-16 L1, 16-20 L2 | boost | 20-22, 22-26, 26-30
+        assertEquals(6, s.levelTime(0));
+        assertEquals(12, s.levelTime(1));
+        assertEquals(12, s.levelTime(2));
+        assertEquals(2, s.boosts());
+    }
+
+    @Test
+    void newArrivalPreemptsADemotedJob() {
+        MLFQScheduler s = new MLFQScheduler(workload(new long[]{0, 5}, new int[]{20, 1}, 1), new int[]{2, 4, 8}, 0);
+        s.run();
+        // P1 is at level 1 when P2 arrives at 5; P2 runs after one unit of switching
+        assertEquals(List.of("P1", "P2", "P1"), s.executionOrder());
+        assertEquals(7, s.completion(1));
+        assertEquals(23, s.completion(0));
+        assertEquals(1, s.preemptions());
+        assertEquals(2, s.contextSwitches());
+    }
+
+    @Test
+    void manyJobsCompleteWithoutGaps() {
+        int count = 200_000;
+        long[] a = new long[count];
+        int[] b = new int[count];
+        for (int i = 0; i < count; i++) {
+            a[i] = i / 1000;
+            b[i] = 1 + i % 13;
+        }
+        MLFQScheduler s = new MLFQScheduler(workload(a, b, 0), new int[]{1, 2, 4, 8}, 500);
+        s.run();
+        long busy = 0, inLevels = 0;
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            assertTrue(s.turnaround(i) >= b[i]);
+            busy += b[i];
+            last = Math.max(last, s.completion(i));
+        }
+        for (int l = 0; l < s.levels(); l++) inLevels += s.levelTime(l);
+        assertEquals(busy, last);
+        assertEquals(busy, inLevels);
+    }
+}
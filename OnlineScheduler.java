@@ -0,0 +1,288 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/* =========================================================
+   Online Scheduler (many producers, one scheduling thread)
+   ========================================================= */
+// Jobs are submitted from any number of threads through a lock-free
+// multi-producer/single-consumer queue. One scheduling thread drains it, assigns
+// arrival times from its simulated clock and runs the RR, SJF (shortest remaining
+// first) or Priority policy. Finished jobs go into a single-producer ring buffer
+// that a consumer thread polls, so neither side takes a lock.
+public class OnlineScheduler {
+
+    enum Policy { RR, SJF, PRIORITY }
+
+    // a submitted job; it is also the node of the intake queue (one allocation per submit)
+    static final class Job {
+        final String name;
+        final int burst;
+        final int priority; // smaller = higher
+        long arrival; // simulated time it was taken off the intake queue
+        long completion;
+        int remaining;
+        long seq; // admission order, breaks ties
+        volatile Job next; // intake queue link, written through NEXT
+
+        Job(String name, int burst, int priority) {
+            this.name = name;
+            this.burst = burst;
+            this.priority = priority;
+            this.remaining = burst;
+        }
+
+        long turnaround() { return completion - arrival; }
+        long waiting() { return turnaround() - burst; }
+    }
+
+    private static final VarHandle NEXT;
+    private static final VarHandle COMPLETED_TAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            NEXT = l.findVarHandle(Job.class, "next", Job.class);
+            COMPLETED_TAIL = l.findVarHandle(OnlineScheduler.class, "completedTail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Policy policy;
+    private final int quantum; // RR slice; SJF/PRIORITY look at new arrivals after this many units
+    private final int contextSwitch;
+
+    // intake: Vyukov MPSC queue, producers swap the tail, the scheduling thread owns head
+    private final AtomicReference<Job> intakeTail;
+    private Job intakeHead;
+
+    // completions: single-producer/single-consumer ring
+    private final Job[] completed;
+    private final int mask;
+    private volatile long completedTail; // written only by the scheduling thread
+    private volatile long completedHead; // written only by the consumer
+
+    // scheduling thread state
+    private final ArrayDeque<Job> rrQueue = new ArrayDeque<>();
+    private final PriorityQueue<Job> heap;
+    private long time;
+    private long seq;
+    private long contextSwitches;
+    private volatile boolean stopping;
+    private Thread worker;
+
+    OnlineScheduler(Policy policy, int quantum, int contextSwitch, int completionCapacity) {
+        if (Integer.bitCount(completionCapacity) != 1)
+            throw new IllegalArgumentException("completion capacity must be a power of two");
+        this.policy = policy;
+        this.quantum = quantum;
+        this.contextSwitch = contextSwitch;
+        Job stub = new Job("stub", 0, 0);
+        intakeTail = new AtomicReference<>(stub);
+        intakeHead = stub;
+        completed = new Job[completionCapacity];
+        mask = completionCapacity - 1;
+        Comparator<Job> order = policy == Policy.SJF
+                ? Comparator.comparingInt((Job j) -> j.remaining).thenComparingLong(j -> j.seq)
+                : Comparator.comparingInt((Job j) -> j.priority).thenComparingLong(j -> j.seq);
+        heap = new PriorityQueue<>(order);
+    }
+
+    /* ---------------- producer side (any thread) ---------------- */
+
+    // lock-free: one atomic swap and one release store
+    Job submit(String name, int burst, int priority) {
+        if (burst <= 0) throw new IllegalArgumentException("burst must be positive");
+        Job j = new Job(name, burst, priority);
+        Job prev = intakeTail.getAndSet(j);
+        NEXT.setRelease(prev, j);
+        return j;
+    }
+
+    /* ---------------- consumer side (one thread) ---------------- */
+
+    // next finished job, or null if none is ready yet
+    Job pollCompleted() {
+        long h = completedHead;
+        if (h == (long) COMPLETED_TAIL.getAcquire(this)) return null;
+        int slot = (int) (h & mask);
+        Job j = completed[slot];
+        completed[slot] = null;
+        completedHead = h + 1;
+        return j;
+    }
+
+    long completedCount() { return (long) COMPLETED_TAIL.getAcquire(this); }
+
+    /* ---------------- scheduling thread ---------------- */
+
+    void start() {
+        worker = new Thread(this::loop, "online-scheduler-" + policy);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // lets the loop finish every job already submitted, then stops it
+    void shutdown() throws InterruptedException {
+        stopping = true;
+        LockSupport.unpark(worker);
+        worker.join();
+    }
+
+    long simulatedTime() { return time; } // only meaningful after shutdown()
+    long contextSwitches() { return contextSwitches; }
+
+    private void loop() {
+        Job last = null;
+        while (true) {
+            drainIntake();
+            Job j = policy == Policy.RR ? rrQueue.poll() : heap.poll();
+            if (j == null) {
+                if (stopping && intakeEmpty()) break;
+                LockSupport.parkNanos(1000); // nothing to run: the simulated clock waits for work
+                continue;
+            }
+
+            if (last != null && last != j) {
+                time += contextSwitch;
+                contextSwitches++;
+            }
+            last = j;
+
+            int run = Math.min(quantum, j.remaining);
+            j.remaining -= run;
+            time += run;
+
+            if (j.remaining == 0) {
+                j.completion = time;
+                publish(j);
+            } else if (policy == Policy.RR) {
+                drainIntake(); // arrivals during the slice queue up before the preempted job, as in RoundRobin
+                rrQueue.add(j);
+            } else {
+                heap.add(j);
+            }
+        }
+    }
+
+    private void drainIntake() {
+        Job n;
+        while ((n = (Job) NEXT.getAcquire(intakeHead)) != null) {
+            intakeHead = n; // n becomes the new stub; its payload is still ours to schedule
+            n.arrival = time;
+            n.seq = seq++;
+            if (policy == Policy.RR) rrQueue.add(n);
+            else heap.add(n);
+        }
+    }
+
+    private boolean intakeEmpty() {
+        return NEXT.getAcquire(intakeHead) == null && intakeTail.get() == intakeHead;
+    }
+
+    private void publish(Job j) {
+        long t = completedTail;
+        while (t - completedHead > mask) Thread.onSpinWait(); // ring full: wait for the consumer
+        completed[(int) (t & mask)] = j;
+        COMPLETED_TAIL.setRelease(this, t + 1);
+    }
+
+    /* ---------------- submission benchmark ---------------- */
+
+    // usage: OnlineScheduler [producers] [jobs per producer]
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        long total = (long) producers * perProducer;
+
+        OnlineScheduler s = new OnlineScheduler(Policy.RR, 4, 1, 1 << 16);
+        s.start();
+        Thread consumer = new Thread(() -> {
+            long seen = 0;
+            while (seen < total) {
+                if (s.pollCompleted() != null) seen++;
+                else Thread.onSpinWait();
+            }
+        });
+        consumer.start();
+
+        Thread[] threads = new Thread[producers];
+        long[] nanos = new long[producers];
+        for (int t = 0; t < producers; t++) {
+            int id = t;
+            String name = "S" + id;
+            threads[t] = new Thread(() -> {
+                long start = System.nanoTime();
+                for (int i = 0; i < perProducer; i++) s.submit(name, 1 + (i & 7), 1 + (i & 3));
+                nanos[id] = System.nanoTime() - start;
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        long submitted = System.nanoTime() - start;
+        consumer.join();
+        s.shutdown();
+        long all = System.nanoTime() - start;
+
+        double avgNs = Arrays.stream(nanos).sum() / (double) total;
+        System.out.printf("%d producers, %d jobs: %.0f ns per submit, %.2f M submits/s, %.2f M jobs/s end to end%n",
+                producers, total, avgNs, total / (submitted / 1e3), total / (all / 1e3));
+        System.out.println("simulated time " + s.simulatedTime() + ", context switches " + s.contextSwitches());
+    }
+}
+
+// JUnit checks for the online engine
+class OnlineSchedulerJUnitTest {
+
+    @Test
+    void everyJobFromEveryProducerCompletesOnce() throws Exception {
+        for (OnlineScheduler.Policy policy : OnlineScheduler.Policy.values()) {
+            OnlineScheduler s = new OnlineScheduler(policy, 3, 1, 1 << 10);
+            s.start();
+            int producers = 4, perProducer = 5000;
+            Thread[] threads = new Thread[producers];
+            for (int t = 0; t < producers; t++) {
+                int id = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) s.submit(id + ":" + i, 1 + i % 5, 1 + i % 4);
+                });
+                threads[t].start();
+            }
+
+            Set<String> seen = new HashSet<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+                OnlineScheduler.Job j = s.pollCompleted();
+                if (j == null) continue;
+                assertTrue(seen.add(j.name), "completed twice: " + j.name);
+                assertEquals(0, j.remaining);
+                assertTrue(j.completion - j.arrival >= j.burst);
+            }
+            for (Thread t : threads) t.join();
+            s.shutdown();
+            assertEquals(producers * perProducer, seen.size(), policy + " lost jobs");
+        }
+    }
+
+    @Test
+    void sjfRunsShortestJobFirstWhenSubmittedTogether() throws Exception {
+        OnlineScheduler s = new OnlineScheduler(OnlineScheduler.Policy.SJF, 100, 0, 16);
+        s.submit("long", 9, 1);
+        s.submit("short", 2, 1);
+        s.submit("mid", 5, 1);
+        s.start();
+        s.shutdown();
+        assertEquals("short", s.pollCompleted().name);
+        assertEquals("mid", s.pollCompleted().name);
+        assertEquals("long", s.pollCompleted().name);
+        assertNull(s.pollCompleted());
+    }
+}
@@ -6,61 +6,100 @@ import java.io.FileReader;
 import java.util.*;
 
 /* =========================================================
-   1. Process Entity
+   1. Priority Preemptive Scheduler Logic
    ========================================================= */
-class Process {
-    String name;
-    int arrivalTime;
-    int burstTime;
-    int remainingTime;
-    int priority;
-
-    int waitingTime = 0;
-    int turnaroundTime = 0;
-    boolean finished = false;
-
-    int last; // last time aging was applied
-
-    Process(String name, int arrival, int burst, int priority) {
-        this.name = name;
-        this.arrivalTime = arrival;
-        this.burstTime = burst;
-        this.remainingTime = burst;
-        this.priority = priority;
-        this.last = arrival;
+public class PriorityPreemptiveScheduler {
+    // process entity
+    static class Process {
+        String name;
+        long arrivalTime;
+        int burstTime;
+        int remainingTime;
+        int priority;
+
+        long waitingTime = 0;
+        long turnaroundTime = 0;
+        boolean finished = false;
+
+        long last; // last time aging was applied
+
+        Process(String name, long arrival, int burst, int priority) {
+            this.name = name;
+            this.arrivalTime = arrival;
+            this.burstTime = burst;
+            this.remainingTime = burst;
+            this.priority = priority;
+            this.last = arrival;
+        }
     }
-}
 
-/* =========================================================
-   2. Priority Preemptive Scheduler Logic
-   ========================================================= */
-public class PriorityPreemptiveScheduler {
     private final List<Process> processes;
     private final int contextSwitch;
     private final int agingInterval;
 
-    private int time = 0;
+    private long time = 0;
     private Process running = null;
     private int csRemaining = 0;
     private Process csTarget = null;
 
     private final List<String> executionOrder = new ArrayList<>();
+    private final SchedulerMetrics metrics = SchedulerMetrics.start("Priority"); // null when disabled
+
+    private final SimulationMonitor monitor; // optional JMX progress monitor
+    private final SchedulingEvents events; // optional event stream
+    private int completed = 0;
+    private boolean cancelled = false;
 
     PriorityPreemptiveScheduler(List<Process> processes, int cs, int aging) {
+        this(processes, cs, aging, null);
+    }
+
+    PriorityPreemptiveScheduler(List<Process> processes, int cs, int aging, SimulationMonitor monitor) {
+        this(processes, cs, aging, monitor, null);
+    }
+
+    PriorityPreemptiveScheduler(List<Process> processes, int cs, int aging,
+                                SimulationMonitor monitor, SchedulingEvents events) {
         this.processes = processes;
         this.contextSwitch = cs;
         this.agingInterval = aging;
-        schedule();
+        this.events = events;
+        if (monitor != null || !SimulationMonitor.publishing()) {
+            this.monitor = monitor;
+            schedule();
+            return;
+        }
+        // no monitor given and -Dscheduler.jmx asks for one: publish it for the length of this run
+        this.monitor = SimulationMonitor.register("Priority", processes.size());
+        try {
+            schedule();
+        } finally {
+            this.monitor.unregister();
+        }
     }
 
     private void schedule() {
+        long loops = 0; // iterations, used to sample progress for the monitor
         while (!allFinished()) {
+            if (SchedulerMetrics.ENABLED) metrics.events++;
+
+            // publish progress every SAMPLE iterations, and stop if cancelled
+            if (monitor != null && (++loops & SimulationMonitor.SAMPLE_MASK) == 0) {
+                monitor.update(time, completed, getReady().size());
+                if (monitor.isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+            }
             // Context switch delay
             if (csRemaining > 0) {
                 incrementWaiting(null);
                 time++;
                 csRemaining--;
-                if (csRemaining == 0) running = csTarget;
+                if (csRemaining == 0) {
+                    running = csTarget;
+                    if (events != null) events.dispatch(time, running.name);
+                }
                 continue;
             }
 
@@ -69,6 +108,7 @@ public class PriorityPreemptiveScheduler {
             if (ready.isEmpty()) {
                 if (executionOrder.isEmpty() || !executionOrder.get(executionOrder.size() - 1).equals("IDLE")) {
                     executionOrder.add("IDLE");
+                    if (events != null) events.idle(time);
                 }
                 time++;
                 continue;
@@ -78,6 +118,18 @@ public class PriorityPreemptiveScheduler {
             Process selected = selectProcess(ready);
 
             if (running != selected) {
+                if (SchedulerMetrics.ENABLED) {
+                    metrics.sampleQueue(ready.size());
+                    String from = running == null ? "IDLE" : running.name;
+                    if (running != null) metrics.preemption("PRIORITY", running.name, selected.name, time);
+                    metrics.contextSwitch(from, selected.name, time);
+                }
+                if (events != null) {
+                    if (running != null) events.preempt(time, running.name, selected.name);
+                    if (contextSwitch > 0)
+                        events.contextSwitch(time, running == null ? null : running.name, selected.name, contextSwitch);
+                    else events.dispatch(time, selected.name);
+                }
                 executionOrder.add(selected.name);
                 csTarget = selected;
                 csRemaining = contextSwitch;
@@ -87,6 +139,9 @@ public class PriorityPreemptiveScheduler {
 
             executeOneUnit(running);
         }
+        if (SchedulerMetrics.ENABLED) metrics.finish(time);
+        if (monitor != null) monitor.finish(time, completed);
+        if (events != null) events.flush();
     }
 
     private void executeOneUnit(Process p) {
@@ -99,6 +154,8 @@ public class PriorityPreemptiveScheduler {
             p.turnaroundTime = time - p.arrivalTime;
             p.waitingTime = p.turnaroundTime - p.burstTime;
             running = null;
+            completed++;
+            if (events != null) events.complete(time, p.name);
         }
     }
 
@@ -114,6 +171,7 @@ public class PriorityPreemptiveScheduler {
         for (Process p : ready) {
             if (p == running) continue;
             if (time - p.last >= agingInterval) {
+                if (SchedulerMetrics.ENABLED && p.priority > 1) metrics.agingPromotion(p.name, p.priority - 1, time);
                 p.priority = Math.max(1, p.priority - 1);
                 p.last = time;
             }
@@ -124,7 +182,7 @@ public class PriorityPreemptiveScheduler {
         return ready.stream()
                 .min(Comparator
                         .comparingInt((Process p) -> p.priority)
-                        .thenComparingInt(p -> p.arrivalTime))
+                        .thenComparingLong(p -> p.arrivalTime))
                 .orElse(null);
     }
 
@@ -144,10 +202,252 @@ public class PriorityPreemptiveScheduler {
 
     List<String> getExecutionOrder() { return executionOrder; }
     List<Process> getProcesses() { return processes; }
+    boolean isCancelled() { return cancelled; }
+    SchedulerMetrics.Snapshot getMetrics() { return metrics == null ? null : metrics.snapshot(); }
+
+    /* ---------------------------------------------------------
+       Reusable run state over an immutable Workload
+       --------------------------------------------------------- */
+    // All arrays are allocated once; run() starts with reset(), so the same workload
+    // can be replayed any number of times without allocating. One RunState per thread.
+    static final class RunState {
+        static final int IDLE = -1; // marker in the execution order
+
+        Workload workload; // replaced by rerun
+        private final int contextSwitch, agingInterval;
+        private int n;
+        private int[] byArrival;
+        private int[] remaining, priority;
+        private long[] last, completion;
+
+        // arrived, unfinished processes (unordered; selection breaks ties by arrival then index,
+        // which is what the stream min over the input list does)
+        private int[] active;
+        private int activeSize;
+
+        private int[] order = new int[16]; // process index per switch, IDLE for idle gaps
+        private int orderLength;
+        private long time;
+
+        // incremental mode: scalars time, next, completed, running, order length; one
+        // record (index, remaining, priority, last aging) per active process
+        private final Checkpoints checkpoints = new Checkpoints(5);
+        private long checkpointInterval, nextCheckpoint = Long.MAX_VALUE;
+        private long resumedFrom;
+
+        private TimeSeries series; // optional, filled by run() (by rerun() from resumedFrom on)
+        private ResultWriter sink; // optional, written by run() and rerun()
+
+        RunState(Workload w) {
+            this(w, w.contextSwitch, w.agingInterval);
+        }
+
+        RunState(Workload w, int contextSwitch, int agingInterval) {
+            workload = w;
+            n = w.size();
+            this.contextSwitch = contextSwitch;
+            this.agingInterval = agingInterval;
+            byArrival = w.indicesByArrival();
+            remaining = new int[n];
+            priority = new int[n];
+            last = new long[n];
+            completion = new long[n];
+            active = new int[Math.max(1, n)];
+        }
+
+        void reset() {
+            for (int i = 0; i < n; i++) init(i);
+            activeSize = orderLength = 0;
+            time = 0;
+            checkpoints.clear();
+            nextCheckpoint = checkpointInterval > 0 ? checkpointInterval : Long.MAX_VALUE;
+            resumedFrom = 0;
+            if (series != null) series.clear();
+        }
+
+        // records busy / idle / switch time, queue length and running priority; null stops it
+        void setTimeSeries(TimeSeries series) {
+            this.series = series;
+        }
+
+        // streams every dispatch and completion to the writer as it happens (a rerun first
+        // replays the order and the processes it keeps from the checkpoint); null stops it
+        void setSink(ResultWriter sink) {
+            this.sink = sink;
+        }
+
+        private void init(int i) {
+            remaining[i] = workload.burst(i);
+            priority[i] = workload.priority(i);
+            last[i] = workload.arrival(i);
+            completion[i] = 0;
+        }
+
+        // Incremental mode: from now on run() records a checkpoint at least interval
+        // time units apart, so that rerun(...) can skip the unchanged prefix. Each one
+        // copies the active processes; 0 switches it off.
+        void checkpointEvery(long interval) {
+            if (interval < 0) throw new IllegalArgumentException("negative checkpoint interval");
+            checkpointInterval = interval;
+        }
+
+        // Same schedule as schedule(). A context switch is applied in one step (nothing
+        // else happens while it runs) and idle gaps are skipped in one jump.
+        boolean run() {
+            reset();
+            boolean done = simulate(0, 0, -1);
+            if (series != null) series.end(time);
+            return done;
+        }
+
+        // Runs edited, this state's workload with processes changed (Workload.withProcess)
+        // or appended, and ends exactly where new RunState(edited).run() would. Nothing
+        // before the first arrival of a changed process can differ, so the run resumes
+        // from the last checkpoint before it and keeps the order and completions up to
+        // there. Other edits (parameters, removed processes) run from the start.
+        boolean rerun(Workload edited) {
+            long horizon = Checkpoints.horizon(workload, edited, false);
+            byArrival = horizon < 0 ? edited.indicesByArrival() : Checkpoints.arrivalOrder(byArrival, workload, edited);
+            if (edited.size() != n) resize(edited.size());
+            workload = edited;
+            int k = horizon < 0 ? -1 : checkpoints.lastBefore(horizon);
+            if (k < 0) return run();
+
+            time = resumedFrom = checkpoints.time(k);
+            int next = (int) checkpoints.scalar(k, 1);
+            orderLength = (int) checkpoints.scalar(k, 4);
+            for (int j = next; j < n; j++) init(byArrival[j]); // not arrived at the checkpoint
+            activeSize = 0;
+            for (int pos = checkpoints.recordStart(k); pos < checkpoints.recordEnd(k); pos += 4) {
+                int p = (int) checkpoints.record(pos);
+                active[activeSize++] = p;
+                remaining[p] = (int) checkpoints.record(pos + 1);
+                priority[p] = (int) checkpoints.record(pos + 2);
+                last[p] = checkpoints.record(pos + 3);
+                completion[p] = 0;
+            }
+            checkpoints.truncate(k + 1);
+            nextCheckpoint = checkpointInterval > 0 ? time + checkpointInterval : Long.MAX_VALUE;
+            if (series != null) series.clear();
+            if (sink != null) {
+                for (int j = 0; j < orderLength; j++)
+                    sink.dispatched(order[j] == IDLE ? "IDLE" : workload.name(order[j]));
+                for (int i = 0; i < n; i++) // finished before the checkpoint
+                    if (completion[i] != 0) sink.completed(workload.name(i), waiting(i), turnaround(i));
+            }
+            boolean done = simulate(next, (int) checkpoints.scalar(k, 2), (int) checkpoints.scalar(k, 3));
+            if (series != null) series.end(time);
+            return done;
+        }
+
+        // time of the checkpoint the last rerun started from, 0 for a run from the start
+        long resumedFrom() { return resumedFrom; }
+
+        private void resize(int size) {
+            remaining = Arrays.copyOf(remaining, size);
+            priority = Arrays.copyOf(priority, size);
+            last = Arrays.copyOf(last, size);
+            completion = Arrays.copyOf(completion, size);
+            active = Arrays.copyOf(active, Math.max(1, size));
+            n = size;
+        }
+
+        private boolean simulate(int next, int completed, int running) {
+            while (completed < n) {
+                while (next < n && workload.arrival(byArrival[next]) <= time)
+                    active[activeSize++] = byArrival[next++];
+                if (time >= nextCheckpoint) checkpoint(next, completed, running);
+
+                if (activeSize == 0) {
+                    if (orderLength == 0 || order[orderLength - 1] != IDLE) addOrder(IDLE);
+                    if (series != null) series.set(time, TimeSeries.IDLE, 0, 0);
+                    time = workload.arrival(byArrival[next]);
+                    continue;
+                }
+
+                // aging, then pick the smallest (priority, arrival, index)
+                int selected = -1;
+                for (int k = 0; k < activeSize; k++) {
+                    int p = active[k];
+                    if (p != running && time - last[p] >= agingInterval) {
+                        priority[p] = Math.max(1, priority[p] - 1);
+                        last[p] = time;
+                    }
+                    if (selected == -1 || priority[p] < priority[selected]
+                            || (priority[p] == priority[selected]
+                            && (workload.arrival(p) < workload.arrival(selected)
+                            || (workload.arrival(p) == workload.arrival(selected) && p < selected))))
+                        selected = p;
+                }
+
+                if (running != selected) {
+                    addOrder(selected);
+                    if (series != null) series.set(time, TimeSeries.SWITCH, activeSize - 1, 0);
+                    time += contextSwitch;
+                    running = selected;
+                    continue;
+                }
+
+                if (series != null) series.set(time, TimeSeries.BUSY, activeSize - 1, priority[running]);
+                remaining[running]--;
+                time++;
+                if (remaining[running] == 0) {
+                    completion[running] = time;
+                    completed++;
+                    if (sink != null) sink.completed(workload.name(running), waiting(running), turnaround(running));
+                    for (int k = 0; k < activeSize; k++) {
+                        if (active[k] == running) {
+                            active[k] = active[--activeSize];
+                            break;
+                        }
+                    }
+                    running = -1;
+                }
+            }
+            return true;
+        }
+
+        // everything that arrived by now is active or finished
+        private void checkpoint(int next, int completed, int running) {
+            checkpoints.open(time);
+            checkpoints.set(1, next);
+            checkpoints.set(2, completed);
+            checkpoints.set(3, running);
+            checkpoints.set(4, orderLength);
+            for (int k = 0; k < activeSize; k++) {
+                int p = active[k];
+                checkpoints.put(p);
+                checkpoints.put(remaining[p]);
+                checkpoints.put(priority[p]);
+                checkpoints.put(last[p]);
+            }
+            nextCheckpoint = time + checkpointInterval;
+        }
+
+        private void addOrder(int p) {
+            if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+            order[orderLength++] = p;
+            if (sink != null) sink.dispatched(p == IDLE ? "IDLE" : workload.name(p));
+        }
+
+        long completion(int i) { return completion[i]; }
+        long turnaround(int i) { return completion[i] - workload.arrival(i); }
+        long waiting(int i) { return turnaround(i) - workload.burst(i); }
+        int orderLength() { return orderLength; }
+        int orderAt(int k) { return order[k]; }
+
+        // execution order as names, with "IDLE" for idle gaps (allocates)
+        List<String> executionOrder() {
+            List<String> names = new ArrayList<>(orderLength);
+            for (int k = 0; k < orderLength; k++)
+                names.add(order[k] == IDLE ? "IDLE" : workload.name(order[k]));
+            return names;
+        }
+    }
 }
 
 /* =========================================================
-   3. JUnit Test Runner (JSON Driven)
+   2. JUnit Test Runner (JSON Driven)
    ========================================================= */
  class PriorityPreemptiveJUnitTest {
 
@@ -165,7 +465,7 @@ public class PriorityPreemptiveScheduler {
         JsonObject json = JsonParser.parseReader(new FileReader(path)).getAsJsonObject();
 
         // Load processes
-        List<Process> processes = loadProcesses(json);
+        List<PriorityPreemptiveScheduler.Process> processes = loadProcesses(json);
 
         // Parameters
         JsonObject input = json.getAsJsonObject("input");
@@ -190,7 +490,7 @@ public class PriorityPreemptiveScheduler {
         JsonArray expectedResults = expected.getAsJsonArray("processResults");
         for (JsonElement e : expectedResults) {
             JsonObject ep = e.getAsJsonObject();
-            Process p = scheduler.getProcesses().stream()
+            PriorityPreemptiveScheduler.Process p = scheduler.getProcesses().stream()
                     .filter(x -> x.name.equals(ep.get("name").getAsString()))
                     .findFirst().orElseThrow();
 
@@ -199,21 +499,21 @@ public class PriorityPreemptiveScheduler {
         }
 
         // 3. Averages Check
-        double avgWT = scheduler.getProcesses().stream().mapToInt(p -> p.waitingTime).average().orElse(0);
-        double avgTAT = scheduler.getProcesses().stream().mapToInt(p -> p.turnaroundTime).average().orElse(0);
+        double avgWT = scheduler.getProcesses().stream().mapToLong(p -> p.waitingTime).average().orElse(0);
+        double avgTAT = scheduler.getProcesses().stream().mapToLong(p -> p.turnaroundTime).average().orElse(0);
 
         assertEquals(expected.get("averageWaitingTime").getAsDouble(), avgWT, 0.01);
         assertEquals(expected.get("averageTurnaroundTime").getAsDouble(), avgTAT, 0.01);
     }
 
-    static List<Process> loadProcesses(JsonObject json) {
-        List<Process> list = new ArrayList<>();
+    static List<PriorityPreemptiveScheduler.Process> loadProcesses(JsonObject json) {
+        List<PriorityPreemptiveScheduler.Process> list = new ArrayList<>();
         JsonArray arr = json.getAsJsonObject("input").getAsJsonArray("processes");
         for (JsonElement e : arr) {
             JsonObject p = e.getAsJsonObject();
-            list.add(new Process(
+            list.add(new PriorityPreemptiveScheduler.Process(
                     p.get("name").getAsString(),
-                    p.get("arrival").getAsInt(),
+                    p.get("arrival").getAsLong(),
                     p.get("burst").getAsInt(),
                     p.get("priority").getAsInt()
             ));
@@ -0,0 +1,365 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/* =========================================================
+   Off-Heap Process Store
+   ========================================================= */
+// A process table for traces too big for Process objects or even Workload's
+// int[] columns. Every process is one fixed 40-byte record outside the Java
+// heap, memory-mapped from a file, so the heap cost is the same for a hundred
+// processes as for a hundred million and the GC never scans the table. The
+// in-memory store maps a deleted temp file rather than using direct buffers:
+// those count against -XX:MaxDirectMemorySize, which defaults to -Xmx, so with
+// -Xmx64m they could not hold more than about 1.6 million records.
+//
+// Record layout (little endian):
+//     0  arrival     long
+//     8  burst       int
+//    12  priority    int
+//    16  quantum     int
+//    20  remaining   int    engine state
+//    24  next        int    engine state: next record in the ready queue, -1 = none
+//    32  completion  long   engine state (28-31 unused, keeps it 8-byte aligned)
+//
+// Records are kept in arrival order (append checks it), so an engine admits
+// arrivals with a single pointer. A buffer holds at most 2 GB, so the table is
+// split into chunks of CHUNK records. A mapped file starts with a HEADER-byte
+// header (magic, record size, count, context switch, rr quantum) and can be
+// opened again later; the engine state is written back to it as well.
+final class ProcessStore implements AutoCloseable {
+
+    static final int RECORD = 40;
+    static final int HEADER = 64;
+    private static final int MAGIC = 0x53555043; // "CPUS"
+    private static final int CHUNK_SHIFT = 25; // 32M records = 1.25 GB per chunk
+    static final int CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK - 1;
+
+    private static final int ARRIVAL = 0, BURST = 8, PRIORITY = 12, QUANTUM = 16;
+    private static final int REMAINING = 20, NEXT = 24, COMPLETION = 32;
+
+    private final ByteBuffer[] chunks;
+    private final ByteBuffer header; // null when not file backed
+    private final FileChannel channel;
+    private final int capacity;
+    private int size;
+
+    int contextSwitch, rrQuantum;
+
+    private ProcessStore(ByteBuffer[] chunks, ByteBuffer header, FileChannel channel, int capacity, int size) {
+        this.chunks = chunks;
+        this.header = header;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.size = size;
+    }
+
+    // In memory, outside the heap and outside the direct memory limit: the chunks map
+    // a temp file that goes away with its channel, closed here. The mappings stay
+    // valid until the buffers are collected; the pages can be written out to the
+    // temp directory's disk under memory pressure.
+    static ProcessStore allocate(int capacity) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("processes", ".store");
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE)) {
+                return new ProcessStore(mapChunks(ch, 0, capacity), null, null, capacity, 0);
+            }
+        } catch (IOException e) {
+            try {
+                if (file != null) Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // the original failure is the one to report
+            }
+            throw new UncheckedIOException("cannot map a " + (long) capacity * RECORD + "-byte process store", e);
+        }
+    }
+
+    // new file of room for capacity records (replaces an existing file)
+    static ProcessStore create(Path file, int capacity) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ProcessStore s = map(ch, capacity, 0);
+        s.header.putInt(0, MAGIC).putInt(4, RECORD);
+        s.sync();
+        return s;
+    }
+
+    // a file written by create()
+    static ProcessStore open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        ch.read(h, 0);
+        if (h.getInt(0) != MAGIC || h.getInt(4) != RECORD) {
+            ch.close();
+            throw new IOException(file + " is not a process store");
+        }
+        int capacity = (int) ((ch.size() - HEADER) / RECORD);
+        ProcessStore s = map(ch, capacity, (int) h.getLong(8));
+        s.contextSwitch = h.getInt(16);
+        s.rrQuantum = h.getInt(20);
+        return s;
+    }
+
+    private static ProcessStore map(FileChannel ch, int capacity, int size) throws IOException {
+        ByteBuffer header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        return new ProcessStore(mapChunks(ch, HEADER, capacity), header, ch, capacity, size);
+    }
+
+    // records start at byte base of the file, which grows to fit them
+    private static ByteBuffer[] mapChunks(FileChannel ch, long base, int capacity) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(capacity)];
+        for (int c = 0; c < chunks.length; c++)
+            chunks[c] = ch.map(FileChannel.MapMode.READ_WRITE, base + ((long) c << CHUNK_SHIFT) * RECORD,
+                    chunkBytes(capacity, c)).order(ByteOrder.LITTLE_ENDIAN);
+        return chunks;
+    }
+
+    private static int chunkCount(int capacity) {
+        return Math.max(1, (int) (((long) capacity + CHUNK - 1) >>> CHUNK_SHIFT));
+    }
+
+    private static int chunkBytes(int capacity, int c) {
+        return Math.min(CHUNK, capacity - (c << CHUNK_SHIFT)) * RECORD;
+    }
+
+    // copy of a workload, in arrival order; record k is w's process byArrival[k]
+    static ProcessStore of(Workload w) {
+        ProcessStore s = allocate(w.size());
+        s.contextSwitch = w.contextSwitch;
+        s.rrQuantum = w.rrQuantum;
+        for (int i : w.indicesByArrival()) s.append(w.arrival(i), w.burst(i), w.priority(i), w.quantum(i));
+        return s;
+    }
+
+    // adds a record at the end; arrivals must not go backwards
+    int append(long arrival, int burst, int priority, int quantum) {
+        if (size == capacity) throw new IllegalStateException("store is full (" + capacity + " records)");
+        if (size > 0 && arrival < arrival(size - 1))
+            throw new IllegalArgumentException("arrival " + arrival + " before the previous record's " + arrival(size - 1));
+        int i = size++;
+        ByteBuffer b = chunk(i);
+        int o = offset(i);
+        b.putLong(o + ARRIVAL, arrival).putInt(o + BURST, burst).putInt(o + PRIORITY, priority)
+                .putInt(o + QUANTUM, quantum).putInt(o + REMAINING, burst).putInt(o + NEXT, -1)
+                .putLong(o + COMPLETION, 0);
+        return i;
+    }
+
+    // writes the size and parameters to the header and flushes a mapped file
+    void sync() {
+        if (header == null) return;
+        header.putLong(8, size).putInt(16, contextSwitch).putInt(20, rrQuantum);
+        for (ByteBuffer b : chunks) ((MappedByteBuffer) b).force();
+        ((MappedByteBuffer) header).force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        sync();
+        channel.close(); // the mappings stay valid until the buffers are collected
+    }
+
+    private ByteBuffer chunk(int i) { return chunks[i >>> CHUNK_SHIFT]; }
+    private static int offset(int i) { return (i & CHUNK_MASK) * RECORD; }
+
+    int size() { return size; }
+    int capacity() { return capacity; }
+    long arrival(int i) { return chunk(i).getLong(offset(i) + ARRIVAL); }
+    int burst(int i) { return chunk(i).getInt(offset(i) + BURST); }
+    int priority(int i) { return chunk(i).getInt(offset(i) + PRIORITY); }
+    int quantum(int i) { return chunk(i).getInt(offset(i) + QUANTUM); }
+    int remaining(int i) { return chunk(i).getInt(offset(i) + REMAINING); }
+    long completion(int i) { return chunk(i).getLong(offset(i) + COMPLETION); }
+    long turnaround(int i) { return completion(i) - arrival(i); }
+    long waiting(int i) { return turnaround(i) - burst(i); }
+
+    void setRemaining(int i, int v) { chunk(i).putInt(offset(i) + REMAINING, v); }
+    void setCompletion(int i, long v) { chunk(i).putLong(offset(i) + COMPLETION, v); }
+    private int next(int i) { return chunk(i).getInt(offset(i) + NEXT); }
+    private void setNext(int i, int v) { chunk(i).putInt(offset(i) + NEXT, v); }
+
+    /* ---------------- Round Robin over the store ---------------- */
+
+    // Same schedule as RoundRobin.RunState, with the ready queue threaded through
+    // the records' next fields instead of an int[] ring, so the run itself needs
+    // O(1) heap. Results go into the records (remaining, completion); per-slice
+    // order is not kept, only totals.
+    static final class RoundRobinRun {
+        final ProcessStore store;
+        private final int quantum, context;
+        private int head = -1, tail = -1;
+        private long time, dispatches, totalWaiting, totalTurnaround;
+
+        RoundRobinRun(ProcessStore store) {
+            this(store, store.rrQuantum, store.contextSwitch);
+        }
+
+        RoundRobinRun(ProcessStore store, int quantum, int context) {
+            if (quantum < 1) throw new IllegalArgumentException("quantum must be positive");
+            this.store = store;
+            this.quantum = quantum;
+            this.context = context;
+        }
+
+        void reset() {
+            for (int i = 0; i < store.size; i++) {
+                store.setRemaining(i, store.burst(i));
+                store.setCompletion(i, 0);
+                store.setNext(i, -1);
+            }
+            head = tail = -1;
+            time = dispatches = totalWaiting = totalTurnaround = 0;
+        }
+
+        // false where RoundRobin.run() would fail: the queue empties before the next arrival
+        boolean run() {
+            reset();
+            ProcessStore s = store;
+            int n = s.size, next = 0, completed = 0;
+            if (n == 0) return true;
+
+            time = Math.max(0, s.arrival(0));
+            while (next < n && s.arrival(next) <= time) push(next++);
+
+            while (completed < n) {
+                if (head == -1) return false;
+                int cur = head;
+                head = s.next(cur);
+                if (head == -1) tail = -1;
+                dispatches++;
+
+                int left = s.remaining(cur);
+                int run = Math.min(quantum, left);
+                s.setRemaining(cur, left - run);
+                time += run;
+                while (next < n && s.arrival(next) <= time) push(next++);
+
+                if (left == run) {
+                    s.setCompletion(cur, time);
+                    totalTurnaround += time - s.arrival(cur);
+                    totalWaiting += time - s.arrival(cur) - s.burst(cur);
+                    completed++;
+                } else {
+                    push(cur);
+                }
+
+                if (completed < n) {
+                    time += context;
+                    while (next < n && s.arrival(next) <= time) push(next++);
+                }
+            }
+            return true;
+        }
+
+        private void push(int p) {
+            store.setNext(p, -1);
+            if (tail == -1) head = p;
+            else store.setNext(tail, p);
+            tail = p;
+        }
+
+        long finishTime() { return time; }
+        long dispatches() { return dispatches; }
+        double averageWaiting() { return store.size == 0 ? 0 : (double) totalWaiting / store.size; }
+        double averageTurnaround() { return store.size == 0 ? 0 : (double) totalTurnaround / store.size; }
+    }
+
+    // usage: ProcessStore <file | -> <processes> [quantum] [context switch]
+    // writes a random trace of that many processes to a mapped file (an anonymous
+    // store for "-"), replays it with round robin and prints the heap in use next
+    // to the table size
+    public static void main(String[] args) throws IOException {
+        int count = Integer.parseInt(args[1]);
+        SplittableRandom rnd = new SplittableRandom(1);
+        long t0 = System.nanoTime();
+        try (ProcessStore s = args[0].equals("-") ? allocate(count) : create(Paths.get(args[0]), count)) {
+            s.rrQuantum = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+            s.contextSwitch = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+            long arrival = 0;
+            for (int i = 0; i < count; i++) {
+                arrival += rnd.nextInt(3); // keeps a backlog so the queue never empties
+                s.append(arrival, 1 + rnd.nextInt(8), 1 + rnd.nextInt(10), 0);
+            }
+            long t1 = System.nanoTime();
+            RoundRobinRun rr = new RoundRobinRun(s);
+            boolean ok = rr.run();
+            long t2 = System.nanoTime();
+            Runtime rt = Runtime.getRuntime();
+            System.out.printf("%d processes, %d MB off heap, write %.2f s, replay %.2f s (%d slices)%s%n",
+                    count, (long) count * RECORD >> 20, (t1 - t0) / 1e9, (t2 - t1) / 1e9, rr.dispatches(),
+                    ok ? "" : ", stopped: queue emptied before the next arrival");
+            System.out.printf("average waiting %.2f, average turnaround %.2f, finish time %d%n",
+                    rr.averageWaiting(), rr.averageTurnaround(), rr.finishTime());
+            System.out.printf("heap in use %d MB%n", (rt.totalMemory() - rt.freeMemory()) >> 20);
+        }
+    }
+}
+
+// JUnit checks for the off-heap store
+class ProcessStoreJUnitTest {
+
+    @Test
+    void roundRobinOnTheStoreMatchesRunState() {
+        SplittableRandom rnd = new SplittableRandom(12);
+        for (int c = 0; c < 500; c++) {
+            Workload w = Workload.random(rnd, 15);
+            if (w.rrQuantum < 1) continue;
+            RoundRobin.RunState ref = new RoundRobin.RunState(w);
+            ProcessStore s = ProcessStore.of(w);
+            ProcessStore.RoundRobinRun rr = new ProcessStore.RoundRobinRun(s);
+            boolean ok = ref.run();
+            assertEquals(ok, rr.run(), w.toString());
+            if (!ok) continue;
+            int[] byArrival = w.indicesByArrival();
+            for (int k = 0; k < w.size(); k++) assertEquals(ref.completion(byArrival[k]), s.completion(k), w.toString());
+            assertEquals(ref.orderLength(), rr.dispatches());
+            assertEquals(ref.finishTime(), rr.finishTime());
+        }
+    }
+
+    @Test
+    void mappedFileKeepsRecordsAndResults() throws Exception {
+        Path file = Files.createTempFile("processes", ".store");
+        try (ProcessStore s = ProcessStore.create(file, 3)) {
+            s.rrQuantum = 2;
+            s.contextSwitch = 1;
+            s.append(0, 3, 1, 0);
+            s.append(1, 2, 1, 0);
+            assertThrows(IllegalArgumentException.class, () -> s.append(0, 1, 1, 0));
+            assertTrue(new ProcessStore.RoundRobinRun(s).run());
+        }
+        try (ProcessStore s = ProcessStore.open(file)) {
+            assertEquals(2, s.size());
+            assertEquals(2, s.rrQuantum);
+            // P1 0-2, cs, P2 3-5, cs, P1 6-7
+            assertEquals(7, s.completion(0));
+            assertEquals(5, s.completion(1));
+            assertEquals(2, s.burst(1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // 4M records are 160 MB, more than twice the direct memory a 64 MB heap allows by default
+    @Test
+    void anonymousStoreIsNotLimitedByDirectMemory() throws Exception {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(List.of("-Xmx64m", "-cp", System.getProperty("java.class.path"), "ProcessStore", "-", "4000000"));
+        Process child = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        String output = new String(child.getInputStream().readAllBytes());
+        assertEquals(0, child.waitFor(), output);
+        assertTrue(output.contains("4000000 processes, 152 MB off heap"), output);
+    }
+}
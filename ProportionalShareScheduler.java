@@ -0,0 +1,365 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Proportional Share: Stride and Lottery Scheduling
+   ========================================================= */
+// Every process holds tickets, taken from its priority through the same
+// weight table CFSScheduler uses (priority 1 = 1024 tickets, about 25% fewer
+// per level below). Time is handed out in RoundRobin slices: a pick runs for
+// min(rrQuantum, remaining), and after every slice contextSwitch time units
+// pass if any process is still unfinished.
+//
+//  - STRIDE: deterministic. Each process has stride = STRIDE1 / tickets and a
+//    pass value; the smallest pass runs (binary heap) and is charged
+//    stride * slice / quantum. A newcomer starts at the global pass, so it
+//    neither gets credit nor debt for the time before it arrived. The global
+//    pass grows by STRIDE1 * slice / quantum / runnable tickets, which is below
+//    one once more than STRIDE1 tickets are runnable (about a thousand
+//    default-priority processes), so the remainder of that division is carried.
+//  - LOTTERY: a seeded draw over the tickets of the runnable processes,
+//    through a Fenwick tree so drawing, adding and removing are O(log n).
+//
+// Share error: the virtual-time accumulator V grows by slice / runnable
+// tickets with every slice, so a process with t tickets is entitled to
+// t * (V at completion - V at arrival) units of service. Its error is what it
+// got (its burst) minus that entitlement.
+final class ProportionalShareScheduler {
+
+    enum Mode { STRIDE, LOTTERY }
+
+    static final long STRIDE1 = 1L << 20;
+
+    static int tickets(int priority) {
+        return CFSScheduler.weight(priority);
+    }
+
+    final Workload workload;
+    private final Mode mode;
+    private final long seed;
+    private final int n, quantum, context;
+    private final int[] byArrival;
+    private final int[] rank;
+    private final int[] tickets, remaining;
+    private final long[] completion;
+
+    // stride: heap of runnable processes on (pass, rank)
+    private final long[] stride, pass;
+    private final int[] heap;
+    private int heapSize;
+    private long globalPass;
+    private long passRemainder; // globalPass is exact up to passRemainder / runnableTickets
+
+    // lottery: Fenwick tree of runnable tickets, 1-based over process indices
+    private final long[] fenwick;
+    private SplittableRandom random;
+
+    private long runnableTickets;
+    private double virtualTime; // V, in service units per ticket
+    private final double[] startV, entitled;
+
+    private int[] order = new int[16]; // process index of every slice
+    private int orderLength;
+    private long time;
+
+    ProportionalShareScheduler(Workload w, Mode mode) {
+        this(w, mode, 42);
+    }
+
+    ProportionalShareScheduler(Workload w, Mode mode, long seed) {
+        if (w.rrQuantum < 1) throw new IllegalArgumentException("rrQuantum must be positive");
+        workload = w;
+        this.mode = mode;
+        this.seed = seed;
+        n = w.size();
+        quantum = w.rrQuantum;
+        context = w.contextSwitch;
+        byArrival = w.indicesByArrival();
+        rank = new int[n];
+        for (int k = 0; k < n; k++) rank[byArrival[k]] = k;
+        tickets = new int[n];
+        stride = new long[n];
+        for (int i = 0; i < n; i++) {
+            tickets[i] = tickets(w.priority(i));
+            stride[i] = STRIDE1 / tickets[i];
+        }
+        remaining = new int[n];
+        completion = new long[n];
+        pass = new long[n];
+        heap = new int[Math.max(1, n)];
+        fenwick = new long[n + 1];
+        startV = new double[n];
+        entitled = new double[n];
+    }
+
+    void reset() {
+        for (int i = 0; i < n; i++) {
+            remaining[i] = workload.burst(i);
+            completion[i] = 0;
+            pass[i] = 0;
+            startV[i] = entitled[i] = 0;
+        }
+        Arrays.fill(fenwick, 0);
+        random = new SplittableRandom(seed);
+        heapSize = orderLength = 0;
+        time = 0;
+        globalPass = passRemainder = runnableTickets = 0;
+        virtualTime = 0;
+    }
+
+    void run() {
+        reset();
+        int next = 0, completed = 0;
+
+        while (completed < n) {
+            while (next < n && workload.arrival(byArrival[next]) <= time) add(byArrival[next++]);
+            if (runnableTickets == 0) {
+                time = workload.arrival(byArrival[next]); // idle until the next arrival
+                continue;
+            }
+
+            int cur = pick();
+            addOrder(cur);
+            int run = Math.min(quantum, remaining[cur]);
+            remaining[cur] -= run;
+            time += run;
+
+            // everyone runnable during the slice accrues entitlement through V
+            virtualTime += (double) run / runnableTickets;
+            if (mode == Mode.STRIDE) {
+                pass[cur] += stride[cur] * run / quantum;
+                long advance = STRIDE1 * run / quantum + passRemainder;
+                globalPass += advance / runnableTickets;
+                passRemainder = advance % runnableTickets;
+            }
+
+            if (remaining[cur] == 0) {
+                completion[cur] = time;
+                completed++;
+                remove(cur);
+            } else if (mode == Mode.STRIDE) {
+                heapPush(cur); // back with its new pass
+            }
+
+            if (completed < n) time += context;
+        }
+    }
+
+    private void add(int p) {
+        setRunnableTickets(runnableTickets + tickets[p]);
+        startV[p] = virtualTime;
+        if (mode == Mode.STRIDE) {
+            pass[p] = globalPass;
+            heapPush(p);
+        } else {
+            for (int i = p + 1; i <= n; i += i & -i) fenwick[i] += tickets[p];
+        }
+    }
+
+    private void remove(int p) {
+        setRunnableTickets(runnableTickets - tickets[p]);
+        entitled[p] = tickets[p] * (virtualTime - startV[p]);
+        if (mode == Mode.LOTTERY) {
+            for (int i = p + 1; i <= n; i += i & -i) fenwick[i] -= tickets[p];
+        }
+        // STRIDE: already popped by pick()
+    }
+
+    // The carried remainder is passRemainder / runnableTickets of one pass unit; it is
+    // rescaled to the new ticket count (rounding down costs less than 1 / t of a unit).
+    private void setRunnableTickets(long t) {
+        passRemainder = t == 0 || runnableTickets == 0 ? 0
+                : (long) ((double) passRemainder / runnableTickets * t);
+        runnableTickets = t;
+    }
+
+    private int pick() {
+        if (mode == Mode.STRIDE) return heapPop();
+        // winning ticket w in [0, runnableTickets): find the first index whose prefix sum exceeds it
+        long w = random.nextLong(runnableTickets);
+        int pos = 0;
+        for (int step = Integer.highestOneBit(n); step > 0; step >>= 1) {
+            if (pos + step <= n && fenwick[pos + step] <= w) {
+                pos += step;
+                w -= fenwick[pos];
+            }
+        }
+        return pos; // 0-based index of the winner
+    }
+
+    private boolean less(int a, int b) {
+        return pass[a] < pass[b] || (pass[a] == pass[b] && rank[a] < rank[b]);
+    }
+
+    private void heapPush(int p) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(p, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = p;
+    }
+
+    private int heapPop() {
+        int top = heap[0];
+        int p = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= heapSize) break;
+            if (c + 1 < heapSize && less(heap[c + 1], heap[c])) c++;
+            if (!less(heap[c], p)) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        if (heapSize > 0) heap[i] = p;
+        return top;
+    }
+
+    private void addOrder(int p) {
+        if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+        order[orderLength++] = p;
+    }
+
+    long completion(int i) { return completion[i]; }
+    long turnaround(int i) { return completion[i] - workload.arrival(i); }
+    long waiting(int i) { return turnaround(i) - workload.burst(i); }
+    int orderLength() { return orderLength; }
+    int orderAt(int k) { return order[k]; }
+
+    // service received minus service entitled by its tickets while it was runnable
+    double shareError(int i) { return workload.burst(i) - entitled[i]; }
+    double entitlement(int i) { return entitled[i]; }
+
+    double maxAbsShareError() {
+        double m = 0;
+        for (int i = 0; i < n; i++) m = Math.max(m, Math.abs(shareError(i)));
+        return m;
+    }
+
+    double meanAbsShareError() {
+        double sum = 0;
+        for (int i = 0; i < n; i++) sum += Math.abs(shareError(i));
+        return n == 0 ? 0 : sum / n;
+    }
+
+    // execution order as names (allocates, meant for reporting and tests)
+    List<String> executionOrder() {
+        List<String> names = new ArrayList<>(orderLength);
+        for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+        return names;
+    }
+
+    // usage: ProportionalShareScheduler <workload json> [STRIDE|LOTTERY] [seed]
+    public static void main(String[] args) throws Exception {
+        Workload w = WorkloadCodec.readWorkload(Paths.get(args[0]));
+        Mode mode = args.length > 1 ? Mode.valueOf(args[1].toUpperCase()) : Mode.STRIDE;
+        ProportionalShareScheduler s = new ProportionalShareScheduler(w, mode,
+                args.length > 2 ? Long.parseLong(args[2]) : 42);
+        s.run();
+        System.out.println("Process | Tickets | Waiting | Turnaround | Entitled | Share error");
+        for (int i = 0; i < w.size(); i++)
+            System.out.printf("%s | %d | %d | %d | %.2f | %+.2f%n", w.name(i), tickets(w.priority(i)),
+                    s.waiting(i), s.turnaround(i), s.entitlement(i), s.shareError(i));
+        System.out.printf("%s: max |share error| %.2f, mean %.2f%n", mode, s.maxAbsShareError(), s.meanAbsShareError());
+    }
+}
+
+// JUnit checks for the proportional-share engines
+class ProportionalShareSchedulerJUnitTest {
+
+    static Workload workload(long[] arrival, int[] burst, int[] priority, int quantum, int cs) {
+        int n = arrival.length;
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, arrival, burst, priority, new int[n], cs, quantum, 0);
+    }
+
+    @Test
+    void equalTicketsStrideIsRoundRobin() {
+        SplittableRandom rnd = new SplittableRandom(2);
+        for (int c = 0; c < 300; c++) {
+            int n = 1 + rnd.nextInt(8);
+            long[] a = new long[n];
+            int[] b = new int[n], p = new int[n];
+            for (int i = 0; i < n; i++) {
+                b[i] = 1 + rnd.nextInt(12);
+                p[i] = 3;
+            }
+            Workload w = workload(a, b, p, 1 + rnd.nextInt(4), rnd.nextInt(3));
+            ProportionalShareScheduler s = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.STRIDE);
+            RoundRobin.RunState rr = new RoundRobin.RunState(w);
+            s.run();
+            assertTrue(rr.run());
+            assertEquals(rr.executionOrder(), s.executionOrder(), w.toString());
+            for (int i = 0; i < n; i++) assertEquals(rr.completion(i), s.completion(i));
+        }
+    }
+
+    @Test
+    void strideTracksEntitlementClosely() {
+        // 1024 against 526 tickets (priority 1 and 4)
+        Workload w = workload(new long[]{0, 0}, new int[]{5000, 5000}, new int[]{1, 4}, 1, 0);
+        ProportionalShareScheduler s = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.STRIDE);
+        s.run();
+        double lightShare = (s.completion(0) - 5000) / (double) s.completion(0);
+        assertEquals(526.0 / (1024 + 526), lightShare, 0.002);
+        assertTrue(s.maxAbsShareError() < 2, "stride error " + s.maxAbsShareError());
+    }
+
+    @Test
+    void lotteryIsSeededAndNoisierThanStride() {
+        SplittableRandom rnd = new SplittableRandom(6);
+        int n = 50;
+        long[] a = new long[n];
+        int[] b = new int[n], p = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = rnd.nextInt(200);
+            b[i] = 20 + rnd.nextInt(200);
+            p[i] = 1 + rnd.nextInt(8);
+        }
+        Workload w = workload(a, b, p, 2, 0);
+        ProportionalShareScheduler l1 = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.LOTTERY, 7);
+        ProportionalShareScheduler l2 = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.LOTTERY, 7);
+        ProportionalShareScheduler l3 = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.LOTTERY, 8);
+        ProportionalShareScheduler st = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.STRIDE);
+        l1.run();
+        l2.run();
+        l3.run();
+        st.run();
+        assertEquals(l1.executionOrder(), l2.executionOrder());
+        assertNotEquals(l1.executionOrder(), l3.executionOrder());
+        assertTrue(st.meanAbsShareError() < l1.meanAbsShareError());
+        l1.run(); // replay restarts the RNG
+        assertEquals(l2.executionOrder(), l1.executionOrder());
+    }
+
+    @Test
+    void newcomerJoinsAtTheGlobalPassWithManyTenants() {
+        // 2000 default-priority tenants hold 2000 * 1024 tickets, more than STRIDE1
+        int n = 2001;
+        long[] a = new long[n];
+        int[] b = new int[n], p = new int[n];
+        Arrays.fill(b, 200);
+        Arrays.fill(p, 1);
+        a[n - 1] = 100_000; // each tenant has had 50 slices by then
+        b[n - 1] = 60;
+        Workload w = workload(a, b, p, 1, 0);
+        ProportionalShareScheduler s = new ProportionalShareScheduler(w, ProportionalShareScheduler.Mode.STRIDE);
+        s.run();
+
+        // the newcomer takes its turn among the others instead of 50 slices back to back
+        int newcomer = n - 1, run = 0, longestRun = 0;
+        for (int k = 0; k < s.orderLength(); k++) {
+            run = s.orderAt(k) == newcomer ? run + 1 : 0;
+            longestRun = Math.max(longestRun, run);
+        }
+        assertTrue(longestRun <= 2, "newcomer ran " + longestRun + " slices in a row");
+        assertTrue(Math.abs(s.shareError(newcomer)) < 2, "share error " + s.shareError(newcomer));
+    }
+}
@@ -0,0 +1,514 @@
+import com.google.gson.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/* =========================================================
+   Streaming Result Writer
+   ========================================================= */
+// Writes a run's results to disk as they are produced, instead of building
+// Result / ProcessResult lists first. Execution-order entries and per-process
+// results can arrive interleaved. Averages come from exact long sums.
+//
+// Two formats:
+//  - JSON: the same shape as an "expectedOutput" block (executionOrder,
+//    processResults with optional quantumHistory, averageWaitingTime,
+//    averageTurnaroundTime), optionally wrapped in {"<algorithm>": ...} as in
+//    test_cases_v5. The order array is written straight to the output; process
+//    results go to a temp file next to it and are copied in by close().
+//  - binary: a compact tagged record stream (see Binary).
+abstract class ResultWriter implements Closeable {
+
+    private final TimeSum totalWaiting = new TimeSum(), totalTurnaround = new TimeSum();
+
+    static ResultWriter json(Path out) throws IOException {
+        return new Json(out, null);
+    }
+
+    // wraps the block in {"<algorithm>": ...} like the test_cases_v5 files
+    static ResultWriter json(Path out, String algorithm) throws IOException {
+        return new Json(out, algorithm);
+    }
+
+    static ResultWriter binary(Path out) throws IOException {
+        return new Binary(out);
+    }
+
+    // next entry of the execution order ("IDLE" for an idle gap)
+    abstract void order(String name) throws IOException;
+
+    // one finished process; history may be null (only AG has a quantum history)
+    final void process(String name, long waiting, long turnaround, int[] history, int historyLength)
+            throws IOException {
+        totalWaiting.add(waiting);
+        totalTurnaround.add(turnaround);
+        writeProcess(name, waiting, turnaround, history, historyLength);
+    }
+
+    final void process(String name, long waiting, long turnaround) throws IOException {
+        process(name, waiting, turnaround, null, 0);
+    }
+
+    abstract void writeProcess(String name, long waiting, long turnaround, int[] history, int historyLength)
+            throws IOException;
+
+    long processCount() { return totalWaiting.count(); }
+    long totalWaitingTime() { return totalWaiting.longValue(); } // throws past Long.MAX_VALUE
+    long totalTurnaroundTime() { return totalTurnaround.longValue(); }
+    double averageWaitingTime() { return totalWaiting.average(); }
+    double averageTurnaroundTime() { return totalTurnaround.average(); }
+
+    /* ---------------- live sink ---------------- */
+
+    // A RunState given this writer with setSink calls these while it runs: one order
+    // entry per dispatch and one result per process as soon as it completes, so the
+    // results are on disk before the run ends. Results then come in completion order.
+    // I/O errors are rethrown unchecked; the engine loops do not declare IOException.
+
+    final void dispatched(String name) {
+        try {
+            order(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    final void completed(String name, long waiting, long turnaround, int[] history, int historyLength) {
+        try {
+            process(name, waiting, turnaround, history, historyLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    final void completed(String name, long waiting, long turnaround) {
+        completed(name, waiting, turnaround, null, 0);
+    }
+
+    /* ---------------- engine adapters ---------------- */
+
+    // These write a finished RunState in one go (results in input order); use setSink
+    // on the RunState instead to stream while it runs.
+
+    void write(RoundRobin.RunState s) throws IOException {
+        for (int k = 0; k < s.orderLength(); k++) order(s.workload.name(s.orderAt(k)));
+        for (int i = 0; i < s.workload.size(); i++) process(s.workload.name(i), s.waiting(i), s.turnaround(i));
+    }
+
+    void write(SJFScheduler.RunState s) throws IOException {
+        for (int k = 0; k < s.orderLength(); k++) order(s.workload.name(s.orderAt(k)));
+        for (int i = 0; i < s.workload.size(); i++) process(s.workload.name(i), s.waiting(i), s.turnaround(i));
+    }
+
+    void write(PriorityPreemptiveScheduler.RunState s) throws IOException {
+        for (int k = 0; k < s.orderLength(); k++) {
+            int p = s.orderAt(k);
+            order(p == PriorityPreemptiveScheduler.RunState.IDLE ? "IDLE" : s.workload.name(p));
+        }
+        for (int i = 0; i < s.workload.size(); i++) process(s.workload.name(i), s.waiting(i), s.turnaround(i));
+    }
+
+    void write(AGScheduler.RunState s) throws IOException {
+        for (int k = 0; k < s.orderLength(); k++) order(s.workload.name(s.orderAt(k)));
+        int[] history = new int[16];
+        for (int i = 0; i < s.workload.size(); i++) {
+            int h = s.historyLength(i);
+            if (h > history.length) history = new int[Math.max(h, history.length * 2)];
+            for (int k = 0; k < h; k++) history[k] = s.historyAt(i, k);
+            process(s.workload.name(i), s.waiting(i), s.turnaround(i), history, h);
+        }
+    }
+
+    /* ---------------- JSON ---------------- */
+
+    static final class Json extends ResultWriter {
+        private final Path spoolPath;
+        private final Writer out, spool;
+        private final boolean wrapped;
+        private boolean firstOrder = true, firstProcess = true;
+
+        Json(Path path, String algorithm) throws IOException {
+            Path dir = path.toAbsolutePath().getParent();
+            spoolPath = Files.createTempFile(dir, "results", ".spool");
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            spool = Files.newBufferedWriter(spoolPath, StandardCharsets.UTF_8);
+            wrapped = algorithm != null;
+            if (wrapped) {
+                out.write('{');
+                string(out, algorithm);
+                out.write(": ");
+            }
+            out.write("{\n  \"executionOrder\": [");
+        }
+
+        @Override
+        void order(String name) throws IOException {
+            if (!firstOrder) out.write(", ");
+            firstOrder = false;
+            string(out, name);
+        }
+
+        @Override
+        void writeProcess(String name, long waiting, long turnaround, int[] history, int historyLength)
+                throws IOException {
+            spool.write(firstProcess ? "\n    {\"name\": " : ",\n    {\"name\": ");
+            firstProcess = false;
+            string(spool, name);
+            spool.write(", \"waitingTime\": ");
+            spool.write(Long.toString(waiting));
+            spool.write(", \"turnaroundTime\": ");
+            spool.write(Long.toString(turnaround));
+            if (history != null) {
+                spool.write(", \"quantumHistory\": [");
+                for (int k = 0; k < historyLength; k++) {
+                    if (k > 0) spool.write(", ");
+                    spool.write(Integer.toString(history[k]));
+                }
+                spool.write(']');
+            }
+            spool.write('}');
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                spool.close();
+                out.write("],\n  \"processResults\": [");
+                out.flush();
+                try (Reader in = Files.newBufferedReader(spoolPath, StandardCharsets.UTF_8)) {
+                    in.transferTo(out);
+                }
+                out.write(firstProcess ? "],\n" : "\n  ],\n");
+                out.write("  \"averageWaitingTime\": " + averageWaitingTime() + ",\n");
+                out.write("  \"averageTurnaroundTime\": " + averageTurnaroundTime() + "\n}");
+                if (wrapped) out.write('}');
+                out.write('\n');
+            } finally {
+                out.close();
+                Files.deleteIfExists(spoolPath);
+            }
+        }
+
+        private static void string(Writer w, String s) throws IOException {
+            w.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    w.write('\\');
+                    w.write(c);
+                } else if (c < 0x20) {
+                    w.write(String.format("\\u%04x", (int) c));
+                } else {
+                    w.write(c);
+                }
+            }
+            w.write('"');
+        }
+    }
+
+    /* ---------------- binary ---------------- */
+
+    // layout: "CPUR", version byte, then records until END
+    //   ORDER   name(UTF)
+    //   PROCESS name(UTF) waiting(long) turnaround(long) historyLength(int, -1 = none) history(int...)
+    //   END     processes(long) totalWaiting(long) totalTurnaround(long)
+    static final class Binary extends ResultWriter {
+        static final int MAGIC = 0x43505552; // "CPUR"
+        static final byte VERSION = 1, END = 0, ORDER = 1, PROCESS = 2;
+
+        private final DataOutputStream out;
+
+        Binary(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        @Override
+        void order(String name) throws IOException {
+            out.writeByte(ORDER);
+            out.writeUTF(name);
+        }
+
+        @Override
+        void writeProcess(String name, long waiting, long turnaround, int[] history, int historyLength)
+                throws IOException {
+            out.writeByte(PROCESS);
+            out.writeUTF(name);
+            out.writeLong(waiting);
+            out.writeLong(turnaround);
+            out.writeInt(history == null ? -1 : historyLength);
+            for (int k = 0; history != null && k < historyLength; k++) out.writeInt(history[k]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.writeByte(END);
+                out.writeLong(processCount());
+                out.writeLong(totalWaitingTime());
+                out.writeLong(totalTurnaroundTime());
+            } finally {
+                out.close();
+            }
+        }
+
+        // replays a binary result file into another writer (e.g. to convert it to JSON)
+        static void copy(Path path, ResultWriter to) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+                if (in.readInt() != MAGIC) throw new IOException(path + ": not a binary result file");
+                if (in.readByte() != VERSION) throw new IOException(path + ": unsupported version");
+                int[] history = new int[16];
+                while (true) {
+                    byte tag = in.readByte();
+                    if (tag == END) return;
+                    String name = in.readUTF();
+                    if (tag == ORDER) {
+                        to.order(name);
+                    } else if (tag == PROCESS) {
+                        long w = in.readLong(), t = in.readLong();
+                        int h = in.readInt();
+                        if (h > history.length) history = new int[h];
+                        for (int k = 0; k < h; k++) history[k] = in.readInt();
+                        to.process(name, w, t, h < 0 ? null : history, Math.max(h, 0));
+                    } else {
+                        throw new IOException(path + ": bad record tag " + tag);
+                    }
+                }
+            }
+        }
+    }
+
+    // usage: ResultWriter <test case or workload json> <RR|SJF|PRIORITY|AG> <output> [json|binary]
+    public static void main(String[] args) throws IOException {
+        Workload w = Workload.read(args[0]);
+        String algorithm = args[1].toUpperCase();
+        Path out = Paths.get(args[2]);
+        boolean binary = args.length > 3 && args[3].equals("binary");
+
+        // the RunState writes through the live sink, so results reach the file while it runs
+        try (ResultWriter writer = binary ? binary(out) : json(out)) {
+            boolean finished;
+            switch (algorithm) {
+                case "RR" -> {
+                    RoundRobin.RunState s = new RoundRobin.RunState(w);
+                    s.setSink(writer);
+                    finished = s.run();
+                }
+                case "SJF" -> {
+                    SJFScheduler.RunState s = new SJFScheduler.RunState(w);
+                    s.setSink(writer);
+                    finished = s.run();
+                }
+                case "PRIORITY" -> {
+                    PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+                    s.setSink(writer);
+                    finished = s.run();
+                }
+                case "AG" -> {
+                    AGScheduler.RunState s = new AGScheduler.RunState(w);
+                    s.setSink(writer);
+                    finished = s.run();
+                }
+                default -> throw new IllegalArgumentException("unknown algorithm " + args[1]);
+            }
+            if (!finished)
+                throw new IllegalStateException(algorithm + " run stalled after " + writer.processCount() + " of "
+                        + w.size() + " processes");
+            System.out.println(writer.processCount() + " processes written to " + out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // from the live sink
+        }
+    }
+}
+
+// JUnit checks for the result writer
+class ResultWriterJUnitTest {
+
+    @Test
+    void jsonMatchesExpectedOutputShape() throws Exception {
+        Path dir = Files.createTempDirectory("results");
+        AGScheduler.RunState s;
+        long seed = 11;
+        do { // the AG rule can stall on some inputs; take the next seed then
+            s = new AGScheduler.RunState(Workload.random(new SplittableRandom(seed++), 20));
+        } while (!s.run());
+        Path out = dir.resolve("ag.json");
+        try (ResultWriter writer = ResultWriter.json(out)) {
+            writer.write(s);
+        }
+
+        AGScheduler.Result expected = s.toResult();
+        JsonObject json = JsonParser.parseString(Files.readString(out)).getAsJsonObject();
+        JsonArray order = json.getAsJsonArray("executionOrder");
+        assertEquals(expected.order.size(), order.size());
+        for (int k = 0; k < order.size(); k++) assertEquals(expected.order.get(k), order.get(k).getAsString());
+
+        JsonArray results = json.getAsJsonArray("processResults");
+        assertEquals(expected.processResults.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            JsonObject r = results.get(i).getAsJsonObject();
+            AGScheduler.ProcessResult e = expected.processResults.get(i);
+            assertEquals(e.name, r.get("name").getAsString());
+            assertEquals(e.waitingTime, r.get("waitingTime").getAsInt());
+            assertEquals(e.turnaroundTime, r.get("turnaroundTime").getAsInt());
+            JsonArray qh = r.getAsJsonArray("quantumHistory");
+            for (int k = 0; k < qh.size(); k++) assertEquals((int) e.quantumHistory.get(k), qh.get(k).getAsInt());
+        }
+        assertEquals(expected.avgW, json.get("averageWaitingTime").getAsDouble(), 1e-9);
+        assertEquals(expected.avgT, json.get("averageTurnaroundTime").getAsDouble(), 1e-9);
+        assertEquals(1, Files.list(dir).count(), "spool file left behind");
+    }
+
+    @Test
+    void binaryConvertsToTheSameJson() throws Exception {
+        Path dir = Files.createTempDirectory("results");
+        Workload w = Workload.random(new SplittableRandom(5), 30);
+        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+        s.run();
+
+        Path direct = dir.resolve("direct.json"), bin = dir.resolve("run.bin"), converted = dir.resolve("converted.json");
+        try (ResultWriter writer = ResultWriter.json(direct, "Priority")) {
+            writer.write(s);
+        }
+        try (ResultWriter writer = ResultWriter.binary(bin)) {
+            writer.write(s);
+        }
+        try (ResultWriter writer = ResultWriter.json(converted, "Priority")) {
+            ResultWriter.Binary.copy(bin, writer);
+        }
+        assertEquals(Files.readString(direct), Files.readString(converted));
+        assertTrue(Files.size(bin) < Files.size(direct));
+        assertEquals(s.executionOrder().size(), JsonParser.parseString(Files.readString(direct)).getAsJsonObject()
+                .getAsJsonObject("Priority").getAsJsonArray("executionOrder").size());
+    }
+
+    // every call a writer gets, in the order it gets them
+    static final class Recorder extends ResultWriter {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        void order(String name) {
+            calls.add("order " + name);
+        }
+
+        @Override
+        void writeProcess(String name, long waiting, long turnaround, int[] history, int historyLength) {
+            calls.add("done " + name + " " + waiting + " " + turnaround
+                    + (history == null ? "" : " " + Arrays.toString(Arrays.copyOf(history, historyLength))));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        // same calls as other, the process results possibly in a different order
+        void assertSameAs(Recorder other) {
+            assertEquals(other.calls.stream().filter(c -> c.startsWith("order")).toList(),
+                    calls.stream().filter(c -> c.startsWith("order")).toList());
+            assertEquals(new TreeSet<>(other.calls), new TreeSet<>(calls));
+            assertEquals(other.calls.size(), calls.size());
+        }
+
+        // true when a process result came in before the last dispatch, i.e. mid-run
+        boolean interleaved() {
+            int firstDone = -1, lastOrder = -1;
+            for (int k = 0; k < calls.size(); k++) {
+                if (calls.get(k).startsWith("done") && firstDone == -1) firstDone = k;
+                if (calls.get(k).startsWith("order")) lastOrder = k;
+            }
+            return firstDone != -1 && firstDone < lastOrder;
+        }
+    }
+
+    @Test
+    void sinkGetsDispatchesAndCompletionsWhileTheRunIsGoing() throws Exception {
+        Workload w = Workload.random(new SplittableRandom(8), 25);
+
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        Recorder live = new Recorder(), after = new Recorder();
+        rr.setSink(live);
+        assertTrue(rr.run());
+        after.write(rr);
+        live.assertSameAs(after);
+        assertTrue(live.interleaved());
+
+        SJFScheduler.RunState sjf = new SJFScheduler.RunState(w);
+        live = new Recorder();
+        after = new Recorder();
+        sjf.setSink(live);
+        assertTrue(sjf.run());
+        after.write(sjf);
+        live.assertSameAs(after);
+        assertTrue(live.interleaved());
+
+        PriorityPreemptiveScheduler.RunState pr = new PriorityPreemptiveScheduler.RunState(w);
+        live = new Recorder();
+        after = new Recorder();
+        pr.setSink(live);
+        assertTrue(pr.run());
+        after.write(pr);
+        live.assertSameAs(after);
+        assertTrue(live.interleaved());
+
+        AGScheduler.RunState ag;
+        long seed = 21;
+        do { // the AG rule can stall on some inputs; take the next seed then
+            ag = new AGScheduler.RunState(Workload.random(new SplittableRandom(seed++), 25));
+            live = new Recorder();
+            ag.setSink(live);
+        } while (!ag.run());
+        after = new Recorder();
+        after.write(ag);
+        live.assertSameAs(after);
+        assertTrue(live.interleaved());
+    }
+
+    @Test
+    void mainStreamsResultsAndRejectsStalledRuns() throws Exception {
+        Path dir = Files.createTempDirectory("results");
+        Path in = dir.resolve("in.json"), out = dir.resolve("out.json");
+        Workload w = Workload.random(new SplittableRandom(12), 25);
+        Files.writeString(in, "{\"input\": " + w.toJson() + "}");
+        ResultWriter.main(new String[]{in.toString(), "RR", out.toString()});
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        assertTrue(rr.run());
+        JsonObject o = JsonParser.parseString(Files.readString(out)).getAsJsonObject();
+        assertEquals(w.size(), o.getAsJsonArray("processResults").size());
+        assertEquals(rr.orderLength(), o.getAsJsonArray("executionOrder").size());
+        // live results come in completion order: the first one written finishes first
+        String first = o.getAsJsonArray("processResults").get(0).getAsJsonObject().get("name").getAsString();
+        int firstDone = 0;
+        for (int i = 1; i < w.size(); i++)
+            if (rr.turnaround(i) + w.arrival(i) < rr.turnaround(firstDone) + w.arrival(firstDone)) firstDone = i;
+        assertEquals(w.name(firstDone), first);
+
+        // RR's queue empties before P2 arrives: that is not a result with one completion
+        Workload gap = new Workload(new String[]{"P1", "P2"}, new long[]{0, 10}, new int[]{2, 2},
+                new int[2], new int[2], 0, 2, 0);
+        Files.writeString(in, "{\"input\": " + gap.toJson() + "}");
+        assertThrows(IllegalStateException.class, () -> ResultWriter.main(new String[]{in.toString(), "RR", out.toString()}));
+    }
+
+    @Test
+    void rerunReplaysWhatItKeepsToTheSink() throws Exception {
+        Workload w = Workload.random(new SplittableRandom(9), 25);
+        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+        s.checkpointEvery(2);
+        s.run();
+
+        int lastArrival = w.indicesByArrival()[w.size() - 1];
+        Workload edited = w.withProcess(lastArrival, w.arrival(lastArrival), w.burst(lastArrival) + 3,
+                w.priority(lastArrival), w.quantum(lastArrival));
+        Recorder live = new Recorder(), after = new Recorder();
+        s.setSink(live);
+        s.rerun(edited);
+        assertTrue(s.resumedFrom() > 0);
+        after.write(s);
+        live.assertSameAs(after);
+    }
+}
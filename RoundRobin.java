@@ -6,24 +6,6 @@ import java.io.FileReader;
 import java.util.*;
 
 
-class Process {
-    String name;
-    int arrival, burst, priority;
-    int remaining;
-    int completionTime;
-    int waitingTime;
-    int turnaroundTime;
-
-    Process(String n, int a, int b, int p) {
-        name = n;
-        arrival = a;
-        burst = b;
-        priority = p;
-        remaining = b;
-    }
-}
-
-
 interface Scheduler {
     // Runs the scheduling algorithm
     void run();
@@ -34,6 +16,25 @@ interface Scheduler {
 
 public class RoundRobin implements Scheduler {
 
+    // process entity (nested so it does not clash with the other schedulers' Process)
+    static class Process {
+        String name;
+        long arrival;
+        int burst, priority;
+        int remaining;
+        long completionTime;
+        long waitingTime;
+        long turnaroundTime;
+
+        Process(String n, long a, int b, int p) {
+            name = n;
+            arrival = a;
+            burst = b;
+            priority = p;
+            remaining = b;
+        }
+    }
+
     // List of processes to schedule
     private final ArrayList<Process> processes;
 
@@ -41,20 +42,53 @@ public class RoundRobin implements Scheduler {
     private final int quantum;
     private final int context;
 
-    private int time = 0;
+    private long time = 0;
     private final ArrayList<String> executionOrder = new ArrayList<>();
+    private SchedulerMetrics metrics; // null unless -Dscheduler.metrics=true
+    private SimulationMonitor monitor; // optional JMX progress monitor
+    private SchedulingEvents events; // optional event stream
+    private boolean cancelled = false;
 
     RoundRobin(ArrayList<Process> p, int q, int c) {
-        processes = p;
+        processes = new ArrayList<>(p); // run() sorts this copy, not the caller's list
         quantum = q;
         context = c;
     }
 
+    // Publish progress to a monitor; the run stops early if it is cancelled
+    void setMonitor(SimulationMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    // Publish dispatch / preempt / complete / context-switch events while running
+    void setEvents(SchedulingEvents events) {
+        this.events = events;
+    }
+
     public void run() {
+        if (monitor != null || !SimulationMonitor.publishing()) {
+            schedule();
+            return;
+        }
+        // nobody attached a monitor and -Dscheduler.jmx asks for one: publish it over
+        // JMX for the length of this run
+        monitor = SimulationMonitor.register("RR", processes.size());
+        try {
+            schedule();
+        } finally {
+            monitor.unregister();
+            monitor = null;
+        }
+    }
+
+    private void schedule() {
         Queue<Process> queue = new LinkedList<>();
         // Sort processes by arrival time
-        processes.sort(Comparator.comparingInt(x -> x.arrival));
+        processes.sort(Comparator.comparingLong(x -> x.arrival));
         int completed = 0;
+        metrics = SchedulerMetrics.start("RR");
+        Process prev = null; // last process that ran (for context switch counting)
+        long loops = 0; // slices run so far, used to sample progress for the monitor
 
         // Handle initial idle time until first process arrives
         while (queue.isEmpty()) {
@@ -68,8 +102,25 @@ public class RoundRobin implements Scheduler {
         //main loop
         while (completed < processes.size()) {
 
+            // publish progress every SAMPLE slices, and stop if cancelled
+            if (monitor != null && (++loops & SimulationMonitor.SAMPLE_MASK) == 0) {
+                monitor.update(time, completed, queue.size());
+                if (monitor.isCancelled()) {
+                    cancelled = true;
+                    break;
+                }
+            }
+
+            if (SchedulerMetrics.ENABLED) {
+                metrics.events++;
+                metrics.sampleQueue(queue.size());
+            }
             Process cur = queue.poll(); //take out first process in queue
             executionOrder.add(cur.name); //execute it
+            if (events != null) events.dispatch(time, cur.name);
+            if (SchedulerMetrics.ENABLED && prev != null && prev != cur)
+                metrics.contextSwitch(prev.name, cur.name, time);
+            prev = cur;
 
             // Execute for quantum or remaining time
             int run = Math.min(quantum, cur.remaining);
@@ -83,18 +134,26 @@ public class RoundRobin implements Scheduler {
             if (cur.remaining == 0) {
                 finishProcess(cur);
                 completed++;
+                if (events != null) events.complete(time, cur.name);
             }
             // Otherwise re insert into queue
             else {
+                if (SchedulerMetrics.ENABLED) metrics.quantumExpired(cur.name, quantum, time);
+                if (events != null && !queue.isEmpty()) events.preempt(time, cur.name, queue.peek().name);
                 queue.add(cur);
             }
 
             // Context switching delay
             if (completed < processes.size()) {
+                if (events != null && context > 0)
+                    events.contextSwitch(time, cur.name, queue.isEmpty() ? null : queue.peek().name, context);
                 time += context;
                 addArrivals(queue, null);
             }
         }
+        if (SchedulerMetrics.ENABLED) metrics.finish(time);
+        if (monitor != null) monitor.finish(time, completed);
+        if (events != null) events.flush();
     }
 
     //Add processes that arrived by current time
@@ -119,6 +178,144 @@ public class RoundRobin implements Scheduler {
     public ArrayList<Process> getProcesses() {
         return processes;
     }
+    // True if the run was stopped early; only finished processes have results then
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    // Instrumentation counters of the last run (null when disabled)
+    public SchedulerMetrics.Snapshot getMetrics() {
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    // Reusable run over an immutable Workload. All arrays are allocated once in the
+    // constructor and run() starts with reset(), so the same object can replay the
+    // workload any number of times without allocating. Use one RunState per thread;
+    // the Workload itself can be shared.
+    static final class RunState {
+        final Workload workload;
+        private final int n, quantum, context;
+        private final int[] byArrival; // same order run() gets from sorting by arrival
+        private final int[] remaining;
+        private final long[] completion;
+
+        // ready queue as a ring buffer; a process is never in it twice, so n slots are enough
+        private final int[] queue;
+        private int head, size;
+
+        private int[] order = new int[16]; // process index of every slice
+        private int orderLength;
+        private long time;
+
+        private TimeSeries series; // optional, filled by run()
+        private ResultWriter sink; // optional, written by run()
+
+        RunState(Workload w) {
+            this(w, w.rrQuantum, w.contextSwitch);
+        }
+
+        RunState(Workload w, int quantum, int context) {
+            workload = w;
+            n = w.size();
+            this.quantum = quantum;
+            this.context = context;
+            byArrival = w.indicesByArrival();
+            remaining = new int[n];
+            completion = new long[n];
+            queue = new int[Math.max(1, n)];
+        }
+
+        void reset() {
+            for (int i = 0; i < n; i++) {
+                remaining[i] = workload.burst(i);
+                completion[i] = 0;
+            }
+            head = size = orderLength = 0;
+            time = 0;
+            if (series != null) series.clear();
+        }
+
+        // records busy / idle / switch time and the queue length of the next runs; null stops it
+        void setTimeSeries(TimeSeries series) {
+            this.series = series;
+        }
+
+        // streams every dispatch and completion to the writer as it happens; null stops it
+        void setSink(ResultWriter sink) {
+            this.sink = sink;
+        }
+
+        // Same schedule as RoundRobin.run(). Arrivals are taken from a pointer into the
+        // arrival order instead of rescanning every process. Returns false where run()
+        // would fail: the queue empties before the next process arrives.
+        boolean run() {
+            reset();
+            int next = 0, completed = 0;
+            if (n == 0) return true;
+
+            // initial idle time: jump straight to the first arrival
+            if (series != null) series.set(0, TimeSeries.IDLE, 0, 0);
+            time = Math.max(0, workload.arrival(byArrival[0]));
+            while (next < n && workload.arrival(byArrival[next]) <= time) push(byArrival[next++]);
+
+            while (completed < n) {
+                if (size == 0) {
+                    if (series != null) series.end(time);
+                    return false;
+                }
+                int cur = queue[head];
+                head = (head + 1) % queue.length;
+                size--;
+                addOrder(cur);
+                if (series != null) series.set(time, TimeSeries.BUSY, size, workload.priority(cur));
+
+                int run = Math.min(quantum, remaining[cur]);
+                remaining[cur] -= run;
+                time += run;
+                while (next < n && workload.arrival(byArrival[next]) <= time) push(byArrival[next++]);
+
+                if (remaining[cur] == 0) {
+                    completion[cur] = time;
+                    completed++;
+                    if (sink != null) sink.completed(workload.name(cur), waiting(cur), turnaround(cur));
+                } else {
+                    push(cur);
+                }
+
+                if (completed < n) {
+                    if (series != null) series.set(time, TimeSeries.SWITCH, size, 0);
+                    time += context;
+                    while (next < n && workload.arrival(byArrival[next]) <= time) push(byArrival[next++]);
+                }
+            }
+            if (series != null) series.end(time);
+            return true;
+        }
+
+        private void push(int p) {
+            queue[(head + size) % queue.length] = p;
+            size++;
+        }
+
+        private void addOrder(int p) {
+            if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+            order[orderLength++] = p;
+            if (sink != null) sink.dispatched(workload.name(p));
+        }
+
+        long completion(int i) { return completion[i]; }
+        long turnaround(int i) { return completion[i] - workload.arrival(i); }
+        long waiting(int i) { return turnaround(i) - workload.burst(i); }
+        int orderLength() { return orderLength; }
+        int orderAt(int k) { return order[k]; }
+        long finishTime() { return time; }
+
+        // execution order as names (allocates, meant for reporting and tests)
+        List<String> executionOrder() {
+            List<String> names = new ArrayList<>(orderLength);
+            for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+            return names;
+        }
+    }
 }
 
 //JUnit Test Class for Round Robin Scheduler
@@ -162,8 +359,8 @@ class SchedulerJUnitTest {
                 JsonParser.parseReader(new FileReader(path)).getAsJsonObject();
 
         // Load and clone processes
-        List<Process> base = loadProcesses(json);
-        List<Process> processes = clone(base);
+        List<RoundRobin.Process> base = loadProcesses(json);
+        List<RoundRobin.Process> processes = clone(base);
 
         // Read RR parameters
         JsonObject input = json.getAsJsonObject("input");
@@ -202,7 +399,7 @@ class SchedulerJUnitTest {
         for (JsonElement e : expectedProcesses) {
             JsonObject ep = e.getAsJsonObject();
 
-            Process p = rr.getProcesses().stream()
+            RoundRobin.Process p = rr.getProcesses().stream()
                     .filter(x -> x.name.equals(ep.get("name").getAsString()))
                     .findFirst()
                     .orElseThrow();
@@ -216,12 +413,12 @@ class SchedulerJUnitTest {
 
         //average time check
         double aw = rr.getProcesses().stream()
-                .mapToInt(p -> p.waitingTime)
+                .mapToLong(p -> p.waitingTime)
                 .average()
                 .orElse(0);
 
         double at = rr.getProcesses().stream()
-                .mapToInt(p -> p.turnaroundTime)
+                .mapToLong(p -> p.turnaroundTime)
                 .average()
                 .orElse(0);
 
@@ -232,15 +429,15 @@ class SchedulerJUnitTest {
 
 
     // Load processes from JSON input
-    static List<Process> loadProcesses(JsonObject json) {
-        List<Process> list = new ArrayList<>();
+    static List<RoundRobin.Process> loadProcesses(JsonObject json) {
+        List<RoundRobin.Process> list = new ArrayList<>();
         JsonArray arr = json.getAsJsonObject("input").getAsJsonArray("processes");
 
         for (JsonElement e : arr) {
             JsonObject p = e.getAsJsonObject();
-            list.add(new Process(
+            list.add(new RoundRobin.Process(
                     p.get("name").getAsString(),
-                    p.get("arrival").getAsInt(),
+                    p.get("arrival").getAsLong(),
                     p.get("burst").getAsInt(),
                     p.get("priority").getAsInt()
             ));
@@ -249,10 +446,10 @@ class SchedulerJUnitTest {
     }
 
     //copy of process list
-    static List<Process> clone(List<Process> src) {
-        List<Process> copy = new ArrayList<>();
-        for (Process p : src)
-            copy.add(new Process(p.name, p.arrival, p.burst, p.priority));
+    static List<RoundRobin.Process> clone(List<RoundRobin.Process> src) {
+        List<RoundRobin.Process> copy = new ArrayList<>();
+        for (RoundRobin.Process p : src)
+            copy.add(new RoundRobin.Process(p.name, p.arrival, p.burst, p.priority));
         return copy;
     }
 }
@@ -282,7 +479,7 @@ class RoundRobinMainRunner {
                 JsonParser.parseReader(new FileReader(path)).getAsJsonObject();
 
         // Load processes
-        List<Process> processes = loadProcesses(json);
+        List<RoundRobin.Process> processes = loadProcesses(json);
 
         // Read RR parameters
         JsonObject input = json.getAsJsonObject("input");
@@ -301,33 +498,34 @@ class RoundRobinMainRunner {
         System.out.println("\nProcesses execution order:");
         System.out.println(rr.getExecutionOrder());
 
-        double totalWT = 0;
-        double totalTT = 0;
+        // exact long sums, one rounding in average()
+        TimeSum totalWT = new TimeSum();
+        TimeSum totalTT = new TimeSum();
 
-        for (Process p : rr.getProcesses()) {
+        for (RoundRobin.Process p : rr.getProcesses()) {
             System.out.printf("%-10s %-15d %-20d%n",
                     p.name, p.waitingTime, p.turnaroundTime);
 
-            totalWT += p.waitingTime;
-            totalTT += p.turnaroundTime;
+            totalWT.add(p.waitingTime);
+            totalTT.add(p.turnaroundTime);
         }
 
         System.out.printf("\nAverage Waiting Time    = %.2f%n",
-                totalWT / processes.size());
+                totalWT.average());
 
         System.out.printf("Average Turnaround Time = %.2f%n\n",
-                totalTT / processes.size());
+                totalTT.average());
     }
 
-    static List<Process> loadProcesses(JsonObject json) {
-        List<Process> list = new ArrayList<>();
+    static List<RoundRobin.Process> loadProcesses(JsonObject json) {
+        List<RoundRobin.Process> list = new ArrayList<>();
         JsonArray arr = json.getAsJsonObject("input").getAsJsonArray("processes");
 
         for (JsonElement e : arr) {
             JsonObject p = e.getAsJsonObject();
-            list.add(new Process(
+            list.add(new RoundRobin.Process(
                     p.get("name").getAsString(),
-                    p.get("arrival").getAsInt(),
+                    p.get("arrival").getAsLong(),
                     p.get("burst").getAsInt(),
                     p.get("priority").getAsInt()
             ));
@@ -0,0 +1,379 @@
+import com.google.gson.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileReader;
+import java.nio.file.Paths;
+import java.util.*;
+
+
+
+// an "SJF" entry of expectedOutput, bound by the JUnit test (the engine reads
+// its input with WorkloadCodec)
+class Algorithm {
+    ArrayList<ProcessResult> processResults;
+    double averageWaitingTime;
+    double averageTurnaroundTime;
+}
+
+class ProcessResult {
+    String name;
+    long waitingTime;
+    long turnaroundTime;
+}
+
+
+class SJFScheduler {
+
+    // process entity (nested so it does not clash with the other schedulers' Process)
+    static class Process {
+        String name;
+        long arrival;
+        int burst, priority;
+        int remaining;
+        long completion;
+        long waiting;
+        long turnaround;
+
+        Process(String n, long a, int b) { //constructor
+            name = n;
+            arrival = a;
+            burst = b;
+            remaining = b;
+        }
+    }
+
+    static ArrayList<Process> run(String path) throws Exception {
+        return run(path, null);
+    }
+
+    // publishes progress to the monitor (may be null); if it gets cancelled the
+    // list is returned as is and unfinished processes keep remaining > 0
+    static ArrayList<Process> run(String path, SimulationMonitor monitor) throws Exception {
+
+        // streaming codec: no reflective binding, so startup stays cheap
+        Workload w = WorkloadCodec.readWorkload(Paths.get(path));
+        ArrayList<Process> list = new ArrayList<>(w.size());
+        for (int i = 0; i < w.size(); i++) {
+            Process p = new Process(w.name(i), w.arrival(i), w.burst(i));
+            p.priority = w.priority(i);
+            list.add(p);
+        }
+
+        if (monitor != null || !SimulationMonitor.publishing()) return run(list, w.contextSwitch, monitor, null);
+        // no monitor given and -Dscheduler.jmx asks for one: publish it for the length of this run
+        monitor = SimulationMonitor.register("SJF", list.size());
+        try {
+            return run(list, w.contextSwitch, monitor, null);
+        } finally {
+            monitor.unregister();
+        }
+    }
+
+    // runs SRTF over an already loaded list (sorted in place by arrival); if order
+    // is not null the name of every process that gets the CPU is appended to it
+    static ArrayList<Process> run(ArrayList<Process> list, int context,
+                                  SimulationMonitor monitor, List<String> order) {
+        return run(list, context, monitor, order, null);
+    }
+
+    // same, and publishes scheduling events when events is not null
+    static ArrayList<Process> run(ArrayList<Process> list, int context, SimulationMonitor monitor,
+                                  List<String> order, SchedulingEvents events) {
+
+        for (Process p : list)
+            p.remaining = p.burst;
+
+        list.sort(Comparator.comparingLong(p -> p.arrival));
+
+        long time = 0;
+        int completed = 0;
+        Process last = null;
+        boolean idle = false; // an IDLE event was sent for the current gap
+        SchedulerMetrics metrics = SchedulerMetrics.start("SJF"); // null when disabled
+        long loops = 0; // iterations, used to sample progress for the monitor
+
+        while (completed < list.size()) {
+            if (SchedulerMetrics.ENABLED) metrics.events++;
+
+            if (monitor != null && (++loops & SimulationMonitor.SAMPLE_MASK) == 0) {
+                int ready = 0;
+                for (Process p : list)
+                    if (p.arrival <= time && p.remaining > 0) ready++;
+                monitor.update(time, completed, ready);
+                if (monitor.isCancelled()) break;
+            }
+
+            Process shortest = null;
+            int ready = 0;
+
+            for (Process p : list)
+                if (p.arrival <= time && p.remaining > 0) {
+                    if (SchedulerMetrics.ENABLED) ready++;
+                    if (shortest == null || p.remaining < shortest.remaining)
+                        shortest = p;
+                }
+
+            if (shortest == null) {
+                if (events != null && !idle) events.idle(time);
+                idle = true;
+                time++;
+                continue;
+            }
+            idle = false;
+
+            if (SchedulerMetrics.ENABLED) metrics.sampleQueue(ready - 1);
+
+            if (last != null && last != shortest) {
+                if (SchedulerMetrics.ENABLED) {
+                    if (last.remaining > 0) metrics.preemption("SJF", last.name, shortest.name, time);
+                    metrics.contextSwitch(last.name, shortest.name, time);
+                }
+                if (events != null) {
+                    if (last.remaining > 0) events.preempt(time, last.name, shortest.name);
+                    if (context > 0) events.contextSwitch(time, last.name, shortest.name, context);
+                }
+                time += context;
+            }
+            if (events != null && last != shortest) events.dispatch(time, shortest.name);
+
+            if (order != null && last != shortest) order.add(shortest.name);
+            last = shortest;
+            shortest.remaining--;
+            time++;
+
+            if (shortest.remaining == 0) {
+                shortest.completion = time;
+                shortest.turnaround = time - shortest.arrival;
+                shortest.waiting = shortest.turnaround - shortest.burst;
+                completed++;
+                if (events != null) events.complete(time, shortest.name);
+            }
+        }
+        if (SchedulerMetrics.ENABLED) metrics.finish(time);
+        if (monitor != null) monitor.finish(time, completed);
+        if (events != null) events.flush();
+
+        return list;
+    }
+
+    // Reusable run over an immutable Workload: all arrays are allocated once and run()
+    // starts with reset(), so the workload can be replayed without allocating. One
+    // RunState per thread; the Workload can be shared.
+    static final class RunState {
+        final Workload workload;
+        private final int n, context;
+        private final int[] byArrival; // same order run() gets from sorting by arrival
+        private final int[] rank; // position of each process in byArrival (breaks ties like the list scan)
+        private final int[] remaining;
+        private final long[] completion;
+
+        // arrived, unfinished processes as a binary min-heap on (remaining, rank)
+        private final int[] heap;
+        private int heapSize;
+
+        private int[] order = new int[16]; // process that got the CPU at every switch
+        private int orderLength;
+        private long time;
+
+        private TimeSeries series; // optional, filled by run()
+        private ResultWriter sink; // optional, written by run()
+
+        RunState(Workload w) {
+            this(w, w.contextSwitch);
+        }
+
+        RunState(Workload w, int context) {
+            workload = w;
+            n = w.size();
+            this.context = context;
+            byArrival = w.indicesByArrival();
+            rank = new int[n];
+            for (int k = 0; k < n; k++) rank[byArrival[k]] = k;
+            remaining = new int[n];
+            completion = new long[n];
+            heap = new int[Math.max(1, n)];
+        }
+
+        void reset() {
+            for (int i = 0; i < n; i++) {
+                remaining[i] = workload.burst(i);
+                completion[i] = 0;
+            }
+            heapSize = orderLength = 0;
+            time = 0;
+            if (series != null) series.clear();
+        }
+
+        // records busy / idle / switch time and the queue length of the next runs; null stops it
+        void setTimeSeries(TimeSeries series) {
+            this.series = series;
+        }
+
+        // streams every dispatch and completion to the writer as it happens; null stops it
+        void setSink(ResultWriter sink) {
+            this.sink = sink;
+        }
+
+        // Same schedule as SJFScheduler.run(list, ...). The running process only gets
+        // shorter, so it stays on top of the heap until something arrives; it is run
+        // up to the next arrival in one step and idle gaps are skipped in one jump.
+        boolean run() {
+            reset();
+            int next = 0, completed = 0, last = -1;
+
+            while (completed < n) {
+                while (next < n && workload.arrival(byArrival[next]) <= time) heapPush(byArrival[next++]);
+                if (heapSize == 0) {
+                    if (series != null) series.set(time, TimeSeries.IDLE, 0, 0);
+                    time = workload.arrival(byArrival[next]);
+                    continue;
+                }
+
+                int s = heap[0];
+                if (last != -1 && last != s) {
+                    if (series != null) series.set(time, TimeSeries.SWITCH, heapSize - 1, 0);
+                    time += context;
+                }
+                if (last != s) addOrder(s);
+                last = s;
+                if (series != null) series.set(time, TimeSeries.BUSY, heapSize - 1, workload.priority(s));
+
+                // arrivals during the context switch are only seen after one unit, as in run()
+                int k = remaining[s];
+                if (next < n) k = (int) Math.min(k, Math.max(1, workload.arrival(byArrival[next]) - time));
+                remaining[s] -= k;
+                time += k;
+
+                if (remaining[s] == 0) {
+                    completion[s] = time;
+                    completed++;
+                    if (sink != null) sink.completed(workload.name(s), waiting(s), turnaround(s));
+                    heapPop();
+                }
+            }
+            if (series != null) series.end(time);
+            return true;
+        }
+
+        private boolean less(int a, int b) {
+            return remaining[a] < remaining[b] || (remaining[a] == remaining[b] && rank[a] < rank[b]);
+        }
+
+        private void heapPush(int p) {
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(p, heap[parent])) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = p;
+        }
+
+        private void heapPop() {
+            int p = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= heapSize) break;
+                if (c + 1 < heapSize && less(heap[c + 1], heap[c])) c++;
+                if (!less(heap[c], p)) break;
+                heap[i] = heap[c];
+                i = c;
+            }
+            if (heapSize > 0) heap[i] = p;
+        }
+
+        private void addOrder(int p) {
+            if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+            order[orderLength++] = p;
+            if (sink != null) sink.dispatched(workload.name(p));
+        }
+
+        long completion(int i) { return completion[i]; }
+        long turnaround(int i) { return completion[i] - workload.arrival(i); }
+        long waiting(int i) { return turnaround(i) - workload.burst(i); }
+        int orderLength() { return orderLength; }
+        int orderAt(int k) { return order[k]; }
+
+        // execution order as names (allocates, meant for reporting and tests)
+        List<String> executionOrder() {
+            List<String> names = new ArrayList<>(orderLength);
+            for (int k = 0; k < orderLength; k++) names.add(workload.name(order[k]));
+            return names;
+        }
+    }
+}
+
+
+
+class SJFJUnitTest {
+
+    @Test
+    void testCase1() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_1.json");
+    }
+
+    @Test
+    void testCase2() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_2.json");
+    }
+
+    @Test
+    void testCase3() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_3.json");
+    }
+
+    @Test
+    void testCase4() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_4.json");
+    }
+
+    @Test
+    void testCase5() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_5.json");
+    }
+
+    @Test
+    void testCase6() throws Exception {
+        runTest("test_cases_v5/Other_Schedulers/test_6.json");
+    }
+
+    void runTest(String path) throws Exception {
+
+        JsonObject json =
+                JsonParser.parseReader(new FileReader(path)).getAsJsonObject();
+
+        ArrayList<SJFScheduler.Process> result = SJFScheduler.run(path);
+
+        Algorithm expected =
+                new Gson().fromJson(
+                        json.getAsJsonObject("expectedOutput")
+                                .getAsJsonObject("SJF"),
+                        Algorithm.class
+                );
+
+
+        for (ProcessResult pr : expected.processResults) {
+
+            SJFScheduler.Process p = result.stream()
+                    .filter(x -> x.name.equals(pr.name))
+                    .findFirst()
+                    .orElseThrow();
+
+            assertEquals(pr.waitingTime, p.waiting,
+                    "Waiting time mismatch for " + p.name);
+
+            assertEquals(pr.turnaroundTime, p.turnaround,
+                    "Turnaround time mismatch for " + p.name);
+        }
+
+
+        double aw = result.stream().mapToLong(p -> p.waiting).average().orElse(0);
+        double at = result.stream().mapToLong(p -> p.turnaround).average().orElse(0);
+
+        assertEquals(expected.averageWaitingTime, aw, 0.01);
+        assertEquals(expected.averageTurnaroundTime, at, 0.01);
+    }
+}
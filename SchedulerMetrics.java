@@ -0,0 +1,324 @@
+import jdk.jfr.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Scheduler Instrumentation (counters + JFR events)
+   ========================================================= */
+// Turned on with -Dscheduler.metrics=true. The flag is a static final so when it is
+// off every "if (SchedulerMetrics.ENABLED)" in the engines is folded away by the JIT.
+public class SchedulerMetrics {
+
+    static final boolean ENABLED = Boolean.getBoolean("scheduler.metrics");
+
+    // totals of every finished run (read through snapshotAll)
+    private static final SchedulerMetrics ALL = new SchedulerMetrics("ALL");
+
+    final String engine; // which scheduler produced these numbers
+
+    long events; // scheduling loop iterations / decisions processed
+    long contextSwitches; // dispatches of a different process than the one that ran last
+    long preemptions; // running process taken off the CPU before finishing its slice
+    long agPriorityPreemptions; // AG only: preemptions in the PRIORITY phase
+    long agSjfPreemptions; // AG only: preemptions in the SJF phase
+    long quantumExpirations; // process used its whole quantum and went back to the queue
+    long agingPromotions; // priority raised by applyAging
+    long queueDepthSamples; // how many times the ready queue length was sampled
+    long queueDepthTotal; // sum of sampled lengths (for the average)
+    long queueDepthMax; // longest ready queue seen
+
+    private long startNanos;
+    private long elapsedNanos;
+
+    SchedulerMetrics(String engine) {
+        this.engine = engine;
+    }
+
+    // returns a fresh counter set for a run, or null when instrumentation is off
+    static SchedulerMetrics start(String engine) {
+        if (!ENABLED) return null;
+        SchedulerMetrics m = new SchedulerMetrics(engine);
+        m.startNanos = System.nanoTime();
+        return m;
+    }
+
+    void sampleQueue(int depth) {
+        queueDepthSamples++;
+        queueDepthTotal += depth;
+        if (depth > queueDepthMax) queueDepthMax = depth;
+    }
+
+    void contextSwitch(String from, String to, long time) {
+        contextSwitches++;
+        ContextSwitchEvent e = new ContextSwitchEvent();
+        if (e.shouldCommit()) {
+            e.engine = engine;
+            e.from = from;
+            e.to = to;
+            e.simTime = time;
+            e.commit();
+        }
+    }
+
+    void preemption(String reason, String victim, String winner, long time) {
+        preemptions++;
+        if (reason.equals("AG_PRIORITY")) agPriorityPreemptions++;
+        else if (reason.equals("AG_SJF")) agSjfPreemptions++;
+        PreemptionEvent e = new PreemptionEvent();
+        if (e.shouldCommit()) {
+            e.engine = engine;
+            e.reason = reason;
+            e.victim = victim;
+            e.winner = winner;
+            e.simTime = time;
+            e.commit();
+        }
+    }
+
+    void quantumExpired(String process, int newQuantum, long time) {
+        quantumExpirations++;
+        QuantumExpiredEvent e = new QuantumExpiredEvent();
+        if (e.shouldCommit()) {
+            e.engine = engine;
+            e.process = process;
+            e.newQuantum = newQuantum;
+            e.simTime = time;
+            e.commit();
+        }
+    }
+
+    void agingPromotion(String process, int newPriority, long time) {
+        agingPromotions++;
+        AgingEvent e = new AgingEvent();
+        if (e.shouldCommit()) {
+            e.engine = engine;
+            e.process = process;
+            e.newPriority = newPriority;
+            e.simTime = time;
+            e.commit();
+        }
+    }
+
+    // called once when the engine leaves its main loop
+    void finish(long simTime) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        RunEvent e = new RunEvent();
+        if (e.shouldCommit()) {
+            e.engine = engine;
+            e.simTime = simTime;
+            e.events = events;
+            e.contextSwitches = contextSwitches;
+            e.preemptions = preemptions;
+            e.quantumExpirations = quantumExpirations;
+            e.agingPromotions = agingPromotions;
+            e.commit();
+        }
+        synchronized (ALL) {
+            ALL.events += events;
+            ALL.contextSwitches += contextSwitches;
+            ALL.preemptions += preemptions;
+            ALL.agPriorityPreemptions += agPriorityPreemptions;
+            ALL.agSjfPreemptions += agSjfPreemptions;
+            ALL.quantumExpirations += quantumExpirations;
+            ALL.agingPromotions += agingPromotions;
+            ALL.queueDepthSamples += queueDepthSamples;
+            ALL.queueDepthTotal += queueDepthTotal;
+            ALL.queueDepthMax = Math.max(ALL.queueDepthMax, queueDepthMax);
+            ALL.elapsedNanos += elapsedNanos;
+        }
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    // totals over every run finished so far in this JVM
+    static Snapshot snapshotAll() {
+        synchronized (ALL) {
+            return new Snapshot(ALL);
+        }
+    }
+
+    // immutable copy of the counters, safe to hand to other threads
+    static final class Snapshot {
+        final String engine;
+        final long events, contextSwitches, preemptions;
+        final long agPriorityPreemptions, agSjfPreemptions;
+        final long quantumExpirations, agingPromotions;
+        final long queueDepthMax;
+        final double avgQueueDepth;
+        final double eventsPerSecond;
+
+        private Snapshot(SchedulerMetrics m) {
+            engine = m.engine;
+            events = m.events;
+            contextSwitches = m.contextSwitches;
+            preemptions = m.preemptions;
+            agPriorityPreemptions = m.agPriorityPreemptions;
+            agSjfPreemptions = m.agSjfPreemptions;
+            quantumExpirations = m.quantumExpirations;
+            agingPromotions = m.agingPromotions;
+            queueDepthMax = m.queueDepthMax;
+            avgQueueDepth = m.queueDepthSamples == 0 ? 0 : (double) m.queueDepthTotal / m.queueDepthSamples;
+            eventsPerSecond = m.elapsedNanos == 0 ? 0 : m.events * 1e9 / m.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return engine + ": events=" + events +
+                    ", contextSwitches=" + contextSwitches +
+                    ", preemptions=" + preemptions +
+                    " (AG priority=" + agPriorityPreemptions + ", AG sjf=" + agSjfPreemptions + ")" +
+                    ", quantumExpirations=" + quantumExpirations +
+                    ", agingPromotions=" + agingPromotions +
+                    String.format(", avgQueue=%.2f, maxQueue=%d, events/s=%.0f",
+                            avgQueueDepth, queueDepthMax, eventsPerSecond);
+        }
+    }
+
+    /* ---------------- JFR events ---------------- */
+
+    @Name("scheduler.ContextSwitch")
+    @Label("Context Switch")
+    @Category("CPU Scheduling")
+    static class ContextSwitchEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("From") String from;
+        @Label("To") String to;
+        @Label("Simulated Time") long simTime;
+    }
+
+    @Name("scheduler.Preemption")
+    @Label("Preemption")
+    @Category("CPU Scheduling")
+    static class PreemptionEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("Reason") String reason;
+        @Label("Victim") String victim;
+        @Label("Winner") String winner;
+        @Label("Simulated Time") long simTime;
+    }
+
+    @Name("scheduler.QuantumExpired")
+    @Label("Quantum Expired")
+    @Category("CPU Scheduling")
+    static class QuantumExpiredEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("Process") String process;
+        @Label("New Quantum") int newQuantum;
+        @Label("Simulated Time") long simTime;
+    }
+
+    @Name("scheduler.Aging")
+    @Label("Aging Promotion")
+    @Category("CPU Scheduling")
+    static class AgingEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("Process") String process;
+        @Label("New Priority") int newPriority;
+        @Label("Simulated Time") long simTime;
+    }
+
+    @Name("scheduler.Run")
+    @Label("Simulation Run")
+    @Category("CPU Scheduling")
+    static class RunEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("Simulated Time") long simTime;
+        @Label("Events") long events;
+        @Label("Context Switches") long contextSwitches;
+        @Label("Preemptions") long preemptions;
+        @Label("Quantum Expirations") long quantumExpirations;
+        @Label("Aging Promotions") long agingPromotions;
+    }
+
+    /* ---------------- usage ---------------- */
+
+    // Runs a small fixed workload through RR and Priority and prints the counters.
+    // Start it with -Dscheduler.metrics=true, otherwise every counter stays empty.
+    public static void main(String[] args) {
+        // RR, quantum 2: A runs 0-2 and goes back to the queue, B runs 2-4, A finishes 4-5
+        ArrayList<RoundRobin.Process> rrList = new ArrayList<>(List.of(
+                new RoundRobin.Process("A", 0, 3, 1),
+                new RoundRobin.Process("B", 0, 2, 1)));
+        RoundRobin rr = new RoundRobin(rrList, 2, 0);
+        rr.run();
+
+        // Priority, aging every 2: P2 preempts P1 at 1, P1 ages from 3 to 2 at time 2
+        // while it waits, and takes the CPU back when P2 finishes at 3
+        List<PriorityPreemptiveScheduler.Process> prList = new ArrayList<>(List.of(
+                new PriorityPreemptiveScheduler.Process("P1", 0, 4, 3),
+                new PriorityPreemptiveScheduler.Process("P2", 1, 2, 1)));
+        PriorityPreemptiveScheduler pr = new PriorityPreemptiveScheduler(prList, 0, 2);
+
+        System.out.println(rr.getMetrics());
+        System.out.println(pr.getMetrics());
+        System.out.println(snapshotAll());
+    }
+}
+
+
+
+class SchedulerMetricsJUnitTest {
+
+    // ENABLED is fixed when the class loads, so the counters are checked in a child JVM
+    // started with the flag on; this JVM may already have loaded the class with it off.
+    @Test
+    void countersOfASmallFixedWorkload() throws Exception {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        cmd.addAll(List.of("-Dscheduler.metrics=true",
+                "-cp", System.getProperty("java.class.path"), "SchedulerMetrics"));
+        Process child = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line; (line = in.readLine()) != null; ) lines.add(line);
+        }
+        assertEquals(0, child.waitFor(), String.join("\n", lines));
+
+        Map<String, Map<String, String>> runs = new HashMap<>();
+        for (String line : lines) {
+            int colon = line.indexOf(": events=");
+            if (colon > 0) runs.put(line.substring(0, colon), counters(line.substring(colon + 2)));
+        }
+        assertEquals(Set.of("RR", "Priority", "ALL"), runs.keySet(), String.join("\n", lines));
+
+        Map<String, String> rr = runs.get("RR");
+        assertEquals("3", rr.get("events"));
+        assertEquals("2", rr.get("contextSwitches"));
+        assertEquals("1", rr.get("quantumExpirations"));
+        assertEquals("0", rr.get("preemptions"));
+        assertEquals("0", rr.get("agingPromotions"));
+        assertEquals("2", rr.get("maxQueue"));
+
+        Map<String, String> pr = runs.get("Priority");
+        assertEquals("1", pr.get("preemptions"));
+        assertEquals("3", pr.get("contextSwitches")); // idle -> P1, P1 -> P2, idle -> P1
+        assertEquals("0", pr.get("quantumExpirations"));
+        assertEquals("1", pr.get("agingPromotions"));
+
+        // snapshotAll adds up both runs
+        Map<String, String> all = runs.get("ALL");
+        for (String key : List.of("events", "contextSwitches", "preemptions", "quantumExpirations", "agingPromotions"))
+            assertEquals(Long.parseLong(rr.get(key)) + Long.parseLong(pr.get(key)), Long.parseLong(all.get(key)), key);
+        assertEquals("0", all.get("AG priority"));
+        assertEquals("0", all.get("AG sjf"));
+        assertEquals("2", all.get("maxQueue"));
+    }
+
+    // "events=3, contextSwitches=2, ... (AG priority=0, AG sjf=0), ..." -> name -> value
+    private static Map<String, String> counters(String text) {
+        Map<String, String> m = new HashMap<>();
+        for (String part : text.replace("(", ",").replace(")", ",").split(",")) {
+            int eq = part.indexOf('=');
+            if (eq > 0) m.put(part.substring(0, eq).trim(), part.substring(eq + 1).trim());
+        }
+        return m;
+    }
+}
@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/* =========================================================
+   Scheduling Event Stream (java.util.concurrent.Flow)
+   ========================================================= */
+// Engines hand dispatch / preempt / complete / idle / context-switch events to
+// an instance of this class while they run. Events are grouped into batches and
+// published through a SubmissionPublisher. Each subscriber has a bounded buffer;
+// when a slow subscriber's buffer is full, submit() blocks the engine until it
+// catches up, so at most (batchSize * bufferCapacity) events are ever held.
+public class SchedulingEvents implements AutoCloseable {
+
+    enum Kind {
+        DISPATCH,       // process gets the CPU
+        PREEMPT,        // process is taken off the CPU before finishing (other = who replaces it)
+        COMPLETE,       // process finished
+        IDLE,           // CPU has nothing to run from this time on
+        CONTEXT_SWITCH  // switch from other to process, lasting duration time units
+    }
+
+    static final class Event {
+        final Kind kind;
+        final long time;
+        final String process; // null for IDLE
+        final String other; // PREEMPT: replacing process, CONTEXT_SWITCH: previous process (may be null)
+        final long duration; // CONTEXT_SWITCH only
+
+        Event(Kind kind, long time, String process, String other, long duration) {
+            this.kind = kind;
+            this.time = time;
+            this.process = process;
+            this.other = other;
+            this.duration = duration;
+        }
+
+        @Override
+        public String toString() {
+            return time + " " + kind + (process == null ? "" : " " + process)
+                    + (other == null ? "" : " (" + other + ")")
+                    + (kind == Kind.CONTEXT_SWITCH ? " +" + duration : "");
+        }
+    }
+
+    private final SubmissionPublisher<List<Event>> publisher;
+    private final int batchSize;
+    private List<Event> batch;
+
+    SchedulingEvents() {
+        this(256, Flow.defaultBufferSize(), ForkJoinPool.commonPool());
+    }
+
+    // batchSize events per onNext, bufferCapacity batches buffered per subscriber
+    SchedulingEvents(int batchSize, int bufferCapacity, Executor executor) {
+        this.batchSize = batchSize;
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    Flow.Publisher<List<Event>> publisher() {
+        return publisher;
+    }
+
+    /* ---------------- called by the engines ---------------- */
+
+    void dispatch(long time, String process) {
+        add(new Event(Kind.DISPATCH, time, process, null, 0));
+    }
+
+    void preempt(long time, String process, String replacedBy) {
+        add(new Event(Kind.PREEMPT, time, process, replacedBy, 0));
+    }
+
+    void complete(long time, String process) {
+        add(new Event(Kind.COMPLETE, time, process, null, 0));
+    }
+
+    void idle(long time) {
+        add(new Event(Kind.IDLE, time, null, null, 0));
+    }
+
+    void contextSwitch(long time, String from, String to, long duration) {
+        add(new Event(Kind.CONTEXT_SWITCH, time, to, from, duration));
+    }
+
+    private void add(Event e) {
+        batch.add(e);
+        if (batch.size() == batchSize) flush();
+    }
+
+    // publishes the partial batch; engines call it when their run ends
+    void flush() {
+        if (batch.isEmpty()) return;
+        publisher.submit(batch); // blocks while a subscriber's buffer is full
+        batch = new ArrayList<>(batchSize);
+    }
+
+    // flushes and signals onComplete to every subscriber
+    @Override
+    public void close() {
+        flush();
+        publisher.close();
+    }
+}
+
+// JUnit checks for the event stream
+class SchedulingEventsJUnitTest {
+
+    // collects every event, asking for one batch at a time after a short pause
+    static final class SlowCollector implements Flow.Subscriber<List<SchedulingEvents.Event>> {
+        final List<SchedulingEvents.Event> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription subscription;
+
+        @Override public void onSubscribe(Flow.Subscription s) { subscription = s; s.request(1); }
+
+        @Override public void onNext(List<SchedulingEvents.Event> batch) {
+            events.addAll(batch);
+            LockSupport.parkNanos(100_000);
+            subscription.request(1);
+        }
+
+        @Override public void onError(Throwable t) { done.countDown(); }
+        @Override public void onComplete() { done.countDown(); }
+    }
+
+    static ArrayList<RoundRobin.Process> processes() {
+        ArrayList<RoundRobin.Process> list = new ArrayList<>();
+        for (int i = 0; i < 50; i++) list.add(new RoundRobin.Process("P" + i, i, 1 + i % 7, 1));
+        return list;
+    }
+
+    @Test
+    void roundRobinEventsMatchExecutionOrder() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        SlowCollector c = new SlowCollector();
+        try (SchedulingEvents events = new SchedulingEvents(4, 2, pool)) { // tiny buffers: engine must wait
+            events.publisher().subscribe(c);
+            RoundRobin rr = new RoundRobin(processes(), 3, 1);
+            rr.setEvents(events);
+            rr.run();
+        }
+        assertTrue(c.done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        List<String> dispatched = new ArrayList<>();
+        int completed = 0;
+        for (SchedulingEvents.Event e : c.events) {
+            if (e.kind == SchedulingEvents.Kind.DISPATCH) dispatched.add(e.process);
+            if (e.kind == SchedulingEvents.Kind.COMPLETE) completed++;
+        }
+        RoundRobin again = new RoundRobin(processes(), 3, 1);
+        again.run();
+        assertEquals(again.getExecutionOrder(), dispatched);
+        assertEquals(50, completed);
+    }
+}
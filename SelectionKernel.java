@@ -0,0 +1,239 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.*;
+
+/* =========================================================
+   Selection Kernel (argmin over primitive columns)
+   ========================================================= */
+// The naive reference engines pick the next process by scanning every process
+// object: SJFScheduler.run keeps the first one with the smallest remaining
+// time, PriorityPreemptiveScheduler.selectProcess the smallest (priority,
+// arrival), then the first in list order. These kernels make the same picks
+// over int[] columns with a boolean[] mask of the processes that are ready:
+//
+//  - argmin(key, active, n):             smallest key, ties to the lowest index
+//  - argmin(key, tie, active, n):        smallest (key, tie), ties to the lowest index
+//
+// Both return -1 when nothing is active. AG's scans prefer the running process
+// on ties; callers get that by keeping it unless the pick is strictly smaller.
+//
+// With the jdk.incubator.vector module the scans run on SIMD lanes: one masked
+// min reduction per key column, then a compare to find the first lane that
+// holds the minimum. Without it (or with -Dselection.scalar=true) the plain
+// loops below run instead. Compile and run with
+//     --add-modules jdk.incubator.vector
+// (javac needs it for this file; at run time it only switches the SIMD path on).
+final class SelectionKernel {
+
+    static final boolean VECTOR = !Boolean.getBoolean("selection.scalar")
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private SelectionKernel() {}
+
+    static int argmin(int[] key, boolean[] active, int n) {
+        return VECTOR ? Vectorized.argmin(key, active, n) : scalarArgmin(key, active, n);
+    }
+
+    static int argmin(int[] key, int[] tie, boolean[] active, int n) {
+        return VECTOR ? Vectorized.argmin(key, tie, active, n) : scalarArgmin(key, tie, active, n);
+    }
+
+    /* ---------------- scalar fallback ---------------- */
+
+    static int scalarArgmin(int[] key, boolean[] active, int n) {
+        int best = -1;
+        for (int i = 0; i < n; i++)
+            if (active[i] && (best == -1 || key[i] < key[best])) best = i;
+        return best;
+    }
+
+    static int scalarArgmin(int[] key, int[] tie, boolean[] active, int n) {
+        int best = -1;
+        for (int i = 0; i < n; i++)
+            if (active[i] && (best == -1 || key[i] < key[best] || (key[i] == key[best] && tie[i] < tie[best])))
+                best = i;
+        return best;
+    }
+
+    /* ---------------- SIMD ---------------- */
+
+    // only loaded when VECTOR is true, so the class works without the module
+    private static final class Vectorized {
+
+        private static final VectorSpecies<Integer> S = IntVector.SPECIES_PREFERRED;
+
+        static int argmin(int[] key, boolean[] active, int n) {
+            if (!anyActive(active, n)) return -1;
+            int min = maskedMin(key, null, 0, active, n);
+            return firstEqual(key, min, null, 0, active, n);
+        }
+
+        static int argmin(int[] key, int[] tie, boolean[] active, int n) {
+            if (!anyActive(active, n)) return -1;
+            int min = maskedMin(key, null, 0, active, n);
+            int minTie = maskedMin(tie, key, min, active, n);
+            return firstEqual(key, min, tie, minTie, active, n);
+        }
+
+        private static boolean anyActive(boolean[] active, int n) {
+            int i = 0;
+            for (int bound = S.loopBound(n); i < bound; i += S.length())
+                if (VectorMask.fromArray(S, active, i).anyTrue()) return true;
+            for (; i < n; i++)
+                if (active[i]) return true;
+            return false;
+        }
+
+        // min of values[i] over active lanes (and, if filter != null, lanes where filter[i] == want)
+        private static int maskedMin(int[] values, int[] filter, int want, boolean[] active, int n) {
+            IntVector none = IntVector.broadcast(S, Integer.MAX_VALUE), acc = none;
+            int i = 0;
+            for (int bound = S.loopBound(n); i < bound; i += S.length()) {
+                VectorMask<Integer> m = VectorMask.fromArray(S, active, i);
+                if (filter != null) m = m.and(IntVector.fromArray(S, filter, i).eq(want));
+                acc = acc.min(none.blend(IntVector.fromArray(S, values, i), m)); // inactive lanes count as MAX_VALUE
+            }
+            int min = acc.reduceLanes(VectorOperators.MIN);
+            for (; i < n; i++)
+                if (active[i] && (filter == null || filter[i] == want)) min = Math.min(min, values[i]);
+            return min;
+        }
+
+        // first active index with key[i] == min (and tie[i] == minTie if tie != null)
+        private static int firstEqual(int[] key, int min, int[] tie, int minTie, boolean[] active, int n) {
+            int i = 0;
+            for (int bound = S.loopBound(n); i < bound; i += S.length()) {
+                VectorMask<Integer> m = VectorMask.fromArray(S, active, i).and(IntVector.fromArray(S, key, i).eq(min));
+                if (tie != null) m = m.and(IntVector.fromArray(S, tie, i).eq(minTie));
+                if (m.anyTrue()) return i + m.firstTrue();
+            }
+            for (; i < n; i++)
+                if (active[i] && key[i] == min && (tie == null || tie[i] == minTie)) return i;
+            return -1;
+        }
+    }
+
+    // usage: SelectionKernel [processes ...]
+    // times a full-scan pick over n processes (about half of them ready): the
+    // object scan the reference engines do, the scalar kernel and the SIMD kernel
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{16, 256, 4096, 65536}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        System.out.println("SIMD " + (VECTOR ? IntVector.SPECIES_PREFERRED.length() + " int lanes" : "off"));
+        System.out.println("Processes | Objects ns/pick | Scalar ns/pick | SIMD ns/pick | Speedup");
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int n : sizes) {
+            int[] remaining = new int[n], priority = new int[n], arrival = new int[n];
+            boolean[] active = new boolean[n];
+            List<int[]> objects = new ArrayList<>(n); // {remaining, active} per process, like Process fields
+            for (int i = 0; i < n; i++) {
+                remaining[i] = 1 + rnd.nextInt(1000);
+                priority[i] = 1 + rnd.nextInt(10);
+                arrival[i] = rnd.nextInt(1000);
+                active[i] = rnd.nextBoolean();
+                objects.add(new int[]{remaining[i], active[i] ? 1 : 0});
+            }
+            Collections.shuffle(objects, new Random(1)); // scattered like a long-lived heap
+            int reps = Math.max(1, 50_000_000 / n);
+            long sink = 0;
+
+            double objectNs = 0, scalarNs = 0, vectorNs = 0;
+            for (int round = 0; round < 3; round++) { // the first rounds warm up the JIT
+                long t = System.nanoTime();
+                for (int r = 0; r < reps; r++) {
+                    int[] best = null;
+                    for (int[] p : objects)
+                        if (p[1] == 1 && (best == null || p[0] < best[0])) best = p;
+                    sink += best == null ? 0 : best[0];
+                }
+                objectNs = (System.nanoTime() - t) / (double) reps;
+                t = System.nanoTime();
+                for (int r = 0; r < reps; r++)
+                    sink += scalarArgmin(remaining, active, n) + scalarArgmin(priority, arrival, active, n);
+                scalarNs = (System.nanoTime() - t) / (2.0 * reps);
+                if (VECTOR) {
+                    t = System.nanoTime();
+                    for (int r = 0; r < reps; r++)
+                        sink += Vectorized.argmin(remaining, active, n) + Vectorized.argmin(priority, arrival, active, n);
+                    vectorNs = (System.nanoTime() - t) / (2.0 * reps);
+                }
+            }
+            System.out.printf("%9d | %15.1f | %14.1f | %12s | %s%n", n, objectNs, scalarNs,
+                    VECTOR ? String.format("%.1f", vectorNs) : "-",
+                    VECTOR ? String.format("%.1fx", scalarNs / vectorNs) : "-");
+            if (sink == 42) System.out.println(); // keeps the loops alive
+        }
+    }
+}
+
+// JUnit checks for the selection kernels
+class SelectionKernelJUnitTest {
+
+    @Test
+    void kernelsAgreeWithTheScalarScans() {
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (int c = 0; c < 2000; c++) {
+            int n = rnd.nextInt(100); // covers empty arrays and partial vector tails
+            int[] key = new int[n], tie = new int[n];
+            boolean[] active = new boolean[n];
+            int range = 1 + rnd.nextInt(5); // small ranges make many ties
+            for (int i = 0; i < n; i++) {
+                key[i] = c % 7 == 0 ? Integer.MAX_VALUE - rnd.nextInt(range) : rnd.nextInt(range);
+                tie[i] = rnd.nextInt(range);
+                active[i] = rnd.nextInt(4) != 0;
+            }
+            if (c % 10 == 0) Arrays.fill(active, false);
+            assertEquals(SelectionKernel.scalarArgmin(key, active, n), SelectionKernel.argmin(key, active, n));
+            assertEquals(SelectionKernel.scalarArgmin(key, tie, active, n), SelectionKernel.argmin(key, tie, active, n));
+        }
+    }
+
+    @Test
+    void maxValueKeysAndEmptyMasks() {
+        int[] key = {Integer.MAX_VALUE, Integer.MAX_VALUE, 5};
+        assertEquals(0, SelectionKernel.argmin(key, new boolean[]{true, true, false}, 3));
+        assertEquals(-1, SelectionKernel.argmin(key, new boolean[3], 3));
+        assertEquals(1, SelectionKernel.argmin(key, new int[]{2, 1, 0}, new boolean[]{true, true, false}, 3));
+    }
+
+    @Test
+    void fullScanSjfOnTheKernelMatchesRunState() {
+        // the per-unit list scan of SJFScheduler.run, written over columns; the list is
+        // in arrival order, so ties go to the smaller arrival rank
+        SplittableRandom rnd = new SplittableRandom(8);
+        for (int c = 0; c < 300; c++) {
+            Workload w = Workload.random(rnd, 12);
+            int n = w.size();
+            int[] remaining = new int[n], completion = new int[n], rank = new int[n];
+            int[] byArrival = w.indicesByArrival();
+            for (int k = 0; k < n; k++) rank[byArrival[k]] = k;
+            boolean[] active = new boolean[n];
+            for (int i = 0; i < n; i++) remaining[i] = w.burst(i);
+            int time = 0, completed = 0, last = -1;
+            while (completed < n) {
+                for (int i = 0; i < n; i++) active[i] = w.arrival(i) <= time && remaining[i] > 0;
+                int s = SelectionKernel.argmin(remaining, rank, active, n);
+                if (s == -1) {
+                    time++;
+                    continue;
+                }
+                if (last != -1 && last != s) time += w.contextSwitch;
+                last = s;
+                time++;
+                if (--remaining[s] == 0) {
+                    completion[s] = time;
+                    completed++;
+                }
+            }
+            SJFScheduler.RunState ref = new SJFScheduler.RunState(w);
+            ref.run();
+            for (int i = 0; i < n; i++) assertEquals(ref.completion(i), completion[i], w.toString());
+        }
+    }
+}
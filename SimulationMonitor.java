@@ -0,0 +1,215 @@
+import javax.management.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* =========================================================
+   JMX progress monitor for long simulations
+   ========================================================= */
+// The engines only call update() once every SAMPLE loop iterations, so the
+// hot loop pays for one counter increment and a mask test per iteration.
+public class SimulationMonitor implements SimulationMonitorMBean {
+
+    static final int SAMPLE = 1024; // loop iterations between two updates
+    static final int SAMPLE_MASK = SAMPLE - 1; // (loops & SAMPLE_MASK) == 0 -> time to update
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String engine;
+    private final int total;
+    private final long startNanos = System.nanoTime();
+    private ObjectName objectName;
+
+    // written by the engine thread, read by JMX threads
+    private volatile long simTime;
+    private volatile int completed;
+    private volatile int readyQueue;
+    private volatile double eventsPerSecond;
+    private volatile boolean running = true;
+    private volatile boolean cancelled;
+
+    private long timeLimit = Long.MAX_VALUE; // cancel once simulated time passes this
+    private long events; // loop iterations seen so far (engine thread only)
+    private long lastNanos = startNanos;
+
+    SimulationMonitor(String engine, int totalProcesses) {
+        this.engine = engine;
+        this.total = totalProcesses;
+    }
+
+    // Entry points that get no monitor from their caller publish one of their own
+    // only when run with -Dscheduler.jmx=true: the first MBean starts the platform
+    // MBean server, which costs a short CLI run about 300 ms.
+    static boolean publishing() {
+        return Boolean.getBoolean("scheduler.jmx");
+    }
+
+    // creates a monitor and publishes it as CPUScheduling:type=Simulation,engine=<engine>,id=<n>
+    static SimulationMonitor register(String engine, int totalProcesses) {
+        SimulationMonitor m = new SimulationMonitor(engine, totalProcesses);
+        try {
+            m.objectName = new ObjectName("CPUScheduling:type=Simulation,engine=" + engine
+                    + ",id=" + ids.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(m, m.objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register simulation MBean", e);
+        }
+        return m;
+    }
+
+    // called by the engine every SAMPLE iterations
+    void update(long time, int completedProcesses, int readyQueueLength) {
+        long now = System.nanoTime();
+        events += SAMPLE;
+        eventsPerSecond = SAMPLE * 1e9 / Math.max(1, now - lastNanos);
+        lastNanos = now;
+        simTime = time;
+        completed = completedProcesses;
+        readyQueue = readyQueueLength;
+        if (time > timeLimit) cancelled = true;
+    }
+
+    // makes the run cancel itself once simulated time goes past the limit
+    // (checked at the same sample points as a normal cancel)
+    void setTimeLimit(long limit) {
+        timeLimit = limit;
+    }
+
+    // called once when the engine leaves its loop (finished or cancelled)
+    void finish(long time, int completedProcesses) {
+        simTime = time;
+        completed = completedProcesses;
+        readyQueue = 0;
+        long elapsed = System.nanoTime() - startNanos;
+        if (events > 0) eventsPerSecond = events * 1e9 / Math.max(1, elapsed);
+        running = false;
+    }
+
+    // removes the MBean (monitors created with new instead of register are ignored)
+    void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ignored) {
+            // already gone
+        }
+        objectName = null;
+    }
+
+    @Override public String getEngine() { return engine; }
+    @Override public long getSimulatedTime() { return simTime; }
+    @Override public int getCompletedProcesses() { return completed; }
+    @Override public int getTotalProcesses() { return total; }
+    @Override public int getReadyQueueLength() { return readyQueue; }
+    @Override public double getEventsPerSecond() { return eventsPerSecond; }
+    @Override public boolean isRunning() { return running; }
+    @Override public boolean isCancelled() { return cancelled; }
+    @Override public void cancel() { cancelled = true; }
+
+    @Override
+    public double getEstimatedSecondsRemaining() {
+        int done = completed;
+        if (done == 0) return -1;
+        if (!running) return 0;
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        return elapsed * (total - done) / done;
+    }
+}
+
+
+
+class SimulationMonitorJUnitTest {
+
+    // Four one-unit processes finish first, then sixteen that would need billions of
+    // slices keep RR busy until it is cancelled through its MBean.
+    @Test
+    void cancelThroughTheMBeanKeepsFinishedResults() throws Exception {
+        ArrayList<RoundRobin.Process> list = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) list.add(new RoundRobin.Process("S" + i, 0, 1, 1));
+        for (int i = 1; i <= 16; i++) list.add(new RoundRobin.Process("L" + i, 0, 1_000_000_000, 1));
+        RoundRobin rr = new RoundRobin(list, 1, 0);
+        cancelWhilePublished("RR", rr::run);
+
+        assertTrue(rr.isCancelled());
+        for (RoundRobin.Process p : rr.getProcesses()) {
+            if (p.name.startsWith("S")) {
+                int n = p.name.charAt(1) - '0';
+                assertEquals(n, p.turnaroundTime, p.name);
+                assertEquals(n - 1, p.waitingTime, p.name);
+            } else {
+                assertTrue(p.remaining > 0, p.name);
+                assertEquals(0, p.turnaroundTime, p.name);
+            }
+        }
+    }
+
+    // The same with the priority engine, which publishes from its constructor:
+    // the short processes have the better priority, aging is too slow to matter.
+    @Test
+    void priorityCancelsThroughTheMBean() throws Exception {
+        List<PriorityPreemptiveScheduler.Process> list = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) list.add(new PriorityPreemptiveScheduler.Process("S" + i, 0, 1, 1));
+        for (int i = 1; i <= 16; i++) list.add(new PriorityPreemptiveScheduler.Process("L" + i, 0, 1_000_000_000, 5));
+        PriorityPreemptiveScheduler[] s = new PriorityPreemptiveScheduler[1];
+        cancelWhilePublished("Priority", () -> s[0] = new PriorityPreemptiveScheduler(list, 0, 1_000_000_000));
+
+        assertTrue(s[0].isCancelled());
+        for (PriorityPreemptiveScheduler.Process p : s[0].getProcesses()) {
+            if (p.name.startsWith("S")) {
+                int n = p.name.charAt(1) - '0';
+                assertEquals(n, p.turnaroundTime, p.name);
+                assertEquals(n - 1, p.waitingTime, p.name);
+            } else {
+                assertTrue(p.remainingTime > 0, p.name);
+                assertEquals(0, p.turnaroundTime, p.name);
+            }
+        }
+    }
+
+    @Test
+    void nothingIsPublishedUnlessAskedFor() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        int before = server.getMBeanCount();
+        List<AGScheduler.Process> list = List.of(new AGScheduler.Process("P1", 0, 3, 1, 4));
+        assertEquals(List.of("P1"), AGScheduler.run(new ArrayList<>(list)).order);
+        assertEquals(before, server.getMBeanCount());
+    }
+
+    // runs engine with -Dscheduler.jmx=true on another thread, waits until its MBean
+    // reports the four short processes done, cancels it there and checks the MBean goes away
+    static void cancelWhilePublished(String engine, Runnable run) throws Exception {
+        System.setProperty("scheduler.jmx", "true");
+        try {
+            Thread runner = new Thread(run);
+            runner.setDaemon(true);
+            runner.start();
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName pattern = new ObjectName("CPUScheduling:type=Simulation,engine=" + engine + ",*");
+            ObjectName name = null;
+            long deadline = System.nanoTime() + 30_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                Set<ObjectName> names = server.queryNames(pattern, null);
+                if (names.size() == 1) {
+                    name = names.iterator().next();
+                    // wait until the first progress sample has seen the short processes finish
+                    if ((Integer) server.getAttribute(name, "CompletedProcesses") == 4) break;
+                }
+                Thread.sleep(1);
+            }
+            assertNotNull(name, engine + " did not publish a monitor");
+            assertEquals(20, server.getAttribute(name, "TotalProcesses"));
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Running"));
+
+            server.invoke(name, "cancel", null, null);
+            runner.join(30_000);
+            assertFalse(runner.isAlive(), "the run ignored the cancel");
+            assertTrue(server.queryNames(pattern, null).isEmpty(), "the monitor was not unregistered");
+        } finally {
+            System.clearProperty("scheduler.jmx");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+// JMX view of a running simulation (see SimulationMonitor)
+public interface SimulationMonitorMBean {
+    String getEngine();
+    long getSimulatedTime();
+    int getCompletedProcesses();
+    int getTotalProcesses();
+    int getReadyQueueLength();
+    double getEventsPerSecond();
+    double getEstimatedSecondsRemaining(); // -1 while nothing has completed yet
+    boolean isRunning();
+    boolean isCancelled();
+
+    // asks the engine to stop at its next sample point and return what it has so far
+    void cancel();
+}
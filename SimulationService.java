@@ -0,0 +1,399 @@
+import com.google.gson.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* =========================================================
+   Simulation Service (HTTP/JSON on virtual threads)
+   ========================================================= */
+// A local HTTP front end for the engines, built on the JDK's HttpServer:
+//
+//   POST /simulate[?algorithms=AG,SJF]   body: a test-case file, or just {"input": {...}}
+//   GET  /stats                          request, simulation, coalescing and rejection counters
+//
+// /simulate runs the named algorithms (by default BatchRunner.applicable, i.e.
+// the ones the file has expected output for, or every one whose parameters are
+// set) at the same time and answers with an "expectedOutput" block as in the
+// test_cases_v5 files: {"SJF": {"executionOrder": [...], "processResults":
+// [...], "averageWaitingTime": ..., "averageTurnaroundTime": ...}, ...}. An
+// algorithm that stalls is reported as {"completed": false}.
+//
+// Every exchange gets its own virtual thread, so waiting requests cost next to
+// nothing. Identical requests that arrive while one is being computed share
+// its answer; they are matched on a SHA-256 of the algorithms and the
+// canonical workload, so formatting does not matter. Each simulation needs one
+// of `permits` admission permits (one per core by default); a request that
+// cannot get them within admissionTimeoutMillis is answered 503 with a
+// Retry-After header instead of queueing CPU work without bound.
+final class SimulationService implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    final Semaphore admission;
+    long admissionTimeoutMillis = 10_000;
+    int maxBodyBytes = 64 << 20;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Reply>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong(), simulations = new AtomicLong(),
+            coalesced = new AtomicLong(), rejected = new AtomicLong();
+
+    // a finished answer, shared by coalesced requests
+    private static final class Reply {
+        final int status;
+        final byte[] body;
+
+        Reply(int status, JsonElement body) {
+            this.status = status;
+            this.body = body.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // listens on the loopback interface; port 0 picks a free one
+    SimulationService(int port, int permits) throws IOException {
+        admission = new Semaphore(permits);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(threads);
+        server.createContext("/simulate", this::simulate);
+        server.createContext("/stats", this::stats);
+        server.start();
+    }
+
+    int port() { return server.getAddress().getPort(); }
+
+    long coalesced() { return coalesced.get(); }
+    long simulations() { return simulations.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.shutdownNow();
+    }
+
+    /* ---------------- handlers ---------------- */
+
+    private void simulate(HttpExchange ex) throws IOException {
+        try (ex) {
+            requests.incrementAndGet();
+            if (!ex.getRequestMethod().equals("POST")) {
+                send(ex, error(405, "POST a test-case file"));
+                return;
+            }
+            byte[] body = ex.getRequestBody().readNBytes(maxBodyBytes + 1);
+            if (body.length > maxBodyBytes) {
+                send(ex, error(413, "request body over " + maxBodyBytes + " bytes"));
+                return;
+            }
+            WorkloadCodec.TestFile t;
+            try {
+                t = WorkloadCodec.readTestFile(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException e) {
+                send(ex, error(400, "not a test-case file: " + e.getMessage()));
+                return;
+            }
+            List<String> algorithms = algorithms(ex.getRequestURI().getQuery(), t);
+            for (String a : algorithms) {
+                if (!BatchRunner.ENGINES.containsKey(a)) {
+                    send(ex, error(400, "unknown algorithm " + a + ", expected one of " + BatchRunner.ENGINES.keySet()));
+                    return;
+                }
+            }
+
+            String key = key(algorithms, t.workload);
+            CompletableFuture<Reply> mine = new CompletableFuture<>();
+            CompletableFuture<Reply> shared = inFlight.putIfAbsent(key, mine);
+            if (shared != null) {
+                coalesced.incrementAndGet();
+                send(ex, shared.join());
+                return;
+            }
+            // followers block on mine, so it is completed whatever run throws, Errors included
+            Reply reply = error(500, "simulation failed");
+            try {
+                reply = run(algorithms, t.workload);
+            } catch (RuntimeException e) {
+                reply = error(500, e.toString());
+            } finally {
+                inFlight.remove(key, mine);
+                mine.complete(reply);
+            }
+            send(ex, reply);
+        }
+    }
+
+    private void stats(HttpExchange ex) throws IOException {
+        try (ex) {
+            JsonObject o = new JsonObject();
+            o.addProperty("requests", requests.get());
+            o.addProperty("simulations", simulations.get());
+            o.addProperty("coalesced", coalesced.get());
+            o.addProperty("rejected", rejected.get());
+            o.addProperty("inFlight", inFlight.size());
+            o.addProperty("freePermits", admission.availablePermits());
+            send(ex, new Reply(200, o));
+        }
+    }
+
+    private static List<String> algorithms(String query, WorkloadCodec.TestFile t) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("algorithms="))
+                    return List.of(param.substring("algorithms=".length()).split(","));
+            }
+        }
+        return BatchRunner.applicable(t);
+    }
+
+    // every algorithm on its own virtual thread, each behind an admission permit
+    private Reply run(List<String> algorithms, Workload w) {
+        JsonObject out = new JsonObject();
+        try (ExecutorService runs = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<String, Future<DifferentialHarness.Outcome>> outcomes = new LinkedHashMap<>();
+            for (String a : algorithms) {
+                outcomes.put(a, runs.submit(() -> {
+                    if (!admission.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS))
+                        throw new RejectedExecutionException("no simulation slot within " + admissionTimeoutMillis + " ms");
+                    try {
+                        simulations.incrementAndGet();
+                        return BatchRunner.ENGINES.get(a).run(w, null);
+                    } finally {
+                        admission.release();
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<DifferentialHarness.Outcome>> e : outcomes.entrySet())
+                out.add(e.getKey(), block(w, e.getValue().get()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                rejected.incrementAndGet();
+                return error(503, e.getCause().getMessage());
+            }
+            return error(500, String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(503, "interrupted");
+        }
+        return new Reply(200, out);
+    }
+
+    // one algorithm's results in the shape of an expectedOutput entry
+    static JsonObject block(Workload w, DifferentialHarness.Outcome out) {
+        JsonObject o = new JsonObject();
+        if (!out.completed) {
+            o.addProperty("completed", false);
+            if (out.error != null) o.addProperty("error", out.error);
+            return o;
+        }
+        JsonArray order = new JsonArray();
+        if (out.order != null) out.order.forEach(order::add);
+        o.add("executionOrder", order);
+        JsonArray results = new JsonArray();
+        TimeSum totalW = new TimeSum(), totalT = new TimeSum();
+        for (int i = 0; i < w.size(); i++) {
+            JsonObject r = new JsonObject();
+            r.addProperty("name", w.name(i));
+            r.addProperty("waitingTime", out.waiting[i]);
+            r.addProperty("turnaroundTime", out.turnaround[i]);
+            if (out.quantumHistory != null) {
+                JsonArray h = new JsonArray();
+                out.quantumHistory.get(i).forEach(h::add);
+                r.add("quantumHistory", h);
+            }
+            results.add(r);
+            totalW.add(out.waiting[i]);
+            totalT.add(out.turnaround[i]);
+        }
+        o.add("processResults", results);
+        o.addProperty("averageWaitingTime", totalW.average());
+        o.addProperty("averageTurnaroundTime", totalT.average());
+        return o;
+    }
+
+    private static String key(List<String> algorithms, Workload w) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(String.join(",", algorithms).getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) '\n');
+            sha.update(w.toJson().toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    private static Reply error(int status, String message) {
+        JsonObject o = new JsonObject();
+        o.addProperty("error", message);
+        return new Reply(status, o);
+    }
+
+    private static void send(HttpExchange ex, Reply reply) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        if (reply.status == 503) ex.getResponseHeaders().set("Retry-After", "1");
+        ex.sendResponseHeaders(reply.status, reply.body.length);
+        ex.getResponseBody().write(reply.body);
+    }
+
+    // usage: SimulationService [port] [permits]
+    // then e.g. curl --data-binary @test_1.json 'http://127.0.0.1:8080/simulate?algorithms=SJF,RR'
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int permits = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SimulationService s = new SimulationService(port, permits);
+        System.out.println("listening on http://127.0.0.1:" + s.port() + "/simulate with " + permits + " simulation slots");
+        new CountDownLatch(1).await(); // until the process is stopped
+    }
+}
+
+// JUnit checks for the simulation service (localhost only)
+class SimulationServiceJUnitTest {
+
+    static HttpResponse<String> post(HttpClient client, SimulationService s, String query, String body) throws Exception {
+        HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + s.port() + "/simulate" + query))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    static Map<String, JsonElement> byName(JsonObject block) {
+        Map<String, JsonElement> m = new HashMap<>();
+        for (JsonElement r : block.getAsJsonArray("processResults"))
+            m.put(r.getAsJsonObject().get("name").getAsString(), r);
+        return m;
+    }
+
+    // a test-case file around a random workload
+    static String body(SplittableRandom rnd) {
+        JsonObject file = new JsonObject();
+        file.add("input", Workload.random(rnd, 8).toJson());
+        return file.toString();
+    }
+
+    // what the RunState of algorithm a writes for w through ResultWriter, or null if it stalls
+    static JsonObject expected(String a, Workload w) throws IOException {
+        Path out = Files.createTempFile("expected", ".json");
+        try {
+            try (ResultWriter writer = ResultWriter.json(out)) {
+                switch (a) {
+                    case "RR" -> {
+                        RoundRobin.RunState s = new RoundRobin.RunState(w);
+                        if (!s.run()) return null;
+                        writer.write(s);
+                    }
+                    case "SJF" -> {
+                        SJFScheduler.RunState s = new SJFScheduler.RunState(w);
+                        if (!s.run()) return null;
+                        writer.write(s);
+                    }
+                    case "Priority" -> {
+                        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+                        if (!s.run()) return null;
+                        writer.write(s);
+                    }
+                    case "AG" -> {
+                        AGScheduler.RunState s = new AGScheduler.RunState(w);
+                        if (!s.run()) return null;
+                        writer.write(s);
+                    }
+                    default -> throw new IllegalArgumentException(a);
+                }
+            }
+            return JsonParser.parseString(Files.readString(out)).getAsJsonObject();
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    void answersMatchTheRunStates() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        SplittableRandom rnd = new SplittableRandom(47);
+        int compared = 0;
+        try (SimulationService s = new SimulationService(0, 2)) {
+            for (int k = 0; k < 20; k++) {
+                String text = body(rnd);
+                Workload w = WorkloadCodec.readTestFile(new StringReader(text)).workload;
+                HttpResponse<String> r = post(client, s, "?algorithms=RR,SJF,Priority,AG", text);
+                assertEquals(200, r.statusCode(), r.body());
+                JsonObject got = JsonParser.parseString(r.body()).getAsJsonObject();
+                assertEquals(Set.of("RR", "SJF", "Priority", "AG"), got.keySet());
+                for (String a : got.keySet()) {
+                    JsonObject e = expected(a, w), g = got.getAsJsonObject(a);
+                    if (e == null) { // the engine stalls on this workload
+                        assertFalse(g.get("completed").getAsBoolean(), a + " on " + w);
+                        continue;
+                    }
+                    assertEquals(e.get("executionOrder"), g.get("executionOrder"), a + " on " + w);
+                    assertEquals(byName(e), byName(g), a + " on " + w);
+                    assertEquals(e.get("averageWaitingTime").getAsDouble(), g.get("averageWaitingTime").getAsDouble(), 1e-9);
+                    assertEquals(e.get("averageTurnaroundTime").getAsDouble(), g.get("averageTurnaroundTime").getAsDouble(), 1e-9);
+                    compared++;
+                }
+            }
+        }
+        assertTrue(compared > 60, "only " + compared + " of 80 runs finished");
+    }
+
+    @Test
+    void identicalConcurrentRequestsShareOneRun() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        String text = body(new SplittableRandom(2));
+        String reformatted = new GsonBuilder().setPrettyPrinting().create()
+                .toJson(JsonParser.parseString(text)); // same workload, other bytes
+        try (SimulationService s = new SimulationService(0, 1)) {
+            s.admission.acquire(); // hold the only slot so the first request waits for it
+            List<CompletableFuture<HttpResponse<String>>> replies = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + s.port() + "/simulate?algorithms=SJF,RR"))
+                        .POST(HttpRequest.BodyPublishers.ofString(i % 2 == 0 ? text : reformatted)).build();
+                replies.add(client.sendAsync(req, HttpResponse.BodyHandlers.ofString()));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (s.coalesced() < 7 && System.nanoTime() < deadline) Thread.sleep(5);
+            s.admission.release();
+            Set<String> bodies = new HashSet<>();
+            for (CompletableFuture<HttpResponse<String>> f : replies) {
+                assertEquals(200, f.get().statusCode());
+                bodies.add(f.get().body());
+            }
+            assertEquals(1, bodies.size());
+            assertEquals(7, s.coalesced());
+            assertEquals(2, s.simulations()); // SJF and RR once
+        }
+    }
+
+    @Test
+    void busyBadAndWrongRequests() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        String text = body(new SplittableRandom(1));
+        try (SimulationService s = new SimulationService(0, 1)) {
+            s.admissionTimeoutMillis = 50;
+            s.admission.acquire();
+            HttpResponse<String> busy = post(client, s, "?algorithms=SJF", text);
+            assertEquals(503, busy.statusCode());
+            assertTrue(busy.headers().firstValue("Retry-After").isPresent());
+            s.admission.release();
+            assertEquals(200, post(client, s, "?algorithms=SJF", text).statusCode());
+
+            assertEquals(400, post(client, s, "", "{\"input\": ").statusCode());
+            assertEquals(400, post(client, s, "?algorithms=FIFO", text).statusCode());
+            HttpResponse<String> get = client.send(HttpRequest.newBuilder(
+                    URI.create("http://127.0.0.1:" + s.port() + "/simulate")).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+        }
+    }
+}
@@ -0,0 +1,455 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/* =========================================================
+   Sweep Coordinator (sharded across worker JVMs)
+   ========================================================= */
+// Runs a sweep of jobs, each one algorithm (AG, RR, SJF, Priority, ...) on
+// one generated workload (seed, size, load, parameters), on N worker JVMs on
+// this machine. Every worker has its own heap and GC, so a huge sweep is not
+// held up by one collector; with one worker per core the sweep scales with the
+// cores as long as the jobs outweigh the JVM start-up.
+//
+// The coordinator listens on a Unix domain socket in a temporary directory and
+// starts the workers with this class path ("SweepCoordinator worker <socket>").
+// The protocol is text lines on a byte stream, so it would run unchanged over
+// TCP between hosts:
+//
+//   worker -> coordinator   HELLO <pid>
+//   coordinator -> worker   JOB <id> <algorithm> <seed> <processes> <meanGap> <contextSwitch> <rrQuantum> <agingInterval>
+//   worker -> coordinator   DONE <id> <OK|STALL|ERROR> <avg waiting> <avg turnaround> <makespan> <micros> [detail]
+//   coordinator -> worker   BYE
+//
+// Each connection is served by a virtual thread that hands out one job at a
+// time from a shared queue, so fast workers simply take more jobs. A worker
+// that dies is started again (at most maxRestarts times in all) and the job it
+// held goes back to the front of the queue; a job that has killed maxAttempts
+// workers is reported as ERROR instead of taking the whole sweep down. STALL
+// is the engine's own verdict: AG and RR stop where their references would,
+// which on generated workloads (idle gaps, arrivals at a quantum expiry) is common.
+final class SweepCoordinator {
+
+    // one point of the sweep; the workload is regenerated from the seed by the worker
+    static final class Job {
+        final int id;
+        final String algorithm;
+        final long seed;
+        final int processes;
+        final double meanGap; // load: average time between arrivals
+        final int contextSwitch, rrQuantum, agingInterval;
+        int attempts; // workers that died while holding this job
+
+        Job(int id, String algorithm, long seed, int processes, double meanGap,
+            int contextSwitch, int rrQuantum, int agingInterval) {
+            this.id = id;
+            this.algorithm = algorithm;
+            this.seed = seed;
+            this.processes = processes;
+            this.meanGap = meanGap;
+            this.contextSwitch = contextSwitch;
+            this.rrQuantum = rrQuantum;
+            this.agingInterval = agingInterval;
+        }
+
+        String encode() {
+            return "JOB " + id + " " + algorithm + " " + seed + " " + processes + " " + meanGap + " "
+                    + contextSwitch + " " + rrQuantum + " " + agingInterval;
+        }
+
+        static Job decode(String line) {
+            String[] f = line.split(" ");
+            if (f.length != 9 || !f[0].equals("JOB")) throw new IllegalArgumentException("bad job line: " + line);
+            return new Job(Integer.parseInt(f[1]), f[2], Long.parseLong(f[3]), Integer.parseInt(f[4]),
+                    Double.parseDouble(f[5]), Integer.parseInt(f[6]), Integer.parseInt(f[7]), Integer.parseInt(f[8]));
+        }
+
+        // the generated workload of this job (deterministic for any thread count)
+        Workload workload() throws IOException {
+            WorkloadGenerator gen = new WorkloadGenerator(seed, processes);
+            gen.meanGap = meanGap;
+            gen.threads = 1; // a worker is one core's worth of the sweep
+            String[] names = new String[processes];
+            long[] a = new long[processes];
+            int[] b = new int[processes], p = new int[processes], q = new int[processes];
+            gen.generate((id, arrival, burst, priority, quantum) -> {
+                int i = (int) id;
+                names[i] = "P" + (i + 1);
+                a[i] = arrival;
+                b[i] = burst;
+                p[i] = priority;
+                q[i] = quantum;
+            });
+            return new Workload(names, a, b, p, q, contextSwitch, rrQuantum, agingInterval);
+        }
+    }
+
+    // what a worker sends back for one job
+    static final class Result {
+        final int job;
+        final String status; // OK, STALL or ERROR
+        final double avgWaiting, avgTurnaround;
+        final long makespan; // last completion time
+        final long micros;
+        final String detail;
+
+        Result(int job, String status, double avgWaiting, double avgTurnaround, long makespan, long micros, String detail) {
+            this.job = job;
+            this.status = status;
+            this.avgWaiting = avgWaiting;
+            this.avgTurnaround = avgTurnaround;
+            this.makespan = makespan;
+            this.micros = micros;
+            this.detail = detail;
+        }
+
+        String encode() {
+            // Double.toString round-trips exactly
+            return "DONE " + job + " " + status + " " + avgWaiting + " " + avgTurnaround + " " + makespan + " " + micros
+                    + (detail.isEmpty() ? "" : " " + detail.replace('\n', ' '));
+        }
+
+        static Result decode(String line) {
+            String[] f = line.split(" ", 8);
+            if (f.length < 7 || !f[0].equals("DONE")) throw new IllegalArgumentException("bad result line: " + line);
+            return new Result(Integer.parseInt(f[1]), f[2], Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+                    Long.parseLong(f[5]), Long.parseLong(f[6]), f.length == 8 ? f[7] : "");
+        }
+
+        // same simulation result, ignoring how long it took
+        boolean sameAs(Result o) {
+            return job == o.job && status.equals(o.status) && avgWaiting == o.avgWaiting
+                    && avgTurnaround == o.avgTurnaround && makespan == o.makespan;
+        }
+    }
+
+    /* ---------------- sweep grid ---------------- */
+
+    // algorithms x loads x seeds, all with the same size and parameters
+    static List<Job> grid(List<String> algorithms, double[] meanGaps, int seeds, int processes,
+                          int contextSwitch, int rrQuantum, int agingInterval) {
+        List<Job> jobs = new ArrayList<>();
+        for (String algorithm : algorithms)
+            for (double gap : meanGaps)
+                for (int s = 0; s < seeds; s++)
+                    jobs.add(new Job(jobs.size(), algorithm, 1000 + s, processes, gap,
+                            contextSwitch, rrQuantum, agingInterval));
+        return jobs;
+    }
+
+    /* ---------------- coordinator ---------------- */
+
+    final int workers;
+    int maxRestarts = 16; // worker restarts allowed over the whole sweep
+    int maxAttempts = 3; // workers a single job may kill
+    List<String> workerJvmOptions = List.of(); // e.g. -Xmx2g, added after the coordinator's own options
+    int crashAfterJobs = 0; // fault injection for tests: the first workers halt on receiving job k
+
+    private final AtomicInteger restarts = new AtomicInteger();
+    private final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean finished;
+    private volatile IOException failure;
+
+    private LinkedBlockingDeque<Job> pending;
+    private AtomicReferenceArray<Result> results;
+    private CountDownLatch left;
+    private Path socket;
+
+    SweepCoordinator(int workers) {
+        this.workers = workers;
+    }
+
+    int restarts() { return restarts.get(); }
+
+    // runs every job and returns the results in job order
+    List<Result> run(List<Job> jobs) throws IOException, InterruptedException {
+        for (int i = 0; i < jobs.size(); i++)
+            if (jobs.get(i).id != i) throw new IllegalArgumentException("job ids must be 0, 1, 2, ... in order");
+        pending = new LinkedBlockingDeque<>(jobs);
+        results = new AtomicReferenceArray<>(jobs.size());
+        left = new CountDownLatch(jobs.size());
+        finished = false;
+        failure = null;
+
+        Path dir = Files.createTempDirectory("sweep");
+        socket = dir.resolve("coordinator.sock");
+        try (ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            // the server has its own try so that it is closed, which ends the accept
+            // loop, before closing connections waits for the connection threads
+            try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                server.bind(UnixDomainSocketAddress.of(socket));
+                connections.submit(() -> accept(server, connections));
+                for (int i = 0; i < workers; i++) launch(crashAfterJobs);
+                while (!left.await(100, TimeUnit.MILLISECONDS) && failure == null) {
+                    // waiting for the last results, or for too many crashes
+                }
+            } finally {
+                finished = true; // the server is closed by now; idle connections send BYE
+                if (left.getCount() > 0) running.forEach(Process::destroyForcibly); // gave up: unblock busy connections
+            }
+        } finally {
+            finished = true;
+            stopWorkers();
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(dir);
+        }
+        if (failure != null) throw failure;
+
+        List<Result> out = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) out.add(results.get(i));
+        return out;
+    }
+
+    private void accept(ServerSocketChannel server, ExecutorService connections) {
+        try {
+            while (!finished) {
+                SocketChannel ch = server.accept();
+                connections.submit(() -> serve(ch));
+            }
+        } catch (IOException e) {
+            // closed at the end of the sweep
+        }
+    }
+
+    // one connection: hand out jobs until the queue is empty or the worker goes away
+    private void serve(SocketChannel ch) {
+        Job job = null;
+        try (ch) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8));
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith("HELLO ")) return;
+            while (!finished) {
+                job = pending.pollFirst(50, TimeUnit.MILLISECONDS);
+                if (job == null) continue;
+                out.write(job.encode() + "\n");
+                out.flush();
+                String line = in.readLine();
+                if (line == null) throw new EOFException("worker closed the connection");
+                Result r = Result.decode(line);
+                if (r.job != job.id) throw new IOException("answer for job " + r.job + " while job " + job.id + " was out");
+                record(r);
+                job = null;
+            }
+            out.write("BYE\n");
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            if (job != null) retry(job);
+        } catch (InterruptedException e) {
+            if (job != null) retry(job);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void record(Result r) {
+        if (results.compareAndSet(r.job, null, r)) left.countDown();
+    }
+
+    private void retry(Job job) {
+        if (++job.attempts >= maxAttempts)
+            record(new Result(job.id, "ERROR", 0, 0, 0, 0, job.attempts + " workers died on this job"));
+        else
+            pending.addFirst(job);
+    }
+
+    /* ---------------- worker processes ---------------- */
+
+    private void launch(int crashAfter) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // module and heap settings carry over; debug agents would fight over their ports
+            if (!option.startsWith("-agentlib") && !option.startsWith("-javaagent")) cmd.add(option);
+        }
+        cmd.addAll(workerJvmOptions);
+        if (crashAfter > 0) cmd.add("-Dsweep.crashAfter=" + crashAfter);
+        cmd.addAll(List.of("-cp", System.getProperty("java.class.path"), "SweepCoordinator", "worker", socket.toString()));
+        Process p;
+        try {
+            p = new ProcessBuilder(cmd)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+        } catch (IOException e) {
+            failure = e;
+            return;
+        }
+        running.add(p);
+        p.onExit().thenRun(() -> {
+            running.remove(p);
+            if (finished) return;
+            if (restarts.incrementAndGet() > maxRestarts)
+                failure = new IOException("workers died " + restarts.get() + " times, giving up");
+            else
+                launch(0);
+        });
+    }
+
+    private void stopWorkers() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Process p : List.copyOf(running)) {
+            long wait = deadline - System.nanoTime();
+            if (wait <= 0 || !p.waitFor(wait, TimeUnit.NANOSECONDS)) p.destroyForcibly();
+        }
+    }
+
+    /* ---------------- worker side ---------------- */
+
+    static void worker(String socketPath) throws IOException {
+        int crashAfter = Integer.getInteger("sweep.crashAfter", 0);
+        try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8));
+            out.write("HELLO " + ProcessHandle.current().pid() + "\n");
+            out.flush();
+            int taken = 0;
+            for (String line; (line = in.readLine()) != null && !line.equals("BYE"); ) {
+                if (++taken == crashAfter) Runtime.getRuntime().halt(3);
+                out.write(execute(Job.decode(line)).encode() + "\n");
+                out.flush();
+            }
+        }
+    }
+
+    // runs one job in this JVM; the same code the workers run
+    static Result execute(Job job) {
+        long start = System.nanoTime();
+        try {
+            DifferentialHarness.Engine engine = BatchRunner.ENGINES.get(job.algorithm);
+            if (engine == null) throw new IllegalArgumentException("unknown algorithm " + job.algorithm);
+            Workload w = job.workload();
+            DifferentialHarness.Outcome out = engine.run(w, null);
+            long micros = (System.nanoTime() - start) / 1000;
+            if (!out.completed) return new Result(job.id, "STALL", 0, 0, 0, micros, "");
+            TimeSum totalW = new TimeSum(), totalT = new TimeSum();
+            long makespan = 0;
+            for (int i = 0; i < w.size(); i++) {
+                totalW.add(out.waiting[i]);
+                totalT.add(out.turnaround[i]);
+                makespan = Math.max(makespan, w.arrival(i) + out.turnaround[i]);
+            }
+            return new Result(job.id, "OK", totalW.average(), totalT.average(), makespan, micros, "");
+        } catch (IOException | RuntimeException e) {
+            return new Result(job.id, "ERROR", 0, 0, 0, (System.nanoTime() - start) / 1000, e.toString());
+        }
+    }
+
+    /* ---------------- merged summary ---------------- */
+
+    // mean over seeds per (algorithm, load)
+    static void writeSummary(List<Job> jobs, List<Result> results, Appendable out) throws IOException {
+        Map<String, double[]> merged = new LinkedHashMap<>(); // key -> {runs, waiting, turnaround, makespan, failed}
+        for (Result r : results) {
+            Job j = jobs.get(r.job);
+            double[] m = merged.computeIfAbsent(j.algorithm + " " + j.meanGap, k -> new double[5]);
+            if (!r.status.equals("OK")) {
+                m[4]++;
+                continue;
+            }
+            m[0]++;
+            m[1] += r.avgWaiting;
+            m[2] += r.avgTurnaround;
+            m[3] += r.makespan;
+        }
+        Formatter f = new Formatter(out);
+        f.format("%-9s %8s %6s %12s %12s %14s %6s%n", "algorithm", "mean gap", "runs", "avg waiting", "avg turnar.", "makespan", "not ok");
+        merged.forEach((key, m) -> {
+            String[] k = key.split(" ");
+            double runs = Math.max(1, m[0]);
+            f.format("%-9s %8s %6d %12.2f %12.2f %14.0f %6d%n", k[0], k[1], (long) m[0],
+                    m[1] / runs, m[2] / runs, m[3] / runs, (long) m[4]);
+        });
+        f.flush();
+    }
+
+    // usage: SweepCoordinator [workers] [processes per job] [seeds]
+    //        SweepCoordinator worker <socket>    (started by the coordinator)
+    // runs the sweep on 1, 2, 4, ... workers up to the given count and prints the
+    // throughput of each, then the merged table of the last run
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("worker")) {
+            worker(args[1]);
+            return;
+        }
+        int maxWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int processes = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int seeds = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        List<Job> jobs = grid(List.of("AG", "RR", "SJF", "Priority"), new double[]{4, 6, 10}, seeds, processes, 1, 4, 5);
+
+        List<Result> last = null;
+        for (int n = 1; n <= maxWorkers; n = n == maxWorkers ? n + 1 : Math.min(maxWorkers, n * 2)) {
+            long start = System.nanoTime();
+            last = new SweepCoordinator(n).run(jobs);
+            double s = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%3d workers: %d jobs in %.2f s (%.2f jobs/s)%n", n, jobs.size(), s, jobs.size() / s);
+        }
+        writeSummary(jobs, last, System.out);
+    }
+}
+
+// JUnit checks for the sweep coordinator (starts real worker JVMs)
+class SweepCoordinatorJUnitTest {
+
+    static List<SweepCoordinator.Job> smallGrid() {
+        return SweepCoordinator.grid(List.of("AG", "RR", "SJF", "Priority"), new double[]{3, 8}, 2, 300, 1, 4, 5);
+    }
+
+    @Test
+    void workersAgreeWithInProcessRuns() throws Exception {
+        List<SweepCoordinator.Job> jobs = smallGrid();
+        List<SweepCoordinator.Result> results = new SweepCoordinator(2).run(jobs);
+        assertEquals(jobs.size(), results.size());
+        for (SweepCoordinator.Job j : jobs) {
+            SweepCoordinator.Result local = SweepCoordinator.execute(j);
+            if (j.algorithm.equals("SJF") || j.algorithm.equals("Priority")) // AG and RR may STALL, see above
+                assertEquals("OK", local.status, local.detail);
+            assertTrue(local.sameAs(results.get(j.id)), j.encode());
+        }
+        StringBuilder table = new StringBuilder();
+        SweepCoordinator.writeSummary(jobs, results, table);
+        assertEquals(1 + 4 * 2, table.toString().lines().count());
+    }
+
+    @Test
+    void crashedWorkersAreReplacedAndTheirJobsRerun() throws Exception {
+        List<SweepCoordinator.Job> jobs = smallGrid();
+        SweepCoordinator c = new SweepCoordinator(1);
+        c.crashAfterJobs = 3; // the first worker dies on its third job
+        List<SweepCoordinator.Result> results = c.run(jobs);
+        assertEquals(1, c.restarts());
+        for (SweepCoordinator.Job j : jobs) assertTrue(SweepCoordinator.execute(j).sameAs(results.get(j.id)), j.encode());
+
+        // a job that kills every worker it lands on is given up on, the rest still finish
+        SweepCoordinator poison = new SweepCoordinator(1);
+        poison.crashAfterJobs = 1;
+        poison.maxAttempts = 1;
+        List<SweepCoordinator.Job> two = List.of(new SweepCoordinator.Job(0, "SJF", 1, 200, 3, 1, 4, 5),
+                new SweepCoordinator.Job(1, "SJF", 2, 200, 3, 1, 4, 5));
+        List<SweepCoordinator.Result> r = poison.run(two);
+        assertEquals("ERROR", r.get(0).status);
+        assertEquals("OK", r.get(1).status);
+    }
+
+    @Test
+    void protocolLinesRoundTrip() {
+        SweepCoordinator.Job j = new SweepCoordinator.Job(7, "Priority", 42, 1000, 2.5, 1, 4, 5);
+        assertEquals(j.encode(), SweepCoordinator.Job.decode(j.encode()).encode());
+        SweepCoordinator.Result r = new SweepCoordinator.Result(7, "ERROR", 0.1 + 0.2, 1.0 / 3, 99, 12, "java.lang.X: bad\nthing");
+        SweepCoordinator.Result back = SweepCoordinator.Result.decode(r.encode());
+        assertTrue(r.sameAs(back));
+        assertEquals("java.lang.X: bad thing", back.detail);
+    }
+}
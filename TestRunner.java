@@ -22,7 +22,7 @@ public class TestRunner {
             JsonObject p = e.getAsJsonObject();
             processes.add(new AGScheduler.Process(
                     p.get("name").getAsString(),
-                    p.get("arrival").getAsInt(),
+                    p.get("arrival").getAsLong(),
                     p.get("burst").getAsInt(),
                     p.get("priority").getAsInt(),
                     p.get("quantum").getAsInt()
@@ -0,0 +1,376 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.*;
+
+/* =========================================================
+   Downsampled Time Series (fixed memory)
+   ========================================================= */
+// Over-time view of a run: how the CPU time splits into busy / idle / context
+// switch, the ready-queue length and the priority of the running process.
+// The engines report segments, not ticks: set(time, state, queue, priority)
+// says "from this time on the CPU is in this state", and a call that changes
+// nothing returns after one compare, so even a per-tick engine stays cheap.
+//
+// Segments are added into `capacity` buckets of `width` time units each,
+// starting at time 0. Each bucket keeps the time spent per state and the
+// min / max / time-weighted average of the queue length (and of the priority,
+// over busy time only). When a segment reaches past the last bucket, the
+// width doubles and neighbouring buckets are merged in place, so a run of a
+// billion ticks still ends with at most `capacity` points and the memory is
+// fixed from the start. Queue length is the number of ready processes, not
+// counting the running one, as it was when the segment began.
+final class TimeSeries {
+
+    static final int IDLE = 0, BUSY = 1, SWITCH = 2;
+
+    private final int capacity;
+    private long width;
+    private final long initialWidth;
+    private int size; // buckets in use
+
+    private final long[] busy, idle, switching;
+    private final int[] queueMin, queueMax;
+    private final long[] queueArea; // sum of queue length x duration
+    private final int[] priorityMin, priorityMax;
+    private final long[] priorityArea; // over busy time
+
+    // the open segment
+    private long segmentStart = -1;
+    private int state, queue, priority;
+
+    TimeSeries() {
+        this(4096, 1);
+    }
+
+    // capacity buckets (even), initially width time units each
+    TimeSeries(int capacity, long width) {
+        if (capacity < 2 || capacity % 2 != 0) throw new IllegalArgumentException("capacity must be even and at least 2");
+        if (width < 1) throw new IllegalArgumentException("bucket width must be positive");
+        this.capacity = capacity;
+        this.initialWidth = this.width = width;
+        busy = new long[capacity];
+        idle = new long[capacity];
+        switching = new long[capacity];
+        queueMin = new int[capacity];
+        queueMax = new int[capacity];
+        queueArea = new long[capacity];
+        priorityMin = new int[capacity];
+        priorityMax = new int[capacity];
+        priorityArea = new long[capacity];
+        clear();
+    }
+
+    void clear() {
+        Arrays.fill(busy, 0);
+        Arrays.fill(idle, 0);
+        Arrays.fill(switching, 0);
+        Arrays.fill(queueArea, 0);
+        Arrays.fill(priorityArea, 0);
+        Arrays.fill(queueMin, Integer.MAX_VALUE);
+        Arrays.fill(queueMax, Integer.MIN_VALUE);
+        Arrays.fill(priorityMin, Integer.MAX_VALUE);
+        Arrays.fill(priorityMax, Integer.MIN_VALUE);
+        width = initialWidth;
+        size = 0;
+        segmentStart = -1;
+    }
+
+    /* ---------------- called by the engines ---------------- */
+
+    // from time on the CPU is in state with queue ready processes; priority only counts for BUSY
+    void set(long time, int state, int queue, int priority) {
+        if (segmentStart >= 0) {
+            if (state == this.state && queue == this.queue && (state != BUSY || priority == this.priority)) return;
+            add(segmentStart, time);
+        }
+        segmentStart = time;
+        this.state = state;
+        this.queue = queue;
+        this.priority = priority;
+    }
+
+    // closes the open segment; called once when the run ends
+    void end(long time) {
+        if (segmentStart >= 0) add(segmentStart, time);
+        segmentStart = -1;
+    }
+
+    private void add(long start, long end) {
+        if (end <= start) return;
+        while ((end - 1) / width >= capacity) downsample();
+        int b = (int) (start / width);
+        for (long t = start; t < end; b++) {
+            long stop = Math.min(end, (b + 1) * width);
+            long d = stop - t;
+            switch (state) {
+                case BUSY -> {
+                    busy[b] += d;
+                    priorityMin[b] = Math.min(priorityMin[b], priority);
+                    priorityMax[b] = Math.max(priorityMax[b], priority);
+                    priorityArea[b] += priority * d;
+                }
+                case IDLE -> idle[b] += d;
+                default -> switching[b] += d;
+            }
+            queueMin[b] = Math.min(queueMin[b], queue);
+            queueMax[b] = Math.max(queueMax[b], queue);
+            queueArea[b] += queue * d;
+            t = stop;
+        }
+        size = Math.max(size, b);
+    }
+
+    // doubles the width: bucket k becomes buckets 2k and 2k+1 merged
+    private void downsample() {
+        int half = capacity / 2;
+        for (int k = 0; k < half; k++) {
+            int a = 2 * k, c = a + 1;
+            busy[k] = busy[a] + busy[c];
+            idle[k] = idle[a] + idle[c];
+            switching[k] = switching[a] + switching[c];
+            queueMin[k] = Math.min(queueMin[a], queueMin[c]);
+            queueMax[k] = Math.max(queueMax[a], queueMax[c]);
+            queueArea[k] = queueArea[a] + queueArea[c];
+            priorityMin[k] = Math.min(priorityMin[a], priorityMin[c]);
+            priorityMax[k] = Math.max(priorityMax[a], priorityMax[c]);
+            priorityArea[k] = priorityArea[a] + priorityArea[c];
+        }
+        Arrays.fill(busy, half, capacity, 0);
+        Arrays.fill(idle, half, capacity, 0);
+        Arrays.fill(switching, half, capacity, 0);
+        Arrays.fill(queueArea, half, capacity, 0);
+        Arrays.fill(priorityArea, half, capacity, 0);
+        Arrays.fill(queueMin, half, capacity, Integer.MAX_VALUE);
+        Arrays.fill(queueMax, half, capacity, Integer.MIN_VALUE);
+        Arrays.fill(priorityMin, half, capacity, Integer.MAX_VALUE);
+        Arrays.fill(priorityMax, half, capacity, Integer.MIN_VALUE);
+        width *= 2;
+        size = (size + 1) / 2;
+    }
+
+    /* ---------------- reading ---------------- */
+
+    int size() { return size; }
+    long width() { return width; }
+    long start(int k) { return k * width; }
+    long busy(int k) { return busy[k]; }
+    long idle(int k) { return idle[k]; }
+    long switching(int k) { return switching[k]; }
+    long covered(int k) { return busy[k] + idle[k] + switching[k]; }
+
+    // share of the covered time spent running processes (NaN for an empty bucket)
+    double utilization(int k) { return (double) busy[k] / covered(k); }
+
+    int queueMin(int k) { return queueMin[k]; }
+    int queueMax(int k) { return queueMax[k]; }
+    double queueAverage(int k) { return (double) queueArea[k] / covered(k); }
+
+    // NaN / MAX_VALUE / MIN_VALUE when nothing ran in the bucket
+    int priorityMin(int k) { return priorityMin[k]; }
+    int priorityMax(int k) { return priorityMax[k]; }
+    double priorityAverage(int k) { return (double) priorityArea[k] / busy[k]; }
+
+    // one CSV row per bucket; empty cells where a bucket has no data
+    void writeCsv(Appendable out) throws IOException {
+        Formatter f = new Formatter(out);
+        f.format("start,width,busy,idle,switch,utilization,queueMin,queueAvg,queueMax,priorityMin,priorityAvg,priorityMax%n");
+        for (int k = 0; k < size; k++) {
+            boolean any = covered(k) > 0, ran = busy[k] > 0;
+            f.format("%d,%d,%d,%d,%d,%s,%s,%s,%s,%s,%s,%s%n", start(k), width, busy[k], idle[k], switching[k],
+                    any ? String.format("%.4f", utilization(k)) : "",
+                    any ? queueMin[k] : "", any ? String.format("%.2f", queueAverage(k)) : "", any ? queueMax[k] : "",
+                    ran ? priorityMin[k] : "", ran ? String.format("%.2f", priorityAverage(k)) : "", ran ? priorityMax[k] : "");
+        }
+        f.flush();
+    }
+
+    // usage: TimeSeries [processes] [points]
+    // a Round Robin run of about a billion ticks (at the defaults) with and without a series; prints
+    // both times and the first rows of the series
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int points = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        String[] names = new String[count];
+        long[] a = new long[count];
+        int[] b = new int[count], p = new int[count], q = new int[count];
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int i = 0; i < count; i++) {
+            names[i] = "P" + (i + 1);
+            a[i] = 4_000 * i + rnd.nextInt(100); // over full load: RR stops at the first idle gap
+            b[i] = 1 + rnd.nextInt(10_000);
+            p[i] = 1 + rnd.nextInt(10);
+        }
+        Workload w = new Workload(names, a, b, p, q, 5, 100, 0);
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        TimeSeries series = new TimeSeries(points, 1);
+        for (int round = 0; round < 3; round++) {
+            rr.setTimeSeries(null);
+            long t = System.nanoTime();
+            rr.run();
+            long plain = System.nanoTime() - t;
+            rr.setTimeSeries(series);
+            t = System.nanoTime();
+            rr.run();
+            System.out.printf("%d ticks: %.0f ms plain, %.0f ms with %d points of width %d%n", rr.finishTime(),
+                    plain / 1e6, (System.nanoTime() - t) / 1e6, series.size(), series.width());
+        }
+        StringBuilder csv = new StringBuilder();
+        series.writeCsv(csv);
+        csv.toString().lines().limit(6).forEach(System.out::println);
+    }
+}
+
+// JUnit checks for the time series
+class TimeSeriesJUnitTest {
+
+    @Test
+    void downsamplingKeepsTotalsAndExtremes() {
+        SplittableRandom rnd = new SplittableRandom(5);
+        TimeSeries s = new TimeSeries(16, 1);
+        long time = 0;
+        long[] total = new long[3];
+        int maxQueue = 0, minPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < 500; i++) {
+            int state = rnd.nextInt(3), queue = rnd.nextInt(20), priority = 1 + rnd.nextInt(10);
+            long d = 1 + rnd.nextInt(i < 250 ? 5 : 5000); // short segments first, then long ones
+            s.set(time, state, queue, priority);
+            time += d;
+            total[state] += d;
+            maxQueue = Math.max(maxQueue, queue);
+            if (state == TimeSeries.BUSY) minPriority = Math.min(minPriority, priority);
+            s.set(time, state, queue, priority); // no change: nothing recorded
+        }
+        s.end(time);
+        assertTrue(s.size() <= 16);
+        assertTrue(s.width() * 16 >= time && Long.bitCount(s.width()) == 1);
+        long[] got = new long[3];
+        int gotMax = Integer.MIN_VALUE, gotMin = Integer.MAX_VALUE;
+        for (int k = 0; k < s.size(); k++) {
+            got[TimeSeries.BUSY] += s.busy(k);
+            got[TimeSeries.IDLE] += s.idle(k);
+            got[TimeSeries.SWITCH] += s.switching(k);
+            gotMax = Math.max(gotMax, s.queueMax(k));
+            gotMin = Math.min(gotMin, s.priorityMin(k));
+            assertTrue(s.covered(k) <= s.width());
+        }
+        assertArrayEquals(total, got);
+        assertEquals(maxQueue, gotMax);
+        assertEquals(minPriority, gotMin);
+    }
+
+    @Test
+    void billionTicksInFixedMemory() throws Exception {
+        TimeSeries s = new TimeSeries(1024, 1);
+        s.set(0, TimeSeries.BUSY, 3, 2);
+        s.set(1_000_000_000L, TimeSeries.IDLE, 0, 0);
+        s.end(2_000_000_000L);
+        assertTrue(s.size() <= 1024);
+        long busy = 0;
+        for (int k = 0; k < s.size(); k++) busy += s.busy(k);
+        assertEquals(1_000_000_000L, busy);
+        assertEquals(3.0, s.queueAverage(0));
+        StringBuilder csv = new StringBuilder();
+        s.writeCsv(csv);
+        assertEquals(s.size() + 1, csv.toString().lines().count());
+    }
+
+    @Test
+    void enginesAccountForEveryTimeUnit() throws Exception {
+        // switches cost 2 and P1 only arrives at 1, so there is idle time as well as switching
+        Workload w = new Workload(new String[]{"P1", "P2", "P3", "P4", "P5"}, new long[]{1, 3, 6, 13, 13},
+                new int[]{7, 6, 1, 2, 1}, new int[]{1, 1, 2, 4, 2}, new int[]{2, 6, 5, 2, 3}, 2, 2, 6);
+        long bursts = 0;
+        for (int i = 0; i < w.size(); i++) bursts += w.burst(i);
+
+        // Priority starts with an IDLE gap; every non-IDLE order entry costs one context switch
+        PriorityPreemptiveScheduler.RunState pr = new PriorityPreemptiveScheduler.RunState(w);
+        TimeSeries s = new TimeSeries(8, 1);
+        pr.setTimeSeries(s);
+        assertTrue(pr.run());
+        long end = 0, switches = 0;
+        for (int i = 0; i < w.size(); i++) end = Math.max(end, pr.completion(i));
+        for (int k = 0; k < pr.orderLength(); k++) if (pr.orderAt(k) != PriorityPreemptiveScheduler.RunState.IDLE) switches++;
+        long[] t = totals(s);
+        assertEquals(bursts, t[TimeSeries.BUSY]);
+        assertEquals(switches * w.contextSwitch, t[TimeSeries.SWITCH]);
+        assertEquals(end - bursts - switches * w.contextSwitch, t[TimeSeries.IDLE]);
+        assertTrue(t[TimeSeries.IDLE] > 0);
+
+        // Round Robin: a switch after every slice but the last
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        rr.setTimeSeries(s);
+        assertTrue(rr.run());
+        t = totals(s);
+        assertEquals(bursts, t[TimeSeries.BUSY]);
+        assertEquals((rr.orderLength() - 1L) * w.contextSwitch, t[TimeSeries.SWITCH]);
+        assertEquals(rr.finishTime(), t[0] + t[1] + t[2]);
+
+        SJFScheduler.RunState sjf = new SJFScheduler.RunState(w);
+        sjf.setTimeSeries(s);
+        sjf.run();
+        assertEquals(bursts, totals(s)[TimeSeries.BUSY]);
+
+        Workload agw = new Workload(new String[]{"P1", "P2", "P3", "P4"}, new long[]{0, 2, 5, 15},
+                new int[]{17, 6, 11, 4}, new int[]{4, 7, 3, 6}, new int[]{7, 9, 4, 6}, 0, 0, 0);
+        AGScheduler.RunState ag = new AGScheduler.RunState(agw);
+        ag.setTimeSeries(s);
+        assertTrue(ag.run());
+        long agBursts = 0, agEnd = 0;
+        for (int i = 0; i < agw.size(); i++) {
+            agBursts += agw.burst(i);
+            agEnd = Math.max(agEnd, agw.arrival(i) + ag.turnaround(i));
+        }
+        t = totals(s);
+        assertEquals(agBursts, t[TimeSeries.BUSY]);
+        assertEquals(agEnd, t[TimeSeries.BUSY] + t[TimeSeries.IDLE]);
+    }
+
+    @Test
+    void enginesAccountForEveryTimeUnitOnRandomWorkloads() {
+        SplittableRandom rnd = new SplittableRandom(49);
+        for (int c = 0; c < 200; c++) {
+            Workload w = Workload.random(rnd, 12);
+            long bursts = 0;
+            for (int i = 0; i < w.size(); i++) bursts += w.burst(i);
+
+            PriorityPreemptiveScheduler.RunState pr = new PriorityPreemptiveScheduler.RunState(w);
+            TimeSeries s = new TimeSeries(8, 1);
+            pr.setTimeSeries(s);
+            assertTrue(pr.run());
+            long end = 0;
+            for (int i = 0; i < w.size(); i++) end = Math.max(end, pr.completion(i));
+            long[] t = totals(s);
+            assertEquals(bursts, t[TimeSeries.BUSY], w.toString());
+            assertEquals(end, t[0] + t[1] + t[2], w.toString());
+
+            SJFScheduler.RunState sjf = new SJFScheduler.RunState(w);
+            sjf.setTimeSeries(s);
+            sjf.run();
+            assertEquals(bursts, totals(s)[TimeSeries.BUSY], w.toString());
+
+            RoundRobin.RunState rr = new RoundRobin.RunState(w);
+            rr.setTimeSeries(s);
+            if (rr.run()) { // the reference cannot go idle
+                t = totals(s);
+                assertEquals(bursts, t[TimeSeries.BUSY], w.toString());
+                assertEquals(rr.finishTime(), t[0] + t[1] + t[2], w.toString());
+            }
+
+            AGScheduler.RunState ag = new AGScheduler.RunState(w);
+            ag.setTimeSeries(s);
+            if (ag.run()) assertEquals(bursts, totals(s)[TimeSeries.BUSY], w.toString());
+        }
+    }
+
+    static long[] totals(TimeSeries s) {
+        long[] t = new long[3];
+        for (int k = 0; k < s.size(); k++) {
+            t[TimeSeries.BUSY] += s.busy(k);
+            t[TimeSeries.IDLE] += s.idle(k);
+            t[TimeSeries.SWITCH] += s.switching(k);
+        }
+        return t;
+    }
+}
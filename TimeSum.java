@@ -0,0 +1,291 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/* =========================================================
+   Exact Time Totals
+   ========================================================= */
+// Running total of 64-bit time values (waiting, turnaround, ...) kept in 128
+// bits, so it cannot overflow for any realistic process count, and the
+// average is taken once from the exact total instead of adding up doubles.
+// Adding is two long additions and a compare, cheap enough for the engines'
+// per-process accounting.
+final class TimeSum {
+
+    private static final MathContext DIVISION = new MathContext(40);
+
+    private long hi, lo; // two's complement 128-bit total; lo is the unsigned low half
+    private long count;
+
+    void add(long v) {
+        long sum = lo + v;
+        hi += v >> 63; // sign extension of v
+        if (Long.compareUnsigned(sum, lo) < 0) hi++; // carry out of the low half
+        lo = sum;
+        count++;
+    }
+
+    void reset() {
+        hi = lo = count = 0;
+    }
+
+    long count() { return count; }
+
+    boolean fitsInLong() { return hi == (lo >> 63); }
+
+    // the total as a long; throws instead of wrapping around
+    long longValue() {
+        if (!fitsInLong()) throw new ArithmeticException("time total " + value() + " does not fit in a long");
+        return lo;
+    }
+
+    BigInteger value() {
+        BigInteger low = BigInteger.valueOf(lo & Long.MAX_VALUE);
+        if (lo < 0) low = low.setBit(63);
+        return BigInteger.valueOf(hi).shiftLeft(64).add(low);
+    }
+
+    // total / count rounded to the nearest double (0 when empty)
+    double average() {
+        if (count == 0) return 0;
+        // below 2^53 both operands are exact doubles, so the division rounds once
+        if (fitsInLong() && Math.abs(lo) <= 1L << 53) return (double) lo / count;
+        return new BigDecimal(value()).divide(BigDecimal.valueOf(count), DIVISION).doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        return value().toString();
+    }
+
+    /* ---------------- benchmark baseline ---------------- */
+
+    // RoundRobin.RunState as it was with 32-bit time: int clock, int arrivals and
+    // int completion times, otherwise the same loop (series and sink stay null, as
+    // they do for the long RunState in main). Only main and the test use it; it is
+    // the baseline that shows what the widening costs.
+    static final class IntClockRoundRobin {
+        final Workload workload;
+        private final int n, quantum, context;
+        private final int[] byArrival, arrival;
+        private final int[] remaining;
+        private final int[] completion;
+
+        private final int[] queue;
+        private int head, size;
+
+        private int[] order = new int[16];
+        private int orderLength;
+        private int time;
+
+        private TimeSeries series;
+        private ResultWriter sink;
+
+        IntClockRoundRobin(Workload w) {
+            workload = w;
+            n = w.size();
+            quantum = w.rrQuantum;
+            context = w.contextSwitch;
+            byArrival = w.indicesByArrival();
+            arrival = new int[n];
+            for (int i = 0; i < n; i++) arrival[i] = Math.toIntExact(w.arrival(i));
+            remaining = new int[n];
+            completion = new int[n];
+            queue = new int[Math.max(1, n)];
+        }
+
+        boolean run() {
+            for (int i = 0; i < n; i++) {
+                remaining[i] = workload.burst(i);
+                completion[i] = 0;
+            }
+            head = size = orderLength = 0;
+            time = 0;
+            int next = 0, completed = 0;
+            if (n == 0) return true;
+
+            if (series != null) series.set(0, TimeSeries.IDLE, 0, 0);
+            time = Math.max(0, arrival[byArrival[0]]);
+            while (next < n && arrival[byArrival[next]] <= time) push(byArrival[next++]);
+
+            while (completed < n) {
+                if (size == 0) {
+                    if (series != null) series.end(time);
+                    return false;
+                }
+                int cur = queue[head];
+                head = (head + 1) % queue.length;
+                size--;
+                addOrder(cur);
+                if (series != null) series.set(time, TimeSeries.BUSY, size, workload.priority(cur));
+
+                int run = Math.min(quantum, remaining[cur]);
+                remaining[cur] -= run;
+                time += run;
+                while (next < n && arrival[byArrival[next]] <= time) push(byArrival[next++]);
+
+                if (remaining[cur] == 0) {
+                    completion[cur] = time;
+                    completed++;
+                    if (sink != null) sink.completed(workload.name(cur), waiting(cur), turnaround(cur));
+                } else {
+                    push(cur);
+                }
+
+                if (completed < n) {
+                    if (series != null) series.set(time, TimeSeries.SWITCH, size, 0);
+                    time += context;
+                    while (next < n && arrival[byArrival[next]] <= time) push(byArrival[next++]);
+                }
+            }
+            if (series != null) series.end(time);
+            return true;
+        }
+
+        private void push(int p) {
+            queue[(head + size) % queue.length] = p;
+            size++;
+        }
+
+        private void addOrder(int p) {
+            if (orderLength == order.length) order = Arrays.copyOf(order, order.length * 2);
+            order[orderLength++] = p;
+            if (sink != null) sink.dispatched(workload.name(p));
+        }
+
+        int completion(int i) { return completion[i]; }
+        int turnaround(int i) { return completion[i] - arrival[i]; }
+        int waiting(int i) { return turnaround(i) - workload.burst(i); }
+    }
+
+    // usage: TimeSum [processes]
+    // Replays the array-based engines, whose clocks and completion times are long,
+    // and prints the best of five runs per engine. RR is run next to
+    // IntClockRoundRobin, the same loop with 32-bit time, round by round, so the
+    // two lines compare the widening on the same machine and the same workload.
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] names = new String[count];
+        long[] a = new long[count];
+        int[] b = new int[count], p = new int[count], q = new int[count];
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int i = 0; i < count; i++) {
+            names[i] = "P" + (i + 1);
+            a[i] = 7 * i; // below full load even with switching, so the ready sets stay short
+            b[i] = 1 + rnd.nextInt(8);
+            p[i] = 1 + rnd.nextInt(10);
+            q[i] = 2 + rnd.nextInt(6);
+        }
+        Workload w = new Workload(names, a, b, p, q, 1, 3, 5);
+        Runnable[] engines = {
+                new RoundRobin.RunState(w)::run,
+                new SJFScheduler.RunState(w)::run,
+                new PriorityPreemptiveScheduler.RunState(w)::run,
+                new AGScheduler.RunState(w)::run,
+                new CFSScheduler(w)::run,
+                new EDFScheduler(w)::run
+        };
+        String[] labels = {"RR", "SJF", "Priority", "AG", "CFS", "EDF"};
+
+        RoundRobin.RunState wide = new RoundRobin.RunState(w);
+        IntClockRoundRobin narrow = new IntClockRoundRobin(w);
+        long bestWide = Long.MAX_VALUE, bestNarrow = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) { // alternate so both see the same JIT and GC state
+            long t = System.nanoTime();
+            narrow.run();
+            bestNarrow = Math.min(bestNarrow, System.nanoTime() - t);
+            t = System.nanoTime();
+            wide.run();
+            bestWide = Math.min(bestWide, System.nanoTime() - t);
+        }
+        System.out.printf("%-8s %6.1f ns/process (int time)%n", "RR", (double) bestNarrow / count);
+        System.out.printf("%-8s %6.1f ns/process (long time)%n", "RR", (double) bestWide / count);
+
+        for (int e = 0; e < engines.length; e++) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long t = System.nanoTime();
+                engines[e].run();
+                best = Math.min(best, System.nanoTime() - t);
+            }
+            System.out.printf("%-8s %6.1f ns/process%n", labels[e], (double) best / count);
+        }
+    }
+}
+
+// JUnit checks for the exact totals
+class TimeSumJUnitTest {
+
+    @Test
+    void intClockBaselineSchedulesLikeTheRunState() {
+        // the benchmark only means something if both loops do the same work
+        SplittableRandom rnd = new SplittableRandom(43);
+        int compared = 0;
+        for (int c = 0; c < 300; c++) {
+            Workload w = Workload.random(rnd, 12);
+            RoundRobin.RunState wide = new RoundRobin.RunState(w);
+            TimeSum.IntClockRoundRobin narrow = new TimeSum.IntClockRoundRobin(w);
+            boolean finished = wide.run();
+            assertEquals(finished, narrow.run(), w.toString());
+            if (!finished) continue;
+            for (int i = 0; i < w.size(); i++) {
+                assertEquals(wide.completion(i), narrow.completion(i), w.toString());
+                assertEquals(wide.waiting(i), narrow.waiting(i), w.toString());
+            }
+            compared++;
+        }
+        assertTrue(compared > 200);
+    }
+
+    @Test
+    void totalsPastLongRangeStayExact() {
+        TimeSum s = new TimeSum();
+        for (int i = 0; i < 4; i++) s.add(Long.MAX_VALUE);
+        assertFalse(s.fitsInLong());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(4)), s.value());
+        assertEquals((double) Long.MAX_VALUE, s.average());
+        assertThrows(ArithmeticException.class, s::longValue);
+        for (int i = 0; i < 4; i++) s.add(-Long.MAX_VALUE);
+        assertTrue(s.fitsInLong());
+        assertEquals(0, s.longValue());
+    }
+
+    @Test
+    void enginesRunPast2To31() {
+        // three one-billion-unit jobs: the last completion is past Integer.MAX_VALUE
+        int[] zero = new int[3], burst = {1_000_000_000, 1_000_000_000, 1_000_000_000};
+        Workload w = new Workload(new String[]{"P1", "P2", "P3"}, new long[3], burst, new int[]{1, 1, 1},
+                zero, 1, 100_000_000, 0);
+        RoundRobin.RunState rr = new RoundRobin.RunState(w);
+        assertTrue(rr.run());
+        assertEquals(3_000_000_000L + 29, rr.finishTime()); // 30 slices, 29 switches
+        SJFScheduler.RunState sjf = new SJFScheduler.RunState(w);
+        sjf.run();
+        assertEquals(3_000_000_002L, sjf.completion(2));
+        CFSScheduler cfs = new CFSScheduler(w, 300_000_000, 100_000_000);
+        cfs.run();
+        long last = Math.max(cfs.completion(0), Math.max(cfs.completion(1), cfs.completion(2)));
+        assertEquals(3_000_000_000L + cfs.contextSwitches(), last);
+    }
+
+    @Test
+    void averageIsRoundedOnce() {
+        // one huge turnaround and many small ones: a double total drops every small one
+        TimeSum s = new TimeSum();
+        double drift = 1L << 53;
+        s.add(1L << 53);
+        for (int i = 0; i < 1000; i++) {
+            s.add(1);
+            drift += 1;
+        }
+        assertEquals((1L << 53) + 1000, s.longValue());
+        double exact = new BigDecimal((1L << 53) + 1000).divide(BigDecimal.valueOf(1001), new MathContext(40)).doubleValue();
+        assertEquals(exact, s.average());
+        assertNotEquals(exact, drift / 1001);
+    }
+}
@@ -0,0 +1,607 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/* =========================================================
+   Trace Importer (ftrace sched_switch / perf sched)
+   ========================================================= */
+// Turns a kernel scheduler trace into workload processes. Two text formats
+// are read, mixed freely:
+//
+//  - ftrace (trace / trace_pipe of the sched_switch and sched_wakeup events):
+//      bash-1234 [001] d..2.  5.000100: sched_switch: prev_comm=bash prev_pid=1234
+//          prev_prio=120 prev_state=S ==> next_comm=swapper/1 next_pid=0 next_prio=120
+//  - perf script of a perf sched record, with either the same key=value fields
+//    or the compact form
+//      bash 1234 [001]  5.000100: sched:sched_switch: bash:1234 [120] S ==> swapper/1:0 [120]
+//
+// Every other line is skipped. A process is one episode of a task: it arrives
+// when the task is woken (or first seen switching in) and its burst is the CPU
+// time it gets until it switches out in a sleeping state (S, D, ...); being
+// preempted (R, R+) keeps the episode going. The kernel prio gives nice =
+// prio - 120 (real-time prios count as nice -20) and priority = nice +
+// niceOffset, so nice -20 .. 19 become 1 .. 40. CFSScheduler reads priority - 1
+// as nice, so niceOffset = 1 hands it the kernel weights. Times are converted to
+// units of unitNanos from the first event; idle (pid 0) is ignored.
+//
+// The file is read in chunks of chunkBytes, parsed on threads into compact
+// event arrays (a line belongs to the chunk it starts in), and the events are
+// replayed in file order. Processes are emitted in arrival order as soon as
+// every earlier episode is over, so only the episodes still open are held.
+final class TraceImporter {
+
+    static final int MAX_LINE = 1 << 16; // a chunk reads this far past its end for its last line
+
+    private static final int WAKEUP = 0, PREEMPTED = 1, BLOCKED = 2; // event kinds
+
+    final Path trace;
+    long unitNanos = 1000; // length of one workload time unit: 1 us
+    int niceOffset = 21;
+    int quantum = 4; // AG quantum given to every process
+    int chunkBytes = 4 << 20;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    // counts of the last import
+    long lines, events, processes;
+
+    TraceImporter(Path trace) {
+        this.trace = trace;
+    }
+
+    int priority(int kernelPrio) {
+        int nice = kernelPrio < 100 ? -20 : Math.max(-20, Math.min(19, kernelPrio - 120));
+        return nice + niceOffset;
+    }
+
+    /* ---------------- parsing ---------------- */
+
+    // events of one chunk, in file order
+    private static final class Events {
+        int size;
+        long lines;
+        long[] time = new long[256];
+        int[] kind = new int[256];
+        int[] pid = new int[256], prio = new int[256]; // woken task, or the one switching out
+        int[] nextPid = new int[256], nextPrio = new int[256]; // switches only
+
+        void add(long t, int k, int p, int pr, int np, int npr) {
+            if (size == time.length) {
+                int cap = size * 2;
+                time = Arrays.copyOf(time, cap);
+                kind = Arrays.copyOf(kind, cap);
+                pid = Arrays.copyOf(pid, cap);
+                prio = Arrays.copyOf(prio, cap);
+                nextPid = Arrays.copyOf(nextPid, cap);
+                nextPrio = Arrays.copyOf(nextPrio, cap);
+            }
+            time[size] = t;
+            kind[size] = k;
+            pid[size] = p;
+            prio[size] = pr;
+            nextPid[size] = np;
+            nextPrio[size] = npr;
+            size++;
+        }
+    }
+
+    private static final byte[] SCHED = ascii("sched_"), SCHED_PREFIX = ascii("sched:");
+    private static final byte[] SWITCH = ascii("switch: "), WAKEUP_NEW = ascii("wakeup_new: "), WAKEUP_ = ascii("wakeup: ");
+    private static final byte[] PREV_COMM = ascii("prev_comm="), PREV_PID = ascii(" prev_pid="),
+            PREV_PRIO = ascii(" prev_prio="), PREV_STATE = ascii(" prev_state="), ARROW = ascii(" ==> "),
+            NEXT_PID = ascii(" next_pid="), NEXT_PRIO = ascii(" next_prio="),
+            COMM = ascii("comm="), PID = ascii(" pid="), PRIO = ascii(" prio="),
+            OPEN = ascii(" ["), CLOSE = ascii("] ");
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // parses the lines that start in [start, end) of the file
+    private Events parseChunk(FileChannel ch, long start, long end, byte[] buf) throws IOException {
+        long from = start == 0 ? 0 : start - 1; // one byte back tells whether start begins a line
+        long limit = Math.min(ch.size(), end + MAX_LINE);
+        int len = (int) (limit - from);
+        ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+        while (bb.hasRemaining())
+            if (ch.read(bb, from + bb.position()) < 0) break;
+        len = bb.position();
+
+        Events out = new Events();
+        int pos = 0;
+        if (start > 0) {
+            while (pos < len && buf[pos] != '\n') pos++;
+            pos++;
+        }
+        while (pos < len && from + pos < end) {
+            int eol = pos;
+            while (eol < len && buf[eol] != '\n') eol++;
+            if (eol == len && from + len < ch.size())
+                throw new IOException(trace + ": line at byte " + (from + pos) + " is longer than " + MAX_LINE);
+            int e = eol > pos && buf[eol - 1] == '\r' ? eol - 1 : eol;
+            parseLine(buf, pos, e, out);
+            out.lines++;
+            pos = eol + 1;
+        }
+        return out;
+    }
+
+    // one trace line [s, e); lines without a sched_switch or sched_wakeup event add nothing
+    static void parseLine(byte[] b, int s, int e, Events out) {
+        for (int i = s; i + SCHED.length < e; i++) {
+            if (b[i] != 's' || !startsWith(b, i, e, SCHED)) continue;
+            int name = i + SCHED.length, fields;
+            boolean isSwitch = startsWith(b, name, e, SWITCH);
+            if (isSwitch) fields = name + SWITCH.length;
+            else if (startsWith(b, name, e, WAKEUP_)) fields = name + WAKEUP_.length;
+            else if (startsWith(b, name, e, WAKEUP_NEW)) fields = name + WAKEUP_NEW.length;
+            else continue;
+
+            // the timestamp ends at the ':' before the event name (perf puts "sched:" in between)
+            int p = i;
+            if (p - SCHED_PREFIX.length >= s && startsWith(b, p - SCHED_PREFIX.length, e, SCHED_PREFIX))
+                p -= SCHED_PREFIX.length;
+            while (p > s && b[p - 1] == ' ') p--;
+            if (p == s || b[p - 1] != ':') continue; // "sched_" inside a task name
+            long t = parseTime(b, s, p - 1);
+            if (t < 0) continue;
+
+            if (isSwitch) parseSwitch(b, fields, e, t, out);
+            else parseWakeup(b, fields, e, t, out);
+            return;
+        }
+    }
+
+    // seconds with up to 9 decimals ending right before end, in nanoseconds; -1 if there is none
+    private static long parseTime(byte[] b, int s, int end) {
+        int q = end;
+        while (q > s && (isDigit(b[q - 1]) || b[q - 1] == '.')) q--;
+        if (q == end) return -1;
+        long seconds = 0, fraction = 0;
+        int decimals = -1;
+        for (int k = q; k < end; k++) {
+            if (b[k] == '.') {
+                if (decimals >= 0) return -1;
+                decimals = 0;
+            } else if (decimals < 0) {
+                seconds = seconds * 10 + (b[k] - '0');
+            } else if (decimals < 9) {
+                fraction = fraction * 10 + (b[k] - '0');
+                decimals++;
+            }
+        }
+        return seconds * 1_000_000_000L + fraction * POW10[9 - Math.max(0, decimals)];
+    }
+
+    private static void parseSwitch(byte[] b, int f, int e, long t, Events out) {
+        int prevPid, prevPrio, nextPid, nextPrio;
+        boolean runnable;
+        if (startsWith(b, f, e, PREV_COMM)) {
+            int x = indexOf(b, f, e, PREV_PID);
+            int y = indexOf(b, x, e, PREV_PRIO);
+            int z = indexOf(b, y, e, PREV_STATE);
+            int a = indexOf(b, z, e, ARROW);
+            int u = indexOf(b, a, e, NEXT_PID);
+            int v = indexOf(b, u, e, NEXT_PRIO);
+            if (v < 0) return;
+            prevPid = parseInt(b, x + PREV_PID.length, e);
+            prevPrio = parseInt(b, y + PREV_PRIO.length, e);
+            runnable = b[z + PREV_STATE.length] == 'R';
+            nextPid = parseInt(b, u + NEXT_PID.length, e);
+            nextPrio = parseInt(b, v + NEXT_PRIO.length, e);
+        } else {
+            // comm:pid [prio] state ==> comm:pid [prio]
+            int a = indexOf(b, f, e, ARROW);
+            if (a < 0) return;
+            int lb = lastIndexOf(b, f, a, (byte) '['), rb = lb < 0 ? -1 : indexOf(b, lb, a, CLOSE);
+            int nb = lastIndexOf(b, a, e, (byte) '[');
+            if (rb < 0 || nb < 0) return;
+            prevPid = pidBefore(b, f, lb);
+            prevPrio = parseInt(b, lb + 1, a);
+            runnable = b[rb + 2] == 'R';
+            nextPid = pidBefore(b, a, nb);
+            nextPrio = parseInt(b, nb + 1, e);
+        }
+        if (prevPid < 0 || prevPrio < 0 || nextPid < 0 || nextPrio < 0) return;
+        out.add(t, runnable ? PREEMPTED : BLOCKED, prevPid, prevPrio, nextPid, nextPrio);
+    }
+
+    private static void parseWakeup(byte[] b, int f, int e, long t, Events out) {
+        int pid, prio;
+        if (startsWith(b, f, e, COMM)) {
+            int x = indexOf(b, f, e, PID);
+            int y = indexOf(b, x, e, PRIO);
+            if (y < 0) return;
+            pid = parseInt(b, x + PID.length, e);
+            prio = parseInt(b, y + PRIO.length, e);
+        } else {
+            // comm:pid [prio] ...: the first " [" right after a ":pid"
+            pid = -1;
+            int lb = f;
+            while (pid < 0 && (lb = indexOf(b, lb + 1, e, OPEN)) >= 0) pid = pidBefore(b, f, lb + 1);
+            prio = lb < 0 ? -1 : parseInt(b, lb + 2, e);
+        }
+        if (pid < 0 || prio < 0) return;
+        out.add(t, WAKEUP, pid, prio, 0, 0);
+    }
+
+    // the pid of "comm:pid [" where bracket is the index of '['; -1 if it is not there
+    private static int pidBefore(byte[] b, int s, int bracket) {
+        int end = bracket - 1;
+        if (end <= s || b[end] != ' ') return -1;
+        int q = end;
+        while (q > s && isDigit(b[q - 1])) q--;
+        if (q == end || q == s || b[q - 1] != ':') return -1;
+        return parseInt(b, q, end);
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // non-negative decimal at i, -1 if there are no digits
+    private static int parseInt(byte[] b, int i, int e) {
+        if (i < 0 || i >= e || !isDigit(b[i])) return -1;
+        int v = 0;
+        while (i < e && isDigit(b[i]) && v < 100_000_000) v = v * 10 + (b[i++] - '0');
+        return v;
+    }
+
+    private static boolean startsWith(byte[] b, int i, int e, byte[] p) {
+        if (i < 0 || i + p.length > e) return false;
+        for (int k = 0; k < p.length; k++)
+            if (b[i + k] != p[k]) return false;
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int from, int e, byte[] p) {
+        if (from < 0) return -1;
+        for (int i = from; i + p.length <= e; i++)
+            if (b[i] == p[0] && startsWith(b, i, e, p)) return i;
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] b, int from, int e, byte c) {
+        for (int i = e - 1; i >= from; i--)
+            if (b[i] == c) return i;
+        return -1;
+    }
+
+    /* ---------------- episodes ---------------- */
+
+    // Replays events in file order. Episodes live in a ring in the order they
+    // started, which is arrival order; a finished one waits there until every
+    // episode before it has finished too, then goes to the sink.
+    private final class Replay {
+        private final WorkloadGenerator.ProcessSink sink;
+        private long origin = -1, last;
+
+        // per pid: sequence number of its open episode and when it went on the CPU (-1 = none)
+        private long[] openSeq = new long[0], onCpuSince = new long[0];
+
+        private long[] arrival = new long[1024], burst = new long[1024];
+        private int[] priority = new int[1024];
+        private boolean[] ran = new boolean[1024], closed = new boolean[1024];
+        private int mask = 1023;
+        private long head, tail; // episodes [head, tail) are not emitted yet
+
+        Replay(WorkloadGenerator.ProcessSink sink) {
+            this.sink = sink;
+        }
+
+        void accept(Events ev) throws IOException {
+            for (int k = 0; k < ev.size; k++) {
+                long t = ev.time[k];
+                if (origin < 0) origin = t;
+                last = Math.max(last, t);
+                if (ev.kind[k] == WAKEUP) {
+                    int p = ev.pid[k];
+                    if (p == 0) continue;
+                    track(p);
+                    if (openSeq[p] < 0) open(p, t, ev.prio[k]);
+                    continue;
+                }
+                int prev = ev.pid[k], next = ev.nextPid[k];
+                if (prev != 0) {
+                    track(prev);
+                    long seq = openSeq[prev];
+                    if (seq >= 0) {
+                        int slot = (int) (seq & mask);
+                        if (onCpuSince[prev] >= 0) burst[slot] += Math.max(0, t - onCpuSince[prev]);
+                        priority[slot] = ev.prio[k];
+                    }
+                    onCpuSince[prev] = -1;
+                    if (seq >= 0 && ev.kind[k] == BLOCKED) close(prev);
+                }
+                if (next != 0) {
+                    track(next);
+                    if (openSeq[next] < 0) open(next, t, ev.nextPrio[k]);
+                    ran[(int) (openSeq[next] & mask)] = true;
+                    onCpuSince[next] = t;
+                }
+            }
+        }
+
+        // end of trace: episodes still open count with the CPU time seen so far
+        void finish() throws IOException {
+            for (int p = 0; p < openSeq.length; p++) {
+                if (openSeq[p] < 0) continue;
+                if (onCpuSince[p] >= 0) burst[(int) (openSeq[p] & mask)] += last - onCpuSince[p];
+                closed[(int) (openSeq[p] & mask)] = true;
+                openSeq[p] = -1;
+            }
+            drain();
+        }
+
+        private void track(int p) {
+            if (p < openSeq.length) return;
+            int cap = Math.max(p + 1, openSeq.length * 2);
+            int old = openSeq.length;
+            openSeq = Arrays.copyOf(openSeq, cap);
+            onCpuSince = Arrays.copyOf(onCpuSince, cap);
+            Arrays.fill(openSeq, old, cap, -1);
+            Arrays.fill(onCpuSince, old, cap, -1);
+        }
+
+        private void open(int p, long t, int prio) {
+            if (tail - head == arrival.length) grow();
+            int slot = (int) (tail & mask);
+            arrival[slot] = t;
+            burst[slot] = 0;
+            priority[slot] = prio;
+            ran[slot] = closed[slot] = false;
+            openSeq[p] = tail++;
+        }
+
+        private void close(int p) throws IOException {
+            closed[(int) (openSeq[p] & mask)] = true;
+            openSeq[p] = -1;
+            drain();
+        }
+
+        private void drain() throws IOException {
+            while (head < tail && closed[(int) (head & mask)]) {
+                int slot = (int) (head++ & mask);
+                if (ran[slot]) emit(slot); // woken but never ran: its demand is unknown
+            }
+        }
+
+        private void emit(int slot) throws IOException {
+            long a = (arrival[slot] - origin) / unitNanos;
+            long b = Math.max(1, (burst[slot] + unitNanos - 1) / unitNanos);
+            // arrivals are long all the way through; only one episode's CPU time has to fit a burst
+            if (b > Integer.MAX_VALUE)
+                throw new IOException(trace + ": an episode runs for more than 2^31 units of " + unitNanos + " ns; use a larger unit");
+            sink.accept(processes++, a, (int) b, priority(priority[slot]), quantum);
+        }
+
+        private void grow() {
+            int cap = arrival.length * 2, newMask = cap - 1;
+            long[] a = new long[cap], b = new long[cap];
+            int[] p = new int[cap];
+            boolean[] r = new boolean[cap], c = new boolean[cap];
+            for (long seq = head; seq < tail; seq++) {
+                int from = (int) (seq & mask), to = (int) (seq & newMask);
+                a[to] = arrival[from];
+                b[to] = burst[from];
+                p[to] = priority[from];
+                r[to] = ran[from];
+                c[to] = closed[from];
+            }
+            arrival = a;
+            burst = b;
+            priority = p;
+            ran = r;
+            closed = c;
+            mask = newMask;
+        }
+    }
+
+    /* ---------------- import ---------------- */
+
+    // streams the trace's processes to the sink in arrival order, ids from 0
+    void importTo(WorkloadGenerator.ProcessSink sink) throws IOException {
+        lines = events = processes = 0;
+        Replay replay = new Replay(sink);
+        ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[chunkBytes + MAX_LINE + 1]);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (FileChannel ch = FileChannel.open(trace, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long chunks = (size + chunkBytes - 1) / chunkBytes;
+            int window = Math.max(1, threads * 2); // chunks allowed in flight
+            ArrayDeque<Future<Events>> inFlight = new ArrayDeque<>();
+            long next = 0;
+            while (next < chunks || !inFlight.isEmpty()) {
+                while (next < chunks && inFlight.size() < window) {
+                    long start = next++ * chunkBytes, end = Math.min(size, start + chunkBytes);
+                    inFlight.add(pool.submit(() -> parseChunk(ch, start, end, buffers.get())));
+                }
+                Events ev = inFlight.poll().get();
+                lines += ev.lines;
+                events += ev.size;
+                replay.accept(ev);
+            }
+            replay.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("parsing " + trace + " failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // the whole trace as a Workload (processes P1, P2, ... in arrival order)
+    Workload toWorkload(int contextSwitch, int rrQuantum, int agingInterval) throws IOException {
+        long[][] arrivals = {new long[1024]};
+        int[][] cols = {new int[1024], new int[1024], new int[1024]};
+        int[] n = {0};
+        importTo((id, arrival, burst, priority, q) -> {
+            if (n[0] == cols[0].length) {
+                arrivals[0] = Arrays.copyOf(arrivals[0], n[0] * 2);
+                for (int c = 0; c < cols.length; c++) cols[c] = Arrays.copyOf(cols[c], n[0] * 2);
+            }
+            arrivals[0][n[0]] = arrival;
+            cols[0][n[0]] = burst;
+            cols[1][n[0]] = priority;
+            cols[2][n[0]++] = q;
+        });
+        String[] names = new String[n[0]];
+        for (int i = 0; i < n[0]; i++) names[i] = "P" + (i + 1);
+        return new Workload(names, Arrays.copyOf(arrivals[0], n[0]), Arrays.copyOf(cols[0], n[0]),
+                Arrays.copyOf(cols[1], n[0]), Arrays.copyOf(cols[2], n[0]), contextSwitch, rrQuantum, agingInterval);
+    }
+
+    // writes the trace as a test-case file without holding it in memory
+    void writeJson(Path out, int contextSwitch, int rrQuantum, int agingInterval) throws IOException {
+        WorkloadGenerator.writeJson(out, contextSwitch, rrQuantum, agingInterval, this::importTo);
+    }
+
+    // usage: TraceImporter <trace> [out.json] [unit ns]
+    // without an output file only parses and counts, which measures the parse rate
+    public static void main(String[] args) throws IOException {
+        TraceImporter in = new TraceImporter(Paths.get(args[0]));
+        if (args.length > 2) in.unitNanos = Long.parseLong(args[2]);
+        long start = System.nanoTime();
+        if (args.length > 1) {
+            in.writeJson(Paths.get(args[1]), 1, 4, 5);
+        } else {
+            long[] work = {0};
+            in.importTo((id, arrival, burst, priority, quantum) -> work[0] += burst);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double mb = Files.size(in.trace) / 1e6;
+        System.out.printf("%d processes from %d events (%d lines), %.0f MB in %.2f s = %.0f MB/s on %d threads%n",
+                in.processes, in.events, in.lines, mb, seconds, mb / seconds, in.threads);
+    }
+}
+
+// JUnit checks for the trace importer
+class TraceImporterJUnitTest {
+
+    static final String FTRACE = String.join("\n",
+            "# tracer: nop",
+            "#",
+            "          <idle>-0       [000] d..2.   100.000000: sched_wakeup: comm=a pid=11 prio=120 target_cpu=000",
+            "          <idle>-0       [000] d..2.   100.000010: sched_switch: prev_comm=swapper/0 prev_pid=0 prev_prio=120 prev_state=R ==> next_comm=a next_pid=11 next_prio=120",
+            "               a-11      [000] d..2.   100.000015: sched_wakeup: comm=b pid=12 prio=110 target_cpu=000",
+            "               a-11      [000] d..2.   100.000020: sched_switch: prev_comm=a prev_pid=11 prev_prio=120 prev_state=R+ ==> next_comm=b next_pid=12 next_prio=110",
+            "               b-12      [000] d..2.   100.000050: sched_switch: prev_comm=b prev_pid=12 prev_prio=110 prev_state=S ==> next_comm=a next_pid=11 next_prio=120",
+            "               a-11      [000] d..2.   100.000055: sched_switch: prev_comm=a prev_pid=11 prev_prio=120 prev_state=D ==> next_comm=swapper/0 next_pid=0 next_prio=120",
+            "          <idle>-0       [000] d..2.   100.000100: sched_wakeup: comm=a pid=11 prio=120 target_cpu=000",
+            "          <idle>-0       [000] d..2.   100.000101: sched_switch: prev_comm=swapper/0 prev_pid=0 prev_prio=120 prev_state=R ==> next_comm=a next_pid=11 next_prio=120",
+            "               a-11      [000] d..2.   100.000104: sched_switch: prev_comm=a prev_pid=11 prev_prio=120 prev_state=S ==> next_comm=swapper/0 next_pid=0 next_prio=120",
+            "");
+
+    // the same events as perf script prints them
+    static final String PERF = String.join("\n",
+            "         swapper     0 [000]   100.000000:       sched:sched_wakeup: a:11 [120] CPU:000",
+            "         swapper     0 [000]   100.000010:       sched:sched_switch: swapper/0:0 [120] R ==> a:11 [120]",
+            "               a    11 [000]   100.000015:       sched:sched_wakeup: b:12 [110] success=1 CPU:000",
+            "               a    11 [000]   100.000020:       sched:sched_switch: a:11 [120] R+ ==> b:12 [110]",
+            "               b    12 [000]   100.000050:       sched:sched_switch: b:12 [110] S ==> a:11 [120]",
+            "               a    11 [000]   100.000055:       sched:sched_switch: a:11 [120] D ==> swapper/0:0 [120]",
+            "         swapper     0 [000]   100.000100:       sched:sched_wakeup: a:11 [120] CPU:000",
+            "         swapper     0 [000]   100.000101:       sched:sched_switch: swapper/0:0 [120] R ==> a:11 [120]",
+            "               a    11 [000]   100.000104:       sched:sched_switch: a:11 [120] S ==> swapper/0:0 [120]",
+            "");
+
+    static List<String> importAll(Path file, int chunkBytes, int threads) throws IOException {
+        TraceImporter in = new TraceImporter(file);
+        in.chunkBytes = chunkBytes;
+        in.threads = threads;
+        List<String> out = new ArrayList<>();
+        in.importTo((id, arrival, burst, priority, quantum) ->
+                out.add(id + ":" + arrival + "/" + burst + "/" + priority + "/" + quantum));
+        return out;
+    }
+
+    static Path write(String text) throws IOException {
+        Path file = Files.createTempFile("trace", ".txt");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, text);
+        return file;
+    }
+
+    @Test
+    void episodesFromFtraceAndPerf() throws Exception {
+        // a: woken at 0, runs 10-20, preempted by b, runs 50-55 and blocks: burst 15, nice 0
+        // b: woken at 15, runs 20-50: burst 30, prio 110 = nice -10
+        // a again: woken at 100, runs 101-104
+        List<String> expected = List.of("0:0/15/21/4", "1:15/30/11/4", "2:100/3/21/4");
+        assertEquals(expected, importAll(write(FTRACE), 1 << 20, 1));
+        assertEquals(expected, importAll(write(PERF), 1 << 20, 1));
+        assertEquals(expected, importAll(write(PERF.replace("\n", "\r\n")), 1 << 20, 1));
+    }
+
+    @Test
+    void chunkingAndThreadsDoNotChangeTheResult() throws Exception {
+        // a random mix of both formats; lines straddle chunk borders at every small chunk size
+        SplittableRandom rnd = new SplittableRandom(9);
+        StringBuilder sb = new StringBuilder();
+        long t = 5_000_000;
+        int running = 0;
+        for (int k = 0; k < 3000; k++) {
+            t += 1 + rnd.nextInt(40);
+            String ts = (t / 1_000_000) + "." + String.format("%06d", t % 1_000_000);
+            int pid = 1 + rnd.nextInt(30), prio = 100 + rnd.nextInt(40);
+            boolean perf = rnd.nextBoolean();
+            if (rnd.nextInt(3) == 0) {
+                sb.append(perf ? "  x 1 [000] " + ts + ": sched:sched_wakeup: t" + pid + ":" + pid + " [" + prio + "] CPU:000"
+                        : "  x-1 [000] d..2. " + ts + ": sched_wakeup: comm=t" + pid + " pid=" + pid + " prio=" + prio + " target_cpu=000");
+            } else {
+                String state = rnd.nextBoolean() ? "S" : "R";
+                sb.append(perf ? "  x 1 [000] " + ts + ": sched:sched_switch: t:" + running + " [120] " + state + " ==> t:" + pid + " [" + prio + "]"
+                        : "  x-1 [000] d..2. " + ts + ": sched_switch: prev_comm=t prev_pid=" + running + " prev_prio=120 prev_state="
+                        + state + " ==> next_comm=t next_pid=" + pid + " next_prio=" + prio);
+                running = pid;
+            }
+            sb.append('\n');
+        }
+        Path file = write(sb.toString());
+        List<String> whole = importAll(file, 1 << 20, 1);
+        assertTrue(whole.size() > 500, "only " + whole.size() + " processes");
+        for (int chunk : new int[]{37, 200, 4096})
+            for (int threads : new int[]{1, 4})
+                assertEquals(whole, importAll(file, chunk, threads), "chunk " + chunk + ", threads " + threads);
+    }
+
+    @Test
+    void tracesLongerThanTwoToTheThirtyOneUnits() throws Exception {
+        // the last episode moves 3 s later; in nanoseconds that is past 2^31
+        TraceImporter in = new TraceImporter(write(FTRACE
+                .replace("100.000100", "103.000100").replace("100.000101", "103.000101").replace("100.000104", "103.000104")));
+        in.unitNanos = 1;
+        Workload w = in.toWorkload(0, 4, 5);
+        assertEquals(3, w.size());
+        assertEquals(3_000_100_000L, w.arrival(2));
+        assertEquals(3000, w.burst(2));
+        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+        assertTrue(s.run());
+        assertEquals(3_000_103_000L, s.completion(2));
+    }
+
+    @Test
+    void importedWorkloadRunsAndRoundTripsThroughJson() throws Exception {
+        TraceImporter in = new TraceImporter(write(FTRACE));
+        Workload w = in.toWorkload(1, 4, 5);
+        assertEquals(3, w.size());
+        assertEquals(30, w.burst(1));
+        Path json = Files.createTempFile("trace", ".json");
+        json.toFile().deleteOnExit();
+        in.writeJson(json, 1, 4, 5);
+        assertEquals(w.toString(), WorkloadCodec.readWorkload(json).toString());
+        PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+        assertTrue(s.run());
+        assertEquals(w.arrival(2) + 3 + w.contextSwitch, s.completion(2)); // alone after an idle gap
+    }
+}
@@ -0,0 +1,285 @@
+import com.google.gson.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+
+/* =========================================================
+   Immutable Workload Description
+   ========================================================= */
+// Engine-neutral copy of a test case's "input" block. Nothing in here is ever
+// modified, so one Workload can be run by any engine, any number of times.
+final class Workload {
+
+    private final String[] names;
+    private final long[] arrival; // 64-bit: imported traces and generated workloads run past 2^31
+    private final int[] burst, priority, quantum;
+    private final int[] deadline; // relative to arrival, 0 = none; only EDF uses it
+
+    // optional CPU / I/O burst sequences, flattened: process i has the phases
+    // phases[phaseStart[i] .. phaseStart[i + 1]), CPU first and last, alternating
+    // with I/O; both null when every process is a single CPU burst
+    private final int[] phaseStart, phases;
+
+    final int contextSwitch; // used by RR, SJF and Priority
+    final int rrQuantum; // RR only
+    final int agingInterval; // Priority only
+
+    Workload(String[] names, long[] arrival, int[] burst, int[] priority, int[] quantum,
+             int contextSwitch, int rrQuantum, int agingInterval) {
+        this(names, arrival, burst, priority, quantum, new int[names.length], contextSwitch, rrQuantum, agingInterval);
+    }
+
+    Workload(String[] names, long[] arrival, int[] burst, int[] priority, int[] quantum, int[] deadline,
+             int contextSwitch, int rrQuantum, int agingInterval) {
+        int n = names.length;
+        if (arrival.length != n || burst.length != n || priority.length != n || quantum.length != n
+                || deadline.length != n)
+            throw new IllegalArgumentException("process columns have different lengths");
+        this.names = names.clone();
+        this.arrival = arrival.clone();
+        this.burst = burst.clone();
+        this.priority = priority.clone();
+        this.quantum = quantum.clone();
+        this.deadline = deadline.clone();
+        this.contextSwitch = contextSwitch;
+        this.rrQuantum = rrQuantum;
+        this.agingInterval = agingInterval;
+        this.phaseStart = null;
+        this.phases = null;
+    }
+
+    // copy of base with burst sequences; burst(i) becomes the CPU total of process i
+    private Workload(Workload base, int[] phaseStart, int[] phases) {
+        int n = base.size();
+        if (phaseStart.length != n + 1 || phaseStart[0] != 0 || phaseStart[n] > phases.length)
+            throw new IllegalArgumentException("bad burst sequence offsets");
+        names = base.names;
+        arrival = base.arrival;
+        priority = base.priority;
+        quantum = base.quantum;
+        deadline = base.deadline;
+        contextSwitch = base.contextSwitch;
+        rrQuantum = base.rrQuantum;
+        agingInterval = base.agingInterval;
+        this.phaseStart = phaseStart.clone();
+        this.phases = Arrays.copyOf(phases, phaseStart[n]);
+        burst = new int[n];
+        for (int i = 0; i < n; i++) {
+            int count = phaseStart[i + 1] - phaseStart[i];
+            if (count % 2 == 0) throw new IllegalArgumentException(names[i] + ": bursts must start and end with CPU");
+            for (int k = 0; k < count; k += 2) burst[i] += this.phases[phaseStart[i] + k];
+        }
+    }
+
+    // the same workload with CPU / I/O burst sequences (see phaseStart)
+    Workload withBursts(int[] phaseStart, int[] phases) {
+        return new Workload(this, phaseStart, phases);
+    }
+
+    int size() { return names.length; }
+    String name(int i) { return names[i]; }
+    long arrival(int i) { return arrival[i]; }
+    int burst(int i) { return burst[i]; }
+    int priority(int i) { return priority[i]; }
+    int quantum(int i) { return quantum[i]; }
+    int deadline(int i) { return deadline[i]; }
+
+    boolean hasIoBursts() { return phases != null; }
+
+    // number of bursts of process i: CPU, I/O, CPU, ... (1 without I/O)
+    int phaseCount(int i) { return phases == null ? 1 : phaseStart[i + 1] - phaseStart[i]; }
+
+    // length of burst k of process i; even k is CPU, odd k is I/O
+    int phase(int i, int k) { return phases == null ? burst[i] : phases[phaseStart[i] + k]; }
+
+    boolean hasDeadlines() {
+        for (int d : deadline)
+            if (d > 0) return true;
+        return false;
+    }
+
+    // process indices sorted by arrival; ties keep input order, like List.sort in the engines
+    int[] indicesByArrival() {
+        Integer[] idx = new Integer[size()];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, Comparator.comparingLong(i -> arrival[i]));
+        int[] out = new int[idx.length];
+        for (int i = 0; i < idx.length; i++) out[i] = idx[i];
+        return out;
+    }
+
+    // reads a test-case file (only the "input" block is used)
+    static Workload read(String path) throws IOException {
+        return WorkloadCodec.readWorkload(Paths.get(path));
+    }
+
+    // missing optional fields (quantum, rrQuantum, ...) default to 0
+    static Workload fromJson(JsonObject json) {
+        JsonObject input = json.getAsJsonObject("input");
+        JsonArray arr = input.getAsJsonArray("processes");
+        int n = arr.size();
+        String[] names = new String[n];
+        long[] a = new long[n];
+        int[] b = new int[n], p = new int[n], q = new int[n], d = new int[n];
+        int[] phaseStart = new int[n + 1];
+        List<Integer> phases = new ArrayList<>();
+        boolean io = false;
+        for (int i = 0; i < n; i++) {
+            JsonObject o = arr.get(i).getAsJsonObject();
+            names[i] = o.get("name").getAsString();
+            a[i] = o.get("arrival").getAsLong();
+            p[i] = intOr(o, "priority");
+            q[i] = intOr(o, "quantum");
+            d[i] = intOr(o, "deadline");
+            JsonArray bursts = o.getAsJsonArray("bursts"); // optional CPU / I/O sequence
+            if (bursts != null) {
+                io = true;
+                bursts.forEach(e -> phases.add(e.getAsInt()));
+            } else {
+                b[i] = o.get("burst").getAsInt();
+                phases.add(b[i]);
+            }
+            phaseStart[i + 1] = phases.size();
+        }
+        Workload w = new Workload(names, a, b, p, q, d,
+                intOr(input, "contextSwitch"), intOr(input, "rrQuantum"), intOr(input, "agingInterval"));
+        return io ? w.withBursts(phaseStart, phases.stream().mapToInt(Integer::intValue).toArray()) : w;
+    }
+
+    private static int intOr(JsonObject o, String key) {
+        JsonElement e = o.get(key);
+        return e == null || e.isJsonNull() ? 0 : e.getAsInt();
+    }
+
+    // the "input" block of a test-case file
+    JsonObject toJson() {
+        JsonObject input = new JsonObject();
+        input.addProperty("contextSwitch", contextSwitch);
+        input.addProperty("rrQuantum", rrQuantum);
+        input.addProperty("agingInterval", agingInterval);
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < size(); i++) {
+            JsonObject o = new JsonObject();
+            o.addProperty("name", names[i]);
+            o.addProperty("arrival", arrival[i]);
+            o.addProperty("burst", burst[i]);
+            o.addProperty("priority", priority[i]);
+            o.addProperty("quantum", quantum[i]);
+            if (deadline[i] > 0) o.addProperty("deadline", deadline[i]);
+            if (phaseCount(i) > 1) {
+                JsonArray bursts = new JsonArray();
+                for (int k = 0; k < phaseCount(i); k++) bursts.add(phase(i, k));
+                o.add("bursts", bursts);
+            }
+            arr.add(o);
+        }
+        input.add("processes", arr);
+        return input;
+    }
+
+    // small random workload for differential testing; parameters are kept small so
+    // that ties, simultaneous arrivals and idle gaps happen often
+    static Workload random(SplittableRandom rnd, int maxProcesses) {
+        int n = 1 + rnd.nextInt(maxProcesses);
+        String[] names = new String[n];
+        long[] a = new long[n];
+        int[] b = new int[n], p = new int[n], q = new int[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "P" + (i + 1);
+            a[i] = rnd.nextInt(3 * n + 1);
+            b[i] = 1 + rnd.nextInt(12);
+            p[i] = 1 + rnd.nextInt(6);
+            q[i] = 1 + rnd.nextInt(8);
+        }
+        return new Workload(names, a, b, p, q, rnd.nextInt(3), 1 + rnd.nextInt(5), 1 + rnd.nextInt(6));
+    }
+
+    /* ---------- copies with one thing changed (used when shrinking) ---------- */
+
+    Workload without(int index) {
+        int n = size() - 1;
+        String[] nn = new String[n];
+        long[] a = new long[n];
+        int[] b = new int[n], p = new int[n], q = new int[n], d = new int[n];
+        for (int i = 0, j = 0; i < size(); i++) {
+            if (i == index) continue;
+            nn[j] = names[i];
+            a[j] = arrival[i];
+            b[j] = burst[i];
+            p[j] = priority[i];
+            q[j] = quantum[i];
+            d[j] = deadline[i];
+            j++;
+        }
+        Workload w = new Workload(nn, a, b, p, q, d, contextSwitch, rrQuantum, agingInterval);
+        if (phases == null) return w;
+        // the removed process's bursts go, the later ones move down
+        int removed = phaseStart[index + 1] - phaseStart[index];
+        int[] ps = new int[n + 1];
+        int[] ph = new int[phases.length - removed];
+        for (int i = 0, j = 0; i < size(); i++) {
+            if (i == index) continue;
+            ps[j + 1] = ps[j] + phaseCount(i);
+            System.arraycopy(phases, phaseStart[i], ph, ps[j], phaseCount(i));
+            j++;
+        }
+        return w.withBursts(ps, ph);
+    }
+
+    // With burst sequences, a new CPU total is added to or taken from the last CPU
+    // bursts of process i; a CPU burst taken down to 0 goes together with the I/O
+    // burst before it, so the sequence still starts and ends with CPU.
+    Workload withProcess(int i, long newArrival, int newBurst, int newPriority, int newQuantum) {
+        Workload w = new Workload(names, arrival, burst, priority, quantum, deadline, contextSwitch, rrQuantum, agingInterval);
+        w.arrival[i] = newArrival;
+        w.burst[i] = newBurst;
+        w.priority[i] = newPriority;
+        w.quantum[i] = newQuantum;
+        if (phases == null) return w;
+
+        int[] edited = phasesWithCpu(i, newBurst);
+        int[] ps = new int[size() + 1];
+        int[] ph = new int[phases.length - phaseCount(i) + edited.length];
+        for (int j = 0; j < size(); j++) {
+            int count = j == i ? edited.length : phaseCount(j);
+            ps[j + 1] = ps[j] + count;
+            System.arraycopy(j == i ? edited : phases, j == i ? 0 : phaseStart[j], ph, ps[j], count);
+        }
+        return w.withBursts(ps, ph);
+    }
+
+    // bursts of process i with the CPU bursts changed to add up to cpu
+    private int[] phasesWithCpu(int i, int cpu) {
+        if (cpu < 1) throw new IllegalArgumentException(names[i] + ": CPU total must be positive");
+        int[] seq = Arrays.copyOfRange(phases, phaseStart[i], phaseStart[i + 1]);
+        int length = seq.length;
+        long change = (long) cpu - burst[i];
+        if (change >= 0) {
+            seq[length - 1] += (int) change;
+            return seq;
+        }
+        long take = -change;
+        while (take >= seq[length - 1]) { // cpu >= 1, so the first CPU burst always stays
+            take -= seq[length - 1];
+            length -= 2;
+        }
+        seq[length - 1] -= (int) take;
+        return Arrays.copyOf(seq, length);
+    }
+
+    Workload withParameters(int cs, int rrQ, int aging) {
+        Workload w = new Workload(names, arrival, burst, priority, quantum, deadline, cs, rrQ, aging);
+        return phases == null ? w : w.withBursts(phaseStart, phases);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("cs=" + contextSwitch + " rrQ=" + rrQuantum + " aging=" + agingInterval);
+        for (int i = 0; i < size(); i++)
+            sb.append(" ").append(names[i]).append("(a=").append(arrival[i]).append(",b=").append(burst[i])
+                    .append(",p=").append(priority[i]).append(",q=").append(quantum[i])
+                    .append(deadline[i] > 0 ? ",d=" + deadline[i] : "").append(")");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,366 @@
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/* =========================================================
+   Streaming JSON Codecs (no reflection)
+   ========================================================= */
+// Reads the test-case files token by token with Gson's JsonReader: no
+// reflective binding and no JsonObject tree. Nothing here needs reflection
+// configuration, so it works unchanged in a GraalVM native image, and its
+// few classes archive well with AppCDS, e.g.
+//   java -XX:ArchiveClassesAtExit=codec.jsa WorkloadCodec test_1.json SJF
+//   java -XX:SharedArchiveFile=codec.jsa WorkloadCodec test_1.json SJF
+final class WorkloadCodec {
+
+    private WorkloadCodec() {}
+
+    // expected results of one algorithm: an "expectedOutput" block (test_cases_v3)
+    // or one entry of it (test_cases_v5)
+    static final class Expected {
+        final List<String> order = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        long[] waiting = new long[8], turnaround = new long[8];
+        final List<int[]> quantumHistory = new ArrayList<>(); // empty unless the file has them
+        double averageWaitingTime, averageTurnaroundTime;
+
+        int size() { return names.size(); }
+    }
+
+    /* ---------------- workload ("input" block) ---------------- */
+
+    static Workload readWorkload(Path path) throws IOException {
+        try (JsonReader in = reader(path)) {
+            return readWorkload(in);
+        }
+    }
+
+    // reads the whole file, keeping only its "input" block; missing optional
+    // fields default to 0 like Workload.fromJson
+    static Workload readWorkload(JsonReader in) throws IOException {
+        Workload w = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("input")) w = readInput(in);
+            else in.skipValue();
+        }
+        in.endObject();
+        if (w == null) throw new IOException("no \"input\" block");
+        return w;
+    }
+
+    private static Workload readInput(JsonReader in) throws IOException {
+        int cs = 0, rrQ = 0, aging = 0, n = 0;
+        String[] names = new String[16];
+        long[] a = new long[16];
+        int[] b = new int[16], p = new int[16], q = new int[16], d = new int[16];
+        int[] phaseStart = new int[17], phases = new int[16]; // CPU / I/O sequences, as in Workload
+        int phaseCount = 0;
+        boolean io = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "contextSwitch" -> cs = in.nextInt();
+                case "rrQuantum" -> rrQ = in.nextInt();
+                case "agingInterval" -> aging = in.nextInt();
+                case "processes" -> {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (n == names.length) {
+                            int cap = n * 2;
+                            names = Arrays.copyOf(names, cap);
+                            a = Arrays.copyOf(a, cap);
+                            b = Arrays.copyOf(b, cap);
+                            p = Arrays.copyOf(p, cap);
+                            q = Arrays.copyOf(q, cap);
+                            d = Arrays.copyOf(d, cap);
+                            phaseStart = Arrays.copyOf(phaseStart, cap + 1);
+                        }
+                        boolean sequence = false;
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            switch (in.nextName()) {
+                                case "name" -> names[n] = in.nextString();
+                                case "arrival" -> a[n] = in.nextLong();
+                                case "burst" -> b[n] = in.nextInt();
+                                case "priority" -> p[n] = in.nextInt();
+                                case "quantum" -> q[n] = in.nextInt();
+                                case "deadline" -> d[n] = in.nextInt();
+                                case "bursts" -> {
+                                    sequence = io = true;
+                                    in.beginArray();
+                                    while (in.hasNext()) {
+                                        if (phaseCount == phases.length) phases = Arrays.copyOf(phases, phaseCount * 2);
+                                        phases[phaseCount++] = in.nextInt();
+                                    }
+                                    in.endArray();
+                                }
+                                default -> in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                        if (!sequence) {
+                            if (phaseCount == phases.length) phases = Arrays.copyOf(phases, phaseCount * 2);
+                            phases[phaseCount++] = b[n];
+                        }
+                        phaseStart[++n] = phaseCount;
+                    }
+                    in.endArray();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        Workload w = new Workload(Arrays.copyOf(names, n), Arrays.copyOf(a, n), Arrays.copyOf(b, n),
+                Arrays.copyOf(p, n), Arrays.copyOf(q, n), Arrays.copyOf(d, n), cs, rrQ, aging);
+        return io ? w.withBursts(Arrays.copyOf(phaseStart, n + 1), phases) : w;
+    }
+
+    /* ---------------- whole file ---------------- */
+
+    // a test-case file read in one pass: its workload and every expected block,
+    // keyed by algorithm (a test_cases_v3 block is stored under "AG", the only
+    // algorithm those files cover); a bare workload file has no expected blocks
+    static final class TestFile {
+        Workload workload;
+        final Map<String, Expected> expected = new LinkedHashMap<>();
+    }
+
+    static TestFile readTestFile(Reader r) throws IOException {
+        TestFile t = new TestFile();
+        JsonReader in = new JsonReader(r);
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "input" -> t.workload = readInput(in);
+                case "expectedOutput" -> {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String key = in.nextName();
+                        if (isExpectedField(key)) {
+                            readExpectedField(in, key, t.expected.computeIfAbsent("AG", k -> new Expected()));
+                        } else if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                            Expected e = new Expected();
+                            in.beginObject();
+                            while (in.hasNext()) readExpectedField(in, in.nextName(), e);
+                            in.endObject();
+                            t.expected.put(key, e);
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (t.workload == null) throw new IOException("no \"input\" block");
+        return t;
+    }
+
+    /* ---------------- expected output ---------------- */
+
+    // algorithm is the key in a test_cases_v5 file ("SJF", "RR", "Priority"); in a
+    // test_cases_v3 file the block is not keyed and algorithm is ignored
+    static Expected readExpected(Path path, String algorithm) throws IOException {
+        try (JsonReader in = reader(path)) {
+            Expected e = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("expectedOutput")) e = readExpectedOutput(in, algorithm);
+                else in.skipValue();
+            }
+            in.endObject();
+            if (e == null) throw new IOException(path + ": no expected output for " + algorithm);
+            return e;
+        }
+    }
+
+    private static Expected readExpectedOutput(JsonReader in, String algorithm) throws IOException {
+        Expected found = null, unkeyed = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (key.equals(algorithm)) {
+                found = new Expected();
+                in.beginObject();
+                while (in.hasNext()) readExpectedField(in, in.nextName(), found);
+                in.endObject();
+            } else if (isExpectedField(key)) {
+                if (unkeyed == null) unkeyed = new Expected();
+                readExpectedField(in, key, unkeyed);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return found != null ? found : unkeyed;
+    }
+
+    private static boolean isExpectedField(String key) {
+        return key.equals("executionOrder") || key.equals("processResults")
+                || key.equals("averageWaitingTime") || key.equals("averageTurnaroundTime");
+    }
+
+    private static void readExpectedField(JsonReader in, String key, Expected e) throws IOException {
+        switch (key) {
+            case "executionOrder" -> {
+                in.beginArray();
+                while (in.hasNext()) e.order.add(in.nextString());
+                in.endArray();
+            }
+            case "processResults" -> {
+                in.beginArray();
+                while (in.hasNext()) readProcessResult(in, e);
+                in.endArray();
+            }
+            case "averageWaitingTime" -> e.averageWaitingTime = in.nextDouble();
+            case "averageTurnaroundTime" -> e.averageTurnaroundTime = in.nextDouble();
+            default -> in.skipValue();
+        }
+    }
+
+    private static void readProcessResult(JsonReader in, Expected e) throws IOException {
+        int i = e.names.size();
+        if (i == e.waiting.length) {
+            e.waiting = Arrays.copyOf(e.waiting, i * 2);
+            e.turnaround = Arrays.copyOf(e.turnaround, i * 2);
+        }
+        String name = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "name" -> name = in.nextString();
+                case "waitingTime" -> e.waiting[i] = in.nextLong();
+                case "turnaroundTime" -> e.turnaround[i] = in.nextLong();
+                case "quantumHistory" -> {
+                    int[] h = new int[8];
+                    int len = 0;
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        if (len == h.length) h = Arrays.copyOf(h, len * 2);
+                        h[len++] = in.nextInt();
+                    }
+                    in.endArray();
+                    e.quantumHistory.add(Arrays.copyOf(h, len));
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        e.names.add(name);
+    }
+
+    private static JsonReader reader(Path path) throws IOException {
+        return new JsonReader(new BufferedReader(new InputStreamReader(
+                Files.newInputStream(path), StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    /* ---------------- one-shot comparison ---------------- */
+
+    // usage: WorkloadCodec <test case json> <RR|SJF|Priority|AG>
+    // runs one algorithm on the file's input and checks it against its expected output
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        Path path = Paths.get(args[0]);
+        String algorithm = args.length > 1 ? args[1] : "SJF";
+        Workload w = readWorkload(path);
+        Expected e = readExpected(path, algorithm);
+
+        long[] waiting = new long[w.size()], turnaround = new long[w.size()];
+        switch (algorithm) {
+            case "RR" -> {
+                RoundRobin.RunState s = new RoundRobin.RunState(w);
+                s.run();
+                for (int i = 0; i < w.size(); i++) { waiting[i] = s.waiting(i); turnaround[i] = s.turnaround(i); }
+            }
+            case "SJF" -> {
+                SJFScheduler.RunState s = new SJFScheduler.RunState(w);
+                s.run();
+                for (int i = 0; i < w.size(); i++) { waiting[i] = s.waiting(i); turnaround[i] = s.turnaround(i); }
+            }
+            case "Priority" -> {
+                PriorityPreemptiveScheduler.RunState s = new PriorityPreemptiveScheduler.RunState(w);
+                s.run();
+                for (int i = 0; i < w.size(); i++) { waiting[i] = s.waiting(i); turnaround[i] = s.turnaround(i); }
+            }
+            case "AG" -> {
+                AGScheduler.RunState s = new AGScheduler.RunState(w);
+                if (!s.run()) throw new IllegalStateException("AG run stalled");
+                for (int i = 0; i < w.size(); i++) { waiting[i] = s.waiting(i); turnaround[i] = s.turnaround(i); }
+            }
+            default -> throw new IllegalArgumentException("unknown algorithm " + algorithm);
+        }
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < w.size(); i++) index.put(w.name(i), i);
+        int mismatches = 0;
+        for (int k = 0; k < e.size(); k++) {
+            Integer i = index.get(e.names.get(k));
+            if (i == null || waiting[i] != e.waiting[k] || turnaround[i] != e.turnaround[k]) {
+                System.out.println("mismatch: " + e.names.get(k));
+                mismatches++;
+            }
+        }
+        System.out.printf("%s %s: %s in %.1f ms%n", path.getFileName(), algorithm,
+                mismatches == 0 ? "PASS" : "FAIL", (System.nanoTime() - start) / 1e6);
+        if (mismatches > 0) System.exit(1);
+    }
+}
+
+// JUnit checks for the codecs (they must agree with the tree-based loaders)
+class WorkloadCodecJUnitTest {
+
+    @Test
+    void workloadMatchesTreeLoader() throws Exception {
+        for (String path : List.of("test_cases_v5/Other_Schedulers/test_1.json", "test_cases_v3/AG_test1.json")) {
+            Workload streamed = WorkloadCodec.readWorkload(Paths.get(path));
+            Workload tree;
+            try (Reader r = new FileReader(path)) {
+                tree = Workload.fromJson(com.google.gson.JsonParser.parseReader(r).getAsJsonObject());
+            }
+            assertEquals(tree.toString(), streamed.toString(), path);
+        }
+    }
+
+    @Test
+    void expectedOutputInBothLayouts() throws Exception {
+        WorkloadCodec.Expected v5 = WorkloadCodec.readExpected(
+                Paths.get("test_cases_v5/Other_Schedulers/test_1.json"), "RR");
+        assertEquals(List.of("P1", "P2", "P1", "P3", "P2", "P1", "P4", "P5", "P2", "P1"), v5.order);
+        assertEquals(5, v5.size());
+        assertEquals(28, v5.waiting[0]);
+        assertEquals(20.4, v5.averageTurnaroundTime, 1e-9);
+        assertTrue(v5.quantumHistory.isEmpty());
+
+        WorkloadCodec.Expected v3 = WorkloadCodec.readExpected(Paths.get("test_cases_v3/AG_test1.json"), "AG");
+        assertEquals(4, v3.size());
+        assertArrayEquals(new int[]{7, 10, 14, 0}, v3.quantumHistory.get(0));
+        assertEquals(13.0, v3.averageWaitingTime, 1e-9);
+    }
+
+    @Test
+    void arrivalsPastTwoToTheThirtyOneSurviveTheRoundTrip() throws Exception {
+        // a trace recorded in microseconds crosses 2^31 after about 36 minutes
+        long late = (1L << 31) + 5;
+        String json = "{\"input\": {\"contextSwitch\": 0, \"processes\": ["
+                + "{\"name\": \"P1\", \"arrival\": 0, \"burst\": 4, \"priority\": 1},"
+                + "{\"name\": \"P2\", \"arrival\": " + late + ", \"burst\": 3, \"priority\": 1}]}}";
+        Workload w = WorkloadCodec.readWorkload(new JsonReader(new StringReader(json)));
+        assertEquals(late, w.arrival(1));
+        assertEquals(late, WorkloadCodec.readWorkload(new JsonReader(new StringReader("{\"input\": " + w.toJson() + "}"))).arrival(1));
+
+        CFSScheduler s = new CFSScheduler(w, 4, 1);
+        s.run();
+        assertEquals(late + 3, s.completion(1));
+        assertEquals(3, s.turnaround(1));
+    }
+}
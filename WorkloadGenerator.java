@@ -0,0 +1,260 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/* =========================================================
+   Synthetic Workload Generator
+   ========================================================= */
+// Produces a seeded, reproducible stream of processes. The stream is cut into
+// fixed-size chunks; every chunk has its own random generator derived from
+// (seed, chunk index) so chunks can be generated on any number of threads and
+// the output is still identical. Chunks are handed to the sink in order and only
+// a few of them are in memory at a time, so the count can be in the billions.
+public class WorkloadGenerator {
+
+    enum Arrivals {
+        POISSON, // exponential gaps with mean meanGap
+        BURSTY   // groups of arrivals close together, separated by long quiet periods
+    }
+
+    enum Bursts {
+        EXPONENTIAL, // mean meanBurst
+        PARETO,      // heavy tail: minBurst / U^(1/paretoAlpha)
+        BIMODAL      // mostly short jobs (shortBurst) with a fraction of long ones (longBurst)
+    }
+
+    // receives generated processes in order of id (and therefore of arrival)
+    interface ProcessSink {
+        void accept(long id, long arrival, int burst, int priority, int quantum) throws IOException;
+    }
+
+    // anything that streams processes to a sink in arrival order (a generator, a trace import)
+    interface ProcessSource {
+        void generate(ProcessSink sink) throws IOException;
+    }
+
+    static final int CHUNK = 1 << 16; // processes per chunk
+
+    final long seed;
+    final long count;
+
+    // arrival settings
+    Arrivals arrivals = Arrivals.POISSON;
+    double meanGap = 4; // average time between two arrivals
+    double burstGroupSize = 20; // BURSTY: average number of arrivals per group
+
+    // CPU burst settings
+    Bursts bursts = Bursts.EXPONENTIAL;
+    double meanBurst = 10;
+    double paretoAlpha = 1.5;
+    int minBurst = 1;
+    double shortBurst = 4, longBurst = 80, longFraction = 0.1;
+
+    // priority (smaller = higher) and AG quantum ranges, both inclusive
+    int minPriority = 1, maxPriority = 10;
+    double prioritySkew = 0; // 0 = uniform, larger values favour high priorities (small numbers)
+    int minQuantum = 2, maxQuantum = 10;
+
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    WorkloadGenerator(long seed, long count) {
+        this.seed = seed;
+        this.count = count;
+    }
+
+    // one generated chunk; arrivals are relative to the end of the previous chunk
+    private static final class Chunk {
+        final long[] arrivalOffset;
+        final int[] burst, priority, quantum;
+        long span; // time covered by this chunk
+
+        Chunk(int n) {
+            arrivalOffset = new long[n];
+            burst = new int[n];
+            priority = new int[n];
+            quantum = new int[n];
+        }
+    }
+
+    // streams every process to the sink, generating chunks in parallel
+    void generate(ProcessSink sink) throws IOException {
+        long chunks = (count + CHUNK - 1) / CHUNK;
+        int window = Math.max(1, threads * 2); // chunks allowed in flight
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            long next = 0; // next chunk to submit
+            long base = 0; // absolute time where the current chunk starts
+            long id = 0;
+            while (id < count) {
+                while (next < chunks && inFlight.size() < window) {
+                    long k = next++;
+                    inFlight.add(pool.submit(() -> makeChunk(k)));
+                }
+                Chunk c = inFlight.poll().get();
+                for (int i = 0; i < c.burst.length; i++)
+                    sink.accept(id++, base + c.arrivalOffset[i], c.burst[i], c.priority[i], c.quantum[i]);
+                base += c.span;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("generation interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("chunk generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Chunk makeChunk(long k) {
+        int n = (int) Math.min(CHUNK, count - k * CHUNK);
+        Chunk c = new Chunk(n);
+        SplittableRandom rnd = new SplittableRandom(mix(seed, k));
+
+        // the first process of the whole workload always arrives at time 0
+        double t = k == 0 ? 0 : gap(rnd);
+        int leftInGroup = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                if (arrivals == Arrivals.BURSTY) {
+                    if (leftInGroup == 0) {
+                        leftInGroup = 1 + (int) exp(rnd, burstGroupSize);
+                        t += exp(rnd, meanGap * burstGroupSize); // quiet period
+                    } else {
+                        t += exp(rnd, meanGap / burstGroupSize);
+                    }
+                    leftInGroup--;
+                } else {
+                    t += gap(rnd);
+                }
+            }
+            c.arrivalOffset[i] = (long) t;
+            c.burst[i] = burst(rnd);
+            c.priority[i] = priority(rnd);
+            c.quantum[i] = minQuantum + rnd.nextInt(maxQuantum - minQuantum + 1);
+        }
+        c.span = (long) t;
+        return c;
+    }
+
+    private double gap(SplittableRandom rnd) {
+        return exp(rnd, meanGap);
+    }
+
+    private int burst(SplittableRandom rnd) {
+        double b;
+        switch (bursts) {
+            case PARETO:
+                b = minBurst / Math.pow(1 - rnd.nextDouble(), 1 / paretoAlpha);
+                break;
+            case BIMODAL:
+                b = exp(rnd, rnd.nextDouble() < longFraction ? longBurst : shortBurst);
+                break;
+            default:
+                b = exp(rnd, meanBurst);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(minBurst, Math.ceil(b)));
+    }
+
+    private int priority(SplittableRandom rnd) {
+        int range = maxPriority - minPriority + 1;
+        // skew > 0 pushes values towards minPriority (u^(1+skew) is biased to 0)
+        double u = Math.pow(rnd.nextDouble(), 1 + prioritySkew);
+        return minPriority + Math.min(range - 1, (int) (u * range));
+    }
+
+    private static double exp(SplittableRandom rnd, double mean) {
+        return -mean * Math.log(1 - rnd.nextDouble());
+    }
+
+    // SplitMix64 finalizer, gives each chunk an independent seed
+    private static long mix(long seed, long k) {
+        long z = seed + (k + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // writes the workload as a test-case file ({"input": {..., "processes": [...]}})
+    // without ever holding more than a few chunks in memory
+    void writeJson(Path out, int contextSwitch, int rrQuantum, int agingInterval) throws IOException {
+        writeJson(out, contextSwitch, rrQuantum, agingInterval, this::generate);
+    }
+
+    // the same file format for any source; processes are named P1, P2, ... by id
+    static void writeJson(Path out, int contextSwitch, int rrQuantum, int agingInterval,
+                          ProcessSource source) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(out), StandardCharsets.UTF_8), 1 << 16)) {
+            w.write("{\n  \"input\": {\n");
+            w.write("    \"contextSwitch\": " + contextSwitch + ",\n");
+            w.write("    \"rrQuantum\": " + rrQuantum + ",\n");
+            w.write("    \"agingInterval\": " + agingInterval + ",\n");
+            w.write("    \"processes\": [");
+            source.generate((id, arrival, burst, priority, quantum) -> {
+                w.write(id == 0 ? "\n" : ",\n");
+                w.write("      {\"name\": \"P" + (id + 1) + "\", \"arrival\": " + arrival
+                        + ", \"burst\": " + burst + ", \"priority\": " + priority
+                        + ", \"quantum\": " + quantum + "}");
+            });
+            w.write("\n    ]\n  }\n}\n");
+        }
+    }
+
+    // usage: WorkloadGenerator <out.json> <count> [seed] [POISSON|BURSTY] [EXPONENTIAL|PARETO|BIMODAL]
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("usage: WorkloadGenerator <out.json> <count> [seed] [arrivals] [bursts]");
+            return;
+        }
+        WorkloadGenerator gen = new WorkloadGenerator(
+                args.length > 2 ? Long.parseLong(args[2]) : 42, Long.parseLong(args[1]));
+        if (args.length > 3) gen.arrivals = Arrivals.valueOf(args[3]);
+        if (args.length > 4) gen.bursts = Bursts.valueOf(args[4]);
+
+        long start = System.nanoTime();
+        gen.writeJson(Paths.get(args[0]), 1, 4, 5);
+        System.out.printf("wrote %d processes in %.2f s%n", gen.count, (System.nanoTime() - start) / 1e9);
+    }
+}
+
+// JUnit checks for the generator
+class WorkloadGeneratorJUnitTest {
+
+    @Test
+    void sameSeedSameWorkloadOnAnyThreadCount() throws Exception {
+        assertEquals(fingerprint(1), fingerprint(8));
+    }
+
+    @Test
+    void arrivalsAreSortedAndValuesInRange() throws Exception {
+        WorkloadGenerator gen = new WorkloadGenerator(7, 3 * WorkloadGenerator.CHUNK + 5);
+        gen.arrivals = WorkloadGenerator.Arrivals.BURSTY;
+        gen.bursts = WorkloadGenerator.Bursts.PARETO;
+        long[] last = {-1};
+        long[] seen = {0};
+        gen.generate((id, arrival, burst, priority, quantum) -> {
+            assertEquals(seen[0]++, id);
+            assertTrue(arrival >= last[0], "arrivals must not go back in time");
+            assertTrue(burst >= 1);
+            assertTrue(priority >= gen.minPriority && priority <= gen.maxPriority);
+            assertTrue(quantum >= gen.minQuantum && quantum <= gen.maxQuantum);
+            last[0] = arrival;
+        });
+        assertEquals(gen.count, seen[0]);
+    }
+
+    private static long fingerprint(int threads) throws Exception {
+        WorkloadGenerator gen = new WorkloadGenerator(123, 2 * WorkloadGenerator.CHUNK + 17);
+        gen.bursts = WorkloadGenerator.Bursts.BIMODAL;
+        gen.threads = threads;
+        long[] h = {17};
+        gen.generate((id, arrival, burst, priority, quantum) ->
+                h[0] = h[0] * 31 + arrival * 7 + burst * 5 + priority * 3 + quantum);
+        return h[0];
+    }
+}